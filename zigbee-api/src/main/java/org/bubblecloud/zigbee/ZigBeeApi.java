@@ -15,10 +15,21 @@
  */
 package org.bubblecloud.zigbee;
 
-import org.bubblecloud.zigbee.network.EndpointListener;
+import org.bubblecloud.zigbee.network.EndpointRestoreListener;
 import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesStatus;
+import org.bubblecloud.zigbee.api.gather.GroupAttributeReader;
+import org.bubblecloud.zigbee.api.gather.ScatterGatherListener;
+import org.bubblecloud.zigbee.api.gather.ScatterGatherReader;
+import org.bubblecloud.zigbee.api.gather.ScatterGatherSummary;
+import org.bubblecloud.zigbee.api.provisioning.ProvisioningPipeline;
+import org.bubblecloud.zigbee.network.discovery.MatchDescriptorDiscovery;
 import org.bubblecloud.zigbee.network.discovery.ZigBeeDiscoveryManager;
-import org.bubblecloud.zigbee.network.impl.NetworkStateSerializer;
+import org.bubblecloud.zigbee.network.impl.CoordinatorBackup;
+import org.bubblecloud.zigbee.network.impl.NetworkStateFilter;
+import org.bubblecloud.zigbee.network.impl.NetworkStateJournal;
+import org.bubblecloud.zigbee.network.impl.NetworkStateSnapshot;
 import org.bubblecloud.zigbee.network.impl.ZigBeeNetwork;
 import org.bubblecloud.zigbee.network.model.DiscoveryMode;
 import org.bubblecloud.zigbee.network.model.DriverStatus;
@@ -26,33 +37,41 @@ import org.bubblecloud.zigbee.network.model.NetworkMode;
 import org.bubblecloud.zigbee.api.DeviceListener;
 import org.bubblecloud.zigbee.network.impl.ApplicationFrameworkLayer;
 import org.bubblecloud.zigbee.api.*;
-import org.bubblecloud.zigbee.api.device.generic.*;
-import org.bubblecloud.zigbee.api.device.hvac.Pump;
-import org.bubblecloud.zigbee.api.device.hvac.TemperatureSensor;
-import org.bubblecloud.zigbee.api.device.lighting.*;
-import org.bubblecloud.zigbee.api.device.security_safety.IASAncillaryControlEquipment;
-import org.bubblecloud.zigbee.api.device.security_safety.IASControlAndIndicatingEquipment;
-import org.bubblecloud.zigbee.api.device.security_safety.IAS_Warning;
-import org.bubblecloud.zigbee.api.device.security_safety.IAS_Zone;
-import org.bubblecloud.zigbee.api.device.impl.*;
 import org.bubblecloud.zigbee.api.DeviceBase;
 import org.bubblecloud.zigbee.network.port.ZigBeeNetworkManagerImpl;
 import org.bubblecloud.zigbee.network.port.ZigBeePort;
+import org.bubblecloud.zigbee.network.topology.NetworkTopology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * ZigBee Application Interface.
  * @author <a href="mailto:tommi.s.e.laukkanen@gmail.com">Tommi S.E. Laukkanen</a>
  * @author <a href="mailto:christopherhattonuk@gmail.com">Chris Hatton</a>
  */
-public class ZigBeeApi implements EndpointListener, DeviceListener {
+public class ZigBeeApi implements EndpointRestoreListener, DeviceListener {
     /**
      * The logger.
      */
     private final static Logger LOGGER = LoggerFactory.getLogger(ZigBeeDiscoveryManager.class);
+    /**
+     * The number of restored endpoints for which device proxies are created in one parallel batch.
+     */
+    private static final int DEVICE_BATCH_SIZE = 64;
     /**
      * The ZigBee network manager.
      */
@@ -69,6 +88,14 @@ public class ZigBeeApi implements EndpointListener, DeviceListener {
      * The zigbee network.
      */
     private ZigBeeNetwork network;
+    /**
+     * The provisioning pipeline.
+     */
+    private ProvisioningPipeline provisioningPipeline;
+    /**
+     * The network state journal or null if network state is not persisted.
+     */
+    private NetworkStateJournal networkStateJournal;
 
     /**
      * Constructor to configure the port interface.
@@ -108,37 +135,7 @@ public class ZigBeeApi implements EndpointListener, DeviceListener {
         final ClusterFactory clusterFactory = new ClusterFactoryImpl(context);
         context.setClusterFactory(clusterFactory);
 
-        final Map<Class<?>, Class<?>> deviceIntefaceImplemetnationMap = new HashMap<Class<?>, Class<?>>();
-        deviceIntefaceImplemetnationMap.put(ColorDimmableLight.class, ColorDimmableLightDevice.class);
-        deviceIntefaceImplemetnationMap.put(DimmableLight.class, DimmableLightDevice.class);
-        deviceIntefaceImplemetnationMap.put(IAS_Zone.class, IAS_ZoneDevice.class);
-        deviceIntefaceImplemetnationMap.put(IASAncillaryControlEquipment.class, IASAncillaryControlEquipmentDevice.class);
-        deviceIntefaceImplemetnationMap.put(IASControlAndIndicatingEquipment.class, IASControlAndIndicatingEquipmentDevice.class);
-        deviceIntefaceImplemetnationMap.put(LevelControlSwitch.class, LevelControlSwitchDevice.class);
-        deviceIntefaceImplemetnationMap.put(LightSensor.class, LightSensorDevice.class);
-        deviceIntefaceImplemetnationMap.put(MainsPowerOutlet.class, MainsPowerOutletDevice.class);
-        deviceIntefaceImplemetnationMap.put(OccupancySensor.class, OccupancySensorDevice.class);
-        deviceIntefaceImplemetnationMap.put(OnOffLight.class, OnOffLightDevice.class);
-        deviceIntefaceImplemetnationMap.put(OnOffLightSwitch.class, OnOffLightSwitchDevice.class);
-        deviceIntefaceImplemetnationMap.put(OnOffOutput.class, OnOffOutputDevice.class);
-        deviceIntefaceImplemetnationMap.put(OnOffSwitch.class, OnOffSwitchDevice.class);
-        deviceIntefaceImplemetnationMap.put(OnOffLight.class, OnOffLightDevice.class);
-        deviceIntefaceImplemetnationMap.put(Pump.class, PumpDevice.class);
-        deviceIntefaceImplemetnationMap.put(TemperatureSensor.class, TemperatureSensorDevice.class);
-        deviceIntefaceImplemetnationMap.put(IAS_Warning.class, IAS_Warning_Device.class);
-        deviceIntefaceImplemetnationMap.put(SimpleSensor.class, SimpleSensorDevice.class);
-
-        final Iterator<Map.Entry<Class<?>, Class<?>>> i = deviceIntefaceImplemetnationMap.entrySet().iterator();
-        while (i.hasNext()) {
-            Map.Entry<Class<?>, Class<?>> refining = i.next();
-            try {
-                context.getDeviceFactories().add(
-                        new DeviceFactoryImpl(context, refining.getKey(), refining.getValue()));
-            } catch (Exception ex) {
-                LOGGER.error("Failed to register DeviceFactoryImpl for " + refining.getKey(), ex);
-            }
-        }
-
+        DeviceFactoryRegistry.register(context);
     }
 
 
@@ -165,7 +162,9 @@ public class ZigBeeApi implements EndpointListener, DeviceListener {
             }
         }
 
-        ApplicationFrameworkLayer.getAFLayer(networkManager).createDefaultSendingEndPoint();
+        final ApplicationFrameworkLayer applicationFrameworkLayer = ApplicationFrameworkLayer.getAFLayer(networkManager);
+        applicationFrameworkLayer.createDefaultSendingEndPoint();
+        applicationFrameworkLayer.planSendingEndpoints();
 
         discoveryManager.startup();
 
@@ -187,25 +186,170 @@ public class ZigBeeApi implements EndpointListener, DeviceListener {
     public void shutdown() {
         context.removeDeviceListener(this);
         network.removeEndpointListener(this);
+        synchronized (this) {
+            if (provisioningPipeline != null) {
+                provisioningPipeline.shutdown();
+            }
+        }
         discoveryManager.shutdown();
         networkManager.shutdown();
+        synchronized (this) {
+            if (networkStateJournal != null) {
+                networkStateJournal.close();
+                networkStateJournal = null;
+            }
+        }
+    }
+
+    /**
+     * Restores network state from the binary snapshot and journal in the directory and keeps journaling
+     * network changes to the directory until shutdown. Should be called before startup.
+     *
+     * @param directory the network state directory
+     * @return true if network state was restored
+     * @throws IOException if network state can not be read or journal can not be opened
+     */
+    public synchronized boolean persistNetworkState(final File directory) throws IOException {
+        if (networkStateJournal != null) {
+            throw new IllegalStateException("Network state is already persisted.");
+        }
+        final NetworkStateJournal journal = new NetworkStateJournal(directory);
+        final int restored = journal.restore(networkManager, network);
+        journal.open(network);
+        networkStateJournal = journal;
+        LOGGER.info("Restored {} endpoints from network state in {}.", restored, directory);
+        return restored > 0;
+    }
+
+    /**
+     * Exports network state as binary snapshot written node by node.
+     *
+     * @param out the output stream which is flushed but not closed
+     * @throws IOException if I/O error occurs
+     */
+    public void exportNetworkState(final OutputStream out) throws IOException {
+        exportNetworkState(out, NetworkStateFilter.ALL);
+    }
+
+    /**
+     * Exports network state of the nodes accepted by filter as binary snapshot written node by node.
+     *
+     * @param out the output stream which is flushed but not closed
+     * @param filter the node filter
+     * @return the number of endpoints exported
+     * @throws IOException if I/O error occurs
+     */
+    public int exportNetworkState(final OutputStream out, final NetworkStateFilter filter) throws IOException {
+        return NetworkStateSnapshot.write(network, out, filter);
+    }
+
+    /**
+     * Exports network state of the nodes accepted by filter to channel, for example {@link java.nio.channels.FileChannel}.
+     *
+     * @param channel the channel which is not closed
+     * @param filter the node filter
+     * @return the number of endpoints exported
+     * @throws IOException if I/O error occurs
+     */
+    public int exportNetworkState(final WritableByteChannel channel, final NetworkStateFilter filter)
+            throws IOException {
+        return exportNetworkState(Channels.newOutputStream(channel), filter);
+    }
+
+    /**
+     * Imports network state from binary snapshot. The nodes read are held in memory until the snapshot
+     * checksum has been verified and are then added to network at once, so an invalid snapshot leaves
+     * network unchanged. Memory use therefore grows with the number of nodes imported.
+     *
+     * @param in the input stream which is not closed
+     * @return the number of endpoints imported
+     * @throws IOException if I/O error occurs or snapshot is invalid
+     */
+    public int importNetworkState(final InputStream in) throws IOException {
+        return importNetworkState(in, NetworkStateFilter.ALL);
+    }
+
+    /**
+     * Imports network state of the nodes accepted by filter from binary snapshot. The accepted nodes
+     * are held in memory until the snapshot checksum has been verified and are then added to network
+     * at once, so an invalid snapshot leaves network unchanged. Memory use therefore grows with the
+     * number of nodes accepted.
+     *
+     * @param in the input stream which is not closed
+     * @param filter the node filter
+     * @return the number of endpoints imported
+     * @throws IOException if I/O error occurs or snapshot is invalid
+     */
+    public int importNetworkState(final InputStream in, final NetworkStateFilter filter) throws IOException {
+        return NetworkStateSnapshot.restore(in, networkManager, network, filter);
+    }
+
+    /**
+     * Imports network state of the nodes accepted by filter from channel, for example {@link java.nio.channels.FileChannel}.
+     *
+     * @param channel the channel which is not closed
+     * @param filter the node filter
+     * @return the number of endpoints imported
+     * @throws IOException if I/O error occurs or snapshot is invalid
+     */
+    public int importNetworkState(final ReadableByteChannel channel, final NetworkStateFilter filter)
+            throws IOException {
+        return importNetworkState(Channels.newInputStream(channel), filter);
+    }
+
+    /**
+     * Backs up the coordinator dongle network NV items: network key, PAN, extended PAN, frame counters
+     * and the device, address and binding tables.
+     *
+     * @param out the output stream which is flushed but not closed
+     * @return the number of NV items backed up
+     * @throws IOException if I/O error occurs
+     */
+    public int backupCoordinator(final OutputStream out) throws IOException {
+        final CoordinatorBackup backup = CoordinatorBackup.read(networkManager);
+        backup.write(out);
+        LOGGER.info("Backed up {} coordinator NV items.", backup.getItems().size());
+        return backup.getItems().size();
+    }
+
+    /**
+     * Restores coordinator dongle network NV items from backup. The dongle resumes the restored
+     * network after it has been reset, so the API has to be restarted without network reset.
+     *
+     * @param in the input stream which is not closed
+     * @return the number of NV items restored
+     * @throws IOException if I/O error occurs or backup is invalid
+     */
+    public int restoreCoordinator(final InputStream in) throws IOException {
+        final CoordinatorBackup backup = CoordinatorBackup.load(in);
+        final int restored = backup.restore(networkManager);
+        LOGGER.info("Restored {} of {} coordinator NV items.", restored, backup.getItems().size());
+        return restored;
     }
 
     /**
      * Serializes network state.
      * @return the network state
+     * @deprecated use {@link #persistNetworkState(File)}
      */
+    @Deprecated
+    @SuppressWarnings("deprecation")
     public String serializeNetworkState() {
-        final NetworkStateSerializer networkStateSerializer = new NetworkStateSerializer();
+        final org.bubblecloud.zigbee.network.impl.NetworkStateSerializer networkStateSerializer =
+                new org.bubblecloud.zigbee.network.impl.NetworkStateSerializer();
         return networkStateSerializer.serialize(network);
     }
 
     /**
      * Deserialize network state.
      * @param networkState the network state
+     * @deprecated use {@link #persistNetworkState(File)}
      */
+    @Deprecated
+    @SuppressWarnings("deprecation")
     public void deserializeNetworkState(final String networkState) {
-        final NetworkStateSerializer networkStateSerializer = new NetworkStateSerializer();
+        final org.bubblecloud.zigbee.network.impl.NetworkStateSerializer networkStateSerializer =
+                new org.bubblecloud.zigbee.network.impl.NetworkStateSerializer();
         networkStateSerializer.deserialize(networkManager, network, networkState);
     }
 
@@ -246,6 +390,102 @@ public class ZigBeeApi implements EndpointListener, DeviceListener {
         return network;
     }
 
+    /**
+     * Gets ZigBee network topology.
+     *
+     * @return the ZigBee network topology.
+     */
+    public NetworkTopology getNetworkTopology() {
+        return network.getTopology();
+    }
+
+    /**
+     * Finds endpoints implementing given clusters with single match descriptor broadcast. Responses
+     * from whole network are collected during the window. Responding nodes which are not yet known
+     * are inspected in the background and are not included in the result.
+     *
+     * @param profileId      the profile ID
+     * @param inputClusters  the input (server) clusters to match
+     * @param outputClusters the output (client) clusters to match
+     * @param window         the time in milliseconds to collect responses
+     * @return the matching endpoints
+     */
+    public List<ZigBeeEndpoint> findEndpoints(final int profileId, final int[] inputClusters,
+                                              final int[] outputClusters, final long window) {
+        return discoveryManager.getMatchDescriptorDiscovery().findEndpoints(profileId, inputClusters,
+                outputClusters, window);
+    }
+
+    /**
+     * Finds devices implementing given input (server) clusters with single match descriptor broadcast.
+     *
+     * @param profileId     the profile ID
+     * @param inputClusters the input (server) clusters to match
+     * @return the matching devices
+     * @see #findEndpoints(int, int[], int[], long)
+     */
+    public List<Device> findDevices(final int profileId, final int... inputClusters) {
+        final List<Device> devices = new ArrayList<Device>();
+        for (final ZigBeeEndpoint endpoint : findEndpoints(profileId, inputClusters, new int[0],
+                MatchDescriptorDiscovery.DEFAULT_WINDOW_MILLIS)) {
+            final Device device = context.getDevice(endpoint.getEndpointId());
+            if (device != null) {
+                devices.add(device);
+            }
+        }
+        return devices;
+    }
+
+    /**
+     * Reads the same attributes from many devices concurrently within the default in-flight limit.
+     * Results are streamed to the listener as they arrive.
+     *
+     * @param devices       the devices to read
+     * @param clusterId     the cluster ID
+     * @param attributeIds  the attribute IDs
+     * @param timeoutMillis the overall deadline of the read in milliseconds
+     * @param listener      the listener receiving results as they arrive or null
+     * @return the summary of the read
+     * @see ScatterGatherReader
+     */
+    public ScatterGatherSummary readAttributes(final Collection<? extends Device> devices, final int clusterId,
+                                               final int[] attributeIds, final long timeoutMillis,
+                                               final ScatterGatherListener listener) {
+        return new ScatterGatherReader().read(devices, clusterId, attributeIds, timeoutMillis, listener);
+    }
+
+    /**
+     * Reads attributes from all members of a group with a single group addressed frame.
+     * Responses arriving during the window are collected and stored to the attribute cache.
+     *
+     * @param groupId      the group ID
+     * @param clusterId    the cluster ID
+     * @param attributeIds the attribute IDs
+     * @param windowMillis the time to collect responses in milliseconds
+     * @return the read records per responding endpoint
+     * @throws ZigBeeClusterException if the request could not be sent
+     * @see GroupAttributeReader
+     */
+    public Map<ZigBeeEndpoint, ReadAttributesStatus[]> readGroupAttributes(final int groupId, final int clusterId,
+                                                                          final int[] attributeIds,
+                                                                          final long windowMillis)
+            throws ZigBeeClusterException {
+        return new GroupAttributeReader(networkManager).read(groupId, clusterId, attributeIds, windowMillis);
+    }
+
+    /**
+     * Gets provisioning pipeline for bulk commissioning of joining devices. The pipeline
+     * has to be configured and started before devices join the network.
+     *
+     * @return the provisioning pipeline.
+     */
+    public synchronized ProvisioningPipeline getProvisioningPipeline() {
+        if (provisioningPipeline == null) {
+            provisioningPipeline = new ProvisioningPipeline(context);
+        }
+        return provisioningPipeline;
+    }
+
     public Device getDevice(String endPointId) {
         return context.getDevice(endPointId);
     }
@@ -264,15 +504,96 @@ public class ZigBeeApi implements EndpointListener, DeviceListener {
 
     @Override
     public void endpointAdded(final ZigBeeEndpoint endpoint) {
+        final DeviceBase haDevice = createDevice(endpoint);
+        if (haDevice == null) {
+            return;
+        }
+        context.addDevice(haDevice);
+        LOGGER.trace("Endpoint added: " + endpoint.getEndpointId());
+    }
+
+    /**
+     * Creates device proxies for the restored endpoints in parallel batches and adds them
+     * to context at once.
+     *
+     * @param endpoints the restored endpoints
+     */
+    @Override
+    public void endpointsRestored(final List<ZigBeeEndpoint> endpoints) {
+        final long startMillis = System.currentTimeMillis();
+        final List<Device> devices = context.addDevices(createDevices(endpoints));
+        LOGGER.debug("Restored {} devices for {} endpoints in {} ms.", new Object[]{devices.size(),
+                endpoints.size(), System.currentTimeMillis() - startMillis});
+    }
+
+    /**
+     * Creates device proxy for endpoint.
+     *
+     * @param endpoint the endpoint
+     * @return the device proxy or null if no proxy factory matches the endpoint
+     */
+    private DeviceBase createDevice(final ZigBeeEndpoint endpoint) {
         final DeviceFactory factory = context.getBestDeviceProxyFactory(endpoint);
         if (factory == null) { // pending services
             LOGGER.warn("No proxy for ZigBee endpoint {} found.", endpoint.getDeviceTypeId());
-            return;
+            return null;
         }
+        return factory.getInstance(endpoint);
+    }
 
-        final DeviceBase haDevice = factory.getInstance(endpoint);
-        context.addDevice(haDevice);
-        LOGGER.trace("Endpoint added: " + endpoint.getEndpointId());
+    /**
+     * Creates device proxies for endpoints. Large endpoint lists are split to batches
+     * which are processed in parallel.
+     *
+     * @param endpoints the endpoints
+     * @return the device proxies
+     */
+    private List<Device> createDevices(final List<ZigBeeEndpoint> endpoints) {
+        final int batchCount = (endpoints.size() + DEVICE_BATCH_SIZE - 1) / DEVICE_BATCH_SIZE;
+        final int threads = Math.min(Runtime.getRuntime().availableProcessors(), batchCount);
+        if (threads <= 1) {
+            return createDevices(endpoints, 0, endpoints.size());
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<List<Device>>> batches = new ArrayList<Future<List<Device>>>(batchCount);
+            for (int i = 0; i < endpoints.size(); i += DEVICE_BATCH_SIZE) {
+                final int from = i;
+                final int to = Math.min(i + DEVICE_BATCH_SIZE, endpoints.size());
+                batches.add(executor.submit(new Callable<List<Device>>() {
+                    @Override
+                    public List<Device> call() {
+                        return createDevices(endpoints, from, to);
+                    }
+                }));
+            }
+            final List<Device> devices = new ArrayList<Device>(endpoints.size());
+            for (final Future<List<Device>> batch : batches) {
+                try {
+                    devices.addAll(batch.get());
+                } catch (final ExecutionException e) {
+                    LOGGER.error("Error creating device proxies.", e.getCause());
+                }
+            }
+            return devices;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private List<Device> createDevices(final List<ZigBeeEndpoint> endpoints, final int from, final int to) {
+        final List<Device> devices = new ArrayList<Device>(to - from);
+        for (int i = from; i < to; i++) {
+            final DeviceBase device = createDevice(endpoints.get(i));
+            if (device != null) {
+                devices.add(device);
+            }
+        }
+        return devices;
     }
 
     @Override
@@ -17,8 +17,10 @@ package org.bubblecloud.zigbee;
 
 import org.bubblecloud.zigbee.api.*;
 import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.network.impl.EndpointRegistry;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * ZigBee proxy context.
@@ -37,18 +39,13 @@ public class ZigBeeApiContext {
      */
     private List<DeviceFactory> deviceFactories = new ArrayList<DeviceFactory>();
     /**
-     * The devices.
+     * The devices indexed by ID ([IEEE address]/[end point]) and by secondary keys.
      */
-    private List<Device> devices = new ArrayList<Device>();
-    /**
-     * The id and device mapping.
-     * ID = [IEEE address]/[end point]
-     */
-    private Map<String, Device> idDeviceMap = new HashMap<String, Device>();
+    private final EndpointRegistry<Device> devices = new EndpointRegistry<Device>();
     /**
      * The device listeners.
      */
-    private final List<DeviceListener> deviceListeners = new ArrayList<DeviceListener>();
+    private final List<DeviceListener> deviceListeners = new CopyOnWriteArrayList<DeviceListener>();
     /**
      * @return the cluster factory.
      */
@@ -105,20 +102,39 @@ public class ZigBeeApiContext {
      * @param device the device
      */
     public void addDevice(final Device device) {
-        synchronized (devices) {
-            devices.add(device);
+        devices.add(device);
+        notifyDeviceAdded(device);
+    }
+
+    /**
+     * Adds devices in bulk and notifies listeners once. {@link DeviceRestoreListener}s receive single
+     * event and other listeners an event per device.
+     * @param restored the devices
+     * @return immutable list of the devices added
+     */
+    public List<Device> addDevices(final List<Device> restored) {
+        final List<Device> added = devices.addAll(restored);
+        if (added.isEmpty()) {
+            return added;
         }
-        synchronized (idDeviceMap) {
-            idDeviceMap.put(device.getEndpoint().getEndpointId(), device);
+        for (final DeviceListener deviceListener : deviceListeners) {
+            if (deviceListener instanceof DeviceRestoreListener) {
+                ((DeviceRestoreListener) deviceListener).devicesRestored(added);
+            } else {
+                for (final Device device : added) {
+                    deviceListener.deviceAdded(device);
+                }
+            }
         }
-        notifyDeviceAdded(device);
+        return added;
     }
 
     /**
-     * Updates device.
+     * Updates device and reindexes it with the current network address of its node.
      * @param device the device
      */
     public void updateDevice(final Device device) {
+        devices.updateNetworkAddress(device.getNode().getIeeeAddressLong());
         notifyDeviceUpdated(device);
     }
 
@@ -128,12 +144,7 @@ public class ZigBeeApiContext {
      */
     public void removeDevice(final Device device) {
         notifyDeviceRemoved(device);
-        synchronized (devices) {
-            devices.remove(device);
-        }
-        synchronized (idDeviceMap) {
-            idDeviceMap.remove(device.getEndpoint().getDeviceTypeId());
-        }
+        devices.remove(device);
     }
 
     /**
@@ -141,9 +152,7 @@ public class ZigBeeApiContext {
      * @param deviceListener the device listener
      */
     public void addDeviceListener(final DeviceListener deviceListener) {
-        synchronized (deviceListeners) {
-            deviceListeners.add(deviceListener);
-        }
+        deviceListeners.add(deviceListener);
     }
 
     /**
@@ -151,9 +160,7 @@ public class ZigBeeApiContext {
      * @param deviceListener the device listener
      */
     public void removeDeviceListener(final DeviceListener deviceListener) {
-        synchronized (deviceListeners) {
-            deviceListeners.remove(deviceListener);
-        }
+        deviceListeners.remove(deviceListener);
     }
 
     /**
@@ -161,10 +168,8 @@ public class ZigBeeApiContext {
      * @param device the device
      */
     public void notifyDeviceAdded(final Device device) {
-        synchronized (deviceListeners) {
-            for (final DeviceListener deviceListener : deviceListeners) {
-                deviceListener.deviceAdded(device);
-            }
+        for (final DeviceListener deviceListener : deviceListeners) {
+            deviceListener.deviceAdded(device);
         }
     }
 
@@ -173,10 +178,8 @@ public class ZigBeeApiContext {
      * @param device the device
      */
     public void notifyDeviceUpdated(final Device device) {
-        synchronized (deviceListeners) {
-            for (final DeviceListener deviceListener : deviceListeners) {
-                deviceListener.deviceUpdated(device);
-            }
+        for (final DeviceListener deviceListener : deviceListeners) {
+            deviceListener.deviceUpdated(device);
         }
     }
 
@@ -185,10 +188,8 @@ public class ZigBeeApiContext {
      * @param device the device
      */
     public void notifyDeviceRemoved(final Device device) {
-        synchronized (deviceListeners) {
-            for (final DeviceListener deviceListener : deviceListeners) {
-                deviceListener.deviceRemoved(device);
-            }
+        for (final DeviceListener deviceListener : deviceListeners) {
+            deviceListener.deviceRemoved(device);
         }
     }
 
@@ -198,18 +199,22 @@ public class ZigBeeApiContext {
      * @return the device
      */
     public Device getDevice(final String deviceId) {
-        synchronized (idDeviceMap) {
-            return idDeviceMap.get(deviceId);
-        }
+        return devices.get(deviceId);
     }
 
     /**
      * Gets list of devices.
-     * @return
+     * @return immutable snapshot of the devices
      */
     public List<Device> getDevices() {
-        synchronized (devices) {
-            return new ArrayList(devices);
-        }
+        return devices.getAll();
+    }
+
+    /**
+     * Gets device registry for lookups by IEEE address, network address, profile, cluster and device type.
+     * @return the device registry
+     */
+    public EndpointRegistry<Device> getDeviceRegistry() {
+        return devices;
     }
 }
@@ -35,4 +35,22 @@ public interface ClusterFactory {
 
     public Cluster getInstance(String key, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException;
 
+    /**
+     * Creates new cluster proxy for the given cluster ID.
+     *
+     * @param clusterId the cluster ID
+     * @param zbDevice the endpoint
+     * @return the cluster proxy or null if cluster is not supported
+     */
+    public Cluster getInstance(int clusterId, ZigBeeEndpoint zbDevice);
+
+    /**
+     * Gets the instantiator for the given cluster ID. Allows callers to defer proxy
+     * construction until the cluster is first used.
+     *
+     * @param clusterId the cluster ID
+     * @return the instantiator or null if cluster is not supported
+     */
+    public ClusterInstantiator getInstantiator(int clusterId);
+
 }
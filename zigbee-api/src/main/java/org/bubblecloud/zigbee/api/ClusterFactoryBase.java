@@ -28,10 +28,17 @@ import org.bubblecloud.zigbee.api.cluster.Cluster;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
+ * Cluster factory keeping {@link ClusterInstantiator}s keyed by cluster ID. Cluster proxies are
+ * created without reflection when the instantiators are registered with
+ * {@link #addCluster(int, ClusterInstantiator)}.
+ *
  * @author <a href="mailto:stefano.lenzi@isti.cnr.it">Stefano "Kismet" Lenzi</a>
  * @author <a href="mailto:francesco.furfari@isti.cnr.it">Francesco Furfari</a>
  * @version $LastChangedRevision: 799 $ ($LastChangedDate: 2013-08-06 19:00:05 +0300 (Tue, 06 Aug 2013) $)
@@ -39,57 +46,84 @@ import java.util.Hashtable;
  */
 public class ClusterFactoryBase implements ClusterFactory {
 
+    private final static Logger logger = LoggerFactory.getLogger(ClusterFactoryBase.class);
+
     private ZigBeeApiContext ctx;
-    private Hashtable<String, Class> clusters;
+    private final Map<Integer, ClusterInstantiator> clusters;
 
 
     public ClusterFactoryBase(ZigBeeApiContext ctx) {
         this.ctx = ctx;
-        clusters = new Hashtable<String, Class>();
+        clusters = new ConcurrentHashMap<Integer, ClusterInstantiator>();
     }
 
     public void register() {
-        Enumeration<String> keys = clusters.keys();
-        String[] clusterIDs = new String[clusters.size()];
-        int i = 0;
-        while (keys.hasMoreElements()) {
-            String key = (String) keys.nextElement();
-            clusterIDs[i++] = key;
-        }
     }
 
+    protected void addCluster(int clusterId, ClusterInstantiator instantiator) {
+        clusters.put(clusterId, instantiator);
+    }
+
+    /**
+     * Registers cluster proxy class constructed by reflection.
+     *
+     * @param key the key in profile:cluster format
+     * @param clazz the cluster proxy class with constructor accepting {@link ZigBeeEndpoint}
+     * @deprecated use {@link #addCluster(int, ClusterInstantiator)}
+     */
+    @Deprecated
     protected void addCluster(String key, Class clazz) {
-        clusters.put(key, clazz);
+        try {
+            final Constructor<?> constructor = clazz.getConstructor(ZigBeeEndpoint.class);
+            addCluster(parseClusterId(key), new ReflectiveInstantiator(constructor));
+        } catch (NoSuchMethodException e) {
+            logger.error("Cluster class " + clazz.getName() + " does not have endpoint constructor.", e);
+        }
+    }
+
+    public ClusterInstantiator getInstantiator(int clusterId) {
+        return clusters.get(clusterId);
+    }
+
+    public Cluster getInstance(int clusterId, ZigBeeEndpoint zbDevice) {
+        final ClusterInstantiator instantiator = clusters.get(clusterId);
+        if (instantiator == null) {
+            return null;
+        }
+        return instantiator.newInstance(zbDevice);
     }
 
     public Cluster getInstance(String key, ZigBeeEndpoint zbDevice) {
-        Class clazz = clusters.get(key);
-        if (clazz != null) {
+        return getInstance(parseClusterId(key), zbDevice);
+    }
+
+    private static int parseClusterId(final String key) {
+        return Integer.parseInt(key.substring(key.indexOf(':') + 1));
+    }
+
+    /**
+     * Instantiator for cluster classes registered by class. Constructor is resolved once.
+     */
+    private static class ReflectiveInstantiator implements ClusterInstantiator {
+        private final Constructor<?> constructor;
+
+        private ReflectiveInstantiator(final Constructor<?> constructor) {
+            this.constructor = constructor;
+        }
+
+        @Override
+        public Cluster newInstance(final ZigBeeEndpoint endpoint) {
             try {
-                Constructor<?> constructor = clazz.getConstructor(ZigBeeEndpoint.class);
-                Cluster cluster = (Cluster) constructor.newInstance(zbDevice);
-                return cluster;
-            } catch (SecurityException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            } catch (NoSuchMethodException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            } catch (IllegalArgumentException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+                return (Cluster) constructor.newInstance(endpoint);
             } catch (InstantiationException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+                logger.error("Error constructing cluster " + constructor.getDeclaringClass().getName(), e);
             } catch (IllegalAccessException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+                logger.error("Error constructing cluster " + constructor.getDeclaringClass().getName(), e);
             } catch (InvocationTargetException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+                logger.error("Error constructing cluster " + constructor.getDeclaringClass().getName(), e);
             }
+            return null;
         }
-        return null;
     }
 
 }
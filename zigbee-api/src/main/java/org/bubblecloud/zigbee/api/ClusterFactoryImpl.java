@@ -22,8 +22,10 @@
 
 package org.bubblecloud.zigbee.api;
 
+import org.bubblecloud.zigbee.api.cluster.Cluster;
 import org.bubblecloud.zigbee.api.cluster.impl.*;
 import org.bubblecloud.zigbee.ZigBeeApiContext;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
 
 /**
  * @author <a href="mailto:stefano.lenzi@isti.cnr.it">Stefano "Kismet" Lenzi</a>
@@ -32,104 +34,187 @@ import org.bubblecloud.zigbee.ZigBeeApiContext;
  */
 public class ClusterFactoryImpl extends ClusterFactoryBase {
 
-    //General
-    final static String BASIC_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":" + ZigBeeApiConstants.CLUSTER_ID_BASIC;
-    final static String POWER_CONFIGURATION_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_POWER_CONFIGURATION;
-    final static String DEVICE_TEMPERATURE_CONFIGURATION_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_DEVICE_TEMPERATURE_CONFIGURATION;
-    final static String IDENTIFY_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_IDENTIFY;
-    final static String GROUPS_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_GROUPS;
-    final static String SCENES_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_SCENES;
-    final static String ONOFF_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_ON_OFF;
-    final static String ON_OFF_SWITCH_CONFIGURATION_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_ON_OFF_SWITCH_CONFIGURATION;
-    final static String LEVEL_CONTROL_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_LEVEL_CONTROL;
-    final static String ALARMS_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_ALARMS;
-    final static String BINARY_INPUT_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_BINARY_INPUT;
-
-    //Smart Energy
-    final static String METERING_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_METERING;
-
-    //Measurement and Sensing
-    final static String ILLUMINANCE_LEVEL_SENSING_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_ILLUMINANCE_LEVEL_SENSING; // new
-    final static String ILLUMINANCE_MEASUREMENT_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_ILLUMINANCE_MEASUREMENT; // new
-    final static String TEMPERATURE_MEASUREMENT_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_TEMPERATURE_MEASUREMENT;
-    final static String PRESSURE_MEASUREMENT_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_PRESSURE_MEASUREMENT;
-    final static String FLOW_MEASUREMENT_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_FLOW_MEASUREMENT;
-    final static String RELATIVE_HUMIDITY_MEASUREMENT_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_RELATIVE_HUMIDITY_MEASUREMENT;
-    final static String OCCUPANCY_SENSING_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_OCCUPANCY_SENSING;
-    //Security and Safety
-    final static String IAS_ZONE_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_IAS_ZONE;
-    final static String IAS_WD_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_IAS_WD;
-    final static String IAS_ACE_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_IAS_ACE;
-    //fuori profilo HA
-    final static String TIME_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_TIME;
-    final static String COMMISSIONING_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_COMMISSIONING;
-    final static String ANALOG_INPUT_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_ANALOG_INPUT;
-
-    //HVAC
-    private static final String THERMOSTAT_USER_INTERFACE_CONFIGURATION_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_THERMOSTAT_USER_INTERFACE_CONFIGURATION;
-    private static final String FAN_CONTROL_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_FAN_CONTROL;
-    private static final String THERMOSTAT_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_THERMOSTAT;
-    private static final String PUMP_CONFIGURATION_AND_CONTROL_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_PUMP_CONFIGURATION_AND_CONTROL;
-    //Closures
-    private static final String SHADE_CONFIGURATION_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_SHADE_CONFIGURATION;
-    private static final String DOOR_LOCK_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_DOOR_LOCK;
-    private static final String WINDOW_COVERING_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_WINDOW_COVERING;
-    //Lightening
-    private static final String COLOR_CONTROL_KEY = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":"+ ZigBeeApiConstants.CLUSTER_ID_COLOR_CONTROL;
-
     public ClusterFactoryImpl(ZigBeeApiContext context){
         super(context);
 
         //General
-        addCluster(BASIC_KEY, BasicImpl.class);
-        addCluster(POWER_CONFIGURATION_KEY, PowerConfigurationImpl.class);
-        addCluster(DEVICE_TEMPERATURE_CONFIGURATION_KEY, DeviceTemperatureConfigurationImpl.class);
-        addCluster(IDENTIFY_KEY, IdentifyImpl.class);
-        addCluster(GROUPS_KEY, GroupsImpl.class);
-        addCluster(SCENES_KEY, ScenesImpl.class);
-        addCluster(ONOFF_KEY, OnOffImpl.class);
-        addCluster(ON_OFF_SWITCH_CONFIGURATION_KEY, OnOffSwitchConfigurationImpl.class);
-        addCluster(LEVEL_CONTROL_KEY, LevelControlImpl.class);
-        addCluster(ALARMS_KEY, AlarmsImpl.class);
-        addCluster(BINARY_INPUT_KEY, BinaryInputImpl.class);
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_BASIC, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new BasicImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_POWER_CONFIGURATION, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new PowerConfigurationImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_DEVICE_TEMPERATURE_CONFIGURATION, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new DeviceTemperatureConfigurationImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_IDENTIFY, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new IdentifyImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new GroupsImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new ScenesImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new OnOffImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF_SWITCH_CONFIGURATION, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new OnOffSwitchConfigurationImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_LEVEL_CONTROL, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new LevelControlImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_ALARMS, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new AlarmsImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_BINARY_INPUT, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new BinaryInputImpl(endpoint);
+            }
+        });
 
         //Smart Energy
-        addCluster(METERING_KEY, MeteringImpl.class);
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_METERING, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new MeteringImpl(endpoint);
+            }
+        });
 
         //fuori profilo HA
-        addCluster(ANALOG_INPUT_KEY, AnalogInputImpl.class);
-        addCluster(COMMISSIONING_KEY, CommissioningImpl.class); // new
-        addCluster(TIME_KEY, TimeImpl.class);
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_ANALOG_INPUT, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new AnalogInputImpl(endpoint);
+            }
+        });
+        // Commissioning is not registered as CommissioningImpl is still a placeholder.
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_TIME, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new TimeImpl(endpoint);
+            }
+        });
 
 
         //Measurement and Sensing
-        addCluster(ILLUMINANCE_MEASUREMENT_KEY, IlluminanceMeasurementImpl.class); // new
-        addCluster(TEMPERATURE_MEASUREMENT_KEY, TemperatureMeasurementImpl.class);
-        addCluster(RELATIVE_HUMIDITY_MEASUREMENT_KEY, RelativeHumidityMeasurementImpl.class);
-        addCluster(OCCUPANCY_SENSING_KEY, OccupancySensingImpl.class);
-        addCluster(PRESSURE_MEASUREMENT_KEY, PressureMeasurementImpl.class);
-        addCluster(FLOW_MEASUREMENT_KEY, FlowMeasurementImpl.class);
-        addCluster(ILLUMINANCE_LEVEL_SENSING_KEY, IlluminanceLevelSensingImpl.class);
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_ILLUMINANCE_MEASUREMENT, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new IlluminanceMeasurementImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_TEMPERATURE_MEASUREMENT, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new TemperatureMeasurementImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_RELATIVE_HUMIDITY_MEASUREMENT, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new RelativeHumidityMeasurementImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_OCCUPANCY_SENSING, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new OccupancySensingImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_PRESSURE_MEASUREMENT, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new PressureMeasurementImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_FLOW_MEASUREMENT, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new FlowMeasurementImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_ILLUMINANCE_LEVEL_SENSING, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new IlluminanceLevelSensingImpl(endpoint);
+            }
+        });
 
         //Security and Safety
-        addCluster(IAS_ZONE_KEY, IASZoneImpl.class);
-        addCluster(IAS_WD_KEY, IASWDImpl.class);
-        addCluster(IAS_ACE_KEY, IASACEImpl.class);
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_ZONE, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new IASZoneImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_WD, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new IASWDImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_ACE, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new IASACEImpl(endpoint);
+            }
+        });
 
         //HVAC
-        addCluster(PUMP_CONFIGURATION_AND_CONTROL_KEY, PumpConfigurationAndControlImpl.class);
-        addCluster(THERMOSTAT_KEY, ThermostatImpl.class);
-        addCluster(FAN_CONTROL_KEY, FanControlImpl.class);
-        addCluster(THERMOSTAT_USER_INTERFACE_CONFIGURATION_KEY, ThermostatUserInterfaceConfigurationImpl.class);
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_PUMP_CONFIGURATION_AND_CONTROL, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new PumpConfigurationAndControlImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_THERMOSTAT, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new ThermostatImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_FAN_CONTROL, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new FanControlImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_THERMOSTAT_USER_INTERFACE_CONFIGURATION, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new ThermostatUserInterfaceConfigurationImpl(endpoint);
+            }
+        });
 
         //Closures
-        addCluster(SHADE_CONFIGURATION_KEY, ShadeConfigurationImpl.class);
-        addCluster(DOOR_LOCK_KEY, DoorLockImpl.class);
-        addCluster(WINDOW_COVERING_KEY, WindowCoveringImpl.class);
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_SHADE_CONFIGURATION, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new ShadeConfigurationImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_DOOR_LOCK, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new DoorLockImpl(endpoint);
+            }
+        });
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_WINDOW_COVERING, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new WindowCoveringImpl(endpoint);
+            }
+        });
 
 
         //Lighting
-        addCluster(COLOR_CONTROL_KEY, ColorControlImpl.class);
+        addCluster(ZigBeeApiConstants.CLUSTER_ID_COLOR_CONTROL, new ClusterInstantiator() {
+            public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                return new ColorControlImpl(endpoint);
+            }
+        });
 
 
     }
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api;
+
+import org.bubblecloud.zigbee.api.cluster.Cluster;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+
+/**
+ * Precompiled constructor of a single {@link Cluster} proxy type. Implementations are registered in
+ * {@link ClusterFactoryBase} by cluster ID and replace reflective constructor lookup.
+ */
+public interface ClusterInstantiator {
+
+    /**
+     * Creates new cluster proxy for the given endpoint.
+     *
+     * @param endpoint the endpoint
+     * @return the cluster proxy
+     */
+    Cluster newInstance(ZigBeeEndpoint endpoint);
+
+}
@@ -30,6 +30,10 @@ import org.bubblecloud.zigbee.api.cluster.general.Basic;
 import org.bubblecloud.zigbee.api.cluster.general.DeviceTemperatureConfiguration;
 import org.bubblecloud.zigbee.api.cluster.general.Identify;
 import org.bubblecloud.zigbee.api.cluster.general.PowerConfiguration;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesStatus;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributeRecord;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributesStatus;
 import org.bubblecloud.zigbee.util.ArraysUtil;
 
 /**
@@ -132,6 +136,29 @@ public interface Device extends ZigBeeEndpoint {
      */
     public ZigBeeEndpoint getEndpoint();
 
+    /**
+     * Reads several attributes of a cluster of this device with as few <i>Read Attributes</i> frames as possible.
+     *
+     * @param clusterId    the identifier of the cluster
+     * @param attributeIds the identifiers of the attributes to read
+     * @return the read records in the order of the requested attributes
+     * @throws ZigBeeClusterException if the attributes could not be read
+     */
+    public ReadAttributesStatus[] readAttributes(int clusterId, int[] attributeIds) throws ZigBeeClusterException;
+
+    /**
+     * Writes several attributes of a cluster of this device packing the records in as few
+     * <i>Write Attributes</i> frames as the payload allows.
+     *
+     * @param clusterId  the identifier of the cluster
+     * @param records    the attributes and values to write
+     * @param noResponse true to send <i>Write Attributes No Response</i>, the device does not report the outcome
+     * @return the status of each record in the order of the records, <code>null</code> if <code>noResponse</code> is set
+     * @throws ZigBeeClusterException if the attributes could not be written
+     */
+    public WriteAttributesStatus[] writeAttributes(int clusterId, WriteAttributeRecord[] records, boolean noResponse)
+            throws ZigBeeClusterException;
+
     /**
      * This method modify the <i>Binding Table</i> of physical device by adding the following entry:
      * <pre>
@@ -34,13 +34,23 @@ import org.bubblecloud.zigbee.api.cluster.general.Basic;
 import org.bubblecloud.zigbee.api.cluster.general.DeviceTemperatureConfiguration;
 import org.bubblecloud.zigbee.api.cluster.general.Identify;
 import org.bubblecloud.zigbee.api.cluster.general.PowerConfiguration;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Attribute;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.Reporter;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeType;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesStatus;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributeRecord;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributesStatus;
+import org.bubblecloud.zigbee.api.cluster.impl.core.AttributeReadCoalescer;
+import org.bubblecloud.zigbee.api.cluster.impl.core.AttributeWriter;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZCLCluster;
 
 import org.bubblecloud.zigbee.network.model.ProvidedClusterMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 
 /**
  * This class represent a generic <b>Home Automation Device</b> as defined by the document:<br>
@@ -63,20 +73,15 @@ public abstract class DeviceBase implements Device {
     private ZigBeeApiContext context;
 
 
-    private Cluster[] clusters;
-    private int index;
-
     /*
-         * Mandatory clusters common to all Home Automation devices
-         */
-    protected Basic basic;
-    protected Identify identify;
-    /*
-     * Optional clusters common to all Home Automation devices
+     * Cluster proxies are created lazily on first use. The slots hold the accepted cluster IDs, their
+     * instantiators and the proxies constructed so far.
      */
-    protected Alarms alarms;
-    protected DeviceTemperatureConfiguration deviceTemperature;
-    protected PowerConfiguration powerConfiguration;
+    private final int[] clusterIds;
+    private final ClusterInstantiator[] instantiators;
+    private final AtomicReferenceArray<Cluster> clusters;
+    private int index;
+
     private final ProvidedClusterMode clusterMode;
 
 
@@ -84,30 +89,27 @@ public abstract class DeviceBase implements Device {
         this.endpoint = endpoint;
         this.context = context;
 
+        final int[] inputClusters = endpoint.getInputClusters();
         final int size;
         clusterMode = ProvidedClusterMode.HomeAutomationProfileStrict;
         if (clusterMode == ProvidedClusterMode.HomeAutomationProfileStrict) {
-            size = endpoint.getInputClusters().length;
+            size = inputClusters.length;
         } else {
-            size = endpoint.getInputClusters().length + endpoint.getOutputClusters().length;
+            size = inputClusters.length + endpoint.getOutputClusters().length;
         }
-        clusters = new Cluster[size];
+        clusterIds = new int[size];
+        instantiators = new ClusterInstantiator[size];
+        clusters = new AtomicReferenceArray<Cluster>(size);
 
-        for (int i = 0; i < endpoint.getInputClusters().length; i++) {
-            addCluster(endpoint.getInputClusters()[i]);
+        for (int i = 0; i < inputClusters.length; i++) {
+            addCluster(inputClusters[i]);
         }
         if (clusterMode != ProvidedClusterMode.HomeAutomationProfileStrict) {
-            for (int i = 0; i < endpoint.getOutputClusters().length; i++) {
-                addCluster(endpoint.getOutputClusters()[i]);
+            final int[] outputClusters = endpoint.getOutputClusters();
+            for (int i = 0; i < outputClusters.length; i++) {
+                addCluster(outputClusters[i]);
             }
         }
-
-        basic = (Basic) getCluster(ZigBeeApiConstants.CLUSTER_ID_BASIC);
-        identify = (Identify) getCluster(ZigBeeApiConstants.CLUSTER_ID_IDENTIFY);
-
-        powerConfiguration = (PowerConfiguration) getCluster(ZigBeeApiConstants.CLUSTER_ID_POWER_CONFIGURATION);
-        deviceTemperature = (DeviceTemperatureConfiguration) getCluster(ZigBeeApiConstants.CLUSTER_ID_DEVICE_TEMPERATURE_CONFIGURATION);
-        alarms = (Alarms) getCluster(ZigBeeApiConstants.CLUSTER_ID_ALARMS);
     }
 
     public abstract String getDeviceType();
@@ -125,28 +127,28 @@ public abstract class DeviceBase implements Device {
     }
 
     /**
-     * This method create a cluster for the Device if and only if the cluster is actually supported by the device.
+     * This method adds a cluster slot for the Device if and only if the cluster is actually supported by the device.
      * Depending on the current value of cluster mode it add or not the cluster
-     * to the set of cluster which will be returned by executing the method {@link #getAvailableCluster()}
+     * to the set of cluster which will be returned by executing the method {@link #getAvailableCluster()}.
+     * The cluster proxy itself is constructed on first use.
      *
      * @param clusterId the id of the cluster
-     * @return {@link Cluster} if it is already present or if it has been added to the {@link DeviceBase}
+     * @return true if the cluster is already present or if it has been added to the {@link DeviceBase}
      * @throws ZigBeeDeviceException
      */
-    protected Cluster addCluster(int clusterId) throws ZigBeeDeviceException {
+    protected boolean addCluster(int clusterId) throws ZigBeeDeviceException {
         /*
          * Verify if the cluster has already been added. For example, when the HA Driver is working with
          * ProvidedClusterMode.EitherInputAndOutput mode the HA Driver adds either inputs and outputs cluster
          * to the DeviceBase
          */
-        final Cluster duplicated = getCluster(clusterId);
-        if (duplicated != null) {
+        if (indexOf(clusterId) >= 0) {
             /*logger.warn(
                     "Cluster {}/{} already added to this device. " +
                     "It may identifies an error in the definition of the device description",
                     duplicated.getDeviceType(), Integer.toHexString(clusterId)
             );*/
-            return duplicated;
+            return true;
         }
 
 
@@ -162,7 +164,7 @@ public abstract class DeviceBase implements Device {
                             "in the implementation of firmware of the physical device",
                     endpoint.getDeviceTypeId(), clusterId
             );
-            return null;
+            return false;
         }
 
         /*
@@ -175,7 +177,7 @@ public abstract class DeviceBase implements Device {
                             "implements a CUSTOM cluster {} but HA Driver does not support them yet",
                     endpoint.getDeviceTypeId(), clusterId
             );
-            return null;
+            return false;
         }
 
         /*
@@ -204,7 +206,7 @@ public abstract class DeviceBase implements Device {
                                 "physical device",
                         endpoint.getDeviceTypeId(), clusterId
                 );
-                return null;
+                return false;
             }
             if (clusterMode == ProvidedClusterMode.HomeAutomationProfileStrict) {
                 logger.warn(
@@ -218,7 +220,7 @@ public abstract class DeviceBase implements Device {
                         ProvidedClusterMode.EitherInputAndOutput
                 }
                 );
-                return null;
+                return false;
             } else {
                 logger.warn(
                         "The cluster {} of the device {} is PROVIDED AS OUTPUT instead of AS INPUT, " +
@@ -235,69 +237,114 @@ public abstract class DeviceBase implements Device {
             }
         }
 
-        String key = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION + ":" + String.valueOf(clusterId);
-        ClusterFactory factory = (ClusterFactory) context.getClusterFactory();
-        Cluster cluster = factory.getInstance(key, endpoint);
-        if (index >= clusters.length) {
+        final ClusterFactory factory = context.getClusterFactory();
+        final ClusterInstantiator instantiator = factory.getInstantiator(clusterId);
+        if (index >= clusterIds.length) {
             logger.error(
                     "Device {} cluster {}. More than expected number of clusters. Skipping.",
                     endpoint.getDeviceTypeId(), clusterId
             );
-            return null;
+            return false;
         }
-        if (cluster == null) {
+        if (instantiator == null) {
             logger.trace(
-                    "Cluster {} for device {} not constructed by factory.",
+                    "Cluster {} for device {} not supported by factory.",
                     Integer.toHexString(clusterId), endpoint.getDeviceTypeId()
             );
-            return null;
+            return false;
         }
-        logger.trace(
-                "Cluster {} - {} added to {} device proxy.",
-                Integer.toHexString(clusterId), cluster.getName(), endpoint.getDeviceTypeId()
-        );
 
-        clusters[index++] = cluster;
-        return cluster;
+        clusterIds[index] = clusterId;
+        instantiators[index] = instantiator;
+        index++;
+        return true;
+    }
+
+    private int indexOf(final int clusterId) {
+        for (int i = 0; i < index; i++) {
+            if (clusterIds[i] == clusterId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the cluster proxy of the given slot constructing it on first use.
+     *
+     * @param i the slot index
+     * @return the cluster proxy or null if construction failed
+     */
+    private Cluster getClusterAt(final int i) {
+        final Cluster existing = clusters.get(i);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (instantiators) {
+            Cluster cluster = clusters.get(i);
+            if (cluster == null) {
+                cluster = instantiators[i].newInstance(endpoint);
+                if (cluster == null) {
+                    return null;
+                }
+                logger.trace(
+                        "Cluster {} - {} added to {} device proxy.",
+                        Integer.toHexString(clusterIds[i]), cluster.getName(), endpoint.getDeviceTypeId()
+                );
+                clusters.set(i, cluster);
+            }
+            return cluster;
+        }
     }
 
     public Basic getBasic() {
-        return basic;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_BASIC);
     }
 
 
     public Identify getIdentify() {
-        return identify;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_IDENTIFY);
     }
 
     public PowerConfiguration getPowerConfiguration() {
-        return powerConfiguration;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_POWER_CONFIGURATION);
     }
 
     public DeviceTemperatureConfiguration getDeviceTemperatureConfiguration() {
-        return deviceTemperature;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_DEVICE_TEMPERATURE_CONFIGURATION);
     }
 
     public Alarms getAlarms() {
-        return alarms;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_ALARMS);
     }
 
 
     public abstract DeviceDescription getDescription();
 
     public <T extends Cluster> T getCluster(int id) {
-        for (int i = 0; i < clusters.length; i++) {
-            if (clusters[i] != null && clusters[i].getId() == id)
-                return (T) clusters[i];
+        final int i = indexOf(id);
+        if (i < 0) {
+            return null;
         }
-        return null;
+        return (T) getClusterAt(i);
     }
 
 
+    /**
+     * Looks up the cluster by interface. Already constructed proxies are checked first and only
+     * then the remaining proxies are constructed one by one.
+     */
     public <T extends Cluster> T getCluster(Class<T> clusterIntercace) {
-        for (int i = 0; i < clusters.length; i++) {
-            if (clusters[i] != null && clusterIntercace.isInstance(clusters[i]))
-                return (T) clusters[i];
+        for (int i = 0; i < index; i++) {
+            final Cluster cluster = clusters.get(i);
+            if (cluster != null && clusterIntercace.isInstance(cluster))
+                return (T) cluster;
+        }
+        for (int i = 0; i < index; i++) {
+            if (clusters.get(i) != null) continue;
+            final Cluster cluster = getClusterAt(i);
+            if (cluster != null && clusterIntercace.isInstance(cluster))
+                return (T) cluster;
         }
         return null;
     }
@@ -308,22 +355,31 @@ public abstract class DeviceBase implements Device {
      *         otherwise <code>null</code>
      */
     public Cluster getCluster(String name) {
-        for (int i = 0; i < clusters.length; i++) {
-            if (clusters[i] != null && clusters[i].getName().equals(name))
-                return clusters[i];
+        for (int i = 0; i < index; i++) {
+            final Cluster cluster = getClusterAt(i);
+            if (cluster != null && cluster.getName().equals(name))
+                return cluster;
         }
         return null;
     }
 
+    /**
+     * Gets all clusters of this device. Constructs the proxies which have not been used yet.
+     */
     public Cluster[] getAvailableCluster() {
-        return clusters;
+        final Cluster[] available = new Cluster[clusterIds.length];
+        for (int i = 0; i < index; i++) {
+            available[i] = getClusterAt(i);
+        }
+        return available;
     }
 
     public void stop() {
-        for (int i = 0; i < clusters.length; i++) {
-            if (clusters[i] == null) continue;
+        for (int i = 0; i < index; i++) {
+            final Cluster cluster = clusters.get(i);
+            if (cluster == null) continue;
 
-            Reporter[] reporters = clusters[i].getAttributeReporters();
+            Reporter[] reporters = cluster.getAttributeReporters();
             if (reporters == null) continue;
 
             for (int j = 0; j < reporters.length; j++) {
@@ -337,6 +393,21 @@ public abstract class DeviceBase implements Device {
         return endpoint;
     }
 
+    public ReadAttributesStatus[] readAttributes(int clusterId, int[] attributeIds) throws ZigBeeClusterException {
+        final Cluster cluster = getCluster(clusterId);
+        final ZigBeeType[] types = new ZigBeeType[attributeIds.length];
+        for (int i = 0; cluster != null && i < attributeIds.length; i++) {
+            final Attribute attribute = cluster.getAttribute(attributeIds[i]);
+            types[i] = attribute != null ? attribute.getZigBeeType() : null;
+        }
+        return AttributeReadCoalescer.read(endpoint, (short) clusterId, attributeIds, types);
+    }
+
+    public WriteAttributesStatus[] writeAttributes(int clusterId, WriteAttributeRecord[] records, boolean noResponse)
+            throws ZigBeeClusterException {
+        return AttributeWriter.write(endpoint, (short) clusterId, records, noResponse, false);
+    }
+
     @Override
     public boolean bindTo(Device device, int clusterId) throws ZigBeeNetworkManagerException {
         return this.endpoint.bindTo(device.getEndpoint(), clusterId);
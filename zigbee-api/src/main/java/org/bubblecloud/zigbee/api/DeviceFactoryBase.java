@@ -24,14 +24,14 @@ package org.bubblecloud.zigbee.api;
 
 import org.bubblecloud.zigbee.ZigBeeApiContext;
 import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.network.impl.ZigBeeEndpointImpl;
+import org.bubblecloud.zigbee.network.model.EndpointDescriptor;
 import org.bubblecloud.zigbee.util.ArraysUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 /**
  * @author <a href="mailto:francesco.furfari@isti.cnr.it">Francesco Furfari</a>
@@ -47,6 +47,10 @@ public abstract class DeviceFactoryBase implements DeviceFactory {
 
     private Class<?> refinement;
     protected int[] clusters;
+    /**
+     * The device clusters sorted for matching.
+     */
+    private volatile int[] sortedClusters;
 
     /**
      * @param ctx        {@link org.bubblecloud.zigbee.ZigBeeApiContext} of the bundle extending the refinement capabilities
@@ -84,22 +88,46 @@ public abstract class DeviceFactoryBase implements DeviceFactory {
 
     public abstract DeviceBase getInstance(ZigBeeEndpoint zbDevice);
 
+    /**
+     * Gets the device clusters sorted for binary search. The array is built once and shared.
+     *
+     * @return the sorted device clusters
+     */
+    private int[] getSortedDeviceClusters() {
+        int[] sorted = sortedClusters;
+        if (sorted == null) {
+            final int[] deviceClusters = getDeviceClusters();
+            sorted = deviceClusters == null ? new int[0] : deviceClusters.clone();
+            Arrays.sort(sorted);
+            sortedClusters = sorted;
+        }
+        return sorted;
+    }
+
     public int hasMatch(ZigBeeEndpoint device) {
         if (device.getDeviceTypeId() == getDeviceId()) {
             return Integer.MAX_VALUE;
         }
 
-        final Set<Integer> factoryInputClusters = new HashSet<Integer>();
-        for (int cluster : getDeviceClusters()) {
-            factoryInputClusters.add(cluster);
-        }
+        final int[] factoryInputClusters = getSortedDeviceClusters();
 
         int score = device.getProfileId() == ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION
                 ? ZigBeeEndpoint.MATCH_PROFILE_ID : 0;
 
-        for (int c : device.getInputClusters()) {
-            if (factoryInputClusters.contains(c)) {
-                score++;
+        if (device instanceof ZigBeeEndpointImpl) {
+            // Reads the shared descriptor in place as getInputClusters() returns a copy.
+            final EndpointDescriptor descriptor = ((ZigBeeEndpointImpl) device).getDescriptor();
+            for (int i = 0; i < descriptor.getInputClusterCount(); i++) {
+                if (Arrays.binarySearch(factoryInputClusters, descriptor.getInputCluster(i)) >= 0) {
+                    score++;
+                }
+            }
+        } else {
+            final int[] inputClusters = device.getInputClusters();
+            for (int i = 0; i < inputClusters.length; i++) {
+                if (Arrays.binarySearch(factoryInputClusters, inputClusters[i]) >= 0) {
+                    score++;
+                }
             }
         }
 
@@ -48,6 +48,16 @@ public class DeviceFactoryImpl extends DeviceFactoryBase {
 
     protected String[] classes;
 
+    /**
+     * The implementation constructor resolved on first use.
+     */
+    private volatile Constructor<?> constructor;
+
+    /**
+     * The precompiled constructor or null if the implementation is constructed by reflection.
+     */
+    private final DeviceInstantiator instantiator;
+
 
     /**
      * Build an {@link DeviceFactory} that refine {@link org.bubblecloud.zigbee.network.ZigBeeEndpoint} by means of <code>cImplementation</code>,<br>
@@ -69,6 +79,7 @@ public class DeviceFactoryImpl extends DeviceFactoryBase {
 
         this.inter = cInterface;
         this.impl = cImplementation;
+        this.instantiator = null;
         classes = new String[]{cInterface.getName(), Device.class.getName()};
 
         try {
@@ -88,6 +99,29 @@ public class DeviceFactoryImpl extends DeviceFactoryBase {
         }
     }
 
+    /**
+     * Build an {@link DeviceFactory} without reflection. The device ID, the clusters and the
+     * constructor of the implementation are supplied by the caller, typically by the generated
+     * {@link DeviceFactoryRegistry}.
+     *
+     * @param ctx          {@link org.bubblecloud.zigbee.ZigBeeApiContext} to use for registering the {@link DeviceFactory} service
+     * @param cInterface   {@link Class} representing the refined service that this factory will install
+     * @param deviceId     the device ID refined by the factory
+     * @param clusters     the standard and custom clusters of the device
+     * @param instantiator the constructor of the implementation
+     */
+    public DeviceFactoryImpl(ZigBeeApiContext ctx, Class<?> cInterface, int deviceId, int[] clusters,
+                             DeviceInstantiator instantiator) {
+        super(ctx, cInterface);
+
+        this.inter = cInterface;
+        this.impl = null;
+        this.deviceId = deviceId;
+        this.clusters = clusters;
+        this.instantiator = instantiator;
+        classes = new String[]{cInterface.getName(), Device.class.getName()};
+    }
+
     @Override
     public int getDeviceId() {
         return deviceId;
@@ -106,7 +140,14 @@ public class DeviceFactoryImpl extends DeviceFactoryBase {
     @Override
     public DeviceBase getInstance(ZigBeeEndpoint zbd) {
         try {
-            Constructor builder = impl.getConstructor(ZigBeeApiContext.class, ZigBeeEndpoint.class);
+            if (instantiator != null) {
+                return instantiator.newInstance(ctx, zbd);
+            }
+            Constructor<?> builder = constructor;
+            if (builder == null) {
+                builder = impl.getConstructor(ZigBeeApiContext.class, ZigBeeEndpoint.class);
+                constructor = builder;
+            }
             DeviceBase device = (DeviceBase) builder.newInstance(ctx, zbd);
             return device;
         } catch (Exception e) {
@@ -0,0 +1,209 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api;
+
+import org.bubblecloud.zigbee.ZigBeeApiContext;
+import org.bubblecloud.zigbee.api.device.generic.LevelControlSwitch;
+import org.bubblecloud.zigbee.api.device.generic.MainsPowerOutlet;
+import org.bubblecloud.zigbee.api.device.generic.OnOffOutput;
+import org.bubblecloud.zigbee.api.device.generic.OnOffSwitch;
+import org.bubblecloud.zigbee.api.device.generic.SimpleSensor;
+import org.bubblecloud.zigbee.api.device.hvac.Pump;
+import org.bubblecloud.zigbee.api.device.hvac.TemperatureSensor;
+import org.bubblecloud.zigbee.api.device.impl.ColorDimmableLightDevice;
+import org.bubblecloud.zigbee.api.device.impl.DimmableLightDevice;
+import org.bubblecloud.zigbee.api.device.impl.IASAncillaryControlEquipmentDevice;
+import org.bubblecloud.zigbee.api.device.impl.IASControlAndIndicatingEquipmentDevice;
+import org.bubblecloud.zigbee.api.device.impl.IAS_Warning_Device;
+import org.bubblecloud.zigbee.api.device.impl.IAS_ZoneDevice;
+import org.bubblecloud.zigbee.api.device.impl.LevelControlSwitchDevice;
+import org.bubblecloud.zigbee.api.device.impl.LightSensorDevice;
+import org.bubblecloud.zigbee.api.device.impl.MainsPowerOutletDevice;
+import org.bubblecloud.zigbee.api.device.impl.OccupancySensorDevice;
+import org.bubblecloud.zigbee.api.device.impl.OnOffLightDevice;
+import org.bubblecloud.zigbee.api.device.impl.OnOffLightSwitchDevice;
+import org.bubblecloud.zigbee.api.device.impl.OnOffOutputDevice;
+import org.bubblecloud.zigbee.api.device.impl.OnOffSwitchDevice;
+import org.bubblecloud.zigbee.api.device.impl.PumpDevice;
+import org.bubblecloud.zigbee.api.device.impl.SimpleSensorDevice;
+import org.bubblecloud.zigbee.api.device.impl.TemperatureSensorDevice;
+import org.bubblecloud.zigbee.api.device.lighting.ColorDimmableLight;
+import org.bubblecloud.zigbee.api.device.lighting.DimmableLight;
+import org.bubblecloud.zigbee.api.device.lighting.LightSensor;
+import org.bubblecloud.zigbee.api.device.lighting.OccupancySensor;
+import org.bubblecloud.zigbee.api.device.lighting.OnOffLight;
+import org.bubblecloud.zigbee.api.device.lighting.OnOffLightSwitch;
+import org.bubblecloud.zigbee.api.device.security_safety.IASAncillaryControlEquipment;
+import org.bubblecloud.zigbee.api.device.security_safety.IASControlAndIndicatingEquipment;
+import org.bubblecloud.zigbee.api.device.security_safety.IAS_Warning;
+import org.bubblecloud.zigbee.api.device.security_safety.IAS_Zone;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.util.ArraysUtil;
+
+/**
+ * Registers a {@link DeviceFactoryImpl} for every device implementation without reflection.
+ * <p>
+ * Generated by ClusterMetadataGenerator from the device implementations in org.bubblecloud.zigbee.api.device.impl, do not edit.
+ */
+public final class DeviceFactoryRegistry {
+
+    private DeviceFactoryRegistry() {
+    }
+
+    /**
+     * Adds the device factories to the context.
+     *
+     * @param context the API context
+     */
+    public static void register(final ZigBeeApiContext context) {
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, ColorDimmableLight.class, ColorDimmableLight.DEVICE_ID,
+                ArraysUtil.append(ColorDimmableLight.STANDARD, ColorDimmableLight.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new ColorDimmableLightDevice(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, DimmableLight.class, DimmableLight.DEVICE_ID,
+                ArraysUtil.append(DimmableLight.STANDARD, DimmableLight.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new DimmableLightDevice(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, IASAncillaryControlEquipment.class, IASAncillaryControlEquipment.DEVICE_ID,
+                ArraysUtil.append(IASAncillaryControlEquipment.STANDARD, IASAncillaryControlEquipment.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new IASAncillaryControlEquipmentDevice(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, IASControlAndIndicatingEquipment.class, IASControlAndIndicatingEquipment.DEVICE_ID,
+                ArraysUtil.append(IASControlAndIndicatingEquipment.STANDARD, IASControlAndIndicatingEquipment.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new IASControlAndIndicatingEquipmentDevice(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, IAS_Warning.class, IAS_Warning.DEVICE_ID,
+                ArraysUtil.append(IAS_Warning.STANDARD, IAS_Warning.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new IAS_Warning_Device(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, IAS_Zone.class, IAS_Zone.DEVICE_ID,
+                ArraysUtil.append(IAS_Zone.STANDARD, IAS_Zone.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new IAS_ZoneDevice(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, LevelControlSwitch.class, LevelControlSwitch.DEVICE_ID,
+                ArraysUtil.append(LevelControlSwitch.STANDARD, LevelControlSwitch.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new LevelControlSwitchDevice(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, LightSensor.class, LightSensor.DEVICE_ID,
+                ArraysUtil.append(LightSensor.STANDARD, LightSensor.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new LightSensorDevice(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, MainsPowerOutlet.class, MainsPowerOutlet.DEVICE_ID,
+                ArraysUtil.append(MainsPowerOutlet.STANDARD, MainsPowerOutlet.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new MainsPowerOutletDevice(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, OccupancySensor.class, OccupancySensor.DEVICE_ID,
+                ArraysUtil.append(OccupancySensor.STANDARD, OccupancySensor.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new OccupancySensorDevice(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, OnOffLight.class, OnOffLight.DEVICE_ID,
+                ArraysUtil.append(OnOffLight.STANDARD, OnOffLight.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new OnOffLightDevice(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, OnOffLightSwitch.class, OnOffLightSwitch.DEVICE_ID,
+                ArraysUtil.append(OnOffLightSwitch.STANDARD, OnOffLightSwitch.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new OnOffLightSwitchDevice(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, OnOffOutput.class, OnOffOutput.DEVICE_ID,
+                ArraysUtil.append(OnOffOutput.STANDARD, OnOffOutput.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new OnOffOutputDevice(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, OnOffSwitch.class, OnOffSwitch.DEVICE_ID,
+                ArraysUtil.append(OnOffSwitch.STANDARD, OnOffSwitch.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new OnOffSwitchDevice(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, Pump.class, Pump.DEVICE_ID,
+                ArraysUtil.append(Pump.STANDARD, Pump.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new PumpDevice(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, SimpleSensor.class, SimpleSensor.DEVICE_ID,
+                ArraysUtil.append(SimpleSensor.STANDARD, SimpleSensor.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new SimpleSensorDevice(context, endpoint);
+                    }
+                }));
+        context.getDeviceFactories().add(new DeviceFactoryImpl(context, TemperatureSensor.class, TemperatureSensor.DEVICE_ID,
+                ArraysUtil.append(TemperatureSensor.STANDARD, TemperatureSensor.CUSTOM),
+                new DeviceInstantiator() {
+                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)
+                            throws ZigBeeDeviceException {
+                        return new TemperatureSensorDevice(context, endpoint);
+                    }
+                }));
+    }
+}
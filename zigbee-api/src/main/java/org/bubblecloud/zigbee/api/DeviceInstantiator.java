@@ -0,0 +1,37 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api;
+
+import org.bubblecloud.zigbee.ZigBeeApiContext;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+
+/**
+ * Precompiled constructor of a single {@link Device} implementation. Used by {@link DeviceFactoryImpl}
+ * in place of reflective constructor lookup.
+ */
+public interface DeviceInstantiator {
+
+    /**
+     * Creates new device for the given endpoint.
+     *
+     * @param context  the API context
+     * @param endpoint the endpoint
+     * @return the device
+     * @throws ZigBeeDeviceException if the device can not be created
+     */
+    DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint) throws ZigBeeDeviceException;
+
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api;
+
+import java.util.List;
+
+/**
+ * Device listener which receives devices created in bulk on network state restore as a single
+ * restore complete event instead of {@link #deviceAdded(Device)} per device.
+ */
+public interface DeviceRestoreListener extends DeviceListener {
+
+    /**
+     * Devices have been restored.
+     *
+     * @param devices immutable list of the restored devices
+     */
+    public void devicesRestored(final List<Device> devices);
+
+}
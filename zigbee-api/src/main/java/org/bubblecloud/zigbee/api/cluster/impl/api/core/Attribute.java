@@ -69,6 +69,33 @@ public interface Attribute {
      */
     public Object getValue() throws ZigBeeClusterException;
 
+    /**
+     * Returns the value of the attribute honouring the given freshness policy: the cached value
+     * is returned if the policy accepts it, otherwise the attribute is read from the device.
+     *
+     * @param policy the {@link CachePolicy} to apply to this call
+     * @return the value of the attribute, <code>null</code> if the policy is {@link CachePolicy#CACHE_ONLY}
+     *         and no value has been read or reported yet
+     */
+    public Object getValue(CachePolicy policy) throws ZigBeeClusterException;
+
+    /**
+     * @return the last value read or reported together with its timestamp and source,
+     *         <code>null</code> if none is available
+     */
+    public AttributeValue getCachedValue();
+
+    /**
+     * @return the {@link CachePolicy} used by {@link #getValue()}
+     */
+    public CachePolicy getCachePolicy();
+
+    /**
+     * @param policy the {@link CachePolicy} used by {@link #getValue()}, <code>null</code> to
+     *               use the policy of the endpoint
+     */
+    public void setCachePolicy(CachePolicy policy);
+
     /**
      * If the attribute can be written ({@link #isWritable()} this method set its value.
      *
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.api.core;
+
+/**
+ * Snapshot of an {@link Attribute} value as last seen on the network, together with
+ * the time it was received and the kind of frame it came from.
+ */
+public final class AttributeValue {
+
+    /**
+     * The kind of frame an {@link AttributeValue} was taken from.
+     */
+    public enum Source {
+        /**
+         * Value returned by a Read Attributes Response.
+         */
+        READ,
+        /**
+         * Value received in a Report Attributes command.
+         */
+        REPORT
+    }
+
+    private final Object value;
+    private final long timestamp;
+    private final Source source;
+
+    public AttributeValue(final Object value, final long timestamp, final Source source) {
+        this.value = value;
+        this.timestamp = timestamp;
+        this.source = source;
+    }
+
+    /**
+     * @return the value of the attribute
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * @return the time in milliseconds, as given by {@link System#currentTimeMillis()}, the value was received
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the kind of frame the value was taken from
+     */
+    public Source getSource() {
+        return source;
+    }
+
+    /**
+     * @param now the current time in milliseconds
+     * @return the age of the value in milliseconds
+     */
+    public long getAge(final long now) {
+        return now - timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return value + " (" + source + " at " + timestamp + ")";
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.api.core;
+
+/**
+ * Freshness policy deciding whether {@link Attribute#getValue()} may be answered from the
+ * attribute cache or has to read the attribute from the device.
+ */
+public final class CachePolicy {
+
+    /**
+     * Always read the attribute from the device. The result still refreshes the cache.
+     */
+    public static final CachePolicy ALWAYS_LIVE = new CachePolicy(-1, false);
+
+    /**
+     * Never read the attribute from the device, the cached value is returned or <code>null</code>
+     * if nothing has been read or reported yet.
+     */
+    public static final CachePolicy CACHE_ONLY = new CachePolicy(Long.MAX_VALUE, true);
+
+    private final long maxAge;
+    private final boolean cacheOnly;
+
+    private CachePolicy(final long maxAge, final boolean cacheOnly) {
+        this.maxAge = maxAge;
+        this.cacheOnly = cacheOnly;
+    }
+
+    /**
+     * Creates a policy accepting cached values up to the given age and reading
+     * the attribute from the device otherwise.
+     *
+     * @param millis the maximum age of a cached value in milliseconds
+     * @return the policy
+     */
+    public static CachePolicy maxAge(final long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Maximum age can not be negative: " + millis);
+        }
+        return new CachePolicy(millis, false);
+    }
+
+    /**
+     * @return the maximum age of a cached value in milliseconds, negative if cached values are never used
+     */
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * @return true if the policy never reads the attribute from the device
+     */
+    public boolean isCacheOnly() {
+        return cacheOnly;
+    }
+
+    /**
+     * Checks whether a cached value can be returned as is.
+     *
+     * @param cached the cached value or <code>null</code>
+     * @param now    the current time in milliseconds
+     * @return true if the cached value satisfies this policy
+     */
+    public boolean isFresh(final AttributeValue cached, final long now) {
+        if (cached == null || maxAge < 0) {
+            return false;
+        }
+        return cacheOnly || cached.getAge(now) <= maxAge;
+    }
+
+    @Override
+    public String toString() {
+        if (this == ALWAYS_LIVE) {
+            return "ALWAYS_LIVE";
+        }
+        if (this == CACHE_ONLY) {
+            return "CACHE_ONLY";
+        }
+        return "MAX_AGE(" + maxAge + " ms)";
+    }
+}
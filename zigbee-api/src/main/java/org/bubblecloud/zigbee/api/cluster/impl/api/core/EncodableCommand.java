@@ -0,0 +1,37 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.api.core;
+
+/**
+ * A {@link Command} that knows the exact size of its payload and can encode it
+ * straight into a caller supplied buffer, so that the ZCL frame is built in a
+ * single pass without intermediate arrays.
+ */
+public interface EncodableCommand extends Command {
+
+    /**
+     * @return the exact number of bytes {@link #encodePayload(ZBSerializer)} will write
+     */
+    public int getPayloadSize();
+
+    /**
+     * Writes the payload of the command at the current position of the serializer.
+     *
+     * @param serializer the {@link ZBSerializer} to write to
+     */
+    public void encodePayload(ZBSerializer serializer);
+
+}
@@ -24,6 +24,10 @@ package org.bubblecloud.zigbee.api.cluster.impl.api.core;
 
 import java.io.IOException;
 
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesStatus;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributeRecord;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributesStatus;
+
 /**
  * @author <a href="mailto:stefano.lenzi@isti.cnr.it">Stefano "Kismet" Lenzi</a>
  * @author <a href="mailto:francesco.furfari@isti.cnr.it">Francesco Furfari</a>
@@ -112,4 +116,26 @@ public interface ZCLCluster {
      * @since 0.2.0
      */
     public Attribute getAttribute(int id);
+
+    /**
+     * Reads several attributes of this cluster with as few <i>Read Attributes</i> frames as possible.
+     * Reads issued concurrently by other callers on the same cluster are merged in the same frames.
+     *
+     * @param attributeIds the identifiers of the attributes to read
+     * @return the read records in the order of the requested attributes
+     * @throws ZigBeeClusterException if the attributes could not be read
+     */
+    public ReadAttributesStatus[] readAttributes(int[] attributeIds) throws ZigBeeClusterException;
+
+    /**
+     * Writes several attributes of this cluster packing the records in as few <i>Write Attributes</i>
+     * frames as the payload allows.
+     *
+     * @param records    the attributes and values to write
+     * @param noResponse true to send <i>Write Attributes No Response</i>, the device does not report the outcome
+     * @return the status of each record in the order of the records, <code>null</code> if <code>noResponse</code> is set
+     * @throws ZigBeeClusterException if the attributes could not be written
+     */
+    public WriteAttributesStatus[] writeAttributes(WriteAttributeRecord[] records, boolean noResponse)
+            throws ZigBeeClusterException;
 }
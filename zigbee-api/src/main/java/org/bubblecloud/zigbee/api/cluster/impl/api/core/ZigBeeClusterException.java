@@ -42,6 +42,10 @@ public class ZigBeeClusterException extends ZigBeeException {
         super(ex);
     }
 
+    public ZigBeeClusterException(String msg, Throwable ex) {
+        super(msg, ex);
+    }
+
     public ZigBeeClusterException(String msg, Response response) {
         super(msg);
         this.response = response;
@@ -36,4 +36,21 @@ public interface AttributeReport {
     public ZigBeeType getAttributeDataType();
 
     public Object getAttributeData();
+
+    /**
+     * Returns the reported value of an integral, bitmap, enumeration or boolean attribute
+     * without boxing it. Unsigned types are zero extended, the others sign extended.
+     *
+     * @return the reported value
+     * @throws IllegalStateException if the reported data type is not integral
+     */
+    public long getAttributeDataAsLong();
+
+    /**
+     * Returns the reported value of a numeric attribute without boxing it.
+     *
+     * @return the reported value
+     * @throws IllegalStateException if the reported data type is not numeric
+     */
+    public double getAttributeDataAsDouble();
 }
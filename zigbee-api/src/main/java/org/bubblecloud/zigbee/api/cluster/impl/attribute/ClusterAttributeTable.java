@@ -0,0 +1,283 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.attribute;
+
+import java.util.Arrays;
+
+/**
+ * Constant time attribute lookup table of the standard clusters.
+ * Attributes are keyed by cluster and attribute ID into an open addressed table whose hash multiplier
+ * was chosen at generation time so that no two standard attributes collide.
+ * <p>
+ * Generated by ClusterMetadataGenerator from {@link Attributes} and the clusters registered in
+ * ClusterFactoryImpl, do not edit.
+ */
+public final class ClusterAttributeTable {
+
+    private static final int HASH_MULTIPLIER = 0x9e378351;
+    private static final int HASH_SHIFT = 22;
+
+    private static final int[] KEYS = new int[1 << (32 - HASH_SHIFT)];
+    private static final int[] INDEXES = new int[KEYS.length];
+    private static final AttributeDescriptor[] ATTRIBUTES = new AttributeDescriptor[KEYS.length];
+
+    private static final int[] CLUSTER_IDS = new int[]{
+            0x0000, 0x0001, 0x0002, 0x0003, 0x0004, 0x0005, 0x0006, 0x0007,
+            0x0008, 0x0009, 0x000a, 0x000c, 0x000f, 0x0100, 0x0101, 0x0102,
+            0x0200, 0x0201, 0x0202, 0x0204, 0x0300, 0x0400, 0x0401, 0x0402,
+            0x0403, 0x0404, 0x0405, 0x0406, 0x0500, 0x0501, 0x0502, 0x0702
+    };
+
+    private static final int[][] ATTRIBUTE_IDS = new int[][]{
+            /* Basic */ {0x0000, 0x0001, 0x0002, 0x0003, 0x0004, 0x0005, 0x0006, 0x0007, 0x0010, 0x0011, 0x0012, 0x0013, 0x0014},
+            /* PowerConfiguration */ {0x0000, 0x0001, 0x0010, 0x0011, 0x0012, 0x0013, 0x0020, 0x0030, 0x0031, 0x0032, 0x0033, 0x0034, 0x0035, 0x0036},
+            /* DeviceTemperatureConfiguration */ {0x0000, 0x0001, 0x0002, 0x0003, 0x0010, 0x0011, 0x0012, 0x0013, 0x0014},
+            /* Identify */ {0x0000},
+            /* Groups */ {0x0000},
+            /* Scenes */ {0x0000, 0x0001, 0x0003, 0x0004, 0x0005},
+            /* OnOff */ {0x0000},
+            /* OnOff Switch Configuration */ {0x0000},
+            /* LevelControl */ {0x0000, 0x0001, 0x0010, 0x0011},
+            /* Alarms */ {0x0000},
+            /* Time */ {0x0000, 0x0001},
+            /* AnalogInput */ {0x001c, 0x0041, 0x0045, 0x0051, 0x0055, 0x0067, 0x006a, 0x006f, 0x0075, 0x0100},
+            /* Binary Input (Basic) */ {0x0055, 0x0051, 0x006f, 0x0100, 0x0067, 0x0054, 0x002e, 0x001c, 0x0004},
+            /* Shade Configuration */ {0x001c},
+            /* Door Lock */ {0x001c},
+            /* Window Covering */ {0x001c},
+            /* Pump Configuration And Control */ {0x001c},
+            /* Thermostat */ {0x001c},
+            /* Fan Control */ {0x001c},
+            /* Pump Configuration And Control */ {0x001c},
+            /* Color Control */ {0x0000, 0x0001, 0x0002, 0x0003, 0x0004, 0x0005, 0x0006, 0x0007, 0x0008, 0x0010, 0x0011, 0x0012, 0x0013, 0x0015, 0x0016, 0x0017, 0x0019, 0x001a, 0x001b, 0x0020, 0x0021, 0x0022, 0x0024, 0x0025, 0x0026, 0x0028, 0x0029, 0x002a, 0x0030, 0x0031, 0x0032, 0x0033, 0x0034, 0x0036, 0x0037, 0x0038, 0x003a, 0x003b, 0x003d},
+            /* Illuminance Measurement */ {0x0000, 0x0001, 0x0002, 0x0003, 0x0004},
+            /* Illuminance Level Sensing */ {0x001c},
+            /* TemperatureMeasurement */ {0x0000, 0x0001, 0x0002, 0x0003},
+            /* Pressure Measurement */ {0x001c},
+            /* Flow Measurement */ {0x001c},
+            /* Relative Humidity Measurement */ {0x0000, 0x0001, 0x0002, 0x0003},
+            /* OccupancySensing */ {0x0000, 0x0001, 0x0010, 0x0011, 0x0020, 0x0021, 0x0012, 0x0022},
+            /* IAS Zone */ {0x0000, 0x0001, 0x0002, 0x0010},
+            /* IAS ACE */ {},
+            /* IAS WD */ {0x0000},
+            /* Metering */ {0x001c}
+    };
+
+    static {
+        Arrays.fill(KEYS, -1);
+        put(0x0000, 0, Attributes.ZCL_VERSION);
+        put(0x0000, 1, Attributes.APPLICATION_VERSION);
+        put(0x0000, 2, Attributes.STACK_VERSION);
+        put(0x0000, 3, Attributes.HW_VERSION);
+        put(0x0000, 4, Attributes.MANUFACTURER_NAME);
+        put(0x0000, 5, Attributes.MODEL_IDENTIFIER);
+        put(0x0000, 6, Attributes.DATE_CODE);
+        put(0x0000, 7, Attributes.POWER_SOURCE);
+        put(0x0000, 8, Attributes.LOCATION_DESCRIPTION);
+        put(0x0000, 9, Attributes.PHYSICAL_ENVIRONMENT);
+        put(0x0000, 10, Attributes.DEVICE_ENABLED);
+        put(0x0000, 11, Attributes.ALARM_MASK);
+        put(0x0000, 12, Attributes.DISABLE_LOCAL_CONFIG);
+        put(0x0001, 0, Attributes.MAINS_VOLTAGE);
+        put(0x0001, 1, Attributes.MAINS_FREQUENCY);
+        put(0x0001, 2, Attributes.MAINS_ALARM_MASK);
+        put(0x0001, 3, Attributes.MAINS_VOLTAGE_MIN_THRESHOLD);
+        put(0x0001, 4, Attributes.MAINS_VOLTAGE_MAX_THRESHOLD);
+        put(0x0001, 5, Attributes.MAINS_VOLTAGE_DWELL_TRIP_POINT);
+        put(0x0001, 6, Attributes.BATTERY_VOLTAGE);
+        put(0x0001, 7, Attributes.BATTERY_MANUFACTURER);
+        put(0x0001, 8, Attributes.BATTERY_SIZE);
+        put(0x0001, 9, Attributes.BATTERY_AHr_RATING);
+        put(0x0001, 10, Attributes.BATTERY_QUANTITY);
+        put(0x0001, 11, Attributes.BATTERY_RATED_VOLTAGE);
+        put(0x0001, 12, Attributes.BATTERY_ALARM_MASK);
+        put(0x0001, 13, Attributes.BATTERY_VOLTAGE_MIN_THRESHOLD);
+        put(0x0002, 0, Attributes.CURRENT_TEMPERATURE);
+        put(0x0002, 1, Attributes.MIN_TEMP_EXPERIENCED);
+        put(0x0002, 2, Attributes.MAX_TEMP_EXPERIENCED);
+        put(0x0002, 3, Attributes.OVER_TEMP_TOTAL_DWELL);
+        put(0x0002, 4, Attributes.DEVICE_TEMP_ALARM_MASK);
+        put(0x0002, 5, Attributes.LOW_TEMP_THRESHOLD);
+        put(0x0002, 6, Attributes.HIGH_TEMP_THRESHOLD);
+        put(0x0002, 7, Attributes.LOW_TEMP_DWELL_TRIP_POINT);
+        put(0x0002, 8, Attributes.HIGH_TEMP_DWELL_TRIP_POINT);
+        put(0x0003, 0, Attributes.IDENTIFY_TIME);
+        put(0x0004, 0, Attributes.NAME_SUPPORT_GROUPS);
+        put(0x0005, 0, Attributes.SCENE_COUNT);
+        put(0x0005, 1, Attributes.CURRENT_SCENE);
+        put(0x0005, 2, Attributes.SCENE_VALID);
+        put(0x0005, 3, Attributes.NAME_SUPPORT_SCENES);
+        put(0x0005, 4, Attributes.LAST_CONFIGURED_BY);
+        put(0x0006, 0, Attributes.ON_OFF);
+        put(0x0007, 0, Attributes.SWITCH_TYPE);
+        put(0x0008, 0, Attributes.CURRENT_LEVEL);
+        put(0x0008, 1, Attributes.REMAINING_TIME);
+        put(0x0008, 2, Attributes.ON_OFF_TRANSITION_TIME);
+        put(0x0008, 3, Attributes.ON_LEVEL);
+        put(0x0009, 0, Attributes.ALLARM_COUNT);
+        put(0x000a, 0, Attributes.TIME);
+        put(0x000a, 1, Attributes.TIME_STATUS);
+        put(0x000c, 0, Attributes.DESCRIPTION);
+        put(0x000c, 1, Attributes.MAX_PRESENT_VALUE);
+        put(0x000c, 2, Attributes.MIN_PRESENT_VALUE);
+        put(0x000c, 3, Attributes.OUT_OF_SERVICE);
+        put(0x000c, 4, Attributes.PRESENT_VALUE);
+        put(0x000c, 5, Attributes.RELIABILITY);
+        put(0x000c, 6, Attributes.RESOLUTION);
+        put(0x000c, 7, Attributes.STATUS_FLAGS);
+        put(0x000c, 8, Attributes.ENGINEERING_UNITS);
+        put(0x000c, 9, Attributes.APPLICATION_TYPE);
+        put(0x000f, 0, Attributes.PRESENT_VALUE);
+        put(0x000f, 1, Attributes.OUT_OF_SERVICE);
+        put(0x000f, 2, Attributes.STATUS_FLAGS);
+        put(0x000f, 3, Attributes.APPLICATION_TYPE);
+        put(0x000f, 4, Attributes.RELIABILITY);
+        put(0x000f, 5, Attributes.POLARITY);
+        put(0x000f, 6, Attributes.INACTIVE_TEXT);
+        put(0x000f, 7, Attributes.DESCRIPTION);
+        put(0x000f, 8, Attributes.ACTIVE_TEXT);
+        put(0x0100, 0, Attributes.DESCRIPTION);
+        put(0x0101, 0, Attributes.DESCRIPTION);
+        put(0x0102, 0, Attributes.DESCRIPTION);
+        put(0x0200, 0, Attributes.DESCRIPTION);
+        put(0x0201, 0, Attributes.DESCRIPTION);
+        put(0x0202, 0, Attributes.DESCRIPTION);
+        put(0x0204, 0, Attributes.DESCRIPTION);
+        put(0x0300, 0, Attributes.CURRENT_HUE);
+        put(0x0300, 1, Attributes.CURRENT_SATURATION);
+        put(0x0300, 2, Attributes.REMAINING_TIME_COLOR_CONTROL);
+        put(0x0300, 3, Attributes.CURRENT_X);
+        put(0x0300, 4, Attributes.CURRENT_Y);
+        put(0x0300, 5, Attributes.DRIFT_COMPENSATION);
+        put(0x0300, 6, Attributes.COMPENSATION_TEXT);
+        put(0x0300, 7, Attributes.COLOR_TEMPERATURE);
+        put(0x0300, 8, Attributes.COLOR_MODE);
+        put(0x0300, 9, Attributes.NUMBER_OF_PRIMARIES);
+        put(0x0300, 10, Attributes.PRIMARY_1_X);
+        put(0x0300, 11, Attributes.PRIMARY_1_Y);
+        put(0x0300, 12, Attributes.PRIMARY_1_INTENSITY);
+        put(0x0300, 13, Attributes.PRIMARY_2_X);
+        put(0x0300, 14, Attributes.PRIMARY_2_Y);
+        put(0x0300, 15, Attributes.PRIMARY_2_INTENSITY);
+        put(0x0300, 16, Attributes.PRIMARY_3_X);
+        put(0x0300, 17, Attributes.PRIMARY_3_Y);
+        put(0x0300, 18, Attributes.PRIMARY_3_INTENSITY);
+        put(0x0300, 19, Attributes.PRIMARY_4_X);
+        put(0x0300, 20, Attributes.PRIMARY_4_Y);
+        put(0x0300, 21, Attributes.PRIMARY_4_INTENSITY);
+        put(0x0300, 22, Attributes.PRIMARY_5_X);
+        put(0x0300, 23, Attributes.PRIMARY_5_Y);
+        put(0x0300, 24, Attributes.PRIMARY_5_INTENSITY);
+        put(0x0300, 25, Attributes.PRIMARY_6_X);
+        put(0x0300, 26, Attributes.PRIMARY_6_Y);
+        put(0x0300, 27, Attributes.PRIMARY_6_INTENSITY);
+        put(0x0300, 28, Attributes.WHITE_POINT_X);
+        put(0x0300, 29, Attributes.WHITE_POINT_Y);
+        put(0x0300, 30, Attributes.COLOR_POINT_RX);
+        put(0x0300, 31, Attributes.COLOR_POINT_RY);
+        put(0x0300, 32, Attributes.COLOR_POINT_R_INTENSITY);
+        put(0x0300, 33, Attributes.COLOR_POINT_GX);
+        put(0x0300, 34, Attributes.COLOR_POINT_GY);
+        put(0x0300, 35, Attributes.COLOR_POINT_G_INTENSITY);
+        put(0x0300, 36, Attributes.COLOR_POINT_BX);
+        put(0x0300, 37, Attributes.COLOR_POINT_BY);
+        put(0x0300, 38, Attributes.COLOR_POINT_B_INTENSITY);
+        put(0x0400, 0, Attributes.MEASURED_VALUE_UNSIGNED_16_BIT);
+        put(0x0400, 1, Attributes.MIN_MEASURED_VALUE_UNSIGNED_16_BIT);
+        put(0x0400, 2, Attributes.MAX_MEASURED_VALUE_UNSIGNED_16_BIT);
+        put(0x0400, 3, Attributes.TOLERANCE);
+        put(0x0400, 4, Attributes.LIGHT_SENSOR_TYPE);
+        put(0x0401, 0, Attributes.DESCRIPTION);
+        put(0x0402, 0, Attributes.MEASURED_VALUE_SIGNED_16_BIT);
+        put(0x0402, 1, Attributes.MIN_MEASURED_VALUE_SIGNED_16_BIT);
+        put(0x0402, 2, Attributes.MAX_MEASURED_VALUE_SIGNED_16_BIT);
+        put(0x0402, 3, Attributes.TOLERANCE);
+        put(0x0403, 0, Attributes.DESCRIPTION);
+        put(0x0404, 0, Attributes.DESCRIPTION);
+        put(0x0405, 0, Attributes.MEASURED_VALUE_UNSIGNED_16_BIT);
+        put(0x0405, 1, Attributes.MIN_MEASURED_VALUE_UNSIGNED_16_BIT);
+        put(0x0405, 2, Attributes.MAX_MEASURED_VALUE_UNSIGNED_16_BIT);
+        put(0x0405, 3, Attributes.TOLERANCE);
+        put(0x0406, 0, Attributes.OCCUPANCY);
+        put(0x0406, 1, Attributes.OCCUPANCY_SENSOR_TYPE);
+        put(0x0406, 2, Attributes.PIR_OCCUPIED_TO_UNOCCUPIED_DELAY);
+        put(0x0406, 3, Attributes.PIR_UNOCCUPIED_TO_OCCUPIED_DELAY);
+        put(0x0406, 4, Attributes.ULTRA_SONIC_OCCUPIED_TO_UNOCCUPIED_DELAY);
+        put(0x0406, 5, Attributes.ULTRA_SONIC_UNOCCUPIED_TO_OCCUPIED_DELAY);
+        put(0x0406, 6, Attributes.PIR_UNOCCUPIED_TO_OCCUPIED_THRESHOLD);
+        put(0x0406, 7, Attributes.ULTRASONIC_UNOCCUPIED_TO_OCCUPIED_THRESHOLD);
+        put(0x0500, 0, Attributes.ZONE_STATE);
+        put(0x0500, 1, Attributes.ZONE_TYPE);
+        put(0x0500, 2, Attributes.ZONE_STATUS);
+        put(0x0500, 3, Attributes.IAS_CIE_ADDRESS);
+        put(0x0502, 0, Attributes.MAX_DURATION);
+        put(0x0702, 0, Attributes.DESCRIPTION);
+    }
+
+    private ClusterAttributeTable() {
+    }
+
+    private static void put(int clusterId, int index, AttributeDescriptor attribute) {
+        final int key = (clusterId << 16) | attribute.getId();
+        final int slot = (key * HASH_MULTIPLIER) >>> HASH_SHIFT;
+        if (KEYS[slot] != -1) {
+            throw new IllegalStateException("Attribute table collision at " + attribute.getName());
+        }
+        KEYS[slot] = key;
+        INDEXES[slot] = index;
+        ATTRIBUTES[slot] = attribute;
+    }
+
+    private static int slot(int clusterId, int attributeId) {
+        if (((clusterId | attributeId) & 0xFFFF0000) != 0) {
+            return -1;
+        }
+        final int key = (clusterId << 16) | attributeId;
+        final int slot = (key * HASH_MULTIPLIER) >>> HASH_SHIFT;
+        return KEYS[slot] == key ? slot : -1;
+    }
+
+    /**
+     * @return the sorted IDs of the clusters in the table
+     */
+    public static int[] getClusterIds() {
+        return CLUSTER_IDS.clone();
+    }
+
+    /**
+     * @return IDs of the standard attributes of the cluster in declaration order, or null if the cluster is unknown
+     */
+    public static int[] getAttributeIds(int clusterId) {
+        final int index = Arrays.binarySearch(CLUSTER_IDS, clusterId);
+        return index >= 0 ? ATTRIBUTE_IDS[index].clone() : null;
+    }
+
+    /**
+     * @return the descriptor of the attribute, or null if the attribute is unknown
+     */
+    public static AttributeDescriptor getAttribute(int clusterId, int attributeId) {
+        final int slot = slot(clusterId, attributeId);
+        return slot >= 0 ? ATTRIBUTES[slot] : null;
+    }
+
+    /**
+     * @return the position of the attribute in the standard attributes of the cluster, or -1 if the attribute is unknown
+     */
+    public static int indexOf(int clusterId, int attributeId) {
+        final int slot = slot(clusterId, attributeId);
+        return slot >= 0 ? INDEXES[slot] : -1;
+    }
+}
@@ -22,14 +22,15 @@
 
 package org.bubblecloud.zigbee.api.cluster.impl.core;
 
-import org.bubblecloud.zigbee.api.cluster.impl.api.core.Command;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.EncodableCommand;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZBSerializer;
 
 /**
  * @author <a href="mailto:stefano.lenzi@isti.cnr.it">Stefano "Kismet" Lenzi</a>
  * @author <a href="mailto:francesco.furfari@isti.cnr.it">Francesco Furfari</a>
  * @version $LastChangedRevision: 799 $ ($LastChangedDate: 2013-08-06 19:00:05 +0300 (Tue, 06 Aug 2013) $)
  */
-public class AbstractCommand implements Command {
+public class AbstractCommand implements EncodableCommand {
 
     private byte id;
     private byte[] manufacturerId;
@@ -106,4 +107,27 @@ public class AbstractCommand implements Command {
         }
         return payload;
     }
+
+    public int getPayloadSize() {
+        return getPayload().length;
+    }
+
+    public void encodePayload(ZBSerializer serializer) {
+        final byte[] data = getPayload();
+        for (int i = 0; i < data.length; i++) {
+            serializer.append_byte(data[i]);
+        }
+    }
+
+    /**
+     * Builds the cached payload of commands that override {@link #getPayloadSize()} and
+     * {@link #encodePayload(ZBSerializer)}, so that both ways of encoding share the same code.
+     *
+     * @return the payload encoded into an array of exactly {@link #getPayloadSize()} bytes
+     */
+    protected byte[] encodePayload() {
+        final byte[] data = new byte[getPayloadSize()];
+        encodePayload(new ZCLFrameWriter(data, 0));
+        return data;
+    }
 }
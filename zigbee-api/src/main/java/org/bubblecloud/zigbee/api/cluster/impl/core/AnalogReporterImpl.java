@@ -3,7 +3,6 @@
    Institute of Information Science and Technologies
    of the Italian National Research Council
 
-
    See the NOTICE file distributed with this work for additional
    information regarding copyright ownership
 
@@ -23,19 +22,10 @@
 package org.bubblecloud.zigbee.api.cluster.impl.core;
 
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.*;
-import org.bubblecloud.zigbee.network.ClusterMessage;
 import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
-import org.bubblecloud.zigbee.network.impl.ZigBeeNetworkManagerException;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.AnalogReporter;
 import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeReportingConfigurationRecord;
-import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeStatusRecord;
-import org.bubblecloud.zigbee.api.cluster.impl.ClusterMessageImpl;
 import org.bubblecloud.zigbee.api.cluster.impl.global.reporting.AttributeReportingConfigurationRecordImpl;
-import org.bubblecloud.zigbee.api.cluster.impl.global.reporting.ConfigureReportingCommand;
-import org.bubblecloud.zigbee.api.cluster.impl.global.reporting.ConfigureReportingResponseImpl;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * @author <a href="mailto:stefano.lenzi@isti.cnr.it">Stefano "Kismet" Lenzi</a>
@@ -45,8 +35,6 @@ import org.slf4j.LoggerFactory;
  */
 public class AnalogReporterImpl extends ReporterBase implements AnalogReporter {
 
-    private final Logger log = LoggerFactory.getLogger(AnalogReporterImpl.class);
-
     private Object minimumChange = null;
 
     public AnalogReporterImpl(final ZigBeeEndpoint zb, final ZCLCluster c, final Attribute attrib) {
@@ -62,37 +50,8 @@ public class AnalogReporterImpl extends ReporterBase implements AnalogReporter {
         setReportableChangeValue(new Double(AnalogReporter.DEFAULT_REPORTABLE_CHANGE_INTERVAL));
     }
 
-    protected boolean doConfigureServer() throws ZigBeeClusterException {
-
-        log.debug(
-                "Subscring to analog attribute {} ( {} )with the following parameter min = {}, max = {}, change = {}",
-                new Object[]{attribute.getName(), attribute.getId(), min, max, minimumChange}
-        );
-
-        AttributeReportingConfigurationRecordImpl config = new AttributeReportingConfigurationRecordImpl(
-                attribute, 0x00, max, min, minimumChange, max
-        );
-        ConfigureReportingCommand cmd = new ConfigureReportingCommand(
-                new AttributeReportingConfigurationRecord[]{config}
-        );
-
-        final ZCLFrame frame = new ZCLFrame(cmd, true);
-        final ClusterMessageImpl input = new ClusterMessageImpl(cluster.getId(), frame);
-        ClusterMessage clusterMessage = null;
-        try {
-            clusterMessage = device.invoke(input);
-            final ConfigureReportingResponseImpl response = new ConfigureReportingResponseImpl(
-                    new ResponseImpl(clusterMessage, clusterMessage.getId()), new Attribute[]{attribute}
-            );
-            final AttributeStatusRecord[] results = response.getAttributeStatusRecord();
-            if (results[0].getStatus() != 0) {
-                throw new ZigBeeClusterException("ConfigureReporting answered with a Failed status: {} " + results[0].getStatus());
-            }
-        } catch (ZigBeeNetworkManagerException e) {
-            throw new ZigBeeClusterException(e);
-        }
-
-        return true;
+    protected AttributeReportingConfigurationRecord getConfigurationRecord() {
+        return new AttributeReportingConfigurationRecordImpl(attribute, 0x00, max, min, minimumChange, max);
     }
 
     public Object getReportableChange() {
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.core;
+
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.AttributeValue;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.CachePolicy;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeReport;
+import org.bubblecloud.zigbee.network.ClusterFilter;
+import org.bubblecloud.zigbee.network.ClusterListener;
+import org.bubblecloud.zigbee.network.ClusterMessage;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-through cache of the attribute values of a single {@link ZigBeeEndpoint}.
+ * Entries are populated from Read Attributes Responses by {@link AttributeImpl} and
+ * refreshed by every Report Attributes command the endpoint receives.
+ */
+public class AttributeCache implements ClusterListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttributeCache.class);
+
+    private static final Map<ZigBeeEndpoint, AttributeCache> caches = new WeakHashMap<ZigBeeEndpoint, AttributeCache>();
+
+    private static volatile CachePolicy defaultPolicy = CachePolicy.ALWAYS_LIVE;
+
+    private final Map<Integer, AttributeValue> values = new ConcurrentHashMap<Integer, AttributeValue>();
+
+    private volatile CachePolicy policy;
+
+    AttributeCache() {
+    }
+
+    /**
+     * Returns the cache of the given endpoint, creating it and subscribing it to the
+     * attribute reports of the endpoint on first use.
+     *
+     * @param endpoint the endpoint
+     * @return the attribute cache of the endpoint
+     */
+    public static AttributeCache getCache(final ZigBeeEndpoint endpoint) {
+        synchronized (caches) {
+            AttributeCache cache = caches.get(endpoint);
+            if (cache == null) {
+                cache = new AttributeCache();
+                caches.put(endpoint, cache);
+                endpoint.addClusterListener(cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * @return the policy used by endpoints that do not define their own
+     */
+    public static CachePolicy getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    /**
+     * Sets the policy used by endpoints that do not define their own.
+     * The default is {@link CachePolicy#ALWAYS_LIVE}.
+     *
+     * @param policy the policy
+     */
+    public static void setDefaultPolicy(final CachePolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Policy can not be null");
+        }
+        defaultPolicy = policy;
+    }
+
+    /**
+     * @return the policy of this endpoint, or the default policy if none has been set
+     */
+    public CachePolicy getPolicy() {
+        final CachePolicy local = policy;
+        return local != null ? local : defaultPolicy;
+    }
+
+    /**
+     * @param policy the policy of this endpoint, <code>null</code> to fall back to the default policy
+     */
+    public void setPolicy(final CachePolicy policy) {
+        this.policy = policy;
+    }
+
+    public AttributeValue get(final int clusterId, final int attributeId) {
+        return values.get(key(clusterId, attributeId));
+    }
+
+    public void put(final int clusterId, final int attributeId, final AttributeValue value) {
+        if (value.getValue() == null) {
+            return;
+        }
+        values.put(key(clusterId, attributeId), value);
+    }
+
+    public void invalidate(final int clusterId, final int attributeId) {
+        values.remove(key(clusterId, attributeId));
+    }
+
+    public void clear() {
+        values.clear();
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public void handleCluster(final ZigBeeEndpoint endpoint, final ClusterMessage clusterMessage) {
+        try {
+            final AttributeReport[] reports = ZCLFrameView.of(clusterMessage).getAttributeReports();
+            final long now = System.currentTimeMillis();
+            for (int i = 0; i < reports.length; i++) {
+                put(clusterMessage.getId(), reports[i].getAttributeId(),
+                        new AttributeValue(reports[i].getAttributeData(), now, AttributeValue.Source.REPORT));
+            }
+        } catch (ZigBeeClusterException e) {
+            logger.warn("Unable to decode attribute report of cluster {}: {}", clusterMessage.getId(), e.getMessage());
+        }
+    }
+
+    public ClusterFilter getClusterFilter() {
+        return SubscriptionClusterFilter.FILTER;
+    }
+
+    public void setClusterFilter(final ClusterFilter filter) {
+    }
+
+    private static Integer key(final int clusterId, final int attributeId) {
+        return ((clusterId & 0xFFFF) << 16) | (attributeId & 0xFFFF);
+    }
+}
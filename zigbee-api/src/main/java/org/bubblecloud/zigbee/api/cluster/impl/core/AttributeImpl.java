@@ -23,24 +23,13 @@
 package org.bubblecloud.zigbee.api.cluster.impl.core;
 
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.*;
-import org.bubblecloud.zigbee.network.ClusterMessage;
-import org.bubblecloud.zigbee.network.impl.ZigBeeNetworkManagerException;
 import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.Reporter;
-import org.bubblecloud.zigbee.api.cluster.impl.api.global.DefaultResponse;
-import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesResponse;
 import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesStatus;
 import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributeRecord;
-import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributesResponse;
 import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributesStatus;
-import org.bubblecloud.zigbee.api.cluster.impl.ClusterMessageImpl;
 import org.bubblecloud.zigbee.api.cluster.impl.attribute.AttributeDescriptor;
-import org.bubblecloud.zigbee.api.cluster.impl.global.DefaultResponseImpl;
-import org.bubblecloud.zigbee.api.cluster.impl.global.read.ReadAttributeCommand;
-import org.bubblecloud.zigbee.api.cluster.impl.global.read.ReadAttributesResponseImpl;
-import org.bubblecloud.zigbee.api.cluster.impl.global.write.WriteAttributeCommand;
 import org.bubblecloud.zigbee.api.cluster.impl.global.write.WriteAttributeRecordImpl;
-import org.bubblecloud.zigbee.api.cluster.impl.global.write.WriteAttributesResponseImpl;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,11 +45,11 @@ public class AttributeImpl implements Attribute {
 
     private static final Logger logger = LoggerFactory.getLogger(AttributeImpl.class);
 
-    final private Object LazyInstantiation = new Object();
     private ZigBeeEndpoint zbDevice;
     private ZCLCluster zclCluster;
     private Reporter reporter;
     private AttributeDescriptor descriptor;
+    private volatile CachePolicy cachePolicy;
 
     public AttributeImpl(ZigBeeEndpoint zbDevice, ZCLCluster zclCluster, AttributeDescriptor descriptor) {
         this.zbDevice = zbDevice;
@@ -103,14 +92,43 @@ public class AttributeImpl implements Attribute {
     }
 
     public Object getValue() throws ZigBeeClusterException {
+        return getValue(getCachePolicy());
+    }
+
+    public Object getValue(CachePolicy policy) throws ZigBeeClusterException {
+        final AttributeCache cache = getCache();
+        final AttributeValue cached = cache.get(zclCluster.getId(), getId());
+        if (policy.isFresh(cached, System.currentTimeMillis())) {
+            return cached.getValue();
+        }
+        if (policy.isCacheOnly()) {
+            return null;
+        }
         return doClusterWideRead();
     }
 
+    public AttributeValue getCachedValue() {
+        return getCache().get(zclCluster.getId(), getId());
+    }
+
+    public CachePolicy getCachePolicy() {
+        final CachePolicy local = cachePolicy;
+        return local != null ? local : getCache().getPolicy();
+    }
+
+    public void setCachePolicy(CachePolicy policy) {
+        this.cachePolicy = policy;
+    }
+
+    private AttributeCache getCache() {
+        return AttributeCache.getCache(zbDevice);
+    }
+
     public Reporter getReporter() {
         if (isReportable() == false)
             return null;
 
-        synchronized (LazyInstantiation) {
+        synchronized (this) {
             if (reporter == null) {
                 if (getZigBeeType().isAnalog()) {
                     reporter = new AnalogReporterImpl(zbDevice, zclCluster, this);
@@ -123,83 +141,33 @@ public class AttributeImpl implements Attribute {
     }
 
     private Object doClusterWideRead() throws ZigBeeClusterException {
-
         logger.info("Reading " + getName() + " from " + zbDevice.getIeeeAddress());
-        ReadAttributeCommand readAttrCom = new ReadAttributeCommand(new int[]{getId()});
-        ZCLFrame frame = new ZCLFrame(readAttrCom, zclCluster.isDefaultResponseEnabled());
-        ClusterMessageImpl input;
-        input = new ClusterMessageImpl(zclCluster.getId(), frame);
-        ClusterMessage clusterMessage = null;
-        try {
-            clusterMessage = zbDevice.invoke(input);
-            Response response = new ResponseImpl(clusterMessage, zclCluster.getId());
-            if (response.getZCLHeader().getTransactionId() != frame.getHeader().getTransactionId()) {
-                logger.error(
-                        "Received mismatching transaction response, " +
-                                "we have to change heuristic for dispatching. Received {} while sent {}",
-                        response.getZCLHeader().getTransactionId(), frame.getHeader().getTransactionId()
-                );
-                return null;
-            }
-            AttributeDescriptor[] requestedAttributes = new AttributeDescriptor[]{descriptor};
-
-            switch (response.getZCLHeader().getCommandId()) {
-                case ReadAttributesResponse.ID:
-                    ReadAttributesResponse readResponse = new ReadAttributesResponseImpl(response, requestedAttributes);
-                    ReadAttributesStatus attributeStatus = readResponse.getReadAttributeStatus()[0];
-                    if (attributeStatus.getStatus() == Status.SUCCESS.id) {
-                        return attributeStatus.getAttributeData();
-                    } else {
-                        Status state = Status.getStatus(attributeStatus.getStatus());
-                        throw new ZigBeeClusterException(
-                                "Read Attribute of " + getName() + " (" + getId() + " ) failed." +
-                                        "Due to " + state + " that means " + state.description
-                        );
-                    }
-                case DefaultResponse.ID:
-                    //Means that the read command is not supported
-                    final DefaultResponse result = new DefaultResponseImpl(response);
-                    Status state = result.getStatus();
-                    throw new ZigBeeClusterException(
-                            "Read Attribute of " + getId() + " failed because command is not supported."
-                                    + "Due to " + state + " that means " + state.description
-                                    + " Follows the ZCLFrame recieved " + ResponseImpl.toString(response)
-                    );
-
-                default:
-                    throw new ZigBeeClusterException(
-                            "Read Attribute of " + getId() + " failed due to: Unsupported answer: " + response
-                                    + " Follows the ZCLFrame recieved " + ResponseImpl.toString(response)
-                    );
-            }
-        } catch (ZigBeeNetworkManagerException e) {
-            throw new ZigBeeClusterException("Read Attribute of " + getId() + " failed due to:  " + e);
+        final ReadAttributesStatus attributeStatus =
+                AttributeReadCoalescer.read(zbDevice, zclCluster.getId(), getId(), getZigBeeType());
+        if (attributeStatus.getStatus() == Status.SUCCESS.id) {
+            return attributeStatus.getAttributeData();
+        } else {
+            Status state = Status.getStatus(attributeStatus.getStatus());
+            throw new ZigBeeClusterException(
+                    "Read Attribute of " + getName() + " (" + getId() + " ) failed." +
+                            "Due to " + state + " that means " + state.description
+            );
         }
     }
 
     private void doClusterWideWrite(Object o) throws ZigBeeClusterException {
         WriteAttributeRecord writeAttrComRec = new WriteAttributeRecordImpl(this, o);
-        WriteAttributeCommand writeAttrCom = new WriteAttributeCommand(new WriteAttributeRecord[]{writeAttrComRec});
-        ZCLFrame frame = new ZCLFrame(writeAttrCom, zclCluster.isDefaultResponseEnabled());
-        ClusterMessageImpl input = new ClusterMessageImpl(zclCluster.getId(), frame);
-        try {
-            ClusterMessage clusterMessage = zbDevice.invoke(input);
-            Response response = new ResponseImpl(clusterMessage, zclCluster.getId());
-            AttributeDescriptor[] requestedAttributes = new AttributeDescriptor[]{descriptor};
-            WriteAttributesResponse writeResposne = new WriteAttributesResponseImpl(response, requestedAttributes);
-            WriteAttributesStatus attributeStatus = writeResposne.getWriteAttributesStatus()[0];
-            if (attributeStatus.getStatus() != Status.SUCCESS.id) {
-                Status state = Status.getStatus(attributeStatus.getStatus());
-                throw new ZigBeeClusterException(
-                        "Unable to write value " + o.toString()
-                                + ". It failed with error " + state + "(" + state.id + "):" + state.description
-                                + ". Follows the ZCLFrame recieved " + ResponseImpl.toString(writeResposne)
-                );
-            }
-        } catch (ZigBeeNetworkManagerException e) {
-            throw new ZigBeeClusterException(e);
+        WriteAttributesStatus attributeStatus = AttributeWriter.write(
+                zbDevice, zclCluster.getId(), new WriteAttributeRecord[]{writeAttrComRec},
+                false, zclCluster.isDefaultResponseEnabled()
+        )[0];
+        if (attributeStatus.getStatus() != Status.SUCCESS.id) {
+            Status state = Status.getStatus(attributeStatus.getStatus());
+            throw new ZigBeeClusterException(
+                    "Unable to write value " + o.toString()
+                            + ". It failed with error " + state + "(" + state.id + "):" + state.description
+            );
         }
-        return;
     }
 
     public Object getDefaultValue() throws ZigBeeClusterException {
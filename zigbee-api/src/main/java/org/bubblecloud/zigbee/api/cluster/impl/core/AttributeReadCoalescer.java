@@ -0,0 +1,346 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.core;
+
+import org.bubblecloud.zigbee.api.cluster.impl.ClusterMessageImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.AttributeValue;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Response;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Status;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeType;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.DefaultResponse;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesResponse;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesStatus;
+import org.bubblecloud.zigbee.api.cluster.impl.global.DefaultResponseImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.global.read.ReadAttributeCommand;
+import org.bubblecloud.zigbee.api.cluster.impl.global.read.ReadAttributesResponseImpl;
+import org.bubblecloud.zigbee.network.ClusterMessage;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNetworkManagerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Merges concurrent attribute reads of the same cluster of an endpoint into as few
+ * Read Attributes frames as possible. The first caller waits for the coalescing window and then
+ * sends the reads queued so far, callers arriving while a frame is in flight are sent together
+ * in the next one. Requests are split so that the expected response fits in a single frame and
+ * attributes left out of a truncated response are requested again.
+ */
+public class AttributeReadCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttributeReadCoalescer.class);
+
+    /**
+     * System property holding the coalescing window in milliseconds, 0 disables the wait.
+     */
+    public static final String WINDOW_KEY = "zigbee.zcl.read.window";
+    public static final long WINDOW_DEFAULT = 5;
+
+    /**
+     * Unfragmented APS payload of 82 bytes minus the 3 byte ZCL header.
+     */
+    public static final int MAX_PAYLOAD_SIZE = 79;
+
+    /**
+     * Attribute identifier, status and data type of a read record.
+     */
+    private static final int RECORD_HEADER_SIZE = 4;
+    private static final int UNKNOWN_SIZE_ESTIMATE = 8;
+    private static final int STRING_SIZE_ESTIMATE = 17;
+
+    private static final long WINDOW = Long.getLong(WINDOW_KEY, WINDOW_DEFAULT);
+
+    private static final Map<ZigBeeEndpoint, Map<Short, AttributeReadCoalescer>> coalescers =
+            new WeakHashMap<ZigBeeEndpoint, Map<Short, AttributeReadCoalescer>>();
+
+    private final short clusterId;
+    private final long window;
+    private final Object lock = new Object();
+    private final List<PendingRead> queue = new ArrayList<PendingRead>();
+    private boolean sending;
+
+    AttributeReadCoalescer(final short clusterId, final long window) {
+        this.clusterId = clusterId;
+        this.window = window;
+    }
+
+    private static AttributeReadCoalescer getCoalescer(final ZigBeeEndpoint endpoint, final short clusterId) {
+        synchronized (coalescers) {
+            Map<Short, AttributeReadCoalescer> clusters = coalescers.get(endpoint);
+            if (clusters == null) {
+                clusters = new HashMap<Short, AttributeReadCoalescer>();
+                coalescers.put(endpoint, clusters);
+            }
+            AttributeReadCoalescer coalescer = clusters.get(clusterId);
+            if (coalescer == null) {
+                coalescer = new AttributeReadCoalescer(clusterId, WINDOW);
+                clusters.put(clusterId, coalescer);
+            }
+            return coalescer;
+        }
+    }
+
+    /**
+     * Reads a single attribute, possibly together with other reads of the same cluster.
+     *
+     * @param endpoint    the endpoint to read from
+     * @param clusterId   the cluster of the attribute
+     * @param attributeId the attribute to read
+     * @param type        the expected type of the attribute or <code>null</code> if not known
+     * @return the read record of the attribute
+     * @throws ZigBeeClusterException if the read failed
+     */
+    public static ReadAttributesStatus read(final ZigBeeEndpoint endpoint, final short clusterId,
+                                            final int attributeId, final ZigBeeType type)
+            throws ZigBeeClusterException {
+        return read(endpoint, clusterId, new int[]{attributeId}, new ZigBeeType[]{type})[0];
+    }
+
+    /**
+     * Reads several attributes of a cluster with as few frames as possible.
+     *
+     * @param endpoint     the endpoint to read from
+     * @param clusterId    the cluster of the attributes
+     * @param attributeIds the attributes to read
+     * @param types        the expected types of the attributes, entries or the array itself may be <code>null</code>
+     * @return the read records in the order of the requested attributes
+     * @throws ZigBeeClusterException if the read failed
+     */
+    public static ReadAttributesStatus[] read(final ZigBeeEndpoint endpoint, final short clusterId,
+                                              final int[] attributeIds, final ZigBeeType[] types)
+            throws ZigBeeClusterException {
+        return getCoalescer(endpoint, clusterId).read(endpoint, attributeIds, types);
+    }
+
+    ReadAttributesStatus[] read(final ZigBeeEndpoint endpoint, final int[] attributeIds, final ZigBeeType[] types)
+            throws ZigBeeClusterException {
+        final PendingRead[] pending = new PendingRead[attributeIds.length];
+        for (int i = 0; i < attributeIds.length; i++) {
+            pending[i] = new PendingRead(attributeIds[i] & 0xFFFF, types != null ? types[i] : null);
+        }
+
+        synchronized (lock) {
+            for (int i = 0; i < pending.length; i++) {
+                queue.add(pending[i]);
+            }
+        }
+
+        while (true) {
+            synchronized (lock) {
+                try {
+                    while (sending && !isDone(pending)) {
+                        lock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ZigBeeClusterException("Interrupted while waiting for attribute read of cluster " + clusterId);
+                }
+                if (isDone(pending)) {
+                    break;
+                }
+                sending = true;
+            }
+
+            try {
+                if (window > 0) {
+                    try {
+                        Thread.sleep(window);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                final List<PendingRead> batch;
+                synchronized (lock) {
+                    batch = new ArrayList<PendingRead>(queue);
+                    queue.clear();
+                }
+                execute(endpoint, batch);
+            } finally {
+                synchronized (lock) {
+                    sending = false;
+                    lock.notifyAll();
+                }
+            }
+        }
+
+        final ReadAttributesStatus[] statuses = new ReadAttributesStatus[pending.length];
+        for (int i = 0; i < pending.length; i++) {
+            if (pending[i].error != null) {
+                throw pending[i].error;
+            }
+            statuses[i] = pending[i].status;
+        }
+        return statuses;
+    }
+
+    private void execute(final ZigBeeEndpoint endpoint, final List<PendingRead> batch) {
+        final Map<Integer, List<PendingRead>> byId = new LinkedHashMap<Integer, List<PendingRead>>();
+        final Map<Integer, ZigBeeType> types = new HashMap<Integer, ZigBeeType>();
+        for (final PendingRead read : batch) {
+            List<PendingRead> reads = byId.get(read.attributeId);
+            if (reads == null) {
+                reads = new ArrayList<PendingRead>();
+                byId.put(read.attributeId, reads);
+            }
+            reads.add(read);
+            if (read.type != null) {
+                types.put(read.attributeId, read.type);
+            }
+        }
+
+        final AttributeCache cache = AttributeCache.getCache(endpoint);
+        final LinkedList<Integer> remaining = new LinkedList<Integer>(byId.keySet());
+        try {
+            while (!remaining.isEmpty()) {
+                final List<Integer> chunk = new ArrayList<Integer>();
+                int size = 0;
+                while (!remaining.isEmpty()) {
+                    final int recordSize = getRecordSize(types.get(remaining.getFirst()));
+                    if (!chunk.isEmpty() && size + recordSize > MAX_PAYLOAD_SIZE) {
+                        break;
+                    }
+                    size += recordSize;
+                    chunk.add(remaining.removeFirst());
+                }
+
+                final ReadAttributesStatus[] records = readFrame(endpoint, chunk);
+                final long now = System.currentTimeMillis();
+                int answered = 0;
+                for (int i = 0; i < records.length; i++) {
+                    final Integer attributeId = records[i].getAttributeId() & 0xFFFF;
+                    if (!chunk.remove(attributeId)) {
+                        continue;
+                    }
+                    answered++;
+                    if (records[i].getStatus() == Status.SUCCESS.id) {
+                        cache.put(clusterId, attributeId,
+                                new AttributeValue(records[i].getAttributeData(), now, AttributeValue.Source.READ));
+                    }
+                    for (final PendingRead read : byId.get(attributeId)) {
+                        read.status = records[i];
+                        read.done = true;
+                    }
+                }
+                if (answered == 0) {
+                    throw new ZigBeeClusterException(
+                            "Read Attributes of cluster " + clusterId + " returned none of the attributes " + chunk);
+                }
+                if (!chunk.isEmpty()) {
+                    logger.debug("Response of cluster {} truncated, reading {} again.", clusterId, chunk);
+                    remaining.addAll(0, chunk);
+                }
+            }
+        } catch (ZigBeeClusterException e) {
+            fail(batch, e);
+        } catch (RuntimeException e) {
+            // Reads of the other callers have been taken from the queue and would never complete.
+            fail(batch, new ZigBeeClusterException("Read Attributes of cluster " + clusterId + " failed due to: " + e, e));
+        }
+    }
+
+    private static void fail(final List<PendingRead> batch, final ZigBeeClusterException e) {
+        for (final PendingRead read : batch) {
+            if (!read.done) {
+                read.error = e;
+                read.done = true;
+            }
+        }
+    }
+
+    private ReadAttributesStatus[] readFrame(final ZigBeeEndpoint endpoint, final List<Integer> attributeIds)
+            throws ZigBeeClusterException {
+        final int[] ids = new int[attributeIds.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = attributeIds.get(i);
+        }
+        logger.debug("Reading attributes {} of cluster {} from {}", new Object[]{
+                attributeIds, clusterId, endpoint.getIeeeAddress()
+        });
+        final ZCLFrame frame = new ZCLFrame(new ReadAttributeCommand(ids), false);
+        try {
+            final ClusterMessage clusterMessage = endpoint.invoke(new ClusterMessageImpl(clusterId, frame));
+            final Response response = new ResponseImpl(clusterMessage, clusterId);
+            if (response.getZCLHeader().getTransactionId() != frame.getHeader().getTransactionId()) {
+                logger.error(
+                        "Received mismatching transaction response, " +
+                                "we have to change heuristic for dispatching. Received {} while sent {}",
+                        response.getZCLHeader().getTransactionId(), frame.getHeader().getTransactionId()
+                );
+                throw new ZigBeeClusterException("Read Attributes of cluster " + clusterId
+                        + " received mismatching transaction response");
+            }
+            switch (response.getZCLHeader().getCommandId()) {
+                case ReadAttributesResponse.ID:
+                    return new ReadAttributesResponseImpl(response).getReadAttributeStatus();
+                case DefaultResponse.ID:
+                    final Status state = new DefaultResponseImpl(response).getStatus();
+                    throw new ZigBeeClusterException(
+                            "Read Attributes of cluster " + clusterId + " failed because command is not supported."
+                                    + "Due to " + state + " that means " + state.description
+                                    + " Follows the ZCLFrame recieved " + ResponseImpl.toString(response)
+                    );
+                default:
+                    throw new ZigBeeClusterException(
+                            "Read Attributes of cluster " + clusterId + " failed due to: Unsupported answer: "
+                                    + response + " Follows the ZCLFrame recieved " + ResponseImpl.toString(response)
+                    );
+            }
+        } catch (ZigBeeNetworkManagerException e) {
+            throw new ZigBeeClusterException("Read Attributes of cluster " + clusterId + " failed due to:  " + e, e);
+        }
+    }
+
+    private static int getRecordSize(final ZigBeeType type) {
+        if (type == null) {
+            return RECORD_HEADER_SIZE + UNKNOWN_SIZE_ESTIMATE;
+        }
+        if (type.getLength() < 0) {
+            return RECORD_HEADER_SIZE + STRING_SIZE_ESTIMATE;
+        }
+        return RECORD_HEADER_SIZE + type.getLength();
+    }
+
+    private static boolean isDone(final PendingRead[] pending) {
+        for (int i = 0; i < pending.length; i++) {
+            if (!pending[i].done) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class PendingRead {
+        final int attributeId;
+        final ZigBeeType type;
+        ReadAttributesStatus status;
+        ZigBeeClusterException error;
+        boolean done;
+
+        PendingRead(final int attributeId, final ZigBeeType type) {
+            this.attributeId = attributeId;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.core;
+
+import org.bubblecloud.zigbee.api.cluster.impl.ClusterMessageImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Response;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Status;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.DefaultResponse;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributeRecord;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributesResponse;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributesStatus;
+import org.bubblecloud.zigbee.api.cluster.impl.global.DefaultResponseImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.global.write.WriteAttributeCommand;
+import org.bubblecloud.zigbee.api.cluster.impl.global.write.WriteAttributeStatusImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.global.write.WriteAttributesResponseImpl;
+import org.bubblecloud.zigbee.network.ClusterMessage;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNetworkManagerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes several attributes of a cluster packing the records in as few <i>Write Attributes</i>
+ * frames as the payload allows.
+ */
+public class AttributeWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttributeWriter.class);
+
+    private AttributeWriter() {
+    }
+
+    /**
+     * Writes the given attribute records.
+     *
+     * @param endpoint        the endpoint to write to
+     * @param clusterId       the cluster of the attributes
+     * @param records         the attributes and values to write
+     * @param noResponse      true to send <i>Write Attributes No Response</i> frames
+     * @param defaultResponse true to ask the device for a default response
+     * @return the status of each record in the order of the records, or <code>null</code> if
+     *         <code>noResponse</code> is set as the device does not report the outcome
+     * @throws ZigBeeClusterException if a frame could not be sent or the device rejected the command
+     */
+    public static WriteAttributesStatus[] write(final ZigBeeEndpoint endpoint, final short clusterId,
+                                                final WriteAttributeRecord[] records, final boolean noResponse,
+                                                final boolean defaultResponse)
+            throws ZigBeeClusterException {
+        final WriteAttributesStatus[] statuses = new WriteAttributesStatus[records.length];
+        final AttributeCache cache = AttributeCache.getCache(endpoint);
+
+        int start = 0;
+        while (start < records.length) {
+            int end = start;
+            int size = 0;
+            while (end < records.length) {
+                final int recordSize = WriteAttributeCommand.getRecordSize(records[end]);
+                if (end > start && size + recordSize > AttributeReadCoalescer.MAX_PAYLOAD_SIZE) {
+                    break;
+                }
+                size += recordSize;
+                end++;
+            }
+
+            final WriteAttributeRecord[] chunk = new WriteAttributeRecord[end - start];
+            System.arraycopy(records, start, chunk, 0, chunk.length);
+            final WriteAttributesStatus[] failures = writeFrame(endpoint, clusterId, chunk, noResponse, defaultResponse);
+
+            for (int i = start; i < end; i++) {
+                final int attributeId = records[i].getAttributeId();
+                if (!noResponse) {
+                    statuses[i] = new WriteAttributeStatusImpl(attributeId, (byte) Status.SUCCESS.id);
+                    for (int j = 0; j < failures.length; j++) {
+                        if ((failures[j].getAttributeId() & 0xFFFF) == attributeId) {
+                            statuses[i] = failures[j];
+                        }
+                    }
+                }
+                cache.invalidate(clusterId, attributeId);
+            }
+            start = end;
+        }
+
+        return noResponse ? null : statuses;
+    }
+
+    private static WriteAttributesStatus[] writeFrame(final ZigBeeEndpoint endpoint, final short clusterId,
+                                                      final WriteAttributeRecord[] records, final boolean noResponse,
+                                                      final boolean defaultResponse)
+            throws ZigBeeClusterException {
+        final ZCLFrame frame = new ZCLFrame(new WriteAttributeCommand(records, noResponse), defaultResponse);
+        final ClusterMessage input = new ClusterMessageImpl(clusterId, frame);
+        logger.debug("Writing {} attributes of cluster {} to {}", new Object[]{
+                records.length, clusterId, endpoint.getIeeeAddress()
+        });
+        try {
+            if (noResponse) {
+                endpoint.send(input);
+                return null;
+            }
+            final Response response = new ResponseImpl(endpoint.invoke(input), clusterId);
+            switch (response.getZCLHeader().getCommandId()) {
+                case WriteAttributesResponse.ID:
+                    return new WriteAttributesResponseImpl(response).getWriteAttributesStatus();
+                case DefaultResponse.ID:
+                    final Status state = new DefaultResponseImpl(response).getStatus();
+                    throw new ZigBeeClusterException(
+                            "Write Attributes of cluster " + clusterId + " failed due to " + state
+                                    + " that means " + state.description
+                                    + " Follows the ZCLFrame recieved " + ResponseImpl.toString(response)
+                    );
+                default:
+                    throw new ZigBeeClusterException(
+                            "Write Attributes of cluster " + clusterId + " failed due to: Unsupported answer: "
+                                    + response + " Follows the ZCLFrame recieved " + ResponseImpl.toString(response)
+                    );
+            }
+        } catch (ZigBeeNetworkManagerException e) {
+            throw new ZigBeeClusterException(e);
+        }
+    }
+}
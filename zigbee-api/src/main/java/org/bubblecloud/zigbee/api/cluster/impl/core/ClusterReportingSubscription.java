@@ -0,0 +1,388 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.core;
+
+import org.bubblecloud.zigbee.api.cluster.impl.ClusterMessageImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Attribute;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ReportListener;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Reporter;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Status;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZCLCluster;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeReport;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeReportingConfigurationRecord;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeStatusRecord;
+import org.bubblecloud.zigbee.api.cluster.impl.global.reporting.AttributeReportingConfigurationRecordImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.global.reporting.ConfigureReportingCommand;
+import org.bubblecloud.zigbee.api.cluster.impl.global.reporting.ConfigureReportingResponseImpl;
+import org.bubblecloud.zigbee.network.ClusterFilter;
+import org.bubblecloud.zigbee.network.ClusterListener;
+import org.bubblecloud.zigbee.network.ClusterMessage;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNetworkManagerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reporting subscription of one cluster of a {@link ZigBeeEndpoint}, shared by the
+ * {@link ReporterBase} instances of the attributes of the cluster.
+ * <p>
+ * The cluster is bound once when the first attribute is subscribed and unbound when the last
+ * one leaves. Newly subscribed attributes are configured with a single Configure Reporting
+ * frame and every incoming report is decoded once and routed to the reporters of the
+ * attributes it contains. Subscriptions are reference counted per attribute, so reporting of
+ * an attribute is only stopped when its last subscriber leaves.
+ */
+public class ClusterReportingSubscription implements ClusterListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterReportingSubscription.class);
+
+    /**
+     * The maximum reporting interval which instructs the device to stop reporting the attribute.
+     */
+    private static final int STOP_REPORTING_INTERVAL = 0xFFFF;
+
+    private static final Map<String, ClusterReportingSubscription> subscriptions =
+            new HashMap<String, ClusterReportingSubscription>();
+
+    private final String key;
+    private final ZigBeeEndpoint endpoint;
+    private final ZCLCluster cluster;
+    private final Map<Integer, Subscriber> subscribers = new ConcurrentHashMap<Integer, Subscriber>();
+    private boolean closed;
+
+    private ClusterReportingSubscription(final String key, final ZigBeeEndpoint endpoint, final ZCLCluster cluster) {
+        this.key = key;
+        this.endpoint = endpoint;
+        this.cluster = cluster;
+    }
+
+    /**
+     * Subscribes the listener to the reports of several attributes of the same cluster. The cluster is
+     * bound at most once and all attributes not yet subscribed are configured with one frame.
+     *
+     * @param listener  the listener
+     * @param reporters the reporters of the attributes
+     * @return true if the subscription succeeded
+     * @throws IllegalArgumentException if the reporters do not belong to the same cluster of the same endpoint
+     */
+    public static boolean subscribe(final ReportListener listener, final Reporter... reporters) {
+        if (reporters.length == 0) {
+            return true;
+        }
+        final ReporterBase[] bases = new ReporterBase[reporters.length];
+        for (int i = 0; i < reporters.length; i++) {
+            if (!(reporters[i] instanceof ReporterBase)) {
+                throw new IllegalArgumentException("Unsupported reporter " + reporters[i]);
+            }
+            bases[i] = (ReporterBase) reporters[i];
+            if (bases[i].device != bases[0].device || bases[i].cluster.getId() != bases[0].cluster.getId()) {
+                throw new IllegalArgumentException("Reporters belong to different clusters");
+            }
+        }
+        if (!subscribe(bases)) {
+            return false;
+        }
+        for (final ReporterBase reporter : bases) {
+            reporter.addReportListener(listener, false);
+        }
+        return true;
+    }
+
+    /**
+     * Adds a reference to the attribute of the reporter, binding the cluster and configuring
+     * reporting of the attribute if needed.
+     *
+     * @param reporters the reporters of the same cluster of the same endpoint
+     * @return true if the subscription succeeded
+     */
+    static boolean subscribe(final ReporterBase... reporters) {
+        while (true) {
+            final ClusterReportingSubscription subscription = getSubscription(reporters[0]);
+            synchronized (subscription) {
+                if (!subscription.closed) {
+                    return subscription.add(reporters);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes one reference of the reporter, or all of them.
+     *
+     * @param reporter the reporter
+     * @param all      true to remove every reference of the reporter
+     * @return true if the unsubscription succeeded
+     */
+    static boolean unsubscribe(final ReporterBase reporter, final boolean all) {
+        final ClusterReportingSubscription subscription;
+        synchronized (subscriptions) {
+            subscription = subscriptions.get(key(reporter));
+        }
+        if (subscription == null) {
+            return true;
+        }
+        synchronized (subscription) {
+            return subscription.closed || subscription.remove(reporter, all);
+        }
+    }
+
+    /**
+     * Sends the current reporting configuration of the attributes of the reporters in one frame.
+     *
+     * @param reporters the reporters of the same cluster of the same endpoint
+     * @throws ZigBeeClusterException if the configuration fails
+     */
+    static void configure(final ReporterBase... reporters) throws ZigBeeClusterException {
+        final AttributeReportingConfigurationRecord[] records = new AttributeReportingConfigurationRecord[reporters.length];
+        final Attribute[] attributes = new Attribute[reporters.length];
+        for (int i = 0; i < reporters.length; i++) {
+            records[i] = reporters[i].getConfigurationRecord();
+            attributes[i] = reporters[i].attribute;
+        }
+        configure(reporters[0].device, reporters[0].cluster, records, attributes);
+    }
+
+    /**
+     * @return the number of subscribed attributes
+     */
+    public int getAttributeCount() {
+        return subscribers.size();
+    }
+
+    public void handleCluster(final ZigBeeEndpoint endpoint, final ClusterMessage clusterMessage) {
+        if (clusterMessage.getId() != cluster.getId()) {
+            return;
+        }
+        final AttributeReport[] reports;
+        try {
+            reports = ZCLFrameView.of(clusterMessage).getAttributeReports();
+        } catch (ZigBeeClusterException e) {
+            logger.warn("Unable to decode attribute report of cluster {}: {}", cluster.getId(), e.getMessage());
+            return;
+        }
+        final Dictionary<Attribute, Object> event = new Hashtable<Attribute, Object>();
+        for (int i = 0; i < reports.length; i++) {
+            final Attribute attribute = cluster.getAttribute(reports[i].getAttributeId());
+            final Object value = reports[i].getAttributeData();
+            if (attribute != null && value != null) {
+                event.put(attribute, value);
+            }
+        }
+        final Set<ReporterBase> notified = new HashSet<ReporterBase>();
+        for (int i = 0; i < reports.length; i++) {
+            final Subscriber subscriber = subscribers.get(reports[i].getAttributeId());
+            if (subscriber == null) {
+                continue;
+            }
+            for (final ReporterBase reporter : subscriber.reporters) {
+                if (notified.add(reporter)) {
+                    reporter.notifyReportListeners(endpoint, event);
+                }
+            }
+        }
+    }
+
+    public ClusterFilter getClusterFilter() {
+        return SubscriptionClusterFilter.FILTER;
+    }
+
+    public void setClusterFilter(final ClusterFilter filter) {
+    }
+
+    private boolean add(final ReporterBase[] reporters) {
+        final boolean first = subscribers.isEmpty();
+        if (first && !bind()) {
+            close();
+            return false;
+        }
+        final List<ReporterBase> added = new ArrayList<ReporterBase>();
+        final Set<Integer> addedIds = new HashSet<Integer>();
+        for (final ReporterBase reporter : reporters) {
+            final int attributeId = reporter.attribute.getId();
+            if (!subscribers.containsKey(attributeId) && addedIds.add(attributeId)) {
+                added.add(reporter);
+            }
+        }
+        if (!added.isEmpty()) {
+            try {
+                configure(added.toArray(new ReporterBase[added.size()]));
+            } catch (ZigBeeClusterException e) {
+                logger.error("Unable to configure server for Reporting", e);
+                if (first) {
+                    unbind();
+                    close();
+                }
+                return false;
+            }
+        }
+        for (final ReporterBase reporter : reporters) {
+            Subscriber subscriber = subscribers.get(reporter.attribute.getId());
+            if (subscriber == null) {
+                subscriber = new Subscriber();
+                subscribers.put(reporter.attribute.getId(), subscriber);
+            }
+            subscriber.add(reporter);
+        }
+        if (first) {
+            endpoint.addClusterListener(this);
+        }
+        return true;
+    }
+
+    private boolean remove(final ReporterBase reporter, final boolean all) {
+        final int attributeId = reporter.attribute.getId();
+        final Subscriber subscriber = subscribers.get(attributeId);
+        if (subscriber == null || !subscriber.contains(reporter)) {
+            return true;
+        }
+        if (subscriber.getReferencesAfterRemove(reporter, all) > 0) {
+            subscriber.remove(reporter, all);
+            return true;
+        }
+
+        final AttributeReportingConfigurationRecord current = reporter.getConfigurationRecord();
+        try {
+            configure(endpoint, cluster, new AttributeReportingConfigurationRecord[]{
+                    new AttributeReportingConfigurationRecordImpl(reporter.attribute, current.getDiretion(),
+                            STOP_REPORTING_INTERVAL, current.getMinimumReportingInterval(),
+                            current.getReportableChange(), 0)
+            }, new Attribute[]{reporter.attribute});
+        } catch (ZigBeeClusterException e) {
+            logger.error("Unable to stop reporting of attribute " + reporter.attribute.getName(), e);
+            return false;
+        }
+        if (subscribers.size() == 1) {
+            if (!unbind()) {
+                return false;
+            }
+            endpoint.removeClusterListener(this);
+            close();
+        }
+        subscribers.remove(attributeId);
+        return true;
+    }
+
+    private boolean bind() {
+        try {
+            return endpoint.bindToLocal(cluster.getId());
+        } catch (ZigBeeNetworkManagerException e) {
+            logger.error("Unable to bind to device " + endpoint + " on cluster " + cluster.getId(), e);
+            return false;
+        }
+    }
+
+    private boolean unbind() {
+        try {
+            return endpoint.unbindFromLocal(cluster.getId());
+        } catch (ZigBeeNetworkManagerException e) {
+            logger.error("Unable to unbind from device " + endpoint + " on cluster " + cluster.getId(), e);
+            return false;
+        }
+    }
+
+    private void close() {
+        closed = true;
+        synchronized (subscriptions) {
+            if (subscriptions.get(key) == this) {
+                subscriptions.remove(key);
+            }
+        }
+    }
+
+    private static void configure(final ZigBeeEndpoint endpoint, final ZCLCluster cluster,
+                                  final AttributeReportingConfigurationRecord[] records, final Attribute[] attributes)
+            throws ZigBeeClusterException {
+        final ZCLFrame frame = new ZCLFrame(new ConfigureReportingCommand(records), true);
+        final ClusterMessageImpl input = new ClusterMessageImpl(cluster.getId(), frame);
+        final ClusterMessage clusterMessage;
+        try {
+            clusterMessage = endpoint.invoke(input);
+        } catch (ZigBeeNetworkManagerException e) {
+            throw new ZigBeeClusterException(e);
+        }
+        final ConfigureReportingResponseImpl response = new ConfigureReportingResponseImpl(
+                new ResponseImpl(clusterMessage, clusterMessage.getId()), attributes);
+        for (final AttributeStatusRecord record : response.getAttributeStatusRecord()) {
+            if (record.getStatus() != 0) {
+                throw new ZigBeeClusterException("ConfigureReporting answered with a Failed status: "
+                        + Status.getStatus(record.getStatus()) + " for attribute " + record.getAttributeId());
+            }
+        }
+    }
+
+    private static ClusterReportingSubscription getSubscription(final ReporterBase reporter) {
+        final String key = key(reporter);
+        synchronized (subscriptions) {
+            ClusterReportingSubscription subscription = subscriptions.get(key);
+            if (subscription == null) {
+                subscription = new ClusterReportingSubscription(key, reporter.device, reporter.cluster);
+                subscriptions.put(key, subscription);
+            }
+            return subscription;
+        }
+    }
+
+    private static String key(final ReporterBase reporter) {
+        return reporter.device.getEndpointId() + "/" + reporter.cluster.getId();
+    }
+
+    /**
+     * The reporters of one attribute and the number of references each of them holds.
+     */
+    private static class Subscriber {
+        private final Map<ReporterBase, Integer> references = new HashMap<ReporterBase, Integer>();
+        private volatile ReporterBase[] reporters = new ReporterBase[0];
+
+        private void add(final ReporterBase reporter) {
+            final Integer count = references.get(reporter);
+            references.put(reporter, count == null ? 1 : count + 1);
+            reporters = references.keySet().toArray(new ReporterBase[references.size()]);
+        }
+
+        private void remove(final ReporterBase reporter, final boolean all) {
+            final Integer count = references.get(reporter);
+            if (all || count == null || count == 1) {
+                references.remove(reporter);
+            } else {
+                references.put(reporter, count - 1);
+            }
+            reporters = references.keySet().toArray(new ReporterBase[references.size()]);
+        }
+
+        private boolean contains(final ReporterBase reporter) {
+            return references.containsKey(reporter);
+        }
+
+        private int getReferencesAfterRemove(final ReporterBase reporter, final boolean all) {
+            int sum = 0;
+            for (final Integer count : references.values()) {
+                sum += count;
+            }
+            return sum - (all ? references.get(reporter) : 1);
+        }
+    }
+}
@@ -35,191 +35,157 @@ import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeType;
  * @since 0.1.0
  */
 public class DefaultDeserializer implements ZBDeserializer {
-    int index = 0;
-    private byte[] payload;
+    private final ZCLCursor cursor;
 
     public DefaultDeserializer(byte[] payload, int index) {
-        this.payload = payload;
-        this.index = index;
+        this.cursor = new ZCLCursor(payload, index);
+    }
+
+    public DefaultDeserializer(ZCLCursor cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * @return the primitive {@link ZCLCursor} backing this deserializer, sharing its position
+     */
+    public ZCLCursor getCursor() {
+        return cursor;
     }
 
     public boolean endOfStream() {
-        return index >= payload.length;
+        return cursor.endOfStream();
     }
 
     public Boolean readBoolean() {
-        Object value = Integers.readBooleanObject(payload, index);
-        index++;
+        Object value = Integers.readBooleanObject(cursor.getPayload(), cursor.getPosition());
+        cursor.skip(1);
         return (Boolean) value;
     }
 
     public Byte readByte() {
-        Byte value = Integers.readByteObject(payload, index);
-        index += 1;
-        return value;
+        return Byte.valueOf(read_byte());
     }
 
     public Integer readInteger() {
-        Integer value = Integers.readIntObject(payload, index);
-        index += 4;
-        return value;
+        return Integer.valueOf(read_int());
     }
 
     public Long readLong() {
-        Long value = Integers.readLongObject(payload, index);
-        index += 8;
-        return value;
+        return Long.valueOf(read_long());
     }
 
     @SuppressWarnings("unchecked")
     public Object readObject(Class clazz) {
         Object[] value = new Object[1];
-        int step = Integers.readObject(payload, index, clazz, value);
-        index += step;
+        int step = Integers.readObject(cursor.getPayload(), cursor.getPosition(), clazz, value);
+        cursor.skip(step);
         return value[0];
     }
 
     public Short readShort() {
-        Short value = Integers.readShortObject(payload, index);
-        index += 2;
-        return value;
+        return Short.valueOf(read_short());
     }
 
     public boolean read_boolean() {
-        boolean value = Integers.readBoolean(payload, index);
-        index += 1;
-        return value;
+        return cursor.readBool();
     }
 
     public short read_uint8bit() {
-        short value = Integers.readByte(payload, index);
-        value = (short) (value & 0x000000FF);
-        index += 1;
-        return value;
+        return (short) cursor.readU8();
     }
 
     public int read_uint16bit() {
-        int value = Integers.readShort(payload, index);
-        value = value & 0x0000FFFF;
-        index += 2;
-        return value;
+        return cursor.readU16();
     }
 
     public byte read_byte() {
-        byte value = Integers.readByte(payload, index);
-        index += 1;
-        return value;
+        return (byte) cursor.readS8();
     }
 
     public int read_int() {
-        int value = Integers.readInt(payload, index);
-        index += 4;
+        int value = Integers.readInt(cursor.getPayload(), cursor.getPosition());
+        cursor.skip(4);
         return value;
     }
 
     public long read_long() {
-        long value = Integers.readLong(payload, index);
-        index += 8;
+        long value = Integers.readLong(cursor.getPayload(), cursor.getPosition());
+        cursor.skip(8);
         return value;
     }
 
     public short read_short() {
-        short value = Integers.readShort(payload, index);
-        index += 2;
-        return value;
+        return (short) cursor.readS16();
     }
 
     public int getPosition() {
-        return index;
+        return cursor.getPosition();
     }
 
     public void skip(int n) {
-        index += n;
+        cursor.skip(n);
     }
 
     public String readString() {
-        final String result = new String(payload, index + 1, payload[index] & 0xFF);
-        index += payload[index] + 1;
-        return result;
+        return readString(cursor.readU8());
     }
 
     public String readString(int size) {
-        final String result = new String(payload, index, size);
-        index += size;
+        final String result = new String(cursor.getPayload(), cursor.getPosition(), size);
+        cursor.skip(size);
         return result;
     }
 
     public Object readZigBeeType(ZigBeeType type) {
-        Object[] value = new Object[1];
         switch (type) {
             case Boolean:
-                value[0] = readBoolean();
-                break;
+                return readBoolean();
             case Data8bit:
             case Bitmap8bit:
             case Enumeration8bit:
             case UnsignedInteger8bit:
             case SignedInteger8bit:
-                byte b = read_byte();
-                if (type == ZigBeeType.UnsignedInteger8bit) {
-                    value[0] = new Integer(b & 0xFF);
-                } else {
-                    value[0] = new Integer(b);
-                }
-                break;
             case Data16bit:
             case Bitmap16bit:
             case Enumeration16bit:
             case UnsignedInteger16bit:
             case SignedInteger16bit:
-                short s = read_short();
-                if (type == ZigBeeType.UnsignedInteger16bit) {
-                    value[0] = new Integer(s & 0xFFFF);
-                } else {
-                    value[0] = new Integer(s);
-                }
-                break;
             case Data24bit:
             case Bitmap24bit:
             case UnsignedInteger24bit:
             case SignedInteger24bit:
-                int i = read_int24bit();
-                if (type == ZigBeeType.UnsignedInteger32bit) {
-                    value[0] = new Long(i & 0xFFFFFFFF);
-                } else {
-                    value[0] = new Integer(i);
-                }
-                break;
             case Data32bit:
             case Bitmap32bit:
-            case UnsignedInteger32bit:
             case SignedInteger32bit:
-                int i24 = read_int24bit();
-                value[0] = new Integer(i24);
-                break;
+                return Integer.valueOf((int) cursor.readIntegral(type));
+            case UnsignedInteger32bit:
+                return Long.valueOf(cursor.readU32());
+            case SemiPrecision:
+                return Short.valueOf((short) cursor.readU16());
+            case SinglePrecision:
+                return Float.valueOf(cursor.readFloat());
+            case DoublePrecision:
+                return Double.valueOf(cursor.readDouble());
             case CharacterString:
-            case OctectString: {
-                int size = read_byte();
-                value[0] = readString(size);
-            }
-            break;
+            case OctectString:
             case LongCharacterString:
-            case LongOctectString: {
-                int size = read_short();
-                value[0] = readString(size);
-            }
+            case LongOctectString:
+                return readString(cursor.readStringLength(type));
             default:
                 throw new IllegalArgumentException(
                         "No reader defined by this " + ZBDeserializer.class.getName() +
                                 " for " + type.toString() + " (" + type.getId() + ")"
                 );
         }
-        return value[0];
     }
 
+    /**
+     * Reads a 24bit value in the legacy most significant byte first layout, use
+     * {@link ZCLCursor#readS24()} or {@link #readZigBeeType(ZigBeeType)} for ZCL attribute data.
+     */
     public int read_int24bit() {
-        int value = Integers.readInt24bit(payload, index);
-        index += 3;
+        int value = Integers.readInt24bit(cursor.getPayload(), cursor.getPosition());
+        cursor.skip(3);
         return value;
     }
 
@@ -23,18 +23,12 @@
 package org.bubblecloud.zigbee.api.cluster.impl.core;
 
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.*;
-import org.bubblecloud.zigbee.network.ClusterFilter;
-import org.bubblecloud.zigbee.network.ClusterListener;
-import org.bubblecloud.zigbee.network.ClusterMessage;
 import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
-import org.bubblecloud.zigbee.network.impl.ZigBeeNetworkManagerException;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.Reporter;
-import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeReport;
-import org.bubblecloud.zigbee.api.cluster.impl.global.reporting.ReportAttributesCommand;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeReportingConfigurationRecord;
 
 import java.util.ArrayList;
 import java.util.Dictionary;
-import java.util.Hashtable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,7 +44,6 @@ public abstract class ReporterBase implements Reporter {
     private final Logger log = LoggerFactory.getLogger(ReporterBase.class);
 
     protected final ArrayList<ReportListener> listeners = new ArrayList<ReportListener>();
-    protected final ReportListenerNotifier bridge = new ReportListenerNotifier();
     protected final ZigBeeEndpoint device;
     protected final ZCLCluster cluster;
 
@@ -64,48 +57,28 @@ public abstract class ReporterBase implements Reporter {
     protected int max = Reporter.DEFAULT_MAX_REPORTING_INTERVAL;
     protected int min = Reporter.DEFAULT_MIN_REPORTING_INTERVAL;
 
-    protected class ReportListenerNotifier implements ClusterListener {
-
-        public void handleCluster(ZigBeeEndpoint endpoint, ClusterMessage c) {
+    /**
+     * Notifies the listeners of this reporter of a report routed by the cluster subscription.
+     *
+     * @param endpoint the reporting endpoint
+     * @param event    the reported attribute values
+     */
+    void notifyReportListeners(final ZigBeeEndpoint endpoint, final Dictionary<Attribute, Object> event) {
+        ArrayList<ReportListener> localCopy;
+        synchronized (listeners) {
+            localCopy = new ArrayList<ReportListener>(listeners);
+        }
+        log.debug("Notifying {} ReportListener", localCopy.size());
+        for (ReportListener reportListner : localCopy) {
             try {
-                if (c.getId() != cluster.getId()) return;
-                ResponseImpl response = new ResponseImpl(c, cluster.getId());
-                AttributeReport[] reports = new ReportAttributesCommand(response).getAttributeReports();
-                Dictionary<Attribute, Object> event = new Hashtable<Attribute, Object>();
-                for (int i = 0; i < reports.length; i++) {
-                    event.put(
-                            cluster.getAttribute(reports[i].getAttributeId()),
-                            reports[i].getAttributeData()
-                    );
-                }
-                ArrayList<ReportListener> localCopy;
-                synchronized (listeners) {
-                    localCopy = new ArrayList<ReportListener>(listeners);
-                }
-                log.debug("Notifying {} ReportListener", localCopy.size());
-                for (ReportListener reportListner : localCopy) {
-                    try {
-                        log.debug("Notifying {}:{}", reportListner.getClass().getName(), reportListner);
-                        reportListner.receivedReport(endpoint.getEndpointId(), cluster.getId(), event);
-                    } catch (Exception e) {
-                        log.error("Error while notifying {}:{} caused by {}", new Object[]{
-                                reportListner.getClass().getName(), reportListner, e.getStackTrace()
-                        });
-                    }
-                }
-
-            } catch (ZigBeeClusterException e) {
-                e.printStackTrace();
+                log.debug("Notifying {}:{}", reportListner.getClass().getName(), reportListner);
+                reportListner.receivedReport(endpoint.getEndpointId(), cluster.getId(), event);
+            } catch (Exception e) {
+                log.error("Error while notifying {}:{} caused by {}", new Object[]{
+                        reportListner.getClass().getName(), reportListner, e.getStackTrace()
+                });
             }
         }
-
-        public ClusterFilter getClusterFilter() {
-            return SubscriptionClusterFilter.FILTER;
-        }
-
-        public void setClusterFilter(ClusterFilter filter) {
-        }
-
     }
 
     public ReporterBase(final ZigBeeEndpoint zb, final ZCLCluster c, final Attribute attrib) {
@@ -114,49 +87,30 @@ public abstract class ReporterBase implements Reporter {
         attribute = attrib;
     }
 
-    private boolean doBindToDevice() {
-        try {
-            return device.bindToLocal(cluster.getId());
-        } catch (ZigBeeNetworkManagerException e) {
-            log.debug("Unable to bind to device {} on cluster {}", device, cluster.getId());
-            log.error("Binding failed", e);
-            return false;
-        }
-    }
+    /**
+     * @return the reporting configuration of the attribute with the current intervals
+     */
+    protected abstract AttributeReportingConfigurationRecord getConfigurationRecord();
 
-    private boolean doUnbindToDevice() {
-        try {
-            return device.unbindFromLocal(cluster.getId());
-        } catch (ZigBeeNetworkManagerException e) {
-            log.debug("Unable to bind to device {} on cluster {}", device, cluster.getId());
-            log.error("Binding failed", e);
-            return false;
-        }
+    protected boolean doConfigureServer() throws ZigBeeClusterException {
+        log.info("Configuring reporting of attribute {} ( {} ) with min = {}, max = {}",
+                new Object[]{attribute.getName(), attribute.getId(), min, max});
+        ClusterReportingSubscription.configure(this);
+        return true;
     }
 
-    protected abstract boolean doConfigureServer() throws ZigBeeClusterException;
-
     public boolean addReportListener(ReportListener listener, boolean subscribe) {
+        if (subscribe && !ClusterReportingSubscription.subscribe(this)) {
+            return false;
+        }
         synchronized (listeners) {
-            if (subscribe) {
-                if (!doBindToDevice()) {
-                    return false;
-                }
-                try {
-                    doConfigureServer();
-                } catch (ZigBeeClusterException e) {
-                    log.error("Unable to configure server for Reporting", e);
-                    return false;
-                }
-                device.addClusterListener(bridge);
-            }
             listeners.add(listener);
         }
         return true;
     }
 
     public void clear() {
-        if (doUnbindToDevice() == true) {
+        if (ClusterReportingSubscription.unsubscribe(this, true)) {
             synchronized (listeners) {
                 listeners.clear();
             }
@@ -174,20 +128,10 @@ public abstract class ReporterBase implements Reporter {
     }
 
     public boolean removeReportListener(ReportListener listener, boolean unsubscribe) {
+        if (unsubscribe && !ClusterReportingSubscription.unsubscribe(this, false)) {
+            return false;
+        }
         synchronized (listeners) {
-            if (unsubscribe) {
-                if (!doUnbindToDevice()) {
-                    return false;
-                }
-                //TODO Change the configuration only if there were no subscriber
-                try {
-                    doConfigureServer();
-                } catch (ZigBeeClusterException e) {
-                    log.error("Unable to configure server for Reporting", e);
-                    return false;
-                }
-                device.removeClusterListener(bridge);
-            }
             listeners.remove(listener);
         }
         return true;
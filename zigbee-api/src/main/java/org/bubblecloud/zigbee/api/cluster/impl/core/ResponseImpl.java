@@ -45,9 +45,9 @@ public class ResponseImpl implements Response {
         if (expectedClusterId != clusterMessage.getId()) {
             throw new ZigBeeClusterException("Expected Response for cluster Id: " + expectedClusterId + " but received message for cluster Id: " + clusterMessage.getId());
         }
-        ZCLFrame frame = new ZCLFrame(clusterMessage);
+        ZCLFrameView frame = ZCLFrameView.of(clusterMessage);
         header = frame.getHeader();
-        payload = frame.getPayload();
+        payload = frame.copyPayload();
     }
 
     public ResponseImpl(Response response) {
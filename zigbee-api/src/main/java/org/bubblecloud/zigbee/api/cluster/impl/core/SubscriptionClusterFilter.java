@@ -48,9 +48,7 @@ public class SubscriptionClusterFilter implements ClusterFilter {
     }
 
     public boolean match(ClusterMessage clusterMessage) {
-        ZCLFrame frame = new ZCLFrame(clusterMessage);
-        return frame.getHeader().getCommandId() == ReportAttributesCommand.ID
-                && !frame.getHeader().getFramecontrol().isClusterSpecificCommand();
+        return ZCLFrameView.of(clusterMessage).isReportAttributes();
     }
 
 }
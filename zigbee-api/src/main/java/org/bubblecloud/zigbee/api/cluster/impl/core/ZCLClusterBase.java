@@ -28,9 +28,12 @@ import org.bubblecloud.zigbee.network.impl.ZigBeeNetworkManagerException;
 import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.Reporter;
 import org.bubblecloud.zigbee.api.cluster.impl.ClusterMessageImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesStatus;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributeRecord;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributesStatus;
+import org.bubblecloud.zigbee.api.cluster.impl.attribute.ClusterAttributeTable;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,7 +50,6 @@ public abstract class ZCLClusterBase implements ZCLCluster {
 
     private ZigBeeEndpoint zbDevice;
     private boolean isDefaultResponseEnabled;
-    private HashMap<Integer, Attribute> attributes;
 
     public ZCLClusterBase(ZigBeeEndpoint zbDevice) {
         this.zbDevice = zbDevice;
@@ -71,16 +73,37 @@ public abstract class ZCLClusterBase implements ZCLCluster {
         return isDefaultResponseEnabled;
     }
 
+    /**
+     * Looks up attribute by ID. Standard attributes are found from the generated
+     * {@link ClusterAttributeTable} in constant time; the attribute array is scanned only
+     * when the cluster exposes attributes outside of the standard table.
+     */
     public Attribute getAttribute(int id) {
-        if (attributes == null) {
-            attributes = new HashMap<Integer, Attribute>();
-            Attribute[] list = getAvailableAttributes();
-            for (int i = 0; i < list.length; i++) {
-                attributes.put(list[i].getId(), list[i]);
+        final Attribute[] list = getAvailableAttributes();
+        final int index = ClusterAttributeTable.indexOf(getId() & 0xFFFF, id);
+        if (index >= 0 && index < list.length && list[index].getId() == id) {
+            return list[index];
+        }
+        for (int i = 0; i < list.length; i++) {
+            if (list[i].getId() == id) {
+                return list[i];
             }
         }
+        return null;
+    }
+
+    public ReadAttributesStatus[] readAttributes(int[] attributeIds) throws ZigBeeClusterException {
+        final ZigBeeType[] types = new ZigBeeType[attributeIds.length];
+        for (int i = 0; i < attributeIds.length; i++) {
+            final Attribute attribute = getAttribute(attributeIds[i]);
+            types[i] = attribute != null ? attribute.getZigBeeType() : null;
+        }
+        return AttributeReadCoalescer.read(zbDevice, getId(), attributeIds, types);
+    }
 
-        return attributes.get(id);
+    public WriteAttributesStatus[] writeAttributes(WriteAttributeRecord[] records, boolean noResponse)
+            throws ZigBeeClusterException {
+        return AttributeWriter.write(zbDevice, getId(), records, noResponse, isDefaultResponseEnabled);
     }
 
     public Attribute[] getAvailableAttributes() {
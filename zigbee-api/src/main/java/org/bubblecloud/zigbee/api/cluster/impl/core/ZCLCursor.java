@@ -0,0 +1,270 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.core;
+
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeType;
+
+/**
+ * Primitive typed read cursor over a ZCL frame payload. All multi-byte values
+ * are decoded little endian as mandated by the ZigBee Cluster Library and
+ * returned as primitives, so walking a frame never allocates. A cursor can be
+ * re-targeted to another payload with {@link #reset(byte[], int)}.
+ * <p>
+ * {@link DefaultDeserializer} is built on top of this class and adds the boxed
+ * {@link org.bubblecloud.zigbee.api.cluster.impl.api.core.ZBDeserializer} view.
+ */
+public final class ZCLCursor {
+
+    private byte[] payload;
+    private int position;
+
+    public ZCLCursor(final byte[] payload, final int position) {
+        reset(payload, position);
+    }
+
+    /**
+     * Moves the cursor to the given payload and position.
+     *
+     * @param payload  the frame payload
+     * @param position the offset of the first byte to read
+     * @return this cursor
+     */
+    public ZCLCursor reset(final byte[] payload, final int position) {
+        this.payload = payload;
+        this.position = position;
+        return this;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public int remaining() {
+        return payload.length - position;
+    }
+
+    public boolean endOfStream() {
+        return position >= payload.length;
+    }
+
+    public void skip(final int n) {
+        position += n;
+    }
+
+    public boolean readBool() {
+        return payload[position++] == 0x01;
+    }
+
+    public int readU8() {
+        return payload[position++] & 0xFF;
+    }
+
+    public int readS8() {
+        return payload[position++];
+    }
+
+    public int readU16() {
+        final int value = (payload[position] & 0xFF) | (payload[position + 1] & 0xFF) << 8;
+        position += 2;
+        return value;
+    }
+
+    public int readS16() {
+        return (short) readU16();
+    }
+
+    public int readU24() {
+        final int value = (payload[position] & 0xFF)
+                | (payload[position + 1] & 0xFF) << 8
+                | (payload[position + 2] & 0xFF) << 16;
+        position += 3;
+        return value;
+    }
+
+    public int readS24() {
+        return readU24() << 8 >> 8;
+    }
+
+    public int readS32() {
+        final int value = (payload[position] & 0xFF)
+                | (payload[position + 1] & 0xFF) << 8
+                | (payload[position + 2] & 0xFF) << 16
+                | (payload[position + 3] & 0xFF) << 24;
+        position += 4;
+        return value;
+    }
+
+    public long readU32() {
+        return readS32() & 0xFFFFFFFFL;
+    }
+
+    public long readS64() {
+        final long low = readU32();
+        return readU32() << 32 | low;
+    }
+
+    public float readFloat() {
+        return Float.intBitsToFloat(readS32());
+    }
+
+    public double readDouble() {
+        return Double.longBitsToDouble(readS64());
+    }
+
+    /**
+     * Reads a ZCL semi-precision (IEEE 754 half) value.
+     *
+     * @return the value widened to <code>float</code>
+     */
+    public float readSemiFloat() {
+        final int half = readU16();
+        final float sign = (half & 0x8000) != 0 ? -1f : 1f;
+        final int exponent = (half >>> 10) & 0x1F;
+        final int mantissa = half & 0x3FF;
+        if (exponent == 0) {
+            return sign * Math.scalb((float) mantissa, -24);
+        } else if (exponent == 0x1F) {
+            return mantissa == 0 ? sign * Float.POSITIVE_INFINITY : Float.NaN;
+        }
+        return sign * Math.scalb((float) (mantissa | 0x400), exponent - 25);
+    }
+
+    /**
+     * Reads the length prefix of a string type and leaves the cursor on the first
+     * character, so that the caller can decide whether it needs a {@link String} at all.
+     *
+     * @param type one of the string {@link ZigBeeType}s
+     * @return the number of bytes that follow
+     */
+    public int readStringLength(final ZigBeeType type) {
+        switch (type) {
+            case CharacterString:
+            case OctectString:
+                return readU8();
+            case LongCharacterString:
+            case LongOctectString:
+                return readU16();
+            default:
+                throw new IllegalArgumentException(type + " is not a string type");
+        }
+    }
+
+    /**
+     * Reads a fixed length integer, bitmap, enumeration or boolean value. Unsigned types
+     * are zero extended and all the others are sign extended to <code>long</code>.
+     *
+     * @param type the {@link ZigBeeType} of the value
+     * @return the value
+     */
+    public long readIntegral(final ZigBeeType type) {
+        switch (type) {
+            case Boolean:
+                return readBool() ? 1 : 0;
+            case UnsignedInteger8bit:
+                return readU8();
+            case Data8bit:
+            case Bitmap8bit:
+            case Enumeration8bit:
+            case SignedInteger8bit:
+                return readS8();
+            case UnsignedInteger16bit:
+                return readU16();
+            case Data16bit:
+            case Bitmap16bit:
+            case Enumeration16bit:
+            case SignedInteger16bit:
+                return readS16();
+            case UnsignedInteger24bit:
+                return readU24();
+            case Data24bit:
+            case Bitmap24bit:
+            case SignedInteger24bit:
+                return readS24();
+            case UnsignedInteger32bit:
+                return readU32();
+            case Data32bit:
+            case Bitmap32bit:
+            case SignedInteger32bit:
+                return readS32();
+            default:
+                throw new IllegalArgumentException(type + " is not an integral type");
+        }
+    }
+
+    /**
+     * Reads a floating point value of the given precision.
+     *
+     * @param type {@link ZigBeeType#SemiPrecision}, {@link ZigBeeType#SinglePrecision}
+     *             or {@link ZigBeeType#DoublePrecision}
+     * @return the value
+     */
+    public double readReal(final ZigBeeType type) {
+        switch (type) {
+            case SemiPrecision:
+                return readSemiFloat();
+            case SinglePrecision:
+                return readFloat();
+            case DoublePrecision:
+                return readDouble();
+            default:
+                throw new IllegalArgumentException(type + " is not a floating point type");
+        }
+    }
+
+    /**
+     * @param type a {@link ZigBeeType}
+     * @return true if and only if {@link #readIntegral(ZigBeeType)} accepts the type
+     */
+    public static boolean isIntegral(final ZigBeeType type) {
+        switch (type) {
+            case Boolean:
+            case Data8bit:
+            case Bitmap8bit:
+            case Enumeration8bit:
+            case UnsignedInteger8bit:
+            case SignedInteger8bit:
+            case Data16bit:
+            case Bitmap16bit:
+            case Enumeration16bit:
+            case UnsignedInteger16bit:
+            case SignedInteger16bit:
+            case Data24bit:
+            case Bitmap24bit:
+            case UnsignedInteger24bit:
+            case SignedInteger24bit:
+            case Data32bit:
+            case Bitmap32bit:
+            case UnsignedInteger32bit:
+            case SignedInteger32bit:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param type a {@link ZigBeeType}
+     * @return true if and only if {@link #readReal(ZigBeeType)} accepts the type
+     */
+    public static boolean isReal(final ZigBeeType type) {
+        return type == ZigBeeType.SemiPrecision || type == ZigBeeType.SinglePrecision
+                || type == ZigBeeType.DoublePrecision;
+    }
+}
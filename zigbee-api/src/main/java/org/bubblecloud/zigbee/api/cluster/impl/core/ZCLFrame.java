@@ -26,6 +26,9 @@ import org.bubblecloud.zigbee.network.ClusterMessage;
 import org.bubblecloud.zigbee.util.ByteUtils;
 
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.Command;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.EncodableCommand;
+
+import java.util.Arrays;
 
 /**
  * @author <a href="mailto:stefano.lenzi@isti.cnr.it">Stefano "Kismet" Lenzi</a>
@@ -50,15 +53,22 @@ public class ZCLFrame {
 
     public ZCLFrame(Command cmd, boolean isEnableddefaultResponse) {
         header = new ZCLHeaderImpl(cmd, isEnableddefaultResponse);
-        payload = cmd.getPayload();
-        frame = createFrame();
+        if (cmd instanceof EncodableCommand) {
+            frame = encodeFrame((EncodableCommand) cmd);
+        } else {
+            payload = cmd.getPayload();
+            frame = createFrame();
+        }
     }
 
     public ZCLHeaderImpl getHeader() {
         return header;
     }
 
-    public byte[] getPayload() {
+    public synchronized byte[] getPayload() {
+        if (payload == null) {
+            payload = Arrays.copyOfRange(frame, header.size(), frame.length);
+        }
         return payload;
     }
 
@@ -69,6 +79,25 @@ public class ZCLFrame {
         return frame;
     }
 
+    /**
+     * Allocates the frame once at its exact size and encodes header and payload into it
+     * in a single pass.
+     */
+    private byte[] encodeFrame(EncodableCommand cmd) {
+        final int headerSize = header.size();
+        final byte[] frame = new byte[headerSize + cmd.getPayloadSize()];
+        System.arraycopy(header.toByte(), 0, frame, 0, headerSize);
+        final ZCLFrameWriter writer = new ZCLFrameWriter(frame, headerSize);
+        cmd.encodePayload(writer);
+        if (writer.getPosition() != frame.length) {
+            throw new IllegalStateException(
+                    cmd.getClass().getName() + " encoded " + (writer.getPosition() - headerSize)
+                            + " bytes of payload instead of " + (frame.length - headerSize)
+            );
+        }
+        return frame;
+    }
+
     public byte[] toByte() {
         return frame;
     }
@@ -0,0 +1,199 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.core;
+
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeReport;
+import org.bubblecloud.zigbee.api.cluster.impl.global.reporting.ReportAttributesCommand;
+import org.bubblecloud.zigbee.network.ClusterMessage;
+import org.bubblecloud.zigbee.network.impl.ClusterMessageImpl;
+
+/**
+ * Immutable view of a received ZCL frame. The header is parsed once when the view is created
+ * and the payload is referenced in place instead of copied; attribute report records are decoded
+ * on first access. Incoming messages carry a single view shared by all cluster filters and
+ * listeners, see {@link #of(ClusterMessage)}.
+ */
+public final class ZCLFrameView {
+
+    private final short clusterId;
+    private final byte[] frame;
+    private final byte frameControl;
+    private final int manufacturerCode;
+    private final byte transactionId;
+    private final byte commandId;
+    private final int payloadOffset;
+
+    private volatile ZCLHeaderImpl header;
+    private volatile AttributeReport[] attributeReports;
+
+    /**
+     * @param clusterId the cluster ID of the message
+     * @param frame     the frame, which is referenced and must not be modified afterwards
+     * @throws IllegalArgumentException if the frame is shorter than its header
+     */
+    public ZCLFrameView(final short clusterId, final byte[] frame) {
+        this.clusterId = clusterId;
+        this.frame = frame;
+        frameControl = frame.length > 0 ? frame[0] : 0;
+        if ((frameControl & ZCLFrameControlImpl.MANUFACTURER_MASK) != 0) {
+            payloadOffset = 5;
+        } else {
+            payloadOffset = 3;
+        }
+        if (frame.length < payloadOffset) {
+            throw new IllegalArgumentException("ZCL frame of " + frame.length + " bytes is shorter than its header");
+        }
+        if (payloadOffset == 5) {
+            manufacturerCode = (frame[1] & 0xFF) | ((frame[2] & 0xFF) << 8);
+        } else {
+            manufacturerCode = -1;
+        }
+        transactionId = frame[payloadOffset - 2];
+        commandId = frame[payloadOffset - 1];
+    }
+
+    /**
+     * Returns the view of the message, decoding it only if the message does not already carry one.
+     *
+     * @param message the cluster message
+     * @return the frame view
+     */
+    public static ZCLFrameView of(final ClusterMessage message) {
+        if (message instanceof ClusterMessageImpl) {
+            return ((ClusterMessageImpl) message).getFrameView();
+        }
+        return new ZCLFrameView(message.getId(), message.getClusterMsg());
+    }
+
+    public short getClusterId() {
+        return clusterId;
+    }
+
+    public byte getFrameControl() {
+        return frameControl;
+    }
+
+    public boolean isClusterSpecific() {
+        return (frameControl & ZCLFrameControlImpl.FRAME_TYPE_MASK) == ZCLFrameControlImpl.CLUSTER_COMMAND;
+    }
+
+    public boolean isManufacturerSpecific() {
+        return manufacturerCode != -1;
+    }
+
+    public boolean isClientServerDirection() {
+        return (frameControl & ZCLFrameControlImpl.DIRECTION_MASK) == 0;
+    }
+
+    public boolean isDefaultResponseEnabled() {
+        return (frameControl & ZCLFrameControlImpl.RESPONSE_TYPE_MASK) == 0;
+    }
+
+    /**
+     * @return the manufacturer code or -1 if the frame is not manufacturer specific
+     */
+    public int getManufacturerCode() {
+        return manufacturerCode;
+    }
+
+    public byte getTransactionId() {
+        return transactionId;
+    }
+
+    public byte getCommandId() {
+        return commandId;
+    }
+
+    /**
+     * @return true if the frame is a general Report Attributes command
+     */
+    public boolean isReportAttributes() {
+        return commandId == ReportAttributesCommand.ID && !isClusterSpecific();
+    }
+
+    /**
+     * @return the offset of the payload in the frame
+     */
+    public int getPayloadOffset() {
+        return payloadOffset;
+    }
+
+    public int getPayloadLength() {
+        return frame.length - payloadOffset;
+    }
+
+    /**
+     * @return a copy of the payload
+     */
+    public byte[] copyPayload() {
+        final byte[] payload = new byte[frame.length - payloadOffset];
+        System.arraycopy(frame, payloadOffset, payload, 0, payload.length);
+        return payload;
+    }
+
+    /**
+     * @return a new cursor positioned at the start of the payload
+     */
+    public ZCLCursor newCursor() {
+        return new ZCLCursor(frame, payloadOffset);
+    }
+
+    /**
+     * @return the header, created on first access
+     */
+    public ZCLHeaderImpl getHeader() {
+        ZCLHeaderImpl local = header;
+        if (local == null) {
+            synchronized (this) {
+                local = header;
+                if (local == null) {
+                    local = new ZCLHeaderImpl(frame);
+                    header = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Returns the attribute reports of a Report Attributes command. The records are decoded
+     * on the first call and the same records are returned to every later caller.
+     *
+     * @return a copy of the array of the decoded reports
+     * @throws ZigBeeClusterException if the frame is not a Report Attributes command or is malformed
+     */
+    public AttributeReport[] getAttributeReports() throws ZigBeeClusterException {
+        AttributeReport[] local = attributeReports;
+        if (local == null) {
+            if (!isReportAttributes()) {
+                throw new ZigBeeClusterException("Expected Report Attributes command but received " + commandId);
+            }
+            synchronized (this) {
+                local = attributeReports;
+                if (local == null) {
+                    try {
+                        local = ReportAttributesCommand.readAttributeReports(newCursor());
+                    } catch (IndexOutOfBoundsException e) {
+                        throw new ZigBeeClusterException("Truncated Report Attributes command", e);
+                    }
+                    attributeReports = local;
+                }
+            }
+        }
+        return local.clone();
+    }
+}
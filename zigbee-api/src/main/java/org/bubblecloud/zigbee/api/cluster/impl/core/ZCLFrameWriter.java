@@ -0,0 +1,261 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.core;
+
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZBSerializer;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeType;
+import org.bubblecloud.zigbee.util.Integers;
+
+import java.util.Arrays;
+
+/**
+ * {@link ZBSerializer} that encodes directly into a caller supplied array. It is the
+ * write side counterpart of {@link ZCLCursor}: ZCL values written with
+ * {@link #appendZigBeeType(Object, ZigBeeType)} and the primitive writers are little
+ * endian, and {@link #sizeOf(Object, ZigBeeType)} returns their exact encoded size so
+ * that a frame can be allocated once at its final length.
+ * <p>
+ * The legacy {@link #append_int(int)}, {@link #append_int24bit(int)} and
+ * {@link #append_long(long)} keep the layout of {@link DefaultSerializer} for the
+ * command encoders that depend on it.
+ */
+public final class ZCLFrameWriter implements ZBSerializer {
+
+    private byte[] buffer;
+    private int position;
+
+    public ZCLFrameWriter(final byte[] buffer, final int position) {
+        reset(buffer, position);
+    }
+
+    /**
+     * Moves the writer to the given buffer and position.
+     *
+     * @param buffer   the buffer to write to
+     * @param position the offset of the first byte to write
+     * @return this writer
+     */
+    public ZCLFrameWriter reset(final byte[] buffer, final int position) {
+        this.buffer = buffer;
+        this.position = position;
+        return this;
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void writeU8(final int value) {
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeU16(final int value) {
+        buffer[position] = (byte) value;
+        buffer[position + 1] = (byte) (value >> 8);
+        position += 2;
+    }
+
+    public void writeU24(final int value) {
+        buffer[position] = (byte) value;
+        buffer[position + 1] = (byte) (value >> 8);
+        buffer[position + 2] = (byte) (value >> 16);
+        position += 3;
+    }
+
+    public void writeS32(final int value) {
+        buffer[position] = (byte) value;
+        buffer[position + 1] = (byte) (value >> 8);
+        buffer[position + 2] = (byte) (value >> 16);
+        buffer[position + 3] = (byte) (value >> 24);
+        position += 4;
+    }
+
+    public void writeU32(final long value) {
+        writeS32((int) value);
+    }
+
+    public void writeS64(final long value) {
+        writeS32((int) value);
+        writeS32((int) (value >> 32));
+    }
+
+    public void writeFloat(final float value) {
+        writeS32(Float.floatToIntBits(value));
+    }
+
+    public void writeDouble(final double value) {
+        writeS64(Double.doubleToLongBits(value));
+    }
+
+    public void writeBytes(final byte[] data) {
+        System.arraycopy(data, 0, buffer, position, data.length);
+        position += data.length;
+    }
+
+    /**
+     * @param data the value to encode, only inspected for variable length types
+     * @param type the {@link ZigBeeType} of the value
+     * @return the number of bytes {@link #appendZigBeeType(Object, ZigBeeType)} writes for the value
+     */
+    public static int sizeOf(final Object data, final ZigBeeType type) {
+        switch (type) {
+            case CharacterString:
+            case OctectString:
+                return 1 + ((String) data).getBytes().length;
+            case LongCharacterString:
+            case LongOctectString:
+                return 2 + ((String) data).getBytes().length;
+            default:
+                if (type.getLength() < 0) {
+                    throw new IllegalArgumentException(
+                            "No writer defined by this " + ZBSerializer.class.getName() +
+                                    " for " + type.toString() + " (" + type.getId() + ")"
+                    );
+                }
+                return type.getLength();
+        }
+    }
+
+    public void appendZigBeeType(final Object data, final ZigBeeType type) {
+        if (data == null) {
+            throw new NullPointerException("You can not append null data to a stream");
+        }
+        switch (type) {
+            case Boolean:
+                append_boolean((Boolean) data);
+                break;
+            case Data8bit:
+            case SignedInteger8bit:
+            case Bitmap8bit:
+            case UnsignedInteger8bit:
+            case Enumeration8bit:
+                writeU8(((Number) data).intValue());
+                break;
+            case Data16bit:
+            case SignedInteger16bit:
+            case Bitmap16bit:
+            case UnsignedInteger16bit:
+            case Enumeration16bit:
+            case SemiPrecision:
+                writeU16(((Number) data).intValue());
+                break;
+            case Data24bit:
+            case SignedInteger24bit:
+            case Bitmap24bit:
+            case UnsignedInteger24bit:
+                writeU24(((Number) data).intValue());
+                break;
+            case Data32bit:
+            case SignedInteger32bit:
+            case Bitmap32bit:
+            case UnsignedInteger32bit:
+                writeU32(((Number) data).longValue());
+                break;
+            case SinglePrecision:
+                writeFloat(((Number) data).floatValue());
+                break;
+            case DoublePrecision:
+                writeDouble(((Number) data).doubleValue());
+                break;
+            case CharacterString:
+            case OctectString: {
+                final byte[] raw = ((String) data).getBytes();
+                if (raw.length > 0xFE) {
+                    throw new IllegalArgumentException("Given string '" + data + "' is too long for " + type);
+                }
+                writeU8(raw.length);
+                writeBytes(raw);
+            }
+            break;
+            case LongCharacterString:
+            case LongOctectString: {
+                final byte[] raw = ((String) data).getBytes();
+                if (raw.length > 0xFFFE) {
+                    throw new IllegalArgumentException("Given string '" + data + "' is too long for " + type);
+                }
+                writeU16(raw.length);
+                writeBytes(raw);
+            }
+            break;
+            default:
+                throw new IllegalArgumentException(
+                        "No writer defined by this " + ZBSerializer.class.getName() +
+                                " for " + type.toString() + " (" + type.getId() + ")"
+                );
+        }
+    }
+
+    public void appendString(final String str) {
+        appendZigBeeType(str, ZigBeeType.CharacterString);
+    }
+
+    @SuppressWarnings("deprecation")
+    public void appendObject(final Object data) {
+        position += Integers.writeObject(buffer, position, data);
+    }
+
+    public void appendBoolean(final Boolean data) {
+        append_boolean(data.booleanValue());
+    }
+
+    public void appendByte(final Byte data) {
+        append_byte(data.byteValue());
+    }
+
+    public void appendShort(final Short data) {
+        append_short(data.shortValue());
+    }
+
+    public void appendInteger(final Integer data) {
+        append_int(data.intValue());
+    }
+
+    public void appendLong(final Long data) {
+        append_long(data.longValue());
+    }
+
+    public void append_boolean(final boolean data) {
+        writeU8(data ? 0x01 : 0x00);
+    }
+
+    public void append_byte(final byte data) {
+        writeU8(data);
+    }
+
+    public void append_short(final short data) {
+        writeU16(data);
+    }
+
+    public void append_int(final int data) {
+        position += Integers.writeInt(buffer, position, data);
+    }
+
+    public void append_int24bit(final int data) {
+        position += Integers.writeInt24bit(buffer, position, data);
+    }
+
+    public void append_long(final long data) {
+        position += Integers.writeLong(buffer, position, data);
+    }
+
+    public byte[] getPayload() {
+        return Arrays.copyOf(buffer, position);
+    }
+}
@@ -26,7 +26,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZBSerializer;
 import org.bubblecloud.zigbee.api.cluster.impl.core.AbstractCommand;
-import org.bubblecloud.zigbee.api.cluster.impl.core.ByteArrayOutputStreamSerializer;
 
 /**
  * @author <a href="mailto:stefano.lenzi@isti.cnr.it">Stefano "Kismet" Lenzi</a>
@@ -49,13 +48,19 @@ public class ReadAttributeCommand extends AbstractCommand {
     public byte[] getPayload() {
         if (payload == null) {
             logger.debug("Creating Payload for command");
-            ZBSerializer serializer = new ByteArrayOutputStreamSerializer();
-            for (int i = 0; i < attributeIds.length; i++) {
-                serializer.append_short((short) attributeIds[i]);
-            }
-            payload = serializer.getPayload();
+            payload = encodePayload();
         }
         return payload;
     }
 
+    public int getPayloadSize() {
+        return 2 * attributeIds.length;
+    }
+
+    public void encodePayload(ZBSerializer serializer) {
+        for (int i = 0; i < attributeIds.length; i++) {
+            serializer.append_short((short) attributeIds[i]);
+        }
+    }
+
 }
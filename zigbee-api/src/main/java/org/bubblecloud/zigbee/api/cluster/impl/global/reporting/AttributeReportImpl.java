@@ -25,6 +25,8 @@ package org.bubblecloud.zigbee.api.cluster.impl.global.reporting;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZBDeserializer;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeType;
 import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeReport;
+import org.bubblecloud.zigbee.api.cluster.impl.core.DefaultDeserializer;
+import org.bubblecloud.zigbee.api.cluster.impl.core.ZCLCursor;
 
 /**
  * @author <a href="mailto:stefano.lenzi@isti.cnr.it">Stefano "Kismet" Lenzi</a>
@@ -35,21 +37,78 @@ import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeReport;
 public class AttributeReportImpl implements AttributeReport {
 
     private short attributeId;
-    private Object value;
     private final ZigBeeType type;
+    private final byte[] payload;
+    private final int valueOffset;
+    private long integral;
+    private double real;
+    private Object value;
 
     public AttributeReportImpl(ZBDeserializer deserializer) {
         attributeId = deserializer.read_short();
         byte dataType = deserializer.read_byte();
-        ;
         type = ZigBeeType.getType(dataType);
+        payload = null;
+        valueOffset = -1;
         value = deserializer.readZigBeeType(type);
     }
 
-    public Object getAttributeData() {
+    /**
+     * Decodes one attribute report record with the primitive path. Integral and floating point
+     * values are kept unboxed, the {@link Object} returned by {@link #getAttributeData()} is
+     * created only when asked for.
+     *
+     * @param cursor the {@link ZCLCursor} positioned at the start of the record
+     */
+    public AttributeReportImpl(ZCLCursor cursor) {
+        attributeId = (short) cursor.readU16();
+        type = ZigBeeType.getType((byte) cursor.readU8());
+        if (type == null) {
+            throw new IllegalArgumentException("Unsupported data type in attribute report of " + attributeId);
+        }
+        payload = cursor.getPayload();
+        valueOffset = cursor.getPosition();
+        if (ZCLCursor.isIntegral(type)) {
+            integral = cursor.readIntegral(type);
+            real = integral;
+        } else if (ZCLCursor.isReal(type)) {
+            real = cursor.readReal(type);
+        } else if (type.getLength() < 0) {
+            cursor.skip(cursor.readStringLength(type));
+        } else {
+            cursor.skip(type.getLength());
+        }
+    }
+
+    public synchronized Object getAttributeData() {
+        if (value == null && payload != null) {
+            value = new DefaultDeserializer(payload, valueOffset).readZigBeeType(type);
+        }
         return value;
     }
 
+    public long getAttributeDataAsLong() {
+        if (!ZCLCursor.isIntegral(type)) {
+            throw new IllegalStateException(type + " is not an integral type");
+        }
+        if (payload == null) {
+            final Object data = value;
+            return data instanceof Boolean ? (((Boolean) data) ? 1 : 0) : ((Number) data).longValue();
+        }
+        return integral;
+    }
+
+    public double getAttributeDataAsDouble() {
+        if (!ZCLCursor.isIntegral(type) && !ZCLCursor.isReal(type)) {
+            throw new IllegalStateException(type + " is not a numeric type");
+        }
+        if (payload == null) {
+            final Object data = value;
+            return data instanceof Boolean ? (((Boolean) data) ? 1 : 0) : ((Number) data).doubleValue();
+        }
+        return real;
+    }
+
     public ZigBeeType getAttributeDataType() {
         return type;
     }
@@ -26,7 +26,6 @@ import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZBSerializer;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeType;
 import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeReportingConfigurationRecord;
 import org.bubblecloud.zigbee.api.cluster.impl.core.AbstractCommand;
-import org.bubblecloud.zigbee.api.cluster.impl.core.DefaultSerializer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,55 +52,60 @@ public class ConfigureReportingCommand extends AbstractCommand {
     public byte[] getPayload() {
         if (payload == null) {
             logger.debug("Creating Payload for command");
-            int length = 0;
-            for (int i = 0; i < attributerecord.length; i++) {
-                if (attributerecord[i].getDiretion() == 1) {
-                    //CASE OF ATTRIBUTE CONFIGURATION SENT TO CLIENT
-                    //Size of: Direction + Attribute Id + Timeout
-                    length += 1 + 2 + 2;
-                } else if (attributerecord[i].getAttributeDataType().isAnalog() == false) {
-                    //CASE OF ATTRIBUTE CONFIGURATION SENT TO SERVER OF A DISCRETE ATTRIBUTE
-                    //Size of: Direction + Attribute Id + Data Type + Minimum + Maxium
-                    length += 1 + 2 + 1 + 2 + 2;
-                } else {
-                    //CASE OF ATTRIBUTE CONFIGURATION SENT TO SERVER OF A ANALOG ATTRIBUTE
-                    //Size of: Direction + Attribute Id + Data Type + Minimum + Maxium + Change
-                    final int valueSize = attributerecord[i].getAttributeDataType().getLength();
-                    length += 1 + 2 + 1 + 2 + 2 + valueSize;
-                }
+            payload = encodePayload();
+        }
+        return payload;
+    }
+
+    public int getPayloadSize() {
+        int length = 0;
+        for (int i = 0; i < attributerecord.length; i++) {
+            if (attributerecord[i].getDiretion() == 1) {
+                //CASE OF ATTRIBUTE CONFIGURATION SENT TO CLIENT
+                //Size of: Direction + Attribute Id + Timeout
+                length += 1 + 2 + 2;
+            } else if (attributerecord[i].getAttributeDataType().isAnalog() == false) {
+                //CASE OF ATTRIBUTE CONFIGURATION SENT TO SERVER OF A DISCRETE ATTRIBUTE
+                //Size of: Direction + Attribute Id + Data Type + Minimum + Maxium
+                length += 1 + 2 + 1 + 2 + 2;
+            } else {
+                //CASE OF ATTRIBUTE CONFIGURATION SENT TO SERVER OF A ANALOG ATTRIBUTE
+                //Size of: Direction + Attribute Id + Data Type + Minimum + Maxium + Change
+                final int valueSize = attributerecord[i].getAttributeDataType().getLength();
+                length += 1 + 2 + 1 + 2 + 2 + valueSize;
             }
-            payload = new byte[length];
-            ZBSerializer serializer = new DefaultSerializer(payload, 0);
-
-            for (int i = 0; i < attributerecord.length; i++) {
-                if (attributerecord[i].getDiretion() == 1) {
-                    //CASE OF ATTRIBUTE CONFIGURATION SENT TO CLIENT
-                    //Size of: Direction + Attribute Id + Timeout
-                    serializer.append_byte((byte) attributerecord[i].getDiretion());
-                    serializer.append_short((short) attributerecord[i].getAttributeId());
-                    serializer.append_short((short) attributerecord[i].getTimeoutPeriod());
-                } else if (attributerecord[i].getAttributeDataType().isAnalog() == false) {
-                    //CASE OF ATTRIBUTE CONFIGURATION SENT TO SERVER OF A DISCRETE ATTRIBUTE
-                    //Size of: Direction + Attribute Id + Data Type + Minimum + Maxium
-                    serializer.append_byte((byte) attributerecord[i].getDiretion());
-                    serializer.append_short((short) attributerecord[i].getAttributeId());
-                    serializer.append_byte((byte) attributerecord[i].getAttributeDataType().getId());
-                    serializer.append_short((short) attributerecord[i].getMinimumReportingInterval());
-                    serializer.append_short((short) attributerecord[i].getMaximumReportinInterval());
-                } else {
-                    //CASE OF ATTRIBUTE CONFIGURATION SENT TO SERVER OF A ANALOG ATTRIBUTE
-                    //Size of: Direction + Attribute Id + Data Type + Minimum + Maxium + Change
-                    serializer.append_byte((byte) attributerecord[i].getDiretion());
-                    serializer.append_short((short) attributerecord[i].getAttributeId());
-                    final ZigBeeType type = attributerecord[i].getAttributeDataType();
-                    serializer.append_byte((byte) type.getId());
-                    serializer.append_short((short) attributerecord[i].getMinimumReportingInterval());
-                    serializer.append_short((short) attributerecord[i].getMaximumReportinInterval());
-                    serializer.appendZigBeeType(attributerecord[i].getReportableChange(), type);
-                }
+        }
+        return length;
+    }
+
+    public void encodePayload(ZBSerializer serializer) {
+        for (int i = 0; i < attributerecord.length; i++) {
+            if (attributerecord[i].getDiretion() == 1) {
+                //CASE OF ATTRIBUTE CONFIGURATION SENT TO CLIENT
+                //Size of: Direction + Attribute Id + Timeout
+                serializer.append_byte((byte) attributerecord[i].getDiretion());
+                serializer.append_short((short) attributerecord[i].getAttributeId());
+                serializer.append_short((short) attributerecord[i].getTimeoutPeriod());
+            } else if (attributerecord[i].getAttributeDataType().isAnalog() == false) {
+                //CASE OF ATTRIBUTE CONFIGURATION SENT TO SERVER OF A DISCRETE ATTRIBUTE
+                //Size of: Direction + Attribute Id + Data Type + Minimum + Maxium
+                serializer.append_byte((byte) attributerecord[i].getDiretion());
+                serializer.append_short((short) attributerecord[i].getAttributeId());
+                serializer.append_byte((byte) attributerecord[i].getAttributeDataType().getId());
+                serializer.append_short((short) attributerecord[i].getMinimumReportingInterval());
+                serializer.append_short((short) attributerecord[i].getMaximumReportinInterval());
+            } else {
+                //CASE OF ATTRIBUTE CONFIGURATION SENT TO SERVER OF A ANALOG ATTRIBUTE
+                //Size of: Direction + Attribute Id + Data Type + Minimum + Maxium + Change
+                serializer.append_byte((byte) attributerecord[i].getDiretion());
+                serializer.append_short((short) attributerecord[i].getAttributeId());
+                final ZigBeeType type = attributerecord[i].getAttributeDataType();
+                serializer.append_byte((byte) type.getId());
+                serializer.append_short((short) attributerecord[i].getMinimumReportingInterval());
+                serializer.append_short((short) attributerecord[i].getMaximumReportinInterval());
+                serializer.appendZigBeeType(attributerecord[i].getReportableChange(), type);
             }
         }
-        return payload;
     }
 
 }
@@ -22,11 +22,10 @@
 
 package org.bubblecloud.zigbee.api.cluster.impl.global.reporting;
 
-import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZBDeserializer;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
 import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeReport;
-import org.bubblecloud.zigbee.api.cluster.impl.core.DefaultDeserializer;
 import org.bubblecloud.zigbee.api.cluster.impl.core.ResponseImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.core.ZCLCursor;
 
 import java.util.ArrayList;
 
@@ -52,14 +51,21 @@ public class ReportAttributesCommand extends ResponseImpl {
         super(response);
         ResponseImpl.checkGeneralCommandFrame(response, ReportAttributesCommand.ID);
 
-        byte[] msg = getPayload();
-        ZBDeserializer deserializer = new DefaultDeserializer(msg, 0);
+        attributesReport = readAttributeReports(new ZCLCursor(getPayload(), 0));
+    }
+
+    /**
+     * Decodes attribute report records until the end of the payload.
+     *
+     * @param cursor the cursor positioned at the first record
+     * @return the reports
+     */
+    public static AttributeReport[] readAttributeReports(ZCLCursor cursor) {
         ArrayList<AttributeReportImpl> attributes = new ArrayList<AttributeReportImpl>();
-        for (int i = 0; deserializer.getPosition() < msg.length; i++) {
-            attributes.add(new AttributeReportImpl(deserializer));
+        while (!cursor.endOfStream()) {
+            attributes.add(new AttributeReportImpl(cursor));
         }
-
-        attributesReport = attributes.toArray(new AttributeReport[]{});
+        return attributes.toArray(new AttributeReport[attributes.size()]);
     }
 
     public AttributeReport[] getAttributeReports() {
@@ -26,7 +26,7 @@ import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZBSerializer;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeType;
 import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributeRecord;
 import org.bubblecloud.zigbee.api.cluster.impl.core.AbstractCommand;
-import org.bubblecloud.zigbee.api.cluster.impl.core.ByteArrayOutputStreamSerializer;
+import org.bubblecloud.zigbee.api.cluster.impl.core.ZCLFrameWriter;
 
 /**
  * @author <a href="mailto:stefano.lenzi@isti.cnr.it">Stefano "Kismet" Lenzi</a>
@@ -35,26 +35,53 @@ import org.bubblecloud.zigbee.api.cluster.impl.core.ByteArrayOutputStreamSeriali
  */
 public class WriteAttributeCommand extends AbstractCommand {
     private static byte ID = 0x02;
+    private static byte NO_RESPONSE_ID = 0x05;
 
     private WriteAttributeRecord[] attributeRecord;
 
     public WriteAttributeCommand(WriteAttributeRecord[] attributerecord) {
-        super(ID, false);
+        this(attributerecord, false);
+    }
+
+    /**
+     * @param attributerecord the attributes to write
+     * @param noResponse      true to send <i>Write Attributes No Response</i> to which the device does not answer
+     */
+    public WriteAttributeCommand(WriteAttributeRecord[] attributerecord, boolean noResponse) {
+        super(noResponse ? NO_RESPONSE_ID : ID, false);
         this.attributeRecord = attributerecord;
     }
 
     public byte[] getPayload() {
         if (payload == null) {
-            ZBSerializer serializer = new ByteArrayOutputStreamSerializer();
-
-            for (int i = 0; i < attributeRecord.length; i++) {
-                serializer.append_short((short) attributeRecord[i].getAttributeId());
-                final ZigBeeType type = attributeRecord[i].getAttributeDataType();
-                serializer.append_byte((byte) type.getId());
-                serializer.appendZigBeeType(attributeRecord[i].getAttributeData(), type);
-            }
-            payload = serializer.getPayload();
+            payload = encodePayload();
         }
         return payload;
     }
+
+    public int getPayloadSize() {
+        int size = 0;
+        for (int i = 0; i < attributeRecord.length; i++) {
+            size += getRecordSize(attributeRecord[i]);
+        }
+        return size;
+    }
+
+    public void encodePayload(ZBSerializer serializer) {
+        for (int i = 0; i < attributeRecord.length; i++) {
+            serializer.append_short((short) attributeRecord[i].getAttributeId());
+            final ZigBeeType type = attributeRecord[i].getAttributeDataType();
+            serializer.append_byte((byte) type.getId());
+            serializer.appendZigBeeType(attributeRecord[i].getAttributeData(), type);
+        }
+    }
+
+    /**
+     * @param record a {@link WriteAttributeRecord}
+     * @return the exact number of bytes the record takes in the payload
+     */
+    public static int getRecordSize(WriteAttributeRecord record) {
+        //Size of: Attribute Id + Data Type + Value
+        return 2 + 1 + ZCLFrameWriter.sizeOf(record.getAttributeData(), record.getAttributeDataType());
+    }
 }
@@ -52,6 +52,11 @@ public class WriteAttributeStatusImpl implements WriteAttributesStatus {
         attributeId = attributeDescriptor.getId();
     }
 
+    public WriteAttributeStatusImpl(int attributeId, byte status) {
+        this.status = status;
+        this.attributeId = attributeId;
+    }
+
     public int getAttributeId() {
         return attributeId;
     }
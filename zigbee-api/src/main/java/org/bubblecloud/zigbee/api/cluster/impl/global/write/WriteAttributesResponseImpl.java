@@ -32,6 +32,9 @@ import org.bubblecloud.zigbee.api.cluster.impl.attribute.AttributeDescriptor;
 import org.bubblecloud.zigbee.api.cluster.impl.core.DefaultDeserializer;
 import org.bubblecloud.zigbee.api.cluster.impl.core.ResponseImpl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author <a href="mailto:stefano.lenzi@isti.cnr.it">Stefano "Kismet" Lenzi</a>
  * @author <a href="mailto:francesco.furfari@isti.cnr.it">Francesco Furfari</a>
@@ -58,6 +61,26 @@ public class WriteAttributesResponseImpl extends ResponseImpl implements
         }
     }
 
+    /**
+     * Decodes the response without knowing the written attributes. A device lists only the attributes
+     * it failed to write, so an empty array means every attribute was written.
+     *
+     * @param response the response to decode
+     * @throws ZigBeeClusterException if the response is not a Write Attributes Response
+     */
+    public WriteAttributesResponseImpl(Response response) throws ZigBeeClusterException {
+        super(response);
+        ResponseImpl.checkGeneralCommandFrame(response, WriteAttributesResponse.ID);
+        final List<WriteAttributesStatus> failures = new ArrayList<WriteAttributesStatus>();
+        if (!(getPayload().length == 1 && getPayload()[0] == Status.SUCCESS.id)) {
+            final ZBDeserializer deserializer = new DefaultDeserializer(getPayload(), 0);
+            while (!deserializer.endOfStream()) {
+                failures.add(new WriteAttributeStatusImpl(null, deserializer));
+            }
+        }
+        attributes = failures.toArray(new WriteAttributesStatus[failures.size()]);
+    }
+
     public WriteAttributesStatus[] getWriteAttributesStatus() {
         return attributes;
     }
@@ -41,23 +41,9 @@ import org.bubblecloud.zigbee.api.device.lighting.ColorDimmableLight;
  */
 public class ColorDimmableLightDevice extends DeviceBase implements ColorDimmableLight {
 
-    private OnOff onOff;
-    private Scenes scenes;
-    private Groups groups;
-    private LevelControl levelControl;
-    private OccupancySensing occupancySensing;
-    private ColorControl colorControl;
-
     public ColorDimmableLightDevice(ZigBeeApiContext ctx, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException {
 
         super(ctx, zbDevice);
-
-        onOff = (OnOff) getCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF);
-        scenes = (Scenes) getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
-        groups = (Groups) getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
-        levelControl = (LevelControl) getCluster(ZigBeeApiConstants.DEVICE_ID_LEVEL_CONTROL);
-        occupancySensing = (OccupancySensing) getCluster(ZigBeeApiConstants.CLUSTER_ID_OCCUPANCY_SENSING);
-        colorControl = (ColorControl) getCluster(ZigBeeApiConstants.CLUSTER_ID_COLOR_CONTROL);
     }
 
     final static DeviceDescription DEVICE_DESCRIPTOR = new AbstractDeviceDescription() {
@@ -80,27 +66,27 @@ public class ColorDimmableLightDevice extends DeviceBase implements ColorDimmabl
     };
 
     public OnOff getOnOff() {
-        return onOff;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF);
     }
 
     public Scenes getScenes() {
-        return scenes;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
     }
 
     public Groups getGroups() {
-        return groups;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
     }
 
     public LevelControl getLevelControl() {
-        return levelControl;
+        return getCluster(ZigBeeApiConstants.DEVICE_ID_LEVEL_CONTROL);
     }
 
     public OccupancySensing getOccupacySensing() {
-        return occupancySensing;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_OCCUPANCY_SENSING);
     }
 
     public ColorControl getColorControl() {
-        return colorControl;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_COLOR_CONTROL);
     }
 
     @Override
@@ -41,19 +41,8 @@ import org.bubblecloud.zigbee.api.DeviceBase;
  */
 public class DimmableLightDevice extends DeviceBase implements DimmableLight {
 
-    private OnOff onOff;
-    private LevelControl levelControl;
-    private Scenes scenes;
-    private Groups groups;
-    private OccupancySensing occupancySensing;
-
     public DimmableLightDevice(ZigBeeApiContext ctx, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException {
         super(ctx, zbDevice);
-        levelControl = (LevelControl) getCluster(ZigBeeApiConstants.CLUSTER_ID_LEVEL_CONTROL);
-        onOff = (OnOff) getCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF);
-        groups = (Groups) getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
-        scenes = (Scenes) getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
-        occupancySensing = (OccupancySensing) getCluster(ZigBeeApiConstants.CLUSTER_ID_OCCUPANCY_SENSING);
     }
 
     final static DeviceDescription DEVICE_DESCRIPTOR = new AbstractDeviceDescription() {
@@ -87,23 +76,23 @@ public class DimmableLightDevice extends DeviceBase implements DimmableLight {
     }
 
     public Groups getGroups() {
-        return groups;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
     }
 
     public LevelControl getLevelControl() {
-        return levelControl;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_LEVEL_CONTROL);
     }
 
     public OccupancySensing getOccupacySensing() {
-        return occupancySensing;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_OCCUPANCY_SENSING);
     }
 
     public OnOff getOnOff() {
-        return onOff;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF);
     }
 
     public Scenes getScenes() {
-        return scenes;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
     }
 
 }
@@ -39,28 +39,21 @@ import org.bubblecloud.zigbee.api.DeviceBase;
  */
 public class IASAncillaryControlEquipmentDevice extends DeviceBase implements IASAncillaryControlEquipment {
 
-    private Identify identify;
-    private IASZone iasZone;
-    private IASACE iasAce;
-
     public IASAncillaryControlEquipmentDevice(ZigBeeApiContext ctx, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException {
 
         super(ctx, zbDevice);
-        iasAce = (IASACE) getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_ACE);
-        iasZone = (IASZone) getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_ZONE);
-        identify = (Identify) getCluster(ZigBeeApiConstants.CLUSTER_ID_IDENTIFY);
     }
 
     public IASACE getIASACE() {
-        return iasAce;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_ACE);
     }
 
     public IASZone getIASZone() {
-        return iasZone;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_ZONE);
     }
 
     /*public Identify getIdentify(){
-        return identify;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_IDENTIFY);
     }*/
 
     @Override
@@ -42,47 +42,33 @@ import org.bubblecloud.zigbee.api.DeviceBase;
  */
 public class IASControlAndIndicatingEquipmentDevice extends DeviceBase implements IASControlAndIndicatingEquipment {
 
-    private Identify identify;
-    private IASZone iasZone;
-    private IASACE iasAce;
-    private IASWD iasWD;
-    private Scenes scenes;
-    private Groups groups;
-
     public IASControlAndIndicatingEquipmentDevice(ZigBeeApiContext ctx, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException {
 
         super(ctx, zbDevice);
-
-        iasAce = (IASACE) getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_ACE);
-        iasZone = (IASZone) getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_ZONE);
-        identify = (Identify) getCluster(ZigBeeApiConstants.CLUSTER_ID_IDENTIFY);
-        iasWD = (IASWD) getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_WD);
-        scenes = (Scenes) getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
-        groups = (Groups) getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
     }
 
     public IASACE getIASACE() {
-        return iasAce;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_ACE);
     }
 
     public IASZone getIASZone() {
-        return iasZone;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_ZONE);
     }
 
     public IASWD getIASwd() {
-        return iasWD;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_WD);
     }
 
     public Scenes getScenes() {
-        return scenes;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
     }
 
     public Groups getGroups() {
-        return groups;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
     }
 
     public Identify getIdentify() {
-        return identify;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_IDENTIFY);
     }
 
     @Override
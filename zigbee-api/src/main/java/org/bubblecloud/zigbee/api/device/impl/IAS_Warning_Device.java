@@ -40,40 +40,29 @@ import org.bubblecloud.zigbee.ZigBeeApiContext;
  */
 public class IAS_Warning_Device extends DeviceBase implements IAS_Warning {
 
-    private IASZone iasZoneCluster;
-    private IASWD iasWD;
-    private Scenes scenes;
-    private Groups groups;
-
     public IAS_Warning_Device(ZigBeeApiContext ctx, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException {
 
         super(ctx, zbDevice);
-
-        iasZoneCluster = (IASZone) getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_ZONE);
-        iasWD = (IASWD) getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_WD);
-
-        scenes = (Scenes) getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
-        groups = (Groups) getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
     }
 
     public IASZone getIASZone() {
 
-        return iasZoneCluster;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_ZONE);
     }
 
     public IASWD getIASWD() {
 
-        return iasWD;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_WD);
     }
 
     public Scenes getScenes() {
 
-        return scenes;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
     }
 
     public Groups getGroups() {
 
-        return groups;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
     }
 
     @Override
@@ -36,18 +36,14 @@ import org.bubblecloud.zigbee.api.ZigBeeApiConstants;
  */
 public class IAS_ZoneDevice extends DeviceBase implements IAS_Zone {
 
-    private IASZone iasZoneCluster;
-
     public IAS_ZoneDevice(ZigBeeApiContext ctx, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException {
 
         super(ctx, zbDevice);
-
-        iasZoneCluster = (IASZone) getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_ZONE);
     }
 
     public IASZone getIASZone() {
 
-        return iasZoneCluster;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_IAS_ZONE);
     }
 
     @Override
@@ -36,11 +36,8 @@ import org.bubblecloud.zigbee.ZigBeeApiContext;
  */
 public class LevelControlSwitchDevice extends DeviceBase implements LevelControlSwitch {
 
-    private OnOffSwitchConfiguration onOffSwitchConfiguration;
-
     public LevelControlSwitchDevice(ZigBeeApiContext ctx, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException {
         super(ctx, zbDevice);
-        onOffSwitchConfiguration = (OnOffSwitchConfiguration) getCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF_SWITCH_CONFIGURATION);
     }
 
     final static DeviceDescription DEVICE_DESCRIPTOR = new AbstractDeviceDescription() {
@@ -74,6 +71,6 @@ public class LevelControlSwitchDevice extends DeviceBase implements LevelControl
     }
 
     public OnOffSwitchConfiguration getOnOffSwitchConfiguration() {
-        return onOffSwitchConfiguration;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF_SWITCH_CONFIGURATION);
     }
 }
@@ -38,20 +38,14 @@ import org.bubblecloud.zigbee.api.DeviceBase;
  */
 public class LightSensorDevice extends DeviceBase implements LightSensor {
 
-    private IlluminanceMeasurement illuminanceMeasurement;
-    private Groups groups;
-
     public LightSensorDevice(ZigBeeApiContext ctx, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException {
 
         super(ctx, zbDevice);
-
-        illuminanceMeasurement = (IlluminanceMeasurement) getCluster(ZigBeeApiConstants.CLUSTER_ID_ILLUMINANCE_MEASUREMENT);
-        groups = (Groups) getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
     }
 
     public IlluminanceMeasurement getIlluminanceMeasurement() {
 
-        return illuminanceMeasurement;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_ILLUMINANCE_MEASUREMENT);
     }
 
     @Override
@@ -87,6 +81,6 @@ public class LightSensorDevice extends DeviceBase implements LightSensor {
     };
 
     public Groups getGroups() {
-        return groups;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
     }
 }
\ No newline at end of file
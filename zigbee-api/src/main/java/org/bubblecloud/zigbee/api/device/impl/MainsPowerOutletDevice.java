@@ -37,31 +37,24 @@ import org.bubblecloud.zigbee.api.device.generic.MainsPowerOutlet;
  */
 public class MainsPowerOutletDevice extends DeviceBase implements MainsPowerOutlet {
 
-    private OnOff onOff;
-    private Scenes scenes;
-    private Groups groups;
-
     public MainsPowerOutletDevice(ZigBeeApiContext ctx, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException {
 
         super(ctx, zbDevice);
-        onOff = (OnOff) getCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF);
-        groups = (Groups) getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
-        scenes = (Scenes) getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
     }
 
     public OnOff getOnOff() {
 
-        return onOff;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF);
     }
 
     public Scenes getScenes() {
 
-        return scenes;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
     }
 
     public Groups getGroups() {
 
-        return groups;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
     }
 
     @Override
@@ -37,15 +37,12 @@ import org.bubblecloud.zigbee.api.device.lighting.OccupancySensor;
  */
 public class OccupancySensorDevice extends DeviceBase implements OccupancySensor {
 
-    private OccupancySensing occupancySensing;
-
     public OccupancySensorDevice(ZigBeeApiContext ctx, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException {
         super(ctx, zbDevice);
-        occupancySensing = (OccupancySensing) getCluster(ZigBeeApiConstants.CLUSTER_ID_OCCUPANCY_SENSING);
     }
 
     public OccupancySensing getOccupacySensing() {
-        return occupancySensing;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_OCCUPANCY_SENSING);
     }
 
 
@@ -40,34 +40,25 @@ import org.bubblecloud.zigbee.ZigBeeApiContext;
  */
 public class OnOffLightDevice extends DeviceBase implements OnOffLight {
 
-    private OnOff onOff;
-    private Scenes scenes;
-    private Groups groups;
-    private OccupancySensing occupancySensing;
-
     public OnOffLightDevice(ZigBeeApiContext ctx, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException {
         super(ctx, zbDevice);
-        onOff = (OnOff) getCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF);
-        groups = (Groups) getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
-        scenes = (Scenes) getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
-        occupancySensing = (OccupancySensing) getCluster(ZigBeeApiConstants.CLUSTER_ID_OCCUPANCY_SENSING);
     }
 
 
     public Groups getGroups() {
-        return groups;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
     }
 
     public OccupancySensing getOccupacySensing() {
-        return occupancySensing;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_OCCUPANCY_SENSING);
     }
 
     public OnOff getOnOff() {
-        return onOff;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF);
     }
 
     public Scenes getScenes() {
-        return scenes;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
     }
 
 
@@ -40,28 +40,21 @@ import org.bubblecloud.zigbee.api.device.lighting.OnOffLight;
  */
 public class OnOffOutputDevice extends DeviceBase implements OnOffOutput {
 
-    private OnOff onOff;
-    private Scenes scenes;
-    private Groups groups;
-
     public OnOffOutputDevice(ZigBeeApiContext ctx, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException {
         super(ctx, zbDevice);
-        onOff = (OnOff) getCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF);
-        groups = (Groups) getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
-        scenes = (Scenes) getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
     }
 
 
     public Groups getGroups() {
-        return groups;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
     }
 
     public OnOff getOnOff() {
-        return onOff;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF);
     }
 
     public Scenes getScenes() {
-        return scenes;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
     }
 
 
@@ -25,6 +25,7 @@ package org.bubblecloud.zigbee.api.device.impl;
 import org.bubblecloud.zigbee.ZigBeeApiContext;
 import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
 import org.bubblecloud.zigbee.api.DeviceBase;
+import org.bubblecloud.zigbee.api.ZigBeeApiConstants;
 import org.bubblecloud.zigbee.api.ZigBeeDeviceException;
 import org.bubblecloud.zigbee.api.cluster.general.Identify;
 import org.bubblecloud.zigbee.api.cluster.general.OnOffSwitchConfiguration;
@@ -81,7 +82,7 @@ public class OnOffSwitchDevice extends DeviceBase implements OnOffSwitch {
     }
 
     public Identify getIdentify() {
-        return identify;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_IDENTIFY);
     }
 
 }
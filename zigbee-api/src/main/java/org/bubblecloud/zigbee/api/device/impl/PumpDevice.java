@@ -40,20 +40,8 @@ import org.bubblecloud.zigbee.ZigBeeApiContext;
  */
 public class PumpDevice extends DeviceBase implements Pump {
 
-    private OnOff onOffCluster;
-    private Scenes scenesCluster;
-    private Groups groupsCluster;
-    private LevelControl levelControlCluster;
-    private TemperatureMeasurement temperatureMeasurementCluster;
-
     public PumpDevice(ZigBeeApiContext ctx, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException {
         super(ctx, zbDevice);
-
-        levelControlCluster = (LevelControl) getCluster(ZigBeeApiConstants.CLUSTER_ID_LEVEL_CONTROL);
-        onOffCluster = (OnOff) getCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF);
-        scenesCluster = (Scenes) getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
-        groupsCluster = (Groups) getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
-        temperatureMeasurementCluster = (TemperatureMeasurement) getCluster(ZigBeeApiConstants.CLUSTER_ID_TEMPERATURE_MEASUREMENT);
     }
 
     final static DeviceDescription DEVICE_DESCRIPTOR = new AbstractDeviceDescription() {
@@ -86,22 +74,22 @@ public class PumpDevice extends DeviceBase implements Pump {
     }
 
     public OnOff getOnOff() {
-        return onOffCluster;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF);
     }
 
     public Scenes getScenes() {
-        return scenesCluster;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_SCENES);
     }
 
     public Groups getGroups() {
-        return groupsCluster;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_GROUPS);
     }
 
     public LevelControl getLevelControl() {
-        return levelControlCluster;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_LEVEL_CONTROL);
     }
 
     public TemperatureMeasurement getTemperatureMeasurement() {
-        return temperatureMeasurementCluster;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_TEMPERATURE_MEASUREMENT);
     }
 }
@@ -37,11 +37,8 @@ import org.bubblecloud.zigbee.api.device.generic.SimpleSensor;
  */
 public class SimpleSensorDevice extends DeviceBase implements SimpleSensor {
 
-    private BinaryInput binaryInput;
-
     public SimpleSensorDevice(ZigBeeApiContext ctx, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException {
         super(ctx, zbDevice);
-        binaryInput = (BinaryInput) getCluster(ZigBeeApiConstants.CLUSTER_ID_BINARY_INPUT);
     }
 
     final static DeviceDescription DEVICE_DESCRIPTOR = new AbstractDeviceDescription() {
@@ -75,7 +72,7 @@ public class SimpleSensorDevice extends DeviceBase implements SimpleSensor {
     }
 
     public BinaryInput getBinaryInput() {
-        return binaryInput;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_BINARY_INPUT);
     }
 
 }
@@ -37,11 +37,8 @@ import org.bubblecloud.zigbee.api.device.hvac.TemperatureSensor;
  */
 public class TemperatureSensorDevice extends DeviceBase implements TemperatureSensor {
 
-    private final TemperatureMeasurement temperature;
-
     public TemperatureSensorDevice(ZigBeeApiContext ctx, ZigBeeEndpoint zbDevice) throws ZigBeeDeviceException {
         super(ctx, zbDevice);
-        temperature = (TemperatureMeasurement) getCluster(ZigBeeApiConstants.CLUSTER_ID_TEMPERATURE_MEASUREMENT);
     }
 
     public String getDeviceType() {
@@ -49,7 +46,7 @@ public class TemperatureSensorDevice extends DeviceBase implements TemperatureSe
     }
 
     public TemperatureMeasurement getTemperatureMeasurement() {
-        return temperature;
+        return getCluster(ZigBeeApiConstants.CLUSTER_ID_TEMPERATURE_MEASUREMENT);
     }
 
     final static DeviceDescription DEVICE_DESCRIPTOR = new AbstractDeviceDescription() {
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.gather;
+
+import org.bubblecloud.zigbee.api.cluster.impl.RawClusterMessageImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.AttributeValue;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Status;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesResponse;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesStatus;
+import org.bubblecloud.zigbee.api.cluster.impl.core.AttributeCache;
+import org.bubblecloud.zigbee.api.cluster.impl.core.ResponseImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.core.ZCLFrame;
+import org.bubblecloud.zigbee.api.cluster.impl.global.read.ReadAttributeCommand;
+import org.bubblecloud.zigbee.api.cluster.impl.global.read.ReadAttributesResponseImpl;
+import org.bubblecloud.zigbee.network.ApplicationFrameworkMessageListener;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
+import org.bubblecloud.zigbee.network.ZigBeeNode;
+import org.bubblecloud.zigbee.network.impl.ApplicationFrameworkLayer;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNetwork;
+import org.bubblecloud.zigbee.network.packet.af.AF_DATA_CONFIRM;
+import org.bubblecloud.zigbee.network.packet.af.AF_DATA_REQUEST_EXT;
+import org.bubblecloud.zigbee.network.packet.af.AF_INCOMING_MSG;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads attributes from all members of a group with a single group addressed <i>Read Attributes</i>
+ * frame. Every member answers individually and the responses arriving during the collection window
+ * are gathered per endpoint and stored to the attribute cache.
+ */
+public class GroupAttributeReader {
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupAttributeReader.class);
+    /**
+     * The default time to collect responses in milliseconds.
+     */
+    public static final long DEFAULT_WINDOW_MILLIS = 2000;
+
+    /**
+     * The network manager.
+     */
+    private final ZigBeeNetworkManager networkManager;
+    /**
+     * The application framework layer.
+     */
+    private final ApplicationFrameworkLayer af;
+
+    /**
+     * Constructor which sets the network manager.
+     *
+     * @param networkManager the network manager
+     */
+    public GroupAttributeReader(final ZigBeeNetworkManager networkManager) {
+        this.networkManager = networkManager;
+        this.af = ApplicationFrameworkLayer.getAFLayer(networkManager);
+    }
+
+    /**
+     * Reads attributes from group members and collects responses during the window.
+     *
+     * @param groupId      the group ID
+     * @param clusterId    the cluster ID
+     * @param attributeIds the attribute IDs
+     * @param windowMillis the time to collect responses in milliseconds
+     * @return the read records per responding endpoint in order of arrival
+     * @throws ZigBeeClusterException if the request could not be sent
+     */
+    public Map<ZigBeeEndpoint, ReadAttributesStatus[]> read(final int groupId, final int clusterId,
+                                                           final int[] attributeIds, final long windowMillis)
+            throws ZigBeeClusterException {
+        final short sender = af.getSendingEndpoint(null, clusterId);
+        final byte transaction = af.getNextTransactionId(sender);
+        final ZCLFrame frame = new ZCLFrame(new ReadAttributeCommand(attributeIds), false);
+        final ResponseCollector collector = new ResponseCollector((short) clusterId,
+                frame.getHeader().getTransactionId());
+
+        networkManager.addAFMessageListner(collector);
+        try {
+            final AF_DATA_CONFIRM confirm = networkManager.sendAFDataRequestExt(new AF_DATA_REQUEST_EXT(
+                    groupId, sender, (short) clusterId, transaction, (byte) 0 /*options*/, (byte) 0 /*radius*/,
+                    frame.toByte()
+            ));
+            if (confirm == null || confirm.getStatus() != 0) {
+                throw new ZigBeeClusterException("Unable to send Read Attributes to group " + groupId
+                        + (confirm == null ? "" : " due to: " + confirm.getErrorMsg()));
+            }
+            try {
+                Thread.sleep(windowMillis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            networkManager.removeAFMessageListener(collector);
+        }
+
+        return decode(collector.getResponses(), (short) clusterId);
+    }
+
+    private Map<ZigBeeEndpoint, ReadAttributesStatus[]> decode(final List<AF_INCOMING_MSG> responses,
+                                                               final short clusterId) {
+        final ZigBeeNetwork network = af.getZigBeeNetwork();
+        final Map<ZigBeeEndpoint, ReadAttributesStatus[]> results =
+                new LinkedHashMap<ZigBeeEndpoint, ReadAttributesStatus[]>();
+        for (final AF_INCOMING_MSG msg : responses) {
+            final ZigBeeEndpoint endpoint = getEndpoint(network, msg.getSrcAddr(), msg.getSrcEndpoint());
+            if (endpoint == null) {
+                LOGGER.debug("Ignoring group read response from unknown endpoint {}/{}.",
+                        msg.getSrcAddr(), msg.getSrcEndpoint());
+                continue;
+            }
+            try {
+                final ReadAttributesStatus[] statuses = new ReadAttributesResponseImpl(new ResponseImpl(
+                        new RawClusterMessageImpl(clusterId, msg.getData()), clusterId)).getReadAttributeStatus();
+                final AttributeCache cache = AttributeCache.getCache(endpoint);
+                final long now = System.currentTimeMillis();
+                for (final ReadAttributesStatus status : statuses) {
+                    if (status.getStatus() == Status.SUCCESS.id) {
+                        cache.put(clusterId, status.getAttributeId(),
+                                new AttributeValue(status.getAttributeData(), now, AttributeValue.Source.READ));
+                    }
+                }
+                results.put(endpoint, statuses);
+            } catch (final ZigBeeClusterException e) {
+                LOGGER.warn("Unable to decode group read response from {}: {}", endpoint.getEndpointId(),
+                        e.getMessage());
+            }
+        }
+        return results;
+    }
+
+    private static ZigBeeEndpoint getEndpoint(final ZigBeeNetwork network, final int networkAddress,
+                                              final byte endpointAddress) {
+        final ZigBeeNode node = network.getNode(networkAddress);
+        if (node == null) {
+            return null;
+        }
+        for (final ZigBeeEndpoint endpoint : network.getEndPoints(node)) {
+            if (endpoint.getEndPointAddress() == (endpointAddress & 0xFF)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Collects the Read Attributes Responses matching the ZCL transaction of the group read.
+     * Decoding is left to the reader so that the dispatching thread is not held up.
+     */
+    private static class ResponseCollector implements ApplicationFrameworkMessageListener {
+        private final short clusterId;
+        private final byte transactionId;
+        private final List<AF_INCOMING_MSG> responses = new ArrayList<AF_INCOMING_MSG>();
+
+        ResponseCollector(final short clusterId, final byte transactionId) {
+            this.clusterId = clusterId;
+            this.transactionId = transactionId;
+        }
+
+        public void notify(final AF_INCOMING_MSG msg) {
+            if (msg.isError() || msg.getClusterId() != clusterId) {
+                return;
+            }
+            final byte[] data = msg.getData();
+            // Frame control, transaction sequence number and command ID of a ZCL header without manufacturer code
+            if (data.length < 3 || data[1] != transactionId || data[2] != ReadAttributesResponse.ID) {
+                return;
+            }
+            synchronized (responses) {
+                responses.add(msg);
+            }
+        }
+
+        List<AF_INCOMING_MSG> getResponses() {
+            synchronized (responses) {
+                return new ArrayList<AF_INCOMING_MSG>(responses);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.gather;
+
+import org.bubblecloud.zigbee.api.Device;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesStatus;
+
+/**
+ * Receives the results of a {@link ScatterGatherReader} read as they arrive. The methods are invoked
+ * from the reader threads and should return quickly.
+ */
+public interface ScatterGatherListener {
+    /**
+     * Attributes were read from device.
+     *
+     * @param device   the device
+     * @param statuses the read records in the order of the requested attributes
+     */
+    public void attributesRead(final Device device, final ReadAttributesStatus[] statuses);
+
+    /**
+     * Reading attributes from device failed.
+     *
+     * @param device the device
+     * @param cause  the cause of the failure
+     */
+    public void readFailed(final Device device, final Exception cause);
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.gather;
+
+import org.bubblecloud.zigbee.api.Device;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Status;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesStatus;
+import org.bubblecloud.zigbee.network.impl.ZigBeeBasedriverTimeOutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the same attributes from many devices concurrently. At most the configured number of devices
+ * are read at once, the results are streamed to a {@link ScatterGatherListener} as they arrive and
+ * the read ends with a {@link ScatterGatherSummary} when all devices have answered or the deadline passes.
+ * Devices not started before the deadline are skipped and devices still in flight are counted as timeouts.
+ */
+public class ScatterGatherReader {
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScatterGatherReader.class);
+    /**
+     * The default number of devices read at once.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    /**
+     * The maximum number of devices read at once.
+     */
+    private final int maxInFlight;
+
+    /**
+     * Constructor which sets default in-flight limit.
+     */
+    public ScatterGatherReader() {
+        this(DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Constructor which sets the in-flight limit.
+     *
+     * @param maxInFlight the maximum number of devices read at once
+     */
+    public ScatterGatherReader(final int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("In-flight limit has to be at least 1: " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Reads attributes of a cluster from devices and blocks until all devices have been read
+     * or the timeout expires.
+     *
+     * @param devices       the devices to read
+     * @param clusterId     the cluster ID
+     * @param attributeIds  the attribute IDs
+     * @param timeoutMillis the overall deadline of the read in milliseconds
+     * @param listener      the listener receiving results as they arrive or null
+     * @return the summary of the read
+     */
+    public ScatterGatherSummary read(final Collection<? extends Device> devices, final int clusterId,
+                                     final int[] attributeIds, final long timeoutMillis,
+                                     final ScatterGatherListener listener) {
+        final ScatterGatherSummary summary = new ScatterGatherSummary(devices.size() * attributeIds.length);
+        if (devices.isEmpty()) {
+            summary.close(false);
+            return summary;
+        }
+
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxInFlight, devices.size()));
+        for (final Device device : devices) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (System.currentTimeMillis() < deadline) {
+                        read(device, clusterId, attributeIds, summary, listener);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+
+        boolean completed = false;
+        try {
+            completed = executor.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()),
+                    TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        summary.close(!completed);
+        if (!completed) {
+            executor.shutdownNow();
+        }
+        LOGGER.debug("Read cluster {} attributes from {} devices: {}", new Object[]{
+                clusterId, devices.size(), summary
+        });
+        return summary;
+    }
+
+    private static void read(final Device device, final int clusterId, final int[] attributeIds,
+                             final ScatterGatherSummary summary, final ScatterGatherListener listener) {
+        if (!summary.started(attributeIds.length)) {
+            return;
+        }
+        if (!device.providesInputCluster(clusterId)) {
+            if (summary.completed(0, attributeIds.length, 0, 0)) {
+                notifyFailure(listener, device, new ZigBeeClusterException(
+                        "Device " + device.getEndpointId() + " does not provide cluster " + clusterId));
+            }
+            return;
+        }
+
+        final ReadAttributesStatus[] statuses;
+        try {
+            statuses = device.readAttributes(clusterId, attributeIds);
+        } catch (final ZigBeeClusterException e) {
+            final boolean timeout = e.getCause() instanceof ZigBeeBasedriverTimeOutException;
+            if (summary.completed(0, 0, timeout ? 0 : attributeIds.length, timeout ? attributeIds.length : 0)) {
+                notifyFailure(listener, device, e);
+            }
+            return;
+        }
+
+        int successes = 0;
+        int unsupported = 0;
+        for (final ReadAttributesStatus status : statuses) {
+            if (status.getStatus() == Status.SUCCESS.id) {
+                successes++;
+            } else if ((status.getStatus() & 0xFF) == Status.UNSUPPORTED_ATTRIBUTE.id) {
+                unsupported++;
+            }
+        }
+        if (summary.completed(successes, unsupported, statuses.length - successes - unsupported, 0)
+                && listener != null) {
+            try {
+                listener.attributesRead(device, statuses);
+            } catch (final Exception e) {
+                LOGGER.error("Error in scatter gather listener.", e);
+            }
+        }
+    }
+
+    private static void notifyFailure(final ScatterGatherListener listener, final Device device,
+                                      final Exception cause) {
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.readFailed(device, cause);
+        } catch (final Exception e) {
+            LOGGER.error("Error in scatter gather listener.", e);
+        }
+    }
+}
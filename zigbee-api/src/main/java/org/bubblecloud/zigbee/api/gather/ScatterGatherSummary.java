@@ -0,0 +1,140 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.gather;
+
+/**
+ * Outcome of a {@link ScatterGatherReader} read counted per requested attribute.
+ */
+public class ScatterGatherSummary {
+    /**
+     * The number of requested attributes over all devices.
+     */
+    private final int requested;
+    /**
+     * The time the read started.
+     */
+    private final long startTime;
+    /**
+     * The number of attributes read successfully.
+     */
+    private int successes;
+    /**
+     * The number of attributes not supported by the device.
+     */
+    private int unsupported;
+    /**
+     * The number of attributes which failed for other reasons.
+     */
+    private int failures;
+    /**
+     * The number of attributes for which no response arrived in time.
+     */
+    private int timeouts;
+    /**
+     * The number of attributes of devices in flight, counted as timeouts when the summary is closed.
+     */
+    private int inFlight;
+    /**
+     * True if the deadline passed before all devices were read.
+     */
+    private boolean deadlineExceeded;
+    /**
+     * True once the summary is closed and does not accept results anymore.
+     */
+    private boolean closed;
+    /**
+     * The time the read ended.
+     */
+    private long endTime;
+
+    ScatterGatherSummary(final int requested) {
+        this.requested = requested;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    synchronized boolean started(final int attributes) {
+        if (closed) {
+            return false;
+        }
+        inFlight += attributes;
+        return true;
+    }
+
+    synchronized boolean completed(final int successes, final int unsupported, final int failures, final int timeouts) {
+        if (closed) {
+            return false;
+        }
+        this.successes += successes;
+        this.unsupported += unsupported;
+        this.failures += failures;
+        this.timeouts += timeouts;
+        this.inFlight -= successes + unsupported + failures + timeouts;
+        return true;
+    }
+
+    synchronized void close(final boolean deadlineExceeded) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        this.deadlineExceeded = deadlineExceeded;
+        timeouts += inFlight;
+        inFlight = 0;
+        endTime = System.currentTimeMillis();
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public synchronized int getSuccesses() {
+        return successes;
+    }
+
+    public synchronized int getUnsupported() {
+        return unsupported;
+    }
+
+    public synchronized int getFailures() {
+        return failures;
+    }
+
+    public synchronized int getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return the number of attributes not read because the deadline passed before their device was started
+     */
+    public synchronized int getSkipped() {
+        return requested - successes - unsupported - failures - timeouts - inFlight;
+    }
+
+    public synchronized boolean isDeadlineExceeded() {
+        return deadlineExceeded;
+    }
+
+    public synchronized long getElapsedMillis() {
+        return (closed ? endTime : System.currentTimeMillis()) - startTime;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "requested: " + requested + ", successes: " + successes + ", unsupported: " + unsupported
+                + ", failures: " + failures + ", timeouts: " + timeouts + ", skipped: " + getSkipped()
+                + ", elapsed: " + getElapsedMillis() + " ms" + (deadlineExceeded ? " (deadline exceeded)" : "");
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.provisioning;
+
+import org.bubblecloud.zigbee.api.Device;
+
+/**
+ * Listener for per device progress of {@link ProvisioningPipeline}.
+ */
+public interface ProvisioningListener {
+
+    /**
+     * Stage was completed for device.
+     *
+     * @param device the device
+     * @param stage  the completed stage
+     */
+    public void stageCompleted(final Device device, final ProvisioningStage stage);
+
+    /**
+     * Stage failed for device and will not be retried anymore.
+     *
+     * @param device the device
+     * @param stage  the failed stage
+     * @param cause  the cause of the last failure or null if stage was not successful without exception
+     */
+    public void stageFailed(final Device device, final ProvisioningStage stage, final Exception cause);
+
+    /**
+     * All stages were completed for device.
+     *
+     * @param device the device
+     */
+    public void provisioningCompleted(final Device device);
+
+}
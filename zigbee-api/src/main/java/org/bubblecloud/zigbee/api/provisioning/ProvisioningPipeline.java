@@ -0,0 +1,512 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.provisioning;
+
+import org.bubblecloud.zigbee.ZigBeeApiContext;
+import org.bubblecloud.zigbee.api.Device;
+import org.bubblecloud.zigbee.api.DeviceRestoreListener;
+import org.bubblecloud.zigbee.api.cluster.Cluster;
+import org.bubblecloud.zigbee.api.cluster.impl.ClusterMessageImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.AnalogReporter;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Attribute;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Reporter;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeReportingConfigurationRecord;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeStatusRecord;
+import org.bubblecloud.zigbee.api.cluster.impl.core.ResponseImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.core.ZCLFrame;
+import org.bubblecloud.zigbee.api.cluster.impl.global.reporting.AttributeReportingConfigurationRecordImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.global.reporting.ConfigureReportingCommand;
+import org.bubblecloud.zigbee.api.cluster.impl.global.reporting.ConfigureReportingResponseImpl;
+import org.bubblecloud.zigbee.network.ClusterMessage;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNetworkManagerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Join time provisioning pipeline which takes each new device through binding, reporting configuration
+ * and initial attribute snapshot after the interview has created the device. Stages are processed
+ * concurrently for different devices with per stage concurrency limits and failed stages are retried
+ * with increasing delay. Progress is available per device and is notified to {@link ProvisioningListener}s.
+ * Devices restored from saved network state have been provisioned before and are not provisioned again.
+ *
+ * This class is thread safe.
+ */
+public class ProvisioningPipeline implements DeviceRestoreListener {
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProvisioningPipeline.class);
+    /**
+     * The default number of devices processed concurrently in single stage.
+     */
+    public static final int DEFAULT_STAGE_LIMIT = 4;
+    /**
+     * The default number of attempts at single stage.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    /**
+     * The default delay before first retry in milliseconds.
+     */
+    public static final long DEFAULT_RETRY_DELAY_MILLIS = 2000;
+
+    /**
+     * The ZigBee API context.
+     */
+    private final ZigBeeApiContext context;
+    /**
+     * The cluster IDs to provision or empty set to provision all clusters with reportable attributes.
+     */
+    private final Set<Integer> clusterIds = new HashSet<Integer>();
+    /**
+     * The concurrency limits of stages.
+     */
+    private final Map<ProvisioningStage, Integer> stageLimits =
+            new EnumMap<ProvisioningStage, Integer>(ProvisioningStage.class);
+    /**
+     * The executors of stages.
+     */
+    private final Map<ProvisioningStage, ScheduledExecutorService> executors =
+            new EnumMap<ProvisioningStage, ScheduledExecutorService>(ProvisioningStage.class);
+    /**
+     * The provisioning progress by device endpoint ID.
+     */
+    private final Map<String, ProvisioningProgress> progresses = new HashMap<String, ProvisioningProgress>();
+    /**
+     * The provisioning listeners.
+     */
+    private final List<ProvisioningListener> listeners = new ArrayList<ProvisioningListener>();
+    /**
+     * The maximum number of attempts at single stage.
+     */
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    /**
+     * The delay before first retry in milliseconds.
+     */
+    private long retryDelayMillis = DEFAULT_RETRY_DELAY_MILLIS;
+    /**
+     * True if pipeline has been started.
+     */
+    private boolean started = false;
+
+    /**
+     * Constructor which sets the API context.
+     *
+     * @param context the ZigBee API context
+     */
+    public ProvisioningPipeline(final ZigBeeApiContext context) {
+        this.context = context;
+        for (final ProvisioningStage stage : ProvisioningStage.values()) {
+            stageLimits.put(stage, DEFAULT_STAGE_LIMIT);
+        }
+    }
+
+    /**
+     * Sets the clusters to provision. If no clusters are set all clusters with reportable attributes
+     * are provisioned.
+     *
+     * @param clusterIds the cluster IDs
+     */
+    public synchronized void setClusters(final int... clusterIds) {
+        this.clusterIds.clear();
+        for (final int clusterId : clusterIds) {
+            this.clusterIds.add(clusterId);
+        }
+    }
+
+    /**
+     * Sets the number of devices processed concurrently in stage. Takes effect on start.
+     *
+     * @param stage the stage
+     * @param limit the concurrency limit
+     */
+    public synchronized void setStageLimit(final ProvisioningStage stage, final int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Stage limit has to be at least 1.");
+        }
+        stageLimits.put(stage, limit);
+    }
+
+    /**
+     * Sets retry policy of failed stages.
+     *
+     * @param maxAttempts      the maximum number of attempts at single stage
+     * @param retryDelayMillis the delay before first retry which is multiplied by the number of failed attempts
+     */
+    public synchronized void setRetryPolicy(final int maxAttempts, final long retryDelayMillis) {
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    /**
+     * Starts the pipeline. Devices added to the API context after this are provisioned automatically.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        for (final ProvisioningStage stage : ProvisioningStage.values()) {
+            if (stage != ProvisioningStage.INTERVIEW) {
+                executors.put(stage, Executors.newScheduledThreadPool(stageLimits.get(stage)));
+            }
+        }
+        started = true;
+        context.addDeviceListener(this);
+    }
+
+    /**
+     * Shuts down the pipeline. Pending provisioning is abandoned.
+     */
+    public synchronized void shutdown() {
+        if (!started) {
+            return;
+        }
+        context.removeDeviceListener(this);
+        for (final ScheduledExecutorService executor : executors.values()) {
+            executor.shutdownNow();
+        }
+        executors.clear();
+        started = false;
+    }
+
+    /**
+     * Provisions device. Device which is already provisioned or is being provisioned is provisioned again
+     * only if its previous provisioning has failed.
+     *
+     * @param device the device
+     * @return the provisioning progress
+     */
+    public ProvisioningProgress provision(final Device device) {
+        final ProvisioningProgress progress;
+        synchronized (this) {
+            if (!started) {
+                throw new IllegalStateException("Provisioning pipeline has not been started.");
+            }
+            final ProvisioningProgress existing = progresses.get(device.getEndpointId());
+            if (existing != null && !existing.isFailed()) {
+                return existing;
+            }
+            progress = new ProvisioningProgress(device.getEndpointId(), ProvisioningStage.INTERVIEW);
+            progresses.put(device.getEndpointId(), progress);
+        }
+        // The device is created only after the network layer has interviewed it.
+        stageCompleted(device, progress, ProvisioningStage.INTERVIEW);
+        return progress;
+    }
+
+    /**
+     * Gets provisioning progress of device.
+     *
+     * @param endpointId the device endpoint ID
+     * @return the progress or null if device has not been provisioned
+     */
+    public synchronized ProvisioningProgress getProgress(final String endpointId) {
+        return progresses.get(endpointId);
+    }
+
+    /**
+     * @return provisioning progress of all devices
+     */
+    public synchronized List<ProvisioningProgress> getProgresses() {
+        return new ArrayList<ProvisioningProgress>(progresses.values());
+    }
+
+    /**
+     * @return the number of devices still being provisioned
+     */
+    public synchronized int getPendingCount() {
+        int count = 0;
+        for (final ProvisioningProgress progress : progresses.values()) {
+            if (progress.isPending()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds provisioning listener.
+     *
+     * @param listener the listener
+     */
+    public void addProvisioningListener(final ProvisioningListener listener) {
+        synchronized (listeners) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Removes provisioning listener.
+     *
+     * @param listener the listener
+     */
+    public void removeProvisioningListener(final ProvisioningListener listener) {
+        synchronized (listeners) {
+            listeners.remove(listener);
+        }
+    }
+
+    @Override
+    public void deviceAdded(final Device device) {
+        provision(device);
+    }
+
+    @Override
+    public void deviceUpdated(final Device device) {
+    }
+
+    @Override
+    public void devicesRestored(final List<Device> devices) {
+        // Bindings and reporting configuration of restored devices are retained by the devices themselves.
+    }
+
+    @Override
+    public synchronized void deviceRemoved(final Device device) {
+        progresses.remove(device.getEndpointId());
+    }
+
+    /**
+     * Schedules stage execution for device.
+     *
+     * @param device   the device
+     * @param progress the progress
+     * @param delay    the delay in milliseconds
+     */
+    private synchronized void schedule(final Device device, final ProvisioningProgress progress, final long delay) {
+        final ScheduledExecutorService executor = executors.get(progress.getStage());
+        if (executor == null || progresses.get(device.getEndpointId()) != progress) {
+            return;
+        }
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                execute(device, progress);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes the current stage of device.
+     *
+     * @param device   the device
+     * @param progress the progress
+     */
+    private void execute(final Device device, final ProvisioningProgress progress) {
+        final ProvisioningStage stage = progress.getStage();
+        Exception cause = null;
+        boolean success = false;
+        try {
+            success = executeStage(device, stage);
+        } catch (final Exception e) {
+            cause = e;
+            LOGGER.debug("Provisioning stage " + stage + " failed for device " + device.getEndpointId(), e);
+        }
+
+        if (success) {
+            stageCompleted(device, progress, stage);
+            return;
+        }
+
+        final int attempts = progress.attemptFailed();
+        final int maxAttempts;
+        final long retryDelayMillis;
+        synchronized (this) {
+            maxAttempts = this.maxAttempts;
+            retryDelayMillis = this.retryDelayMillis;
+        }
+        if (attempts < maxAttempts) {
+            LOGGER.debug("Retrying provisioning stage {} of device {} after {} failed attempts.",
+                    new Object[]{stage, device.getEndpointId(), attempts});
+            schedule(device, progress, retryDelayMillis * attempts);
+        } else {
+            LOGGER.warn("Provisioning stage {} of device {} failed after {} attempts.",
+                    new Object[]{stage, device.getEndpointId(), attempts});
+            progress.fail();
+            synchronized (listeners) {
+                for (final ProvisioningListener listener : listeners) {
+                    listener.stageFailed(device, stage, cause);
+                }
+            }
+        }
+    }
+
+    /**
+     * Advances device to the next stage or completes provisioning.
+     *
+     * @param device   the device
+     * @param progress the progress
+     * @param stage    the completed stage
+     */
+    private void stageCompleted(final Device device, final ProvisioningProgress progress,
+                                final ProvisioningStage stage) {
+        synchronized (listeners) {
+            for (final ProvisioningListener listener : listeners) {
+                listener.stageCompleted(device, stage);
+            }
+        }
+        final ProvisioningStage next = stage.next();
+        if (next != null) {
+            progress.advance(next);
+            schedule(device, progress, 0);
+        } else {
+            progress.complete();
+            LOGGER.debug("Provisioned device {} in {} ms.", device.getEndpointId(), progress.getElapsedMillis());
+            synchronized (listeners) {
+                for (final ProvisioningListener listener : listeners) {
+                    listener.provisioningCompleted(device);
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes stage for device.
+     *
+     * @param device the device
+     * @param stage  the stage
+     * @return true if stage was completed successfully
+     * @throws Exception if exception occurs during stage execution
+     */
+    private boolean executeStage(final Device device, final ProvisioningStage stage) throws Exception {
+        final List<Cluster> clusters = getProvisionedClusters(device);
+        switch (stage) {
+            case BIND:
+                for (final Cluster cluster : clusters) {
+                    if (!device.bindToLocal(cluster.getId())) {
+                        return false;
+                    }
+                }
+                return true;
+            case REPORTING:
+                for (final Cluster cluster : clusters) {
+                    configureReporting(device, cluster);
+                }
+                return true;
+            case SNAPSHOT:
+                for (final Cluster cluster : clusters) {
+                    for (final Attribute attribute : getReportableAttributes(cluster)) {
+                        attribute.getValue();
+                    }
+                }
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Gets the clusters to provision on device.
+     *
+     * @param device the device
+     * @return list of clusters
+     */
+    private List<Cluster> getProvisionedClusters(final Device device) {
+        final Set<Integer> clusterIds;
+        synchronized (this) {
+            clusterIds = new HashSet<Integer>(this.clusterIds);
+        }
+        final List<Cluster> clusters = new ArrayList<Cluster>();
+        final Cluster[] availableClusters = device.getAvailableCluster();
+        if (availableClusters == null) {
+            return clusters;
+        }
+        for (final Cluster cluster : availableClusters) {
+            if (cluster == null) {
+                continue;
+            }
+            if (clusterIds.isEmpty() ? getReportableAttributes(cluster).size() > 0
+                    : clusterIds.contains(cluster.getId())) {
+                clusters.add(cluster);
+            }
+        }
+        return clusters;
+    }
+
+    /**
+     * Gets reportable attributes of cluster.
+     *
+     * @param cluster the cluster
+     * @return list of reportable attributes
+     */
+    private static List<Attribute> getReportableAttributes(final Cluster cluster) {
+        final List<Attribute> attributes = new ArrayList<Attribute>();
+        final Attribute[] clusterAttributes = cluster.getAttributes();
+        if (clusterAttributes == null) {
+            return attributes;
+        }
+        for (final Attribute attribute : clusterAttributes) {
+            if (attribute != null && attribute.isReportable()) {
+                attributes.add(attribute);
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * Configures reporting of all reportable attributes of cluster with single command.
+     *
+     * @param device  the device
+     * @param cluster the cluster
+     * @throws ZigBeeClusterException if configuration fails
+     */
+    private static void configureReporting(final Device device, final Cluster cluster)
+            throws ZigBeeClusterException {
+        final List<Attribute> attributes = getReportableAttributes(cluster);
+        if (attributes.isEmpty()) {
+            return;
+        }
+        final AttributeReportingConfigurationRecord[] records =
+                new AttributeReportingConfigurationRecord[attributes.size()];
+        for (int i = 0; i < records.length; i++) {
+            final Attribute attribute = attributes.get(i);
+            final Reporter reporter = attribute.getReporter();
+            final Object reportableChange = reporter instanceof AnalogReporter
+                    ? ((AnalogReporter) reporter).getReportableChange() : null;
+            records[i] = new AttributeReportingConfigurationRecordImpl(attribute, 0x00,
+                    Reporter.DEFAULT_MAX_REPORTING_INTERVAL, Reporter.DEFAULT_MIN_REPORTING_INTERVAL,
+                    reportableChange, Reporter.DEFAULT_MAX_REPORTING_INTERVAL);
+        }
+
+        final ZCLFrame frame = new ZCLFrame(new ConfigureReportingCommand(records), true);
+        final ClusterMessageImpl input = new ClusterMessageImpl((short) cluster.getId(), frame);
+        final ClusterMessage clusterMessage;
+        try {
+            clusterMessage = device.invoke(input);
+        } catch (final ZigBeeNetworkManagerException e) {
+            throw new ZigBeeClusterException(e);
+        }
+        final ConfigureReportingResponseImpl response = new ConfigureReportingResponseImpl(
+                new ResponseImpl(clusterMessage, clusterMessage.getId()),
+                attributes.toArray(new Attribute[attributes.size()]));
+        for (final AttributeStatusRecord record : response.getAttributeStatusRecord()) {
+            if (record.getStatus() != 0) {
+                throw new ZigBeeClusterException("ConfigureReporting answered with a failed status "
+                        + record.getStatus() + " for attribute " + record.getAttributeId());
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.provisioning;
+
+/**
+ * Provisioning progress of single device.
+ *
+ * This class is thread safe.
+ */
+public class ProvisioningProgress {
+    /**
+     * The device endpoint ID.
+     */
+    private final String endpointId;
+    /**
+     * The time provisioning started.
+     */
+    private final long startTime;
+    /**
+     * The stage in progress or last stage if provisioning has ended.
+     */
+    private ProvisioningStage stage;
+    /**
+     * The number of failed attempts at current stage.
+     */
+    private int failedAttempts;
+    /**
+     * True if all stages have been completed.
+     */
+    private boolean completed;
+    /**
+     * True if current stage failed permanently.
+     */
+    private boolean failed;
+    /**
+     * The time provisioning ended.
+     */
+    private long endTime;
+
+    /**
+     * Constructor for setting progress at given stage.
+     *
+     * @param endpointId the device endpoint ID
+     * @param stage      the first stage
+     */
+    public ProvisioningProgress(final String endpointId, final ProvisioningStage stage) {
+        this.endpointId = endpointId;
+        this.stage = stage;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    public String getEndpointId() {
+        return endpointId;
+    }
+
+    public synchronized ProvisioningStage getStage() {
+        return stage;
+    }
+
+    public synchronized int getFailedAttempts() {
+        return failedAttempts;
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    public synchronized boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * @return true if device is still being provisioned
+     */
+    public synchronized boolean isPending() {
+        return !completed && !failed;
+    }
+
+    /**
+     * @return the provisioning duration in milliseconds so far or until provisioning ended
+     */
+    public synchronized long getElapsedMillis() {
+        return (isPending() ? System.currentTimeMillis() : endTime) - startTime;
+    }
+
+    synchronized void advance(final ProvisioningStage nextStage) {
+        stage = nextStage;
+        failedAttempts = 0;
+    }
+
+    synchronized int attemptFailed() {
+        return ++failedAttempts;
+    }
+
+    synchronized void complete() {
+        completed = true;
+        endTime = System.currentTimeMillis();
+    }
+
+    synchronized void fail() {
+        failed = true;
+        endTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return endpointId + " " + stage + (completed ? " completed" : failed ? " failed" : " pending")
+                + (failedAttempts > 0 ? " after " + failedAttempts + " failed attempts" : "");
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.provisioning;
+
+/**
+ * The stages devices pass through in {@link ProvisioningPipeline} in order.
+ */
+public enum ProvisioningStage {
+    /**
+     * Node and endpoint descriptors have been read and device proxy created.
+     */
+    INTERVIEW,
+    /**
+     * Provisioned clusters are bound to the local coordinator endpoint.
+     */
+    BIND,
+    /**
+     * Attribute reporting is configured for reportable attributes of provisioned clusters.
+     */
+    REPORTING,
+    /**
+     * Initial values of reportable attributes are read.
+     */
+    SNAPSHOT;
+
+    /**
+     * @return the next stage or null if this is the last stage
+     */
+    public ProvisioningStage next() {
+        final ProvisioningStage[] stages = values();
+        return ordinal() + 1 < stages.length ? stages[ordinal() + 1] : null;
+    }
+}
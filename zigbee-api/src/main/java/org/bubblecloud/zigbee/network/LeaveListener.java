@@ -0,0 +1,35 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network;
+
+import org.bubblecloud.zigbee.network.packet.ZToolAddress16;
+import org.bubblecloud.zigbee.network.packet.ZToolAddress64;
+
+/**
+ * Listener for devices leaving the network.
+ */
+public interface LeaveListener {
+
+    /**
+     * Callback invoked when a <i>Leave</i> indication arrives
+     *
+     * @param networkAddress the network address of the node that left
+     * @param ieeeAddress    the 64-bit address of the node that left
+     * @param rejoin         true if the node is going to rejoin the network
+     */
+    void leave(ZToolAddress16 networkAddress, ZToolAddress64 ieeeAddress, boolean rejoin);
+
+}
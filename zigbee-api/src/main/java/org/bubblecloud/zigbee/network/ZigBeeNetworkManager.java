@@ -26,12 +26,15 @@ import org.bubblecloud.zigbee.network.model.DriverStatus;
 import org.bubblecloud.zigbee.network.model.NetworkMode;
 import org.bubblecloud.zigbee.network.packet.af.AF_DATA_CONFIRM;
 import org.bubblecloud.zigbee.network.packet.af.AF_DATA_REQUEST;
+import org.bubblecloud.zigbee.network.packet.af.AF_DATA_REQUEST_EXT;
 import org.bubblecloud.zigbee.network.packet.af.AF_REGISTER;
 import org.bubblecloud.zigbee.network.packet.af.AF_REGISTER_SRSP;
+import org.bubblecloud.zigbee.network.packet.util.UTIL_GET_NV_INFO_RESPONSE;
 import org.bubblecloud.zigbee.network.packet.zdo.*;
 import org.bubblecloud.zigbee.network.port.ZigBeePort;
 
 import java.util.HashSet;
+import java.util.List;
 
 /**
  * @author <a href="mailto:stefano.lenzi@isti.cnr.it">Stefano "Kismet" Lenzi - ISTI-CNR</a>
@@ -64,10 +67,22 @@ public interface ZigBeeNetworkManager {
 
     public abstract boolean removeAnnunceListener(AnnounceListener listner);
 
+    public abstract boolean addLeaveListener(LeaveListener listener);
+
+    public abstract boolean removeLeaveListener(LeaveListener listener);
+
     public abstract AF_REGISTER_SRSP sendAFRegister(AF_REGISTER request);
 
     public abstract AF_DATA_CONFIRM sendAFDataRequest(AF_DATA_REQUEST request);
 
+    /**
+     * Sends data request with extended addressing, for example to a group.
+     *
+     * @param request the request
+     * @return the data confirm or null if the request could not be sent
+     */
+    public abstract AF_DATA_CONFIRM sendAFDataRequestExt(AF_DATA_REQUEST_EXT request);
+
     public abstract ZDO_BIND_RSP sendZDOBind(ZDO_BIND_REQ request);
 
     public abstract ZDO_UNBIND_RSP sendZDOUnbind(ZDO_UNBIND_REQ request);
@@ -85,6 +100,24 @@ public interface ZigBeeNetworkManager {
      */
     public abstract ZDO_MGMT_LQI_RSP sendLQIRequest(ZDO_MGMT_LQI_REQ request);
 
+    /**
+     * Send routing table request and wait for its response<br />
+     * This method is used for the building of the network topology
+     *
+     * @return the answer to the request or null in case of an error
+     */
+    public abstract ZDO_MGMT_RTG_RSP sendRTGRequest(ZDO_MGMT_RTG_REQ request);
+
+    /**
+     * Sends match descriptor request and collects all the responses received within the given window.
+     * The request is typically broadcast to find all endpoints implementing given clusters.
+     *
+     * @param request the request
+     * @param window  the time in milliseconds to collect responses
+     * @return the responses or null if request could not be sent
+     */
+    public abstract List<ZDO_MATCH_DESC_RSP> sendZDOMatchDescriptorRequest(ZDO_MATCH_DESC_REQ request, long window);
+
     /**
      * This method is used for the creation of an virtual device on the dongle<br />
      * Note: a proper {@link addAFMessageListner} has to be register for answering to request coming from the network
@@ -155,5 +188,35 @@ public interface ZigBeeNetworkManager {
      */
     public abstract DriverStatus getDriverStatus();
 
+    /**
+     * @return true if the last startup attached to the network already running on the dongle
+     *         without resetting or reconfiguring it
+     */
+    public abstract boolean isWarmStarted();
+
+    /**
+     * Reads non-volatile memory item from the dongle. Items longer than single
+     * SYS_OSAL_NV_READ response are read in consecutive chunks.
+     *
+     * @param id the NV item ID
+     * @return the item value or null if the item does not exist or could not be read
+     * @throws IllegalStateException if the item is longer than can be addressed with SYS_OSAL_NV_READ
+     */
+    public abstract byte[] readNvItem(int id);
+
+    /**
+     * Writes non-volatile memory item to the dongle. The item has to exist on the dongle.
+     *
+     * @param id the NV item ID
+     * @param value the item value
+     * @return true if the whole value was written
+     */
+    public abstract boolean writeNvItem(int id, byte[] value);
+
+    /**
+     * @return the dongle NV information or null if it could not be read
+     */
+    public abstract UTIL_GET_NV_INFO_RESPONSE getNvInfo();
+
     HashSet<AnnounceListener> getAnnounceListeners();
 }
\ No newline at end of file
@@ -48,4 +48,9 @@ public interface ZigBeeNode {
      */
     public String getIeeeAddress();
 
+    /**
+     * @return the 64-bit IEEEAddress of the node
+     */
+    public long getIeeeAddressLong();
+
 }
@@ -0,0 +1,527 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.discovery;
+
+import org.bubblecloud.zigbee.network.AnnounceListener;
+import org.bubblecloud.zigbee.network.LeaveListener;
+import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
+import org.bubblecloud.zigbee.network.ZigBeeNode;
+import org.bubblecloud.zigbee.network.ZigBeeNodeFailureListener;
+import org.bubblecloud.zigbee.network.impl.ApplicationFrameworkLayer;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNetwork;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNodeImpl;
+import org.bubblecloud.zigbee.network.packet.ZToolAddress16;
+import org.bubblecloud.zigbee.network.packet.ZToolAddress64;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_IEEE_ADDR_REQ;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_IEEE_ADDR_RSP;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_MGMT_LQI_REQ;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_MGMT_LQI_RSP;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_MGMT_RTG_REQ;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_MGMT_RTG_RSP;
+import org.bubblecloud.zigbee.network.topology.NetworkTopology;
+import org.bubblecloud.zigbee.network.topology.TopologyNode;
+import org.bubblecloud.zigbee.util.Integers;
+import org.bubblecloud.zigbee.util.RunnableThread;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Discovery scheduler which inspects nodes on evidence of change instead of walking the whole network
+ * periodically. Announces, leaves, network address changes, messages from unknown sources and failed
+ * sends trigger targeted inspection of the affected nodes. A slow background sweep over the known
+ * routers is kept to catch changes which did not produce any evidence. The sweep is limited by
+ * an airtime budget expressed as ZDO requests per hour.
+ */
+public class DiscoveryScheduler extends RunnableThread
+        implements AnnounceListener, LeaveListener, ZigBeeNodeFailureListener {
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(DiscoveryScheduler.class);
+    /**
+     * The default background sweep budget in requests per hour.
+     */
+    public static final int DEFAULT_SWEEP_BUDGET = 60;
+    /**
+     * The default minimum interval between inspections of the same node without strong evidence of change.
+     */
+    public static final long DEFAULT_HOLD_OFF_MILLIS = 60 * 1000;
+
+    /**
+     * The coordinator network address.
+     */
+    private static final int COORDINATOR_NWK_ADDRESS = 0;
+
+    /**
+     * The reasons for inspecting a node.
+     */
+    public enum Trigger {
+        /**
+         * Initial walk of the network.
+         */
+        INITIAL,
+        /**
+         * Background sweep.
+         */
+        SWEEP,
+        /**
+         * Router announced itself.
+         */
+        ANNOUNCE,
+        /**
+         * Neighbor of router left the network.
+         */
+        LEAVE,
+        /**
+         * Node announced itself with new network address.
+         */
+        ADDRESS_CHANGE,
+        /**
+         * Message received from unknown network address.
+         */
+        NEW_SOURCE,
+        /**
+         * Sending to node failed.
+         */
+        SEND_FAILURE,
+        /**
+         * Node was found in neighbor or association list of other node.
+         */
+        NEIGHBOR
+    }
+
+    /**
+     * Inspection taken for execution.
+     */
+    private static class Inspection {
+        final int networkAddress;
+        final Trigger trigger;
+
+        Inspection(final int networkAddress, final Trigger trigger) {
+            this.networkAddress = networkAddress;
+            this.trigger = trigger;
+        }
+    }
+
+    private final ImportingQueue queue;
+    private final ZigBeeNetworkManager driver;
+    private final boolean addressing;
+    private final boolean linkQuality;
+
+    /**
+     * Pending inspections in order of scheduling.
+     */
+    private final LinkedHashMap<Integer, Trigger> pending = new LinkedHashMap<Integer, Trigger>();
+    /**
+     * Last inspection times by network address.
+     */
+    private final Map<Integer, Long> lastInspected = new HashMap<Integer, Long>();
+    /**
+     * Remaining network addresses of the current background sweep.
+     */
+    private final LinkedList<Integer> sweepQueue = new LinkedList<Integer>();
+
+    private int sweepBudget = DEFAULT_SWEEP_BUDGET;
+    private long holdOffMillis = DEFAULT_HOLD_OFF_MILLIS;
+    private double sweepTokens = 1;
+    private long lastRefill = System.currentTimeMillis();
+    private long requestCount = 0;
+    private boolean initialNetworkBrowsingComplete = false;
+
+    /**
+     * Constructor for setting up the scheduler.
+     *
+     * @param queue       the importing queue where found nodes are pushed for endpoint inspection
+     * @param driver      the network manager
+     * @param addressing  true if association lists should be walked
+     * @param linkQuality true if neighbor and routing tables should be read
+     */
+    public DiscoveryScheduler(final ImportingQueue queue, final ZigBeeNetworkManager driver,
+                              final boolean addressing, final boolean linkQuality) {
+        this.queue = queue;
+        this.driver = driver;
+        this.addressing = addressing;
+        this.linkQuality = linkQuality;
+    }
+
+    /**
+     * Sets the background sweep budget.
+     *
+     * @param requestsPerHour the maximum number of sweep requests per hour or 0 to disable sweep
+     */
+    public synchronized void setSweepBudget(final int requestsPerHour) {
+        this.sweepBudget = requestsPerHour;
+        notifyAll();
+    }
+
+    /**
+     * @return the background sweep budget in requests per hour
+     */
+    public synchronized int getSweepBudget() {
+        return sweepBudget;
+    }
+
+    /**
+     * Sets the minimum interval between inspections of the same node triggered by weak evidence
+     * such as failed sends or messages from new sources.
+     *
+     * @param holdOffMillis the hold off time in milliseconds
+     */
+    public synchronized void setHoldOffMillis(final long holdOffMillis) {
+        this.holdOffMillis = holdOffMillis;
+    }
+
+    /**
+     * @return the number of discovery requests sent since startup
+     */
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return the number of pending inspections
+     */
+    public synchronized int getPendingInspections() {
+        return pending.size();
+    }
+
+    /**
+     * @return true if initial walk of the network has completed
+     */
+    public synchronized boolean isInitialNetworkBrowsingComplete() {
+        return initialNetworkBrowsingComplete;
+    }
+
+    /**
+     * Schedules inspection of node.
+     *
+     * @param networkAddress the network address
+     * @param trigger        the trigger
+     * @return true if inspection was scheduled
+     */
+    public synchronized boolean schedule(final int networkAddress, final Trigger trigger) {
+        if (pending.containsKey(networkAddress)) {
+            return false;
+        }
+        if (trigger != Trigger.INITIAL && trigger != Trigger.ANNOUNCE && trigger != Trigger.ADDRESS_CHANGE) {
+            final Long inspected = lastInspected.get(networkAddress);
+            if (inspected != null && System.currentTimeMillis() - inspected < holdOffMillis) {
+                logger.trace("Node #{} inspected recently, ignoring {} trigger.", networkAddress, trigger);
+                return false;
+            }
+        }
+        logger.debug("Scheduling inspection of node #{} due to {}.", networkAddress, trigger);
+        pending.put(networkAddress, trigger);
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Schedules inspection of node which sent message from unknown network address.
+     *
+     * @param networkAddress the network address
+     */
+    public void newSource(final int networkAddress) {
+        if (!hasEndpoints(getNetwork().getNode(networkAddress))) {
+            schedule(networkAddress, Trigger.NEW_SOURCE);
+        }
+    }
+
+    @Override
+    public void announce(final ZToolAddress16 senderAddress, final ZToolAddress64 ieeeAddress,
+                         final ZToolAddress16 networkAddress, final int capabilitiesBitmask) {
+        final int nwk = senderAddress.get16BitValue();
+        final ZigBeeNetwork network = getNetwork();
+        final ZigBeeNodeImpl known = network.getNodeByIeeeAddress(ieeeAddress.getLong());
+        if (known != null && known.getNetworkAddress() != nwk) {
+            network.changeNetworkAddress(known.getIeeeAddressLong(), nwk);
+            if (linkQuality && (capabilitiesBitmask & 0x02) != 0) {
+                schedule(nwk, Trigger.ADDRESS_CHANGE);
+            }
+            return;
+        }
+        network.getTopology().updateNode(nwk, ieeeAddress.getLong());
+        // Announce carries both addresses. Only routers have tables worth reading.
+        if (linkQuality && (capabilitiesBitmask & 0x02) != 0) {
+            schedule(nwk, Trigger.ANNOUNCE);
+        }
+    }
+
+    @Override
+    public void leave(final ZToolAddress16 networkAddress, final ZToolAddress64 ieeeAddress, final boolean rejoin) {
+        final int nwk = networkAddress.get16BitValue();
+        final NetworkTopology topology = getTopology();
+        final List<TopologyNode> neighbors = topology.getNeighbors(nwk);
+        topology.removeNode(nwk);
+        logger.debug("Node #{} left the network, rejoin: {}", nwk, rejoin);
+        if (!linkQuality) {
+            return;
+        }
+        for (final TopologyNode neighbor : neighbors) {
+            if (neighbor.getDeviceType() != TopologyNode.DEVICE_TYPE_END_DEVICE) {
+                schedule(neighbor.getNetworkAddress(), Trigger.LEAVE);
+            }
+        }
+    }
+
+    @Override
+    public void sendFailed(final ZigBeeNode node) {
+        schedule(node.getNetworkAddress(), Trigger.SEND_FAILURE);
+    }
+
+    @Override
+    public void task() {
+        final String threadName = Thread.currentThread().getName();
+        logger.trace("{} STARTED Succesfully", threadName);
+
+        if (addressing || linkQuality) {
+            schedule(COORDINATOR_NWK_ADDRESS, Trigger.INITIAL);
+        } else {
+            synchronized (this) {
+                initialNetworkBrowsingComplete = true;
+            }
+        }
+
+        while (!isDone()) {
+            try {
+                final Inspection next = takeNext();
+                if (next != null) {
+                    inspect(next.networkAddress, next.trigger);
+                }
+            } catch (final Exception e) {
+                logger.error("Error inspecting node.", e);
+            }
+        }
+        logger.trace("{} TERMINATED Succesfully", threadName);
+    }
+
+    /**
+     * Waits until there is pending inspection or the sweep budget allows next sweep inspection.
+     *
+     * @return the next inspection or null if scheduler is ending
+     */
+    private synchronized Inspection takeNext() {
+        while (!isDone()) {
+            if (!pending.isEmpty()) {
+                final Iterator<Map.Entry<Integer, Trigger>> iterator = pending.entrySet().iterator();
+                final Map.Entry<Integer, Trigger> next = iterator.next();
+                iterator.remove();
+                return new Inspection(next.getKey(), next.getValue());
+            }
+            if (!initialNetworkBrowsingComplete) {
+                logger.debug("Initial network browsing completed.");
+                initialNetworkBrowsingComplete = true;
+            }
+
+            long wait = 0;
+            if (sweepBudget > 0 && (addressing || linkQuality)) {
+                refillSweepTokens();
+                if (sweepTokens >= 1) {
+                    if (sweepQueue.isEmpty()) {
+                        fillSweepQueue();
+                    }
+                    if (!sweepQueue.isEmpty()) {
+                        return new Inspection(sweepQueue.removeFirst(), Trigger.SWEEP);
+                    }
+                    wait = 60 * 60 * 1000 / sweepBudget;
+                } else {
+                    wait = (long) Math.ceil((1 - sweepTokens) * 60 * 60 * 1000 / sweepBudget);
+                }
+            }
+            try {
+                wait(wait);
+            } catch (final InterruptedException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private void refillSweepTokens() {
+        final long now = System.currentTimeMillis();
+        final double maximumTokens = Math.max(1, sweepBudget / 60.0);
+        sweepTokens = Math.min(maximumTokens, sweepTokens + (now - lastRefill) * sweepBudget / (60.0 * 60 * 1000));
+        lastRefill = now;
+    }
+
+    private void fillSweepQueue() {
+        sweepQueue.add(COORDINATOR_NWK_ADDRESS);
+        for (final TopologyNode node : getTopology().getNodes()) {
+            if (node.getNetworkAddress() != COORDINATOR_NWK_ADDRESS
+                    && node.getDeviceType() != TopologyNode.DEVICE_TYPE_END_DEVICE) {
+                sweepQueue.add(node.getNetworkAddress());
+            }
+        }
+        logger.debug("Starting background sweep of {} nodes.", sweepQueue.size());
+    }
+
+    /**
+     * Accounts sent discovery request.
+     *
+     * @param trigger the trigger of the inspection
+     */
+    private synchronized void requestSent(final Trigger trigger) {
+        requestCount++;
+        if (trigger == Trigger.SWEEP) {
+            sweepTokens--;
+        }
+    }
+
+    /**
+     * Inspects node.
+     *
+     * @param nwk     the network address
+     * @param trigger the trigger
+     */
+    private void inspect(final int nwk, final Trigger trigger) {
+        synchronized (this) {
+            lastInspected.put(nwk, System.currentTimeMillis());
+        }
+        final Trigger childTrigger = trigger == Trigger.INITIAL ? Trigger.INITIAL : Trigger.NEIGHBOR;
+        logger.debug("Inspecting node #{} due to {}.", nwk, trigger);
+
+        final ZDO_IEEE_ADDR_REQ.REQ_TYPE requestType = addressing ? ZDO_IEEE_ADDR_REQ.REQ_TYPE.EXTENDED
+                : ZDO_IEEE_ADDR_REQ.REQ_TYPE.SINGLE_DEVICE_RESPONSE;
+        ZDO_IEEE_ADDR_RSP result = driver.sendZDOIEEEAddressRequest(new ZDO_IEEE_ADDR_REQ(nwk, requestType, (byte) 0));
+        requestSent(trigger);
+        if (result == null || result.Status != 0) {
+            logger.debug("No ZDO_IEEE_ADDR_RSP from #{}.", nwk);
+            return;
+        }
+
+        final ZToolAddress64 ieee = result.getIEEEAddress();
+        final ZigBeeNetwork network = getNetwork();
+        final ZigBeeNodeImpl known = network.getNodeByIeeeAddress(ieee.getLong());
+        if (known != null && known.getNetworkAddress() != nwk) {
+            network.changeNetworkAddress(known.getIeeeAddressLong(), nwk);
+        }
+        network.getTopology().updateNode(nwk, ieee.getLong());
+        if (!hasEndpoints(known)) {
+            queue.push(new ZToolAddress16(Integers.getByteAsInteger(nwk, 1), Integers.getByteAsInteger(nwk, 0)), ieee);
+        }
+        network.notifyNodeBrowsed(new ZigBeeNodeImpl(nwk, ieee, (short) driver.getCurrentPanId()));
+
+        if (addressing) {
+            int start = 0;
+            while (result != null && result.Status == 0) {
+                final int[] associated = result.getAssociatedNodesList();
+                for (int i = 0; i < associated.length; i++) {
+                    scheduleIfUnknown(associated[i], childTrigger);
+                }
+                if (associated.length == 0 || associated.length + result.getStartIndex() >= result.getAssociatedNodeCount()) {
+                    break;
+                }
+                start += associated.length;
+                result = driver.sendZDOIEEEAddressRequest(
+                        new ZDO_IEEE_ADDR_REQ(nwk, ZDO_IEEE_ADDR_REQ.REQ_TYPE.EXTENDED, (byte) start));
+                requestSent(trigger);
+            }
+        }
+
+        if (linkQuality && isRouting(nwk)) {
+            readNeighborTable(nwk, trigger, childTrigger);
+            if (trigger == Trigger.INITIAL || trigger == Trigger.SWEEP) {
+                readRoutingTable(nwk, trigger);
+            }
+        }
+    }
+
+    private void readNeighborTable(final int nwk, final Trigger trigger, final Trigger childTrigger) {
+        final ZToolAddress16 nwk16 = new ZToolAddress16(Integers.getByteAsInteger(nwk, 1),
+                Integers.getByteAsInteger(nwk, 0));
+        int index = 0;
+        while (true) {
+            final ZDO_MGMT_LQI_RSP response = driver.sendLQIRequest(new ZDO_MGMT_LQI_REQ(nwk16, index));
+            requestSent(trigger);
+            if (response == null || response.Status != 0) {
+                logger.debug("No LQI answer from #{}", nwk);
+                return;
+            }
+            getTopology().updateNeighbors(response);
+            for (final ZDO_MGMT_LQI_RSP.NeighborLqiListItemClass neighbor : response.getNeighborLqiList()) {
+                scheduleIfUnknown(neighbor.NetworkAddress.get16BitValue(), childTrigger);
+            }
+            if (response.getNeighborLQICount() == 0
+                    || response.getNeighborLQIEntries() <= response.getNeighborLQICount() + index) {
+                return;
+            }
+            index += response.getNeighborLQICount();
+        }
+    }
+
+    private void readRoutingTable(final int nwk, final Trigger trigger) {
+        final ZToolAddress16 nwk16 = new ZToolAddress16(Integers.getByteAsInteger(nwk, 1),
+                Integers.getByteAsInteger(nwk, 0));
+        int index = 0;
+        while (true) {
+            final ZDO_MGMT_RTG_RSP response = driver.sendRTGRequest(new ZDO_MGMT_RTG_REQ(nwk16, index));
+            requestSent(trigger);
+            if (response == null || response.Status != 0) {
+                logger.debug("No routing table answer from #{}", nwk);
+                return;
+            }
+            getTopology().updateRoutes(response);
+            if (response.getRoutingTableListCount() == 0
+                    || response.getRoutingTableEntries() <= response.getRoutingTableListCount() + index) {
+                return;
+            }
+            index += response.getRoutingTableListCount();
+        }
+    }
+
+    private void scheduleIfUnknown(final int nwk, final Trigger trigger) {
+        final TopologyNode node = getTopology().getNode(nwk);
+        if (trigger == Trigger.INITIAL || node == null || node.getIeeeAddress() == -1) {
+            synchronized (this) {
+                if (trigger == Trigger.INITIAL && lastInspected.containsKey(nwk)) {
+                    return;
+                }
+            }
+            schedule(nwk, trigger);
+        }
+    }
+
+    /**
+     * Checks whether the endpoints of the node have been inspected. Topology may know the IEEE
+     * address of a node long before its endpoints are imported, so it is not consulted here.
+     *
+     * @param node the node or null
+     * @return true if the network has endpoints for the node
+     */
+    private boolean hasEndpoints(final ZigBeeNodeImpl node) {
+        return node != null && !getNetwork().getEndPoints(node).isEmpty();
+    }
+
+    private boolean isRouting(final int nwk) {
+        final TopologyNode node = getTopology().getNode(nwk);
+        return node == null || node.getDeviceType() != TopologyNode.DEVICE_TYPE_END_DEVICE;
+    }
+
+    private ZigBeeNetwork getNetwork() {
+        return ApplicationFrameworkLayer.getAFLayer(driver).getZigBeeNetwork();
+    }
+
+    private NetworkTopology getTopology() {
+        return getNetwork().getTopology();
+    }
+}
@@ -35,14 +35,13 @@ import org.bubblecloud.zigbee.util.ThreadUtils;
 import org.bubblecloud.zigbee.network.model.IEEEAddress;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 
 import java.util.*;
 import java.util.Map.Entry;
 
 /**
  * This class implements the {@link Thread} that completes the discovery of the node<br>
- * found either by {@link AssociationNetworkBrowser} or {@link AnnounceListenerImpl} by<br>
+ * found either by {@link DiscoveryScheduler} or {@link AnnounceListenerImpl} by<br>
  * inspecting the <i>End Point</i> on the node.<br>
  * The inspection of each <i>End Point</i> lead to the creation {@link org.bubblecloud.zigbee.network.ZigBeeEndpoint}..
  *
@@ -134,7 +133,7 @@ public class EndpointBuilder implements Stoppable {
     private void doCreateZigBeeEndpoint(ZigBeeNode node, short ep) {
         final ZigBeeNetwork network = ApplicationFrameworkLayer.getAFLayer(driver).getZigBeeNetwork();
         synchronized (network) {
-            if (network.containsEndpoint(node.getIeeeAddress(), ep)) {
+            if (network.containsEndpoint(node.getIeeeAddressLong(), ep)) {
                 logger.info(
                         "Skipping device creation for endpoint {} on node {} as it is created.", ep, node
                 );
@@ -176,12 +175,12 @@ public class EndpointBuilder implements Stoppable {
 
     private void inspectNode(ZToolAddress16 nwkAddress, ZToolAddress64 ieeeAddress) {
         int nwk = nwkAddress.get16BitValue();
-        final String ieee = IEEEAddress.toString(ieeeAddress.getLong());
+        final long ieee = ieeeAddress.getLong();
         ZigBeeNodeImpl node = null;
         boolean isNew = false, correctlyInspected = false;
         final ZigBeeNetwork network = ApplicationFrameworkLayer.getAFLayer(driver).getZigBeeNetwork();
         synchronized (network) {
-            node = network.getNode(ieee);
+            node = network.getNodeByIeeeAddress(ieee);
             if (node == null) {
                 node = new ZigBeeNodeImpl(nwk, ieeeAddress, (short) driver.getCurrentPanId());
                 isNew = true;
@@ -211,13 +210,13 @@ public class EndpointBuilder implements Stoppable {
                      * No previous device inspection completed successfully, so we should try to inspect
                      * the device again
                      */
-                    inspectEndpointOfNode(nwk, new ZigBeeNodeImpl(nwk, node.getIeeeAddress(), (short) driver.getCurrentPanId()));
+                    inspectEndpointOfNode(nwk, node);
                 }
-            node.setNetworkAddress(nwk);
-           }
-           for (final ZigBeeEndpoint endpoint : network.getEndPoints(node)) {
-               network.notifyEndpointUpdated(endpoint);
-           }
+            } else {
+                for (final ZigBeeEndpoint endpoint : network.getEndPoints(node)) {
+                    network.notifyEndpointUpdated(endpoint);
+                }
+            }
         }
     }
 
@@ -231,7 +230,8 @@ public class EndpointBuilder implements Stoppable {
      * @since 0.6.0 - Revision 74
      */
     private boolean changedNetworkAddress(ZigBeeNodeImpl node, int nwk) {
-        throw new NotImplementedException();
+        final ZigBeeNetwork network = ApplicationFrameworkLayer.getAFLayer(driver).getZigBeeNetwork();
+        return network.changeNetworkAddress(node.getIeeeAddressLong(), nwk);
     }
 
     boolean inspectingNewEndpoint = false;
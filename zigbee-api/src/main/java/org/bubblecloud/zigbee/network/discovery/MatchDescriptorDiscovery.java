@@ -0,0 +1,171 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.discovery;
+
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
+import org.bubblecloud.zigbee.network.impl.ApplicationFrameworkLayer;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNetwork;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNodeImpl;
+import org.bubblecloud.zigbee.network.packet.ZToolAddress16;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_MATCH_DESC_REQ;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_MATCH_DESC_RSP;
+import org.bubblecloud.zigbee.util.DoubleByte;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Cluster centric discovery which broadcasts match descriptor request for profile and cluster set
+ * and aggregates the responses from the whole network. Matching endpoints of known nodes are returned
+ * directly and unknown responders are scheduled for inspection so that their endpoints are added
+ * to the network.
+ */
+public class MatchDescriptorDiscovery {
+    /**
+     * The logger.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(MatchDescriptorDiscovery.class);
+    /**
+     * Broadcast address of all devices with receiver on when idle.
+     */
+    public static final int BROADCAST_RX_ON_WHEN_IDLE = 0xFFFD;
+    /**
+     * The default response collection window in milliseconds.
+     */
+    public static final long DEFAULT_WINDOW_MILLIS = 5000;
+    /**
+     * Maximum number of clusters in cluster list of single request.
+     */
+    private static final int MAX_CLUSTERS = 16;
+
+    private final ZigBeeNetworkManager driver;
+    private final DiscoveryScheduler scheduler;
+
+    /**
+     * Constructor for setting up the discovery.
+     *
+     * @param driver    the network manager
+     * @param scheduler the discovery scheduler used to inspect unknown responders or null
+     */
+    public MatchDescriptorDiscovery(final ZigBeeNetworkManager driver, final DiscoveryScheduler scheduler) {
+        this.driver = driver;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Broadcasts match descriptor request and aggregates the responses.
+     *
+     * @param profileId      the profile ID
+     * @param inputClusters  the input (server) clusters to match
+     * @param outputClusters the output (client) clusters to match
+     * @param window         the time in milliseconds to collect responses
+     * @return the matching endpoints by network address of the responding node
+     */
+    public Map<Integer, int[]> discover(final int profileId, final int[] inputClusters, final int[] outputClusters,
+                                        final long window) {
+        if (inputClusters.length > MAX_CLUSTERS || outputClusters.length > MAX_CLUSTERS) {
+            throw new IllegalArgumentException("At most " + MAX_CLUSTERS + " input and output clusters can be matched.");
+        }
+        final ZToolAddress16 broadcast = new ZToolAddress16((BROADCAST_RX_ON_WHEN_IDLE >> 8) & 0xFF,
+                BROADCAST_RX_ON_WHEN_IDLE & 0xFF);
+        final ZDO_MATCH_DESC_REQ request = new ZDO_MATCH_DESC_REQ(broadcast, broadcast, new DoubleByte(profileId),
+                inputClusters.length, toDoubleBytes(inputClusters), outputClusters.length, toDoubleBytes(outputClusters), 0);
+
+        final List<ZDO_MATCH_DESC_RSP> responses = driver.sendZDOMatchDescriptorRequest(request, window);
+        final Map<Integer, int[]> matches = new HashMap<Integer, int[]>();
+        if (responses == null) {
+            logger.warn("Match descriptor request for profile {} failed.", profileId);
+            return matches;
+        }
+
+        final Map<Integer, TreeSet<Integer>> aggregated = new HashMap<Integer, TreeSet<Integer>>();
+        for (final ZDO_MATCH_DESC_RSP response : responses) {
+            if (response.Status != 0 || response.MatchCount == 0) {
+                continue;
+            }
+            final int networkAddress = response.NWKAddrOfInterest.get16BitValue();
+            TreeSet<Integer> endpoints = aggregated.get(networkAddress);
+            if (endpoints == null) {
+                endpoints = new TreeSet<Integer>();
+                aggregated.put(networkAddress, endpoints);
+            }
+            for (final int endpoint : response.MatchEndpointList) {
+                endpoints.add(endpoint);
+            }
+        }
+
+        final ZigBeeNetwork network = ApplicationFrameworkLayer.getAFLayer(driver).getZigBeeNetwork();
+        for (final Map.Entry<Integer, TreeSet<Integer>> entry : aggregated.entrySet()) {
+            final int[] endpoints = new int[entry.getValue().size()];
+            int i = 0;
+            for (final Integer endpoint : entry.getValue()) {
+                endpoints[i++] = endpoint;
+            }
+            matches.put(entry.getKey(), endpoints);
+
+            if (scheduler != null && network.getNode(entry.getKey()) == null) {
+                scheduler.newSource(entry.getKey());
+            }
+        }
+        logger.debug("Match descriptor request for profile {} matched {} nodes.", profileId, matches.size());
+        return matches;
+    }
+
+    /**
+     * Broadcasts match descriptor request and returns the matching endpoints which are already known.
+     * Endpoints of unknown responders become available once their inspection completes.
+     *
+     * @param profileId      the profile ID
+     * @param inputClusters  the input (server) clusters to match
+     * @param outputClusters the output (client) clusters to match
+     * @param window         the time in milliseconds to collect responses
+     * @return the known matching endpoints
+     */
+    public List<ZigBeeEndpoint> findEndpoints(final int profileId, final int[] inputClusters,
+                                              final int[] outputClusters, final long window) {
+        final Map<Integer, int[]> matches = discover(profileId, inputClusters, outputClusters, window);
+        final ZigBeeNetwork network = ApplicationFrameworkLayer.getAFLayer(driver).getZigBeeNetwork();
+        final List<ZigBeeEndpoint> result = new ArrayList<ZigBeeEndpoint>();
+        for (final Map.Entry<Integer, int[]> match : matches.entrySet()) {
+            final ZigBeeNodeImpl node = network.getNode(match.getKey());
+            if (node == null) {
+                continue;
+            }
+            for (final ZigBeeEndpoint endpoint : network.getEndPoints(node)) {
+                for (final int endpointId : match.getValue()) {
+                    if (endpoint.getEndPointAddress() == endpointId) {
+                        result.add(endpoint);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static DoubleByte[] toDoubleBytes(final int[] values) {
+        final DoubleByte[] result = new DoubleByte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = new DoubleByte(values[i]);
+        }
+        return result;
+    }
+}
@@ -21,19 +21,11 @@
  */
 package org.bubblecloud.zigbee.network.discovery;
 
-import org.bubblecloud.zigbee.api.cluster.impl.api.core.Status;
 import org.bubblecloud.zigbee.network.ApplicationFrameworkMessageListener;
 import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
 import org.bubblecloud.zigbee.network.impl.ApplicationFrameworkLayer;
-import org.bubblecloud.zigbee.network.impl.ZigBeeNetwork;
-import org.bubblecloud.zigbee.network.impl.ZigBeeNodeImpl;
 import org.bubblecloud.zigbee.network.model.DiscoveryMode;
-import org.bubblecloud.zigbee.network.packet.ZToolAddress16;
 import org.bubblecloud.zigbee.network.packet.af.AF_INCOMING_MSG;
-import org.bubblecloud.zigbee.network.packet.zdo.ZDO_IEEE_ADDR_REQ;
-import org.bubblecloud.zigbee.network.packet.zdo.ZDO_IEEE_ADDR_RSP;
-import org.bubblecloud.zigbee.util.Integers;
-import org.bubblecloud.zigbee.util.NetworkAddressUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,11 +45,14 @@ public class ZigBeeDiscoveryManager implements ApplicationFrameworkMessageListen
 
     private final static Logger logger = LoggerFactory.getLogger(ZigBeeDiscoveryManager.class);
 
+    private static final int HOME_AUTOMATION_PROFILE = 0x0104;
+    private static final int BASIC_CLUSTER = 0x0000;
+
     private ZigBeeNetworkManager networkManager;
 
     private AnnounceListenerImpl announceListener;
-    private AssociationNetworkBrowser associationNetworkBrowser = null;
-    private LinkQualityIndicatorNetworkBrowser linkQualityIndicatorNetworkBrowser = null;
+    private DiscoveryScheduler discoveryScheduler = null;
+    private MatchDescriptorDiscovery matchDescriptorDiscovery = null;
 
     private EndpointBuilder endpointBuilder;
     private final ImportingQueue importingQueue;
@@ -84,20 +79,32 @@ public class ZigBeeDiscoveryManager implements ApplicationFrameworkMessageListen
             logger.trace("ANNOUNCE discovery disabled.");
         }
 
-        if (enabledDiscoveries.contains(DiscoveryMode.Addressing)) {
-            associationNetworkBrowser = new AssociationNetworkBrowser(importingQueue, networkManager);
-            new Thread(associationNetworkBrowser, "NetworkBrowser[" + networkManager + "]").start();
-        } else {
-            logger.trace("{} discovery disabled.",
-                    AssociationNetworkBrowser.class);
+        if (!enabledDiscoveries.contains(DiscoveryMode.Addressing)) {
+            logger.trace("ADDRESSING discovery disabled.");
         }
-
-        if (enabledDiscoveries.contains(DiscoveryMode.LinkQuality)) {
-            linkQualityIndicatorNetworkBrowser = new LinkQualityIndicatorNetworkBrowser(importingQueue, networkManager);
-            new Thread(linkQualityIndicatorNetworkBrowser, "LinkQualityIndicatorNetworkBrowser[" + networkManager + "]").start();
+        if (!enabledDiscoveries.contains(DiscoveryMode.LinkQuality)) {
+            logger.trace("LINK QUALITY discovery disabled.");
+        }
+        discoveryScheduler = new DiscoveryScheduler(importingQueue, networkManager,
+                enabledDiscoveries.contains(DiscoveryMode.Addressing),
+                enabledDiscoveries.contains(DiscoveryMode.LinkQuality));
+        networkManager.addAnnunceListener(discoveryScheduler);
+        networkManager.addLeaveListener(discoveryScheduler);
+        ApplicationFrameworkLayer.getAFLayer(networkManager).getZigBeeNetwork().addNodeFailureListener(discoveryScheduler);
+        new Thread(discoveryScheduler, "DiscoveryScheduler[" + networkManager + "]").start();
+
+        matchDescriptorDiscovery = new MatchDescriptorDiscovery(networkManager, discoveryScheduler);
+        if (enabledDiscoveries.contains(DiscoveryMode.MatchDescriptor)) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    // Every device implements basic cluster so single broadcast finds all receiving nodes.
+                    matchDescriptorDiscovery.discover(HOME_AUTOMATION_PROFILE, new int[]{BASIC_CLUSTER}, new int[0],
+                            MatchDescriptorDiscovery.DEFAULT_WINDOW_MILLIS);
+                }
+            }, "MatchDescriptorDiscovery[" + networkManager + "]").start();
         } else {
-            logger.trace("{} discovery disabled.",
-                    LinkQualityIndicatorNetworkBrowser.class);
+            logger.trace("MATCH DESCRIPTOR discovery disabled.");
         }
 
         endpointBuilder = new EndpointBuilder(importingQueue, networkManager);
@@ -111,13 +118,13 @@ public class ZigBeeDiscoveryManager implements ApplicationFrameworkMessageListen
 
         networkManager.removeAnnunceListener(announceListener);
 
-        if (associationNetworkBrowser != null) {
-            associationNetworkBrowser.end();
-            associationNetworkBrowser.interrupt();
-        }
-        if (linkQualityIndicatorNetworkBrowser != null) {
-            linkQualityIndicatorNetworkBrowser.end();
-            linkQualityIndicatorNetworkBrowser.interrupt();
+        if (discoveryScheduler != null) {
+            networkManager.removeAnnunceListener(discoveryScheduler);
+            networkManager.removeLeaveListener(discoveryScheduler);
+            ApplicationFrameworkLayer.getAFLayer(networkManager).getZigBeeNetwork()
+                    .removeNodeFailureListener(discoveryScheduler);
+            discoveryScheduler.end();
+            discoveryScheduler.interrupt();
         }
         if (endpointBuilder != null) {
             endpointBuilder.end();
@@ -127,59 +134,40 @@ public class ZigBeeDiscoveryManager implements ApplicationFrameworkMessageListen
 
 
     public boolean isInitialNetworkBrowsingComplete() {
-        return (associationNetworkBrowser == null || associationNetworkBrowser.isInitialNetworkBrowsingComplete())
+        return (discoveryScheduler == null || discoveryScheduler.isInitialNetworkBrowsingComplete())
                 && endpointBuilder.isReady();
     }
 
+    /**
+     * Gets the discovery scheduler for configuring background sweep.
+     *
+     * @return the discovery scheduler or null if discovery has not been started
+     */
+    public DiscoveryScheduler getDiscoveryScheduler() {
+        return discoveryScheduler;
+    }
+
+    /**
+     * Gets the match descriptor discovery for cluster centric endpoint lookups.
+     *
+     * @return the match descriptor discovery or null if discovery has not been started
+     */
+    public MatchDescriptorDiscovery getMatchDescriptorDiscovery() {
+        return matchDescriptorDiscovery;
+    }
+
     @Override
     public void notify(AF_INCOMING_MSG msg) {
         final int sourceNetworkAddress = msg.getSrcAddr();
 
+        ApplicationFrameworkLayer.getAFLayer(networkManager).getZigBeeNetwork().getTopology().updateLinkQuality(msg);
+
         synchronized (inspectedNetworkAddresses) {
             if (!inspectedNetworkAddresses.contains(sourceNetworkAddress)) {
                 inspectedNetworkAddresses.add(sourceNetworkAddress);
-                new Thread(new Runnable() {
-                    @Override
-                    public void run() {
-                        inspectNetworkAddress(sourceNetworkAddress);
-                    }
-                }).start();
+                discoveryScheduler.newSource(sourceNetworkAddress);
             }
         }
     }
 
-    /**
-     * Inspect given network address.
-     *
-     * @param sourceNetworkAddress the network address to inspect
-     */
-    private synchronized void inspectNetworkAddress(final int sourceNetworkAddress) {
-        logger.debug("Inspecting node based on incoming AF message from network address #{}.",
-                sourceNetworkAddress);
-
-        final ZDO_IEEE_ADDR_RSP result = networkManager.sendZDOIEEEAddressRequest(
-                new ZDO_IEEE_ADDR_REQ(sourceNetworkAddress, ZDO_IEEE_ADDR_REQ.REQ_TYPE.SINGLE_DEVICE_RESPONSE, (byte) 0)
-        );
-
-        if (result == null) {
-            logger.debug("Node did not respond to ZDO_IEEE_ADDR_REQ #{}", sourceNetworkAddress);
-        } else if (result.Status == 0) {
-            logger.debug("Node network address #{} resolved to IEEE address {}.", sourceNetworkAddress, result.getIEEEAddress());
-            final ZigBeeNodeImpl node = new ZigBeeNodeImpl(sourceNetworkAddress, result.getIEEEAddress(),
-                    (short) networkManager.getCurrentPanId());
-
-            ZToolAddress16 nwk = new ZToolAddress16(
-                    Integers.getByteAsInteger(sourceNetworkAddress, 1),
-                    Integers.getByteAsInteger(sourceNetworkAddress, 0)
-            );
-            importingQueue.push(nwk, result.getIEEEAddress());
-
-            final ZigBeeNetwork network = ApplicationFrameworkLayer.getAFLayer(networkManager).getZigBeeNetwork();
-            network.notifyNodeBrowsed(node);
-        } else {
-            logger.warn("Node #{} ZDO_IEEE_ADDR_REQ failed with status {} ", sourceNetworkAddress,
-                    Status.getStatus((byte) result.Status));
-        }
-    }
-
 }
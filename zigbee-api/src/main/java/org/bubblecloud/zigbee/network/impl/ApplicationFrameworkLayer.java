@@ -25,14 +25,21 @@ package org.bubblecloud.zigbee.network.impl;
 import org.bubblecloud.zigbee.api.ZigBeeApiConstants;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.Status;
 import org.bubblecloud.zigbee.network.ClusterMessage;
+import org.bubblecloud.zigbee.network.EndpointRestoreListener;
 import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
 import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
+import org.bubblecloud.zigbee.network.model.DriverStatus;
 import org.bubblecloud.zigbee.network.packet.af.AF_REGISTER;
 import org.bubblecloud.zigbee.network.packet.af.AF_REGISTER_SRSP;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_SIMPLE_DESC_REQ;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_SIMPLE_DESC_RSP;
+import org.bubblecloud.zigbee.network.packet.ResponseStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * This class is a <i>singelton</i> aimed at share the <b>the Application Framework Layer</b><br>
@@ -46,40 +53,35 @@ import java.util.*;
  * @version $LastChangedRevision: 799 $ ($LastChangedDate: 2013-08-06 19:00:05 +0300 (Tue, 06 Aug 2013) $)
  * @since 0.1.0
  */
-public class ApplicationFrameworkLayer {
+public class ApplicationFrameworkLayer implements EndpointRestoreListener {
 
     private final static Object LOCK = new Object();
     private final static Logger logger = LoggerFactory.getLogger(ApplicationFrameworkLayer.class);
 
-    class SenderIdentifier {
-        int profileId;
-        int clusterId;
-
-        public SenderIdentifier(int profileId, int clusterId) {
-            this.profileId = profileId;
-            this.clusterId = clusterId;
-        }
-
-        @Override
-        public int hashCode() {
-            return (profileId << 16) + clusterId;
-        }
-
-        public boolean equals(Object o) {
-            if (o instanceof SenderIdentifier) {
-                SenderIdentifier si = (SenderIdentifier) o;
-                return si.profileId == profileId && si.clusterId == clusterId;
-            } else {
-                return false;
-            }
-        }
-    }
+    /**
+     * The profile sending endpoints are looked up with.
+     */
+    private static final int SENDER_PROFILE = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION;
 
     private static ApplicationFrameworkLayer singelton;
 
-    final HashMap<SenderIdentifier, Short> sender2EndPoint = new HashMap<SenderIdentifier, Short>();
-    final HashMap<Integer, List<Integer>> profile2Cluster = new HashMap<Integer, List<Integer>>();
-    final HashMap<Short, Byte> endPoint2Transaction = new HashMap<Short, Byte>();
+    /**
+     * Sending endpoints by profile and cluster key. The map is immutable and replaced as whole
+     * on registration so that lookups on send need no locking.
+     */
+    private volatile Map<Integer, Short> sender2EndPoint = Collections.emptyMap();
+    /**
+     * The next transaction ID of each local endpoint indexed by unsigned endpoint number.
+     */
+    private final AtomicIntegerArray endPoint2Transaction = new AtomicIntegerArray(256);
+    /**
+     * Guards endpoint registration and the free endpoint counter.
+     */
+    private final Object registrationLock = new Object();
+    /**
+     * True while background endpoint planning is pending.
+     */
+    private final AtomicBoolean planPending = new AtomicBoolean();
 
     private final ZigBeeNetworkManager driver;
     private final ZigBeeNetwork network;
@@ -90,7 +92,11 @@ public class ApplicationFrameworkLayer {
     private ApplicationFrameworkLayer(ZigBeeNetworkManager driver) {
         this.driver = driver;
         firstFreeEndPoint = 1;
+        for (int i = 0; i < endPoint2Transaction.length(); i++) {
+            endPoint2Transaction.set(i, 1);
+        }
         network = new ZigBeeNetwork();
+        network.addEndpointListenerListener(this);
     }
 
     public static ApplicationFrameworkLayer getAFLayer(ZigBeeNetworkManager driver) {
@@ -108,22 +114,25 @@ public class ApplicationFrameworkLayer {
         }
     }
 
+    private static int senderKey(final int profileId, final int clusterId) {
+        return (profileId << 16) | (clusterId & 0xFFFF);
+    }
 
     public short getSendingEndpoint(ZigBeeEndpoint endpoint, int clusterId) {
-        SenderIdentifier si = new SenderIdentifier(
-                ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION, (short) clusterId
-        );
-        logger.trace("Looking for a registered enpoint among {}", sender2EndPoint.size());
-        synchronized (sender2EndPoint) {
-            if (sender2EndPoint.containsKey(si)) {
-                logger.trace("An enpoint already registered for <profileId,clusterId>=<{},{}>", si.profileId, si.clusterId);
-                return sender2EndPoint.get(si);
-            } else {
-                logger.info("No endpoint registered for <profileId,clusterId>=<{},{}>", si.profileId, si.clusterId);
-                final byte ep = createEndPoint(si, endpoint.getProfileId());
-                return ep;
-            }
+        final int key = senderKey(SENDER_PROFILE, clusterId);
+        final Short sender = sender2EndPoint.get(key);
+        if (sender != null) {
+            return sender;
+        }
+        logger.info("No endpoint registered for <profileId,clusterId>=<{},{}>", SENDER_PROFILE, clusterId);
+        final Set<Integer> required = collectUsedClusters();
+        required.add(clusterId);
+        registerPlan(required);
+        final Short planned = sender2EndPoint.get(key);
+        if (planned == null) {
+            throw new IllegalStateException("Unable create a new Endpoint for cluster " + clusterId);
         }
+        return planned;
     }
 
     public short getSendingEndpoint(ZigBeeEndpoint endpoint, ClusterMessage input) {
@@ -134,11 +143,6 @@ public class ApplicationFrameworkLayer {
      * Creates default sending end point.
      */
     public void createDefaultSendingEndPoint() {
-        final SenderIdentifier si = new SenderIdentifier(
-                ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION,
-                (short) ZigBeeApiConstants.CLUSTER_ID_BASIC
-        );
-        final byte endPoint = getFreeEndPoint();
         final List<Integer> clusterSet = Arrays.asList(
             ZigBeeApiConstants.CLUSTER_ID_BASIC,
             ZigBeeApiConstants.CLUSTER_ID_POWER_CONFIGURATION,
@@ -176,7 +180,7 @@ public class ApplicationFrameworkLayer {
         );
 
         final int[] clusters = new int[clusterSet.size()];
-        if (clusters.length > 33) {
+        if (clusters.length > EndpointAllocationPlanner.MAX_CLUSTERS) {
             throw new RuntimeException("Too many default clusters.");
         }
 
@@ -186,163 +190,240 @@ public class ApplicationFrameworkLayer {
             index++;
         }
 
-        final AF_REGISTER_SRSP result = driver.sendAFRegister(new AF_REGISTER(
-                endPoint, si.profileId, (short) 0, (byte) 0,
-                new int[0], clusters
-        ));
+        synchronized (registrationLock) {
+            final byte endPoint = getFreeEndPoint();
+            final AF_REGISTER_SRSP result = driver.sendAFRegister(new AF_REGISTER(
+                    endPoint, SENDER_PROFILE, (short) 0, (byte) 0,
+                    new int[0], clusters
+            ));
 
-        if (result.getStatus() != 0) {
-            // Default end point creation failed probably due to end point already exists.
-            logger.warn("Default end point creation failed with status: {} ", Status.getStatus((byte) result.getStatus()));
-            return;
-        }
+            if (result.getStatus() == ResponseStatus.Z_APS_DUPLICATE_ENTRY.getValue() && driver.isWarmStarted()) {
+                // The dongle kept the default end point registered by the previous session.
+                logger.info("Reusing default sending endpoint {} registered before warm start.", endPoint);
+                registerSenderEndPoint(endPoint, SENDER_PROFILE, clusters);
+                return;
+            }
+            if (result.getStatus() != 0) {
+                // Default end point creation failed probably due to end point already exists.
+                logger.warn("Default end point creation failed with status: {} ", Status.getStatus((byte) result.getStatus()));
+                return;
+            }
 
-        logger.info("Registered default sending endpoint {} with clusters: {}", endPoint, clusters);
-        registerSenderEndPoint(endPoint, si.profileId, clusters);
+            logger.info("Registered default sending endpoint {} with clusters: {}", endPoint, clusters);
+            registerSenderEndPoint(endPoint, SENDER_PROFILE, clusters);
+        }
     }
 
-    private byte createEndPoint(SenderIdentifier si, int receiverProfileId) {
-        byte endPoint = getFreeEndPoint();
-        logger.debug("Registering a new endpoint for <profileId,clusterId>  <{},{}>", si.profileId, si.clusterId);
-
-        Set<Integer> clusterSet = collectClusterForProfile(receiverProfileId);
-        final int[] clusters = new int[clusterSet.size()];
+    /**
+     * Registers sending endpoints for all clusters used by the endpoints in the network which are
+     * not yet covered, so that sending does not have to register endpoints on the dongle.
+     *
+     * @return the number of endpoints registered
+     */
+    public int planSendingEndpoints() {
+        return registerPlan(collectUsedClusters());
+    }
 
-        int index = 0;
-        for (final Integer cluster : clusterSet) {
-            clusters[index] = cluster;
-            index++;
+    private int registerPlan(final Set<Integer> required) {
+        synchronized (registrationLock) {
+            final List<int[]> plan = EndpointAllocationPlanner.plan(required, getCoveredClusters());
+            int registered = 0;
+            for (final int[] clusters : plan) {
+                if (createEndPoint(clusters)) {
+                    registered++;
+                }
+            }
+            if (registered > 0) {
+                logger.debug("Registered {} sending endpoints for {} clusters", registered, required.size());
+            }
+            return registered;
         }
+    }
 
-        if (clusters.length > 33) {
-            logger.warn(
-                    "We found too many cluster to implement for a single endpoint " +
-                            "(maxium is 32), so we are filtering out the extra {}", clusters
-            );
-			/*
-			 * Too many cluster to implement for this profile we must use the first 31
-			 * plus the cluster that we are trying to create as 32nd value 
-			 */
-            int[] values = new int[33];
-            values[0] = si.clusterId;
-            for (int i = 1; i < values.length; i++) {
-                values[i] = clusters[i];
+    private boolean createEndPoint(final int[] clusters) {
+        int[] remaining = clusters;
+        boolean retried = false;
+        while (true) {
+            final byte endPoint;
+            try {
+                endPoint = getFreeEndPoint();
+            } catch (final IllegalStateException e) {
+                logger.warn("Unable create a new Endpoint for clusters {}: {}", remaining, e.getMessage());
+                return false;
             }
-            logger.warn("Following the list of filtered cluster that we are going to register: {} ", clusters);
-        }
-        AF_REGISTER_SRSP result = null;
-        int retry = 0;
-        do {
-            result = driver.sendAFRegister(new AF_REGISTER(
-                    endPoint, si.profileId, (short) 0, (byte) 0,
-                    new int[0], clusters
+            final AF_REGISTER_SRSP result = driver.sendAFRegister(new AF_REGISTER(
+                    endPoint, SENDER_PROFILE, (short) 0, (byte) 0,
+                    new int[0], remaining
             ));
-            //FIX We should retry only when Status != 0xb8  ( Z_APS_DUPLICATE_ENTRY )
-            if (result.getStatus() != 0) {
-                if (retry < 1) {
-                    endPoint = getFreeEndPoint();
-                } else {
-					/*
-					 * //TODO We should provide a workaround for the maximum number of registered EndPoint
-					 * For example, with the CC2480 we could reset the dongle
-					 */
-                    throw new IllegalStateException("Unable create a new Endpoint. AF_REGISTER command failed with " + result.getStatus() + ":" + result.getErrorMsg());
+            if (result != null && result.getStatus() == 0) {
+                logger.debug("Registered endpoint {} with clusters: {}", endPoint, remaining);
+                registerSenderEndPoint(endPoint, SENDER_PROFILE, remaining);
+                return true;
+            }
+            if (result != null && result.getStatus() == ResponseStatus.Z_APS_DUPLICATE_ENTRY.getValue()
+                    && driver.isWarmStarted()) {
+                // The dongle kept the end point registered by the previous session, so its
+                // clusters are reused and only the clusters it lacks go to the next end point.
+                reuseEndPoint(endPoint);
+                remaining = getUncoveredClusters(remaining);
+                if (remaining.length == 0) {
+                    return true;
                 }
-            } else {
-                break;
+                continue;
             }
-        } while (true);
-        final int profileId = si.profileId;
-
-        logger.debug("Registered endpoint {} with clusters: {}", endPoint, clusters);
+            if (retried) {
+                /*
+                 * //TODO We should provide a workaround for the maximum number of registered EndPoint
+                 * For example, with the CC2480 we could reset the dongle
+                 */
+                logger.warn("Unable create a new Endpoint. AF_REGISTER command failed with {}",
+                        result == null ? null : result.getStatus() + ":" + result.getErrorMsg());
+                return false;
+            }
+            retried = true;
+        }
+    }
 
-        registerSenderEndPoint(endPoint, profileId, clusters);
-        return endPoint;
+    /**
+     * Registers the clusters of an end point which the dongle kept from the previous session as
+     * sending clusters. The cluster list is read back from the dongle as it may differ from the
+     * clusters planned in this session.
+     *
+     * @param endPoint the local end point
+     */
+    private void reuseEndPoint(final byte endPoint) {
+        final ZDO_SIMPLE_DESC_RSP descriptor = driver.sendZDOSimpleDescriptionRequest(
+                new ZDO_SIMPLE_DESC_REQ((short) 0, (short) (endPoint & 0xFF)));
+        if (descriptor == null || descriptor.Status != 0 || descriptor.getProfileId() != (short) SENDER_PROFILE) {
+            logger.info("Skipping endpoint {} registered before warm start.", endPoint & 0xFF);
+            return;
+        }
+        final short[] outputs = descriptor.getOutputClustersList();
+        final int[] clusters = new int[outputs.length];
+        for (int i = 0; i < outputs.length; i++) {
+            clusters[i] = outputs[i] & 0xFFFF;
+        }
+        logger.info("Reusing sending endpoint {} registered before warm start with clusters: {}",
+                endPoint & 0xFF, clusters);
+        registerSenderEndPoint(endPoint, SENDER_PROFILE, clusters);
     }
 
     public void registerSenderEndPoint(short endPoint, int profileId, int[] clusters) {
-        final List<Integer> list;
-        synchronized (profile2Cluster) {
-            if (profile2Cluster.containsKey(profileId)) {
-                list = profile2Cluster.get(profileId);
-            } else {
-                list = new ArrayList<Integer>();
-                profile2Cluster.put(profileId, list);
-            }
-        }
-        synchronized (sender2EndPoint) {
+        synchronized (registrationLock) {
+            final Map<Integer, Short> senders = new HashMap<Integer, Short>(sender2EndPoint);
             for (int i = 0; i < clusters.length; i++) {
-                list.add(clusters[i]);
-                SenderIdentifier adding = new SenderIdentifier(profileId, clusters[i]);
-                if (sender2EndPoint.containsKey(adding)) {
-                    if (sender2EndPoint.get(adding).equals(endPoint)) {
+                final int key = senderKey(profileId, clusters[i]);
+                final Short existing = senders.get(key);
+                if (existing != null) {
+                    if (existing == endPoint) {
                         continue;
                     }
-                    logger.warn("Overriding a valid <profileId,clusterId> endpoint with this {}", adding);
+                    logger.warn("Overriding a valid <profileId,clusterId> <{},{}> endpoint with this {}",
+                            new Object[]{profileId, clusters[i], endPoint});
                 }
-                logger.debug("Adding <profileId,clusterId> <{},{}> to sender2EndPoint hashtable", adding.profileId, adding.clusterId);
-                sender2EndPoint.put(adding, endPoint);
+                logger.debug("Adding <profileId,clusterId> <{},{}> to sender2EndPoint hashtable", profileId, clusters[i]);
+                senders.put(key, endPoint);
             }
+            sender2EndPoint = Collections.unmodifiableMap(senders);
         }
     }
 
-    private Set<Integer> collectClusterForProfile(int profileId) {
-        final HashSet<Integer> clusters = new HashSet<Integer>();
-        final Collection<ZigBeeEndpoint> endpoints = network.getEndpoints(profileId);
-        logger.debug("Found {} devices belonging to profile {}", endpoints.size(), profileId);
-        for (ZigBeeEndpoint endpoint : endpoints) {
-            int[] ids;
-            ids = endpoint.getInputClusters();
-            logger.debug(
-                    "Device {} provides the following cluster as input {}",
-                    endpoint.getEndpointId(), ids
-            );
-            for (int i = 0; i < ids.length; i++) {
-                clusters.add(ids[i]);
-            }
-            ids = endpoint.getOutputClusters();
-            logger.debug(
-                    "Device {} provides the following cluster as input {}",
-                    endpoint.getEndpointId(), ids
-            );
-            for (int i = 0; i < ids.length; i++) {
-                clusters.add(ids[i]);
+    private Set<Integer> getCoveredClusters() {
+        final Set<Integer> covered = new HashSet<Integer>();
+        for (final Integer key : sender2EndPoint.keySet()) {
+            if (key >>> 16 == SENDER_PROFILE) {
+                covered.add(key & 0xFFFF);
             }
         }
+        return covered;
+    }
 
-        final List<Integer> implementedCluster = profile2Cluster.get(profileId);
-        if (implementedCluster != null) {
-            logger.debug("List of clusters of profile {} already provided by some registered endpoint {}", profileId,
-                    implementedCluster);
-            clusters.removeAll(implementedCluster);
-        } else {
-            logger.debug("No previus clusters registered on any endpoint of the dongle for the profile {}", profileId);
+    private int[] getUncoveredClusters(final int[] clusters) {
+        final Map<Integer, Short> senders = sender2EndPoint;
+        final List<Integer> uncovered = new ArrayList<Integer>();
+        for (int i = 0; i < clusters.length; i++) {
+            if (!senders.containsKey(senderKey(SENDER_PROFILE, clusters[i]))) {
+                uncovered.add(clusters[i]);
+            }
+        }
+        final int[] result = new int[uncovered.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = uncovered.get(i);
         }
+        return result;
+    }
 
+    private Set<Integer> collectUsedClusters() {
+        final EndpointRegistry<ZigBeeEndpoint> registry = network.getEndpointRegistry();
+        final Set<Integer> clusters = new HashSet<Integer>();
+        for (final Integer profileId : registry.getProfiles()) {
+            clusters.addAll(registry.getProfileClusters(profileId));
+        }
         return clusters;
     }
 
-    public ZigBeeNetwork getZigBeeNetwork() {
-        return network;
+    private boolean isCovered(final int[] clusters) {
+        final Map<Integer, Short> senders = sender2EndPoint;
+        for (int i = 0; i < clusters.length; i++) {
+            if (!senders.containsKey(senderKey(SENDER_PROFILE, clusters[i]))) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    public byte getNextTransactionId(short endPoint) {
-        if (!endPoint2Transaction.containsKey(endPoint)) {
-            endPoint2Transaction.put(endPoint, (byte) 1);
+    /**
+     * Plans sending endpoints in background when endpoint discovered while network is running
+     * uses clusters not yet covered. Endpoints discovered before the network is ready are covered
+     * by the planning done on startup.
+     *
+     * @param endpoint the endpoint
+     */
+    private void schedulePlanning(final ZigBeeEndpoint endpoint) {
+        if (isCovered(endpoint.getInputClusters()) && isCovered(endpoint.getOutputClusters())) {
+            return;
         }
-        byte value = endPoint2Transaction.get(endPoint);
-        switch (value) {
-            case 127: {
-                endPoint2Transaction.put(endPoint, (byte) -128);
-                return 127;
-            }
-            default: {
-                endPoint2Transaction.put(endPoint, (byte) (value + 1));
-                return value;
+        if (driver.getDriverStatus() != DriverStatus.NETWORK_READY || !planPending.compareAndSet(false, true)) {
+            return;
+        }
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                planPending.set(false);
+                planSendingEndpoints();
             }
+        }, "EndpointPlanner").start();
+    }
+
+    @Override
+    public void endpointAdded(final ZigBeeEndpoint endpoint) {
+        schedulePlanning(endpoint);
+    }
+
+    @Override
+    public void endpointUpdated(final ZigBeeEndpoint endpoint) {
+        schedulePlanning(endpoint);
+    }
+
+    @Override
+    public void endpointRemoved(final ZigBeeEndpoint endpoint) {
+    }
+
+    @Override
+    public void endpointsRestored(final List<ZigBeeEndpoint> endpoints) {
+        for (final ZigBeeEndpoint endpoint : endpoints) {
+            schedulePlanning(endpoint);
         }
     }
 
+    public ZigBeeNetwork getZigBeeNetwork() {
+        return network;
+    }
+
+    public byte getNextTransactionId(short endPoint) {
+        return (byte) endPoint2Transaction.getAndIncrement(endPoint & 0xFF);
+    }
+
     private byte getFreeEndPoint() {
         switch (firstFreeEndPoint) {
             case 127: {
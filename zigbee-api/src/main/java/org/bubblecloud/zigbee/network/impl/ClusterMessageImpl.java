@@ -22,6 +22,7 @@
 
 package org.bubblecloud.zigbee.network.impl;
 
+import org.bubblecloud.zigbee.api.cluster.impl.core.ZCLFrameView;
 import org.bubblecloud.zigbee.network.ClusterMessage;
 
 /**
@@ -34,6 +35,7 @@ public class ClusterMessageImpl implements ClusterMessage {
 
     private final byte[] msg;
     private final short id;
+    private volatile ZCLFrameView frameView;
 
 
     public ClusterMessageImpl(byte[] msg, short id) {
@@ -49,4 +51,21 @@ public class ClusterMessageImpl implements ClusterMessage {
         return id;
     }
 
+    /**
+     * @return the view of the frame, decoded on first use and shared by every listener of this message
+     */
+    public ZCLFrameView getFrameView() {
+        ZCLFrameView local = frameView;
+        if (local == null) {
+            synchronized (this) {
+                local = frameView;
+                if (local == null) {
+                    local = new ZCLFrameView(id, msg);
+                    frameView = local;
+                }
+            }
+        }
+        return local;
+    }
+
 }
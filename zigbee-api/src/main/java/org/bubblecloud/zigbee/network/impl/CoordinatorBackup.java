@@ -0,0 +1,312 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.impl;
+
+import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Backup of the coordinator dongle non-volatile memory items holding the network state: IEEE address,
+ * PAN, extended PAN, network key with frame counters and the device, address and binding tables.
+ * Restoring the backup to a replacement dongle brings back the same network without re-pairing devices.
+ * <pre>
+ * backup := MAGIC:int32 VERSION:uint16 timestamp:int64 itemCount:uint16 item* crc:int32
+ * item   := id:uint16 length:uint16 value:uint8*
+ * </pre>
+ */
+public final class CoordinatorBackup {
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoordinatorBackup.class);
+
+    /**
+     * The backup magic number 'ZBNV'.
+     */
+    public static final int MAGIC = 0x5A424E56;
+    /**
+     * The current schema version.
+     */
+    public static final int VERSION = 1;
+
+    public static final int ZCD_NV_EXTADDR = 0x0001;
+    public static final int ZCD_NV_STARTUP_OPTION = 0x0003;
+    public static final int ZCD_NV_NIB = 0x0021;
+    public static final int ZCD_NV_DEVICE_LIST = 0x0022;
+    public static final int ZCD_NV_ADDRMGR = 0x0023;
+    public static final int ZCD_NV_EXTENDED_PAN_ID = 0x002D;
+    public static final int ZCD_NV_NWK_ACTIVE_KEY_INFO = 0x003A;
+    public static final int ZCD_NV_NWK_ALTERN_KEY_INFO = 0x003B;
+    public static final int ZCD_NV_BINDING_TABLE = 0x0041;
+    public static final int ZCD_NV_GROUP_TABLE = 0x0042;
+    public static final int ZCD_NV_APS_USE_EXT_PANID = 0x0047;
+    public static final int ZCD_NV_PRECFGKEY = 0x0062;
+    public static final int ZCD_NV_PRECFGKEYS_ENABLE = 0x0063;
+    public static final int ZCD_NV_SECURITY_MODE = 0x0064;
+    public static final int ZCD_NV_TRUSTCENTER_ADDR = 0x006E;
+    public static final int ZCD_NV_NWK_SEC_MATERIAL_TABLE_START = 0x0075;
+    public static final int ZCD_NV_PANID = 0x0083;
+    public static final int ZCD_NV_CHANLIST = 0x0084;
+    public static final int ZCD_NV_LOGICAL_TYPE = 0x0087;
+    public static final int ZCD_NV_TCLK_TABLE_START = 0x0101;
+
+    /**
+     * The default amount the NWK outgoing frame counter is advanced on restore to cover the frames the
+     * original dongle has sent after the backup was taken.
+     */
+    public static final long DEFAULT_FRAME_COUNTER_INCREMENT = 10000;
+    /**
+     * The offset of the outgoing frame counter in active key information: key sequence number and key precede it.
+     */
+    private static final int ACTIVE_KEY_INFO_FRAME_COUNTER_OFFSET = 17;
+    /**
+     * The offset of the outgoing frame counter in the first security material table entry.
+     */
+    private static final int SEC_MATERIAL_FRAME_COUNTER_OFFSET = 0;
+
+    /**
+     * The NV items needed to bring back the network on a replacement dongle. Configuration items are
+     * restored before the network information base so that the dongle never starts with a partial state.
+     */
+    public static final int[] NETWORK_ITEMS = new int[]{
+            ZCD_NV_EXTADDR,
+            ZCD_NV_PANID,
+            ZCD_NV_CHANLIST,
+            ZCD_NV_LOGICAL_TYPE,
+            ZCD_NV_EXTENDED_PAN_ID,
+            ZCD_NV_APS_USE_EXT_PANID,
+            ZCD_NV_PRECFGKEY,
+            ZCD_NV_PRECFGKEYS_ENABLE,
+            ZCD_NV_SECURITY_MODE,
+            ZCD_NV_TRUSTCENTER_ADDR,
+            ZCD_NV_NWK_ACTIVE_KEY_INFO,
+            ZCD_NV_NWK_ALTERN_KEY_INFO,
+            ZCD_NV_NWK_SEC_MATERIAL_TABLE_START,
+            ZCD_NV_TCLK_TABLE_START,
+            ZCD_NV_DEVICE_LIST,
+            ZCD_NV_ADDRMGR,
+            ZCD_NV_BINDING_TABLE,
+            ZCD_NV_GROUP_TABLE,
+            ZCD_NV_NIB
+    };
+
+    /**
+     * The time the backup was taken in milliseconds since epoch.
+     */
+    private final long timestamp;
+    /**
+     * The NV item values in restore order.
+     */
+    private final Map<Integer, byte[]> items;
+
+    private CoordinatorBackup(final long timestamp, final Map<Integer, byte[]> items) {
+        this.timestamp = timestamp;
+        this.items = items;
+    }
+
+    /**
+     * Reads the network NV items from the dongle.
+     *
+     * @param manager the network manager
+     * @return the backup
+     */
+    public static CoordinatorBackup read(final ZigBeeNetworkManager manager) {
+        return read(manager, NETWORK_ITEMS);
+    }
+
+    /**
+     * Reads the given NV items from the dongle. Items which do not exist on the dongle are left out.
+     *
+     * @param manager the network manager
+     * @param ids the NV item IDs in restore order
+     * @return the backup
+     * @throws IllegalStateException if an item is too long to be read in full
+     */
+    public static CoordinatorBackup read(final ZigBeeNetworkManager manager, final int[] ids) {
+        final Map<Integer, byte[]> items = new LinkedHashMap<Integer, byte[]>();
+        for (final int id : ids) {
+            final byte[] value = manager.readNvItem(id);
+            if (value == null) {
+                LOGGER.debug("NV item {} not available for backup.", id);
+                continue;
+            }
+            items.put(id, value);
+        }
+        return new CoordinatorBackup(System.currentTimeMillis(), items);
+    }
+
+    /**
+     * Writes the NV items to the dongle and clears the clean state startup option so that the dongle
+     * resumes the restored network on the next reset. The NWK outgoing frame counter is advanced by
+     * {@link #DEFAULT_FRAME_COUNTER_INCREMENT}.
+     *
+     * @param manager the network manager
+     * @return the number of items restored
+     */
+    public int restore(final ZigBeeNetworkManager manager) {
+        return restore(manager, DEFAULT_FRAME_COUNTER_INCREMENT);
+    }
+
+    /**
+     * Writes the NV items to the dongle and clears the clean state startup option so that the dongle
+     * resumes the restored network on the next reset. The NWK outgoing frame counter is advanced as devices
+     * drop frames with counter they have already seen from the original dongle.
+     *
+     * @param manager the network manager
+     * @param frameCounterIncrement the amount to advance the NWK outgoing frame counter by
+     * @return the number of items restored
+     */
+    public int restore(final ZigBeeNetworkManager manager, final long frameCounterIncrement) {
+        int restored = 0;
+        for (final Map.Entry<Integer, byte[]> item : items.entrySet()) {
+            final byte[] value;
+            if (item.getKey() == ZCD_NV_NWK_ACTIVE_KEY_INFO) {
+                value = advanceFrameCounter(item.getValue(), ACTIVE_KEY_INFO_FRAME_COUNTER_OFFSET,
+                        frameCounterIncrement);
+            } else if (item.getKey() == ZCD_NV_NWK_SEC_MATERIAL_TABLE_START) {
+                value = advanceFrameCounter(item.getValue(), SEC_MATERIAL_FRAME_COUNTER_OFFSET,
+                        frameCounterIncrement);
+            } else {
+                value = item.getValue();
+            }
+            if (manager.writeNvItem(item.getKey(), value)) {
+                restored++;
+            } else {
+                LOGGER.warn("Failed to restore NV item {}.", item.getKey());
+            }
+        }
+        if (!manager.writeNvItem(ZCD_NV_STARTUP_OPTION, new byte[]{0})) {
+            LOGGER.warn("Failed to clear startup option after restore.");
+        }
+        return restored;
+    }
+
+    /**
+     * Advances the little endian 32 bit frame counter of NV item value. The counter saturates at its maximum.
+     *
+     * @param value the item value
+     * @param offset the counter offset
+     * @param increment the increment
+     * @return copy of the value with advanced counter or the value as is if it is too short
+     */
+    static byte[] advanceFrameCounter(final byte[] value, final int offset, final long increment) {
+        if (value.length < offset + 4) {
+            LOGGER.warn("NV item of {} bytes has no frame counter at offset {}.", value.length, offset);
+            return value;
+        }
+        long counter = 0;
+        for (int i = 3; i >= 0; i--) {
+            counter = (counter << 8) | (value[offset + i] & 0xFF);
+        }
+        counter = Math.min(counter + increment, 0xFFFFFFFFL);
+        final byte[] result = value.clone();
+        for (int i = 0; i < 4; i++) {
+            result[offset + i] = (byte) (counter >> (8 * i));
+        }
+        return result;
+    }
+
+    /**
+     * @return the time the backup was taken in milliseconds since epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the NV item values by item ID in restore order
+     */
+    public Map<Integer, byte[]> getItems() {
+        return Collections.unmodifiableMap(items);
+    }
+
+    /**
+     * Writes the backup. The stream is flushed but not closed.
+     *
+     * @param out the output stream
+     * @throws IOException if I/O error occurs
+     */
+    public void write(final OutputStream out) throws IOException {
+        final BufferedOutputStream buffered = new BufferedOutputStream(out);
+        final CheckedOutputStream checked = new CheckedOutputStream(buffered, new CRC32());
+        final DataOutputStream data = new DataOutputStream(checked);
+
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeLong(timestamp);
+        data.writeShort(items.size());
+        for (final Map.Entry<Integer, byte[]> item : items.entrySet()) {
+            data.writeShort(item.getKey());
+            data.writeShort(item.getValue().length);
+            data.write(item.getValue());
+        }
+        data.flush();
+
+        new DataOutputStream(buffered).writeInt((int) checked.getChecksum().getValue());
+        buffered.flush();
+    }
+
+    /**
+     * Reads backup. The stream is not closed.
+     *
+     * @param in the input stream
+     * @return the backup
+     * @throws IOException if I/O error occurs, backup is corrupted or of unsupported version
+     */
+    public static CoordinatorBackup load(final InputStream in) throws IOException {
+        final BufferedInputStream buffered = new BufferedInputStream(in);
+        final CheckedInputStream checked = new CheckedInputStream(buffered, new CRC32());
+        final DataInputStream data = new DataInputStream(checked);
+
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a coordinator backup.");
+        }
+        final int version = data.readUnsignedShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported coordinator backup version: " + version);
+        }
+        final long timestamp = data.readLong();
+        final int count = data.readUnsignedShort();
+        final Map<Integer, byte[]> items = new LinkedHashMap<Integer, byte[]>();
+        for (int i = 0; i < count; i++) {
+            final int id = data.readUnsignedShort();
+            final byte[] value = new byte[data.readUnsignedShort()];
+            data.readFully(value);
+            items.put(id, value);
+        }
+
+        final int expected = (int) checked.getChecksum().getValue();
+        if (new DataInputStream(buffered).readInt() != expected) {
+            throw new IOException("Coordinator backup checksum mismatch.");
+        }
+        return new CoordinatorBackup(timestamp, items);
+    }
+}
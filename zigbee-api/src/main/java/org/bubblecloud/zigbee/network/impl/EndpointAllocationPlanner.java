@@ -0,0 +1,80 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Plans the local sending endpoints registered on the dongle. Clusters not yet covered by a
+ * registered sending endpoint are packed in ascending order to as few new endpoints as the
+ * per endpoint cluster limit allows.
+ */
+public final class EndpointAllocationPlanner {
+    /**
+     * The maximum number of clusters registered on single endpoint.
+     */
+    public static final int MAX_CLUSTERS = 33;
+
+    private EndpointAllocationPlanner() {
+    }
+
+    /**
+     * Plans endpoints for the required clusters.
+     *
+     * @param required the clusters in use
+     * @param covered the clusters already covered by registered endpoints
+     * @return the cluster lists of the endpoints to register
+     */
+    public static List<int[]> plan(final Collection<Integer> required, final Set<Integer> covered) {
+        return plan(required, covered, MAX_CLUSTERS);
+    }
+
+    /**
+     * Plans endpoints for the required clusters.
+     *
+     * @param required the clusters in use
+     * @param covered the clusters already covered by registered endpoints
+     * @param maxClusters the maximum number of clusters per endpoint
+     * @return the cluster lists of the endpoints to register
+     */
+    public static List<int[]> plan(final Collection<Integer> required, final Set<Integer> covered,
+                                   final int maxClusters) {
+        final Set<Integer> missing = new TreeSet<Integer>(required);
+        missing.removeAll(covered);
+
+        final List<int[]> endpoints = new ArrayList<int[]>((missing.size() + maxClusters - 1) / maxClusters);
+        int[] clusters = null;
+        int index = 0;
+        int remaining = missing.size();
+        for (final Integer cluster : missing) {
+            if (clusters == null) {
+                clusters = new int[Math.min(maxClusters, remaining)];
+                index = 0;
+            }
+            clusters[index++] = cluster;
+            remaining--;
+            if (index == clusters.length) {
+                endpoints.add(clusters);
+                clusters = null;
+            }
+        }
+        return endpoints;
+    }
+}
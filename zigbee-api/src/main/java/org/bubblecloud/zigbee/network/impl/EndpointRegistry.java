@@ -0,0 +1,532 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.impl;
+
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.network.model.IEEEAddress;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Endpoint registry with secondary indexes by IEEE address, network address, profile, input cluster,
+ * output cluster and device type.
+ *
+ * Reads are lock free and return immutable snapshot lists which can be iterated without copying.
+ * Modifications are serialized and replace the affected index entries with new snapshots.
+ * Additions append to the array shared with the previous snapshot where the previous snapshot
+ * can not see them, so adding single endpoint does not copy the indexes. Removals copy the
+ * affected entries, which is cheap as endpoints are removed rarely.
+ *
+ * This class is thread safe.
+ *
+ * @param <T> the endpoint type
+ */
+public class EndpointRegistry<T extends ZigBeeEndpoint> {
+    /**
+     * The network addresses endpoints are currently indexed with by IEEE address of their node.
+     */
+    private final Map<Long, Integer> indexedNetworkAddresses = new ConcurrentHashMap<Long, Integer>();
+    /**
+     * The IEEE address index which is also the primary index as endpoints are identified by
+     * IEEE address and end point address and nodes have only few endpoints.
+     */
+    private final Map<Long, List<T>> ieeeAddressIndex = new ConcurrentHashMap<Long, List<T>>();
+    /**
+     * The network address index.
+     */
+    private final Map<Integer, List<T>> networkAddressIndex = new ConcurrentHashMap<Integer, List<T>>();
+    /**
+     * The profile index.
+     */
+    private final Map<Integer, List<T>> profileIndex = new ConcurrentHashMap<Integer, List<T>>();
+    /**
+     * The input cluster index.
+     */
+    private final Map<Integer, List<T>> inputClusterIndex = new ConcurrentHashMap<Integer, List<T>>();
+    /**
+     * The output cluster index.
+     */
+    private final Map<Integer, List<T>> outputClusterIndex = new ConcurrentHashMap<Integer, List<T>>();
+    /**
+     * The device type index.
+     */
+    private final Map<Integer, List<T>> deviceTypeIndex = new ConcurrentHashMap<Integer, List<T>>();
+    /**
+     * The input and output clusters implemented by endpoints of profile.
+     */
+    private final Map<Integer, Set<Integer>> profileClusters = new ConcurrentHashMap<Integer, Set<Integer>>();
+    /**
+     * All endpoints.
+     */
+    private volatile List<T> all = Collections.emptyList();
+
+    /**
+     * Adds endpoint to the registry.
+     *
+     * @param endpoint the endpoint
+     * @return true if endpoint was added or false if endpoint with same ID already exists
+     */
+    public synchronized boolean add(final T endpoint) {
+        final long ieeeAddress = endpoint.getNode().getIeeeAddressLong();
+        if (get(ieeeAddress, endpoint.getEndPointAddress()) != null) {
+            return false;
+        }
+        Integer networkAddress = indexedNetworkAddresses.get(ieeeAddress);
+        if (networkAddress == null) {
+            networkAddress = endpoint.getNode().getNetworkAddress();
+            indexedNetworkAddresses.put(ieeeAddress, networkAddress);
+        }
+
+        all = added(all, endpoint);
+        addToIndex(ieeeAddressIndex, ieeeAddress, endpoint);
+        addToIndex(networkAddressIndex, networkAddress, endpoint);
+        addToIndex(profileIndex, endpoint.getProfileId(), endpoint);
+        addToIndex(deviceTypeIndex, endpoint.getDeviceTypeId(), endpoint);
+        for (final int clusterId : unique(endpoint.getInputClusters())) {
+            addToIndex(inputClusterIndex, clusterId, endpoint);
+        }
+        for (final int clusterId : unique(endpoint.getOutputClusters())) {
+            addToIndex(outputClusterIndex, clusterId, endpoint);
+        }
+        addProfileClusters(endpoint);
+        return true;
+    }
+
+    /**
+     * Adds endpoints to the registry in bulk. Each affected index entry is replaced only once
+     * which makes loading large number of endpoints linear instead of quadratic.
+     *
+     * @param endpoints the endpoints
+     * @return immutable list of the endpoints added, excluding the ones with existing ID
+     */
+    public synchronized List<T> addAll(final Collection<? extends T> endpoints) {
+        final List<T> addedEndpoints = new ArrayList<T>(endpoints.size());
+        final Map<Long, List<T>> ieeeAddressAdditions = new HashMap<Long, List<T>>();
+        final Map<Integer, List<T>> networkAddressAdditions = new HashMap<Integer, List<T>>();
+        final Map<Integer, List<T>> profileAdditions = new HashMap<Integer, List<T>>();
+        final Map<Integer, List<T>> inputClusterAdditions = new HashMap<Integer, List<T>>();
+        final Map<Integer, List<T>> outputClusterAdditions = new HashMap<Integer, List<T>>();
+        final Map<Integer, List<T>> deviceTypeAdditions = new HashMap<Integer, List<T>>();
+
+        for (final T endpoint : endpoints) {
+            final long ieeeAddress = endpoint.getNode().getIeeeAddressLong();
+            if (get(ieeeAddress, endpoint.getEndPointAddress()) != null
+                    || find(ieeeAddressAdditions.get(ieeeAddress), endpoint.getEndPointAddress()) != null) {
+                continue;
+            }
+            Integer networkAddress = indexedNetworkAddresses.get(ieeeAddress);
+            if (networkAddress == null) {
+                networkAddress = endpoint.getNode().getNetworkAddress();
+                indexedNetworkAddresses.put(ieeeAddress, networkAddress);
+            }
+
+            addedEndpoints.add(endpoint);
+            stage(ieeeAddressAdditions, ieeeAddress, endpoint);
+            stage(networkAddressAdditions, networkAddress, endpoint);
+            stage(profileAdditions, endpoint.getProfileId(), endpoint);
+            stage(deviceTypeAdditions, endpoint.getDeviceTypeId(), endpoint);
+            for (final int clusterId : unique(endpoint.getInputClusters())) {
+                stage(inputClusterAdditions, clusterId, endpoint);
+            }
+            for (final int clusterId : unique(endpoint.getOutputClusters())) {
+                stage(outputClusterAdditions, clusterId, endpoint);
+            }
+        }
+        if (addedEndpoints.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        all = merged(all, addedEndpoints);
+        mergeIndex(ieeeAddressIndex, ieeeAddressAdditions);
+        mergeIndex(networkAddressIndex, networkAddressAdditions);
+        mergeIndex(profileIndex, profileAdditions);
+        mergeIndex(deviceTypeIndex, deviceTypeAdditions);
+        mergeIndex(inputClusterIndex, inputClusterAdditions);
+        mergeIndex(outputClusterIndex, outputClusterAdditions);
+        for (final Integer profileId : profileAdditions.keySet()) {
+            updateProfileClusters(profileId);
+        }
+        return Collections.unmodifiableList(addedEndpoints);
+    }
+
+    /**
+     * Removes endpoint from the registry.
+     *
+     * @param endpoint the endpoint
+     * @return true if endpoint was removed or false if it was not registered
+     */
+    public synchronized boolean remove(final T endpoint) {
+        final long ieeeAddress = endpoint.getNode().getIeeeAddressLong();
+        final T existing = get(ieeeAddress, endpoint.getEndPointAddress());
+        if (existing == null) {
+            return false;
+        }
+        final Integer networkAddress = indexedNetworkAddresses.get(ieeeAddress);
+
+        all = removed(all, existing);
+        removeFromIndex(ieeeAddressIndex, ieeeAddress, existing);
+        if (!ieeeAddressIndex.containsKey(ieeeAddress)) {
+            indexedNetworkAddresses.remove(ieeeAddress);
+        }
+        removeFromIndex(networkAddressIndex, networkAddress, existing);
+        removeFromIndex(profileIndex, existing.getProfileId(), existing);
+        removeFromIndex(deviceTypeIndex, existing.getDeviceTypeId(), existing);
+        for (final int clusterId : unique(existing.getInputClusters())) {
+            removeFromIndex(inputClusterIndex, clusterId, existing);
+        }
+        for (final int clusterId : unique(existing.getOutputClusters())) {
+            removeFromIndex(outputClusterIndex, clusterId, existing);
+        }
+        updateProfileClusters(existing.getProfileId());
+        return true;
+    }
+
+    /**
+     * Reindexes endpoints of node with the current network address of the node.
+     *
+     * @param ieeeAddress the IEEE address of the node
+     */
+    public synchronized void updateNetworkAddress(final long ieeeAddress) {
+        final List<T> nodeEndpoints = getByIeeeAddress(ieeeAddress);
+        if (nodeEndpoints.isEmpty()) {
+            return;
+        }
+        final int networkAddress = nodeEndpoints.get(0).getNode().getNetworkAddress();
+        final Integer indexedNetworkAddress = indexedNetworkAddresses.put(ieeeAddress, networkAddress);
+        if (indexedNetworkAddress != null && indexedNetworkAddress == networkAddress) {
+            return;
+        }
+        for (final T endpoint : nodeEndpoints) {
+            removeFromIndex(networkAddressIndex, indexedNetworkAddress, endpoint);
+            addToIndex(networkAddressIndex, networkAddress, endpoint);
+        }
+    }
+
+    /**
+     * Removes all endpoints from the registry.
+     */
+    public synchronized void clear() {
+        indexedNetworkAddresses.clear();
+        ieeeAddressIndex.clear();
+        networkAddressIndex.clear();
+        profileIndex.clear();
+        inputClusterIndex.clear();
+        outputClusterIndex.clear();
+        deviceTypeIndex.clear();
+        profileClusters.clear();
+        all = Collections.emptyList();
+    }
+
+    /**
+     * @param ieeeAddress     the IEEE address of the node
+     * @param endPointAddress the end point address
+     * @return the endpoint or null if not registered
+     */
+    public T get(final long ieeeAddress, final int endPointAddress) {
+        for (final T endpoint : getByIeeeAddress(ieeeAddress)) {
+            if (endpoint.getEndPointAddress() == endPointAddress) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param endpointId the endpoint ID ([IEEE address]/[end point])
+     * @return the endpoint or null if not registered or endpoint ID is malformed
+     */
+    public T get(final String endpointId) {
+        if (endpointId == null) {
+            return null;
+        }
+        final int separator = endpointId.lastIndexOf('/');
+        if (separator < 0) {
+            return null;
+        }
+        try {
+            return get(IEEEAddress.fromColonNotation(endpointId.substring(0, separator)),
+                    Integer.parseInt(endpointId.substring(separator + 1)));
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param endpointId the endpoint ID ([IEEE address]/[end point])
+     * @return true if endpoint is registered
+     */
+    public boolean contains(final String endpointId) {
+        return get(endpointId) != null;
+    }
+
+    /**
+     * @return immutable snapshot of all endpoints
+     */
+    public List<T> getAll() {
+        return all;
+    }
+
+    /**
+     * @return the number of endpoints
+     */
+    public int size() {
+        return all.size();
+    }
+
+    /**
+     * @param ieeeAddress the IEEE address of the node
+     * @return immutable snapshot of the endpoints of the node
+     */
+    public List<T> getByIeeeAddress(final long ieeeAddress) {
+        return get(ieeeAddressIndex, ieeeAddress);
+    }
+
+    /**
+     * @param networkAddress the network address of the node
+     * @return immutable snapshot of the endpoints of the node
+     */
+    public List<T> getByNetworkAddress(final int networkAddress) {
+        return get(networkAddressIndex, networkAddress);
+    }
+
+    /**
+     * @param profileId the profile ID
+     * @return immutable snapshot of the endpoints implementing the profile
+     */
+    public List<T> getByProfile(final int profileId) {
+        return get(profileIndex, profileId);
+    }
+
+    /**
+     * @param clusterId the cluster ID
+     * @return immutable snapshot of the endpoints having the cluster as input (server) cluster
+     */
+    public List<T> getByInputCluster(final int clusterId) {
+        return get(inputClusterIndex, clusterId);
+    }
+
+    /**
+     * @param clusterId the cluster ID
+     * @return immutable snapshot of the endpoints having the cluster as output (client) cluster
+     */
+    public List<T> getByOutputCluster(final int clusterId) {
+        return get(outputClusterIndex, clusterId);
+    }
+
+    /**
+     * @param deviceTypeId the device type ID
+     * @return immutable snapshot of the endpoints of the device type
+     */
+    public List<T> getByDeviceType(final int deviceTypeId) {
+        return get(deviceTypeIndex, deviceTypeId);
+    }
+
+    /**
+     * @return the IDs of the profiles implemented by the endpoints
+     */
+    public Set<Integer> getProfiles() {
+        return Collections.unmodifiableSet(profileClusters.keySet());
+    }
+
+    /**
+     * @param profileId the profile ID
+     * @return immutable set of input and output clusters implemented by the endpoints of the profile
+     */
+    public Set<Integer> getProfileClusters(final int profileId) {
+        final Set<Integer> clusters = profileClusters.get(profileId);
+        return clusters == null ? Collections.<Integer>emptySet() : clusters;
+    }
+
+    private void addProfileClusters(final T endpoint) {
+        final Set<Integer> clusters = getProfileClusters(endpoint.getProfileId());
+        final Set<Integer> endpointClusters = unique(endpoint.getInputClusters());
+        endpointClusters.addAll(unique(endpoint.getOutputClusters()));
+        if (!clusters.isEmpty() && clusters.containsAll(endpointClusters)) {
+            return;
+        }
+        endpointClusters.addAll(clusters);
+        profileClusters.put(endpoint.getProfileId(), Collections.unmodifiableSet(endpointClusters));
+    }
+
+    private void updateProfileClusters(final int profileId) {
+        final List<T> profileEndpoints = getByProfile(profileId);
+        if (profileEndpoints.isEmpty()) {
+            profileClusters.remove(profileId);
+            return;
+        }
+        final Set<Integer> clusters = new HashSet<Integer>();
+        for (final T endpoint : profileEndpoints) {
+            clusters.addAll(unique(endpoint.getInputClusters()));
+            clusters.addAll(unique(endpoint.getOutputClusters()));
+        }
+        profileClusters.put(profileId, Collections.unmodifiableSet(clusters));
+    }
+
+    private static <K, V> List<V> get(final Map<K, List<V>> index, final K key) {
+        final List<V> values = key == null ? null : index.get(key);
+        return values == null ? Collections.<V>emptyList() : values;
+    }
+
+    private static <K, V> void addToIndex(final Map<K, List<V>> index, final K key, final V value) {
+        index.put(key, added(get(index, key), value));
+    }
+
+    private static <K, V> void stage(final Map<K, List<V>> additions, final K key, final V value) {
+        List<V> values = additions.get(key);
+        if (values == null) {
+            values = new ArrayList<V>();
+            additions.put(key, values);
+        }
+        values.add(value);
+    }
+
+    private static <K, V> void mergeIndex(final Map<K, List<V>> index, final Map<K, List<V>> additions) {
+        for (final Map.Entry<K, List<V>> entry : additions.entrySet()) {
+            index.put(entry.getKey(), merged(get(index, entry.getKey()), entry.getValue()));
+        }
+    }
+
+    private static <V> List<V> merged(final List<V> values, final List<V> additions) {
+        final Object[] elements = new Object[Math.max(4, 2 * (values.size() + additions.size()))];
+        int size = 0;
+        for (final V value : values) {
+            elements[size++] = value;
+        }
+        for (final V value : additions) {
+            elements[size++] = value;
+        }
+        return new Snapshot<V>(new SharedArray(elements, size), size);
+    }
+
+    private static <V extends ZigBeeEndpoint> V find(final List<V> values, final int endPointAddress) {
+        if (values != null) {
+            for (final V value : values) {
+                if (value.getEndPointAddress() == endPointAddress) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static <K, V> void removeFromIndex(final Map<K, List<V>> index, final K key, final V value) {
+        if (key == null) {
+            return;
+        }
+        final List<V> values = removed(get(index, key), value);
+        if (values.isEmpty()) {
+            index.remove(key);
+        } else {
+            index.put(key, values);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> List<V> added(final List<V> values, final V value) {
+        if (values instanceof Snapshot) {
+            return ((Snapshot<V>) values).append(value);
+        }
+        return merged(values, Collections.singletonList(value));
+    }
+
+    private static <V> List<V> removed(final List<V> values, final V value) {
+        final List<V> result = new ArrayList<V>(values);
+        result.remove(value);
+        return result.isEmpty() ? Collections.<V>emptyList() : Collections.unmodifiableList(result);
+    }
+
+    private static Set<Integer> unique(final int[] values) {
+        final Set<Integer> result = new HashSet<Integer>();
+        if (values != null) {
+            for (final int value : values) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Array shared by the snapshots of single index entry and the number of its elements in use.
+     */
+    private static final class SharedArray {
+        private final Object[] elements;
+        private int used;
+
+        private SharedArray(final Object[] elements, final int used) {
+            this.elements = elements;
+            this.used = used;
+        }
+    }
+
+    /**
+     * Immutable list which sees the first elements of a shared array. Elements beyond its size
+     * may be written for later snapshots but the elements it sees are never changed.
+     *
+     * @param <V> the element type
+     */
+    private static final class Snapshot<V> extends AbstractList<V> implements RandomAccess {
+        private final SharedArray array;
+        private final int size;
+
+        private Snapshot(final SharedArray array, final int size) {
+            this.array = array;
+            this.size = size;
+        }
+
+        /**
+         * Appends element in place if this is the latest snapshot of the array and it has room,
+         * otherwise copies the elements to a new array with double capacity.
+         *
+         * @param value the element
+         * @return the snapshot including the element
+         */
+        private Snapshot<V> append(final V value) {
+            if (array.used == size && size < array.elements.length) {
+                array.elements[size] = value;
+                array.used++;
+                return new Snapshot<V>(array, size + 1);
+            }
+            final Object[] elements = new Object[Math.max(4, 2 * (size + 1))];
+            System.arraycopy(array.elements, 0, elements, 0, size);
+            elements[size] = value;
+            return new Snapshot<V>(new SharedArray(elements, size + 1), size + 1);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(final int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return (V) array.elements[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.impl;
+
+import java.util.Arrays;
+
+/**
+ * Selects the nodes included in network state export and import.
+ */
+public interface NetworkStateFilter {
+
+    /**
+     * Filter accepting all nodes.
+     */
+    NetworkStateFilter ALL = new NetworkStateFilter() {
+        @Override
+        public boolean accept(final ZigBeeNodeImpl node) {
+            return true;
+        }
+    };
+
+    /**
+     * Checks whether node and its endpoints are included.
+     *
+     * @param node the node
+     * @return true if node is included
+     */
+    boolean accept(ZigBeeNodeImpl node);
+
+    /**
+     * Filter accepting nodes of single PAN.
+     */
+    class Pan implements NetworkStateFilter {
+        private final short pan;
+
+        public Pan(final short pan) {
+            this.pan = pan;
+        }
+
+        @Override
+        public boolean accept(final ZigBeeNodeImpl node) {
+            return node.getPan() == pan;
+        }
+    }
+
+    /**
+     * Filter accepting nodes with the given IEEE addresses.
+     */
+    class Nodes implements NetworkStateFilter {
+        private final long[] ieeeAddresses;
+
+        public Nodes(final long... ieeeAddresses) {
+            this.ieeeAddresses = ieeeAddresses.clone();
+            Arrays.sort(this.ieeeAddresses);
+        }
+
+        @Override
+        public boolean accept(final ZigBeeNodeImpl node) {
+            return Arrays.binarySearch(ieeeAddresses, node.getIeeeAddressLong()) >= 0;
+        }
+    }
+}
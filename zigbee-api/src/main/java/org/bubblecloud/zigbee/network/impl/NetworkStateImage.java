@@ -0,0 +1,176 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.impl;
+
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
+import org.bubblecloud.zigbee.network.ZigBeeNode;
+import org.bubblecloud.zigbee.network.model.EndpointDescriptor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory image of persisted network state. Snapshot and journal records are applied to the image
+ * first and the resulting state is then added to {@link ZigBeeNetwork} in one pass so that replayed
+ * additions and removals do not cause listener churn.
+ *
+ * All operations are idempotent which allows journal records to be replayed on top of a snapshot
+ * that already contains their effect.
+ */
+public class NetworkStateImage {
+    /**
+     * The nodes by IEEE address in insertion order.
+     */
+    private final Map<Long, ZigBeeNodeImpl> nodes = new LinkedHashMap<Long, ZigBeeNodeImpl>();
+    /**
+     * The endpoint descriptors by IEEE address and endpoint address.
+     */
+    private final Map<Long, Map<Short, EndpointDescriptor>> endpoints = new LinkedHashMap<Long, Map<Short, EndpointDescriptor>>();
+
+    /**
+     * Adds node if it is not present yet.
+     *
+     * @param ieeeAddress the IEEE address
+     * @param networkAddress the network address
+     * @param pan the PAN ID
+     */
+    public void addNode(final long ieeeAddress, final int networkAddress, final short pan) {
+        if (!nodes.containsKey(ieeeAddress)) {
+            nodes.put(ieeeAddress, new ZigBeeNodeImpl(networkAddress, ieeeAddress, pan));
+            endpoints.put(ieeeAddress, new TreeMap<Short, EndpointDescriptor>());
+        }
+    }
+
+    /**
+     * Removes node and its endpoints.
+     *
+     * @param ieeeAddress the IEEE address
+     */
+    public void removeNode(final long ieeeAddress) {
+        nodes.remove(ieeeAddress);
+        endpoints.remove(ieeeAddress);
+    }
+
+    /**
+     * Changes network address of node.
+     *
+     * @param ieeeAddress the IEEE address
+     * @param networkAddress the new network address
+     */
+    public void changeNetworkAddress(final long ieeeAddress, final int networkAddress) {
+        final ZigBeeNodeImpl node = nodes.get(ieeeAddress);
+        if (node != null) {
+            node.setNetworkAddress(networkAddress);
+        }
+    }
+
+    /**
+     * Adds or replaces endpoint of a known node.
+     *
+     * @param ieeeAddress the IEEE address
+     * @param endpoint the endpoint address
+     * @param descriptor the endpoint descriptor
+     */
+    public void putEndpoint(final long ieeeAddress, final short endpoint, final EndpointDescriptor descriptor) {
+        final Map<Short, EndpointDescriptor> nodeEndpoints = endpoints.get(ieeeAddress);
+        if (nodeEndpoints != null) {
+            nodeEndpoints.put(endpoint, descriptor);
+        }
+    }
+
+    /**
+     * Removes endpoint.
+     *
+     * @param ieeeAddress the IEEE address
+     * @param endpoint the endpoint address
+     */
+    public void removeEndpoint(final long ieeeAddress, final short endpoint) {
+        final Map<Short, EndpointDescriptor> nodeEndpoints = endpoints.get(ieeeAddress);
+        if (nodeEndpoints != null) {
+            nodeEndpoints.remove(endpoint);
+        }
+    }
+
+    /**
+     * Builds endpoints of the image. Endpoints of the same node share the node instance.
+     *
+     * @return the endpoints
+     */
+    public List<ZigBeeEndpointImpl> getEndpoints() {
+        final List<ZigBeeEndpointImpl> result = new ArrayList<ZigBeeEndpointImpl>();
+        for (final Map.Entry<Long, ZigBeeNodeImpl> nodeEntry : nodes.entrySet()) {
+            final ZigBeeNodeImpl node = nodeEntry.getValue();
+            for (final Map.Entry<Short, EndpointDescriptor> entry : endpoints.get(nodeEntry.getKey()).entrySet()) {
+                final EndpointDescriptor descriptor = entry.getValue();
+                result.add(new ZigBeeEndpointImpl(node, descriptor.getProfileId(), descriptor.getDeviceTypeId(),
+                        descriptor.getDeviceVersion(), entry.getKey(), descriptor.getInputClusters(),
+                        descriptor.getOutputClusters()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds the image state to network in bulk. Nodes and endpoints already present in network are left as is.
+     *
+     * @param networkManager the network manager to assign to restored endpoints
+     * @param network the network
+     * @return number of endpoints added
+     */
+    public int applyTo(final ZigBeeNetworkManager networkManager, final ZigBeeNetwork network) {
+        final List<ZigBeeEndpointImpl> restored = getEndpoints();
+        for (final ZigBeeNodeImpl node : nodes.values()) {
+            if (network.getNodeByIeeeAddress(node.getIeeeAddressLong()) == null) {
+                network.addNode(node);
+            }
+        }
+        for (final ZigBeeEndpointImpl endpoint : restored) {
+            endpoint.setNetworkManager(networkManager);
+        }
+        return network.addEndpoints(restored).size();
+    }
+
+    /**
+     * Gets the PAN ID of node if it is known.
+     *
+     * @param node the node
+     * @return the PAN ID or 0
+     */
+    static short panOf(final ZigBeeNode node) {
+        if (node instanceof ZigBeeNodeImpl) {
+            return ((ZigBeeNodeImpl) node).getPan();
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the interned descriptor of endpoint.
+     *
+     * @param endpoint the endpoint
+     * @return the descriptor
+     */
+    static EndpointDescriptor descriptorOf(final ZigBeeEndpoint endpoint) {
+        if (endpoint instanceof ZigBeeEndpointImpl) {
+            return ((ZigBeeEndpointImpl) endpoint).getDescriptor();
+        }
+        return EndpointDescriptor.intern(endpoint.getProfileId(), endpoint.getDeviceTypeId(),
+                (byte) endpoint.getDeviceVersion(), endpoint.getInputClusters(), endpoint.getOutputClusters());
+    }
+}
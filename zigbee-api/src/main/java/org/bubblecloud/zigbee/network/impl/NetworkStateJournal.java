@@ -0,0 +1,601 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.impl;
+
+import org.bubblecloud.zigbee.network.EndpointRestoreListener;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
+import org.bubblecloud.zigbee.network.model.EndpointDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Persists network state continuously as a binary {@link NetworkStateSnapshot} and an append-only journal
+ * of changes. Each network change appends a small record to the journal instead of rewriting the whole state.
+ * The journal is compacted to a new snapshot when it reaches the compaction threshold, when the journal is
+ * opened and when it is closed. Compaction on threshold runs in background so that network changes are not
+ * held up by writing the snapshot. Records appended while the snapshot is written are carried over to the
+ * compacted journal. Records set absolute values, so replaying them over a snapshot which already contains
+ * their changes gives the same state.
+ * <pre>
+ * journal := MAGIC:int32 VERSION:uint16 record*
+ * record  := type:uint8 length:uint16 payload crc:int32
+ * </pre>
+ * The record CRC32 covers type and payload. Replay stops at the first truncated or corrupted record so that
+ * a torn write at the end of the journal only loses the last change.
+ */
+public class NetworkStateJournal implements EndpointRestoreListener {
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(NetworkStateJournal.class);
+    /**
+     * The snapshot file name.
+     */
+    public static final String SNAPSHOT_FILE = "network.snapshot";
+    /**
+     * The journal file name.
+     */
+    public static final String JOURNAL_FILE = "network.journal";
+    /**
+     * The journal magic number 'ZBJN'.
+     */
+    public static final int MAGIC = 0x5A424A4E;
+    /**
+     * The current journal schema version.
+     */
+    public static final int VERSION = 1;
+    /**
+     * The default number of journal records after which the journal is compacted.
+     */
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+
+    static final int NODE_ADDED = 1;
+    static final int NODE_REMOVED = 2;
+    static final int ADDRESS_CHANGED = 3;
+    static final int ENDPOINT_UPDATED = 4;
+    static final int ENDPOINT_REMOVED = 5;
+
+    /**
+     * The snapshot file.
+     */
+    private final File snapshotFile;
+    /**
+     * The journal file.
+     */
+    private final File journalFile;
+    /**
+     * The journaled network or null if journal is not open.
+     */
+    private ZigBeeNetwork network;
+    /**
+     * The journal output or null if journal is not open.
+     */
+    private DataOutputStream journal;
+    /**
+     * The number of records in journal.
+     */
+    private int recordCount;
+    /**
+     * The compaction threshold.
+     */
+    private int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+    /**
+     * The journaled state of nodes used to derive change records from endpoint events.
+     */
+    private final Map<Long, JournaledNode> journaledNodes = new HashMap<Long, JournaledNode>();
+    /**
+     * The record payload buffer.
+     */
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(64);
+    /**
+     * The record payload output.
+     */
+    private final DataOutputStream record = new DataOutputStream(recordBuffer);
+    /**
+     * The record checksum.
+     */
+    private final CRC32 crc = new CRC32();
+    /**
+     * Serializes snapshot writes. Acquired before the journal lock when both are needed.
+     */
+    private final Object compactionLock = new Object();
+    /**
+     * The background compaction executor or null if journal is not open.
+     */
+    private ExecutorService compactor;
+    /**
+     * True if background compaction has been scheduled and has not completed yet.
+     */
+    private boolean compactionPending;
+
+    /**
+     * Constructor for setting the persistence directory.
+     *
+     * @param directory the directory containing snapshot and journal files
+     */
+    public NetworkStateJournal(final File directory) {
+        this.snapshotFile = new File(directory, SNAPSHOT_FILE);
+        this.journalFile = new File(directory, JOURNAL_FILE);
+    }
+
+    /**
+     * Sets the number of journal records after which the journal is compacted.
+     *
+     * @param compactionThreshold the compaction threshold
+     */
+    public synchronized void setCompactionThreshold(final int compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * @return the number of records appended since last compaction
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Restores state from snapshot and journal to network.
+     *
+     * @param networkManager the network manager to assign to restored endpoints
+     * @param network the network
+     * @return the number of endpoints restored
+     * @throws IOException if snapshot can not be read
+     */
+    public synchronized int restore(final ZigBeeNetworkManager networkManager, final ZigBeeNetwork network)
+            throws IOException {
+        final NetworkStateImage image = new NetworkStateImage();
+        if (snapshotFile.exists()) {
+            final FileInputStream in = new FileInputStream(snapshotFile);
+            try {
+                NetworkStateSnapshot.read(in, image);
+            } finally {
+                in.close();
+            }
+        }
+        if (journalFile.exists()) {
+            final int replayed = replay(image);
+            LOGGER.debug("Replayed {} network state journal records.", replayed);
+        }
+        return image.applyTo(networkManager, network);
+    }
+
+    /**
+     * Opens journal for the network. Current network state is written to new snapshot and the network
+     * changes are journaled from then on.
+     *
+     * @param network the network
+     * @throws IOException if snapshot or journal can not be written
+     */
+    public void open(final ZigBeeNetwork network) throws IOException {
+        synchronized (this) {
+            if (this.network != null) {
+                throw new IllegalStateException("Network state journal already open.");
+            }
+            this.network = network;
+            journaledNodes.clear();
+            for (final ZigBeeEndpoint endpoint : network.getEndpointRegistry().getAll()) {
+                track(endpoint);
+            }
+            compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "NetworkStateJournalCompactor");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        compact();
+        // Listener registration is done outside of journal lock as network notifies listeners under its own lock.
+        network.addEndpointListenerListener(this);
+    }
+
+    /**
+     * Compacts journal to new snapshot. The journal lock is held only while marking the journal
+     * position and while carrying over the records appended during snapshot write.
+     *
+     * @throws IOException if snapshot or journal can not be written
+     */
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            final ZigBeeNetwork compactedNetwork;
+            final long compactedLength;
+            final int compactedRecords;
+            synchronized (this) {
+                if (network == null) {
+                    throw new IllegalStateException("Network state journal not open.");
+                }
+                compactedNetwork = network;
+                if (journal != null) {
+                    journal.flush();
+                }
+                compactedLength = journal != null ? journalFile.length() : 0;
+                compactedRecords = recordCount;
+            }
+
+            final File directory = snapshotFile.getParentFile();
+            if (directory != null && !directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Unable to create network state directory: " + directory);
+            }
+            final File temporaryFile = new File(directory, SNAPSHOT_FILE + ".tmp");
+            final FileOutputStream out = new FileOutputStream(temporaryFile);
+            try {
+                NetworkStateSnapshot.write(compactedNetwork, out);
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            replace(temporaryFile, snapshotFile);
+
+            synchronized (this) {
+                truncateJournal(compactedLength);
+                recordCount -= compactedRecords;
+            }
+            LOGGER.debug("Compacted network state journal to snapshot {}.", snapshotFile);
+        }
+    }
+
+    /**
+     * Replaces journal with new journal containing the records after the given journal length.
+     *
+     * @param compactedLength the journal length included in the snapshot
+     * @throws IOException if journal can not be written
+     */
+    private void truncateJournal(final long compactedLength) throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+        final File temporaryFile = new File(journalFile.getParentFile(), JOURNAL_FILE + ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temporaryFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            if (compactedLength > 0) {
+                final RandomAccessFile in = new RandomAccessFile(journalFile, "r");
+                try {
+                    in.seek(compactedLength);
+                    final byte[] buffer = new byte[4096];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+        } finally {
+            out.close();
+        }
+        replace(temporaryFile, journalFile);
+        journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, true)));
+    }
+
+    private static void replace(final File source, final File target) throws IOException {
+        Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Waits until scheduled background compaction has completed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized void awaitCompaction() throws InterruptedException {
+        while (compactionPending) {
+            wait();
+        }
+    }
+
+    /**
+     * Compacts and closes the journal.
+     */
+    public void close() {
+        final ZigBeeNetwork journaledNetwork;
+        final ExecutorService journalCompactor;
+        synchronized (this) {
+            journaledNetwork = network;
+            journalCompactor = compactor;
+            if (journaledNetwork == null) {
+                return;
+            }
+            journalCompactor.shutdown();
+        }
+        journaledNetwork.removeEndpointListener(this);
+        try {
+            journalCompactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            compact();
+        } catch (final IOException e) {
+            LOGGER.error("Error compacting network state journal on close.", e);
+        }
+        synchronized (this) {
+            try {
+                journal.close();
+            } catch (final IOException e) {
+                LOGGER.error("Error closing network state journal.", e);
+            }
+            journal = null;
+            network = null;
+            compactor = null;
+            compactionPending = false;
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized void endpointAdded(final ZigBeeEndpoint endpoint) {
+        journal(endpoint);
+    }
+
+    /**
+     * Tracks the restored endpoints and compacts journal once instead of appending a record per endpoint.
+     */
+    @Override
+    public synchronized void endpointsRestored(final List<ZigBeeEndpoint> endpoints) {
+        if (journal == null) {
+            return;
+        }
+        for (final ZigBeeEndpoint endpoint : endpoints) {
+            track(endpoint);
+        }
+        scheduleCompaction();
+    }
+
+    @Override
+    public synchronized void endpointUpdated(final ZigBeeEndpoint endpoint) {
+        journal(endpoint);
+    }
+
+    @Override
+    public synchronized void endpointRemoved(final ZigBeeEndpoint endpoint) {
+        if (journal == null) {
+            return;
+        }
+        final long ieeeAddress = endpoint.getNode().getIeeeAddressLong();
+        final JournaledNode node = journaledNodes.get(ieeeAddress);
+        if (node == null || node.endpoints.remove(endpoint.getEndPointAddress()) == null) {
+            return;
+        }
+        try {
+            beginRecord();
+            record.writeLong(ieeeAddress);
+            record.writeByte(endpoint.getEndPointAddress());
+            appendRecord(ENDPOINT_REMOVED);
+            if (node.endpoints.isEmpty()) {
+                journaledNodes.remove(ieeeAddress);
+                beginRecord();
+                record.writeLong(ieeeAddress);
+                appendRecord(NODE_REMOVED);
+            }
+            scheduleCompactionIfNeeded();
+        } catch (final IOException e) {
+            LOGGER.error("Error journaling removal of endpoint " + endpoint.getEndpointId(), e);
+        }
+    }
+
+    /**
+     * Appends the records needed to bring journaled state of the endpoint up to date.
+     *
+     * @param endpoint the endpoint
+     */
+    private void journal(final ZigBeeEndpoint endpoint) {
+        if (journal == null) {
+            return;
+        }
+        final long ieeeAddress = endpoint.getNode().getIeeeAddressLong();
+        final int networkAddress = endpoint.getNode().getNetworkAddress();
+        final EndpointDescriptor descriptor = NetworkStateImage.descriptorOf(endpoint);
+        try {
+            JournaledNode node = journaledNodes.get(ieeeAddress);
+            if (node == null) {
+                node = new JournaledNode(networkAddress);
+                journaledNodes.put(ieeeAddress, node);
+                beginRecord();
+                NetworkStateSnapshot.writeNode(record, ieeeAddress, networkAddress,
+                        NetworkStateImage.panOf(endpoint.getNode()));
+                appendRecord(NODE_ADDED);
+            } else if (node.networkAddress != networkAddress) {
+                node.networkAddress = networkAddress;
+                beginRecord();
+                record.writeLong(ieeeAddress);
+                record.writeShort(networkAddress);
+                appendRecord(ADDRESS_CHANGED);
+            }
+            // Descriptors are interned so identity comparison detects changes.
+            if (node.endpoints.put(endpoint.getEndPointAddress(), descriptor) != descriptor) {
+                beginRecord();
+                record.writeLong(ieeeAddress);
+                NetworkStateSnapshot.writeEndpoint(record, endpoint.getEndPointAddress(), descriptor);
+                appendRecord(ENDPOINT_UPDATED);
+            }
+            scheduleCompactionIfNeeded();
+        } catch (final IOException e) {
+            LOGGER.error("Error journaling endpoint " + endpoint.getEndpointId(), e);
+        }
+    }
+
+    private void track(final ZigBeeEndpoint endpoint) {
+        final long ieeeAddress = endpoint.getNode().getIeeeAddressLong();
+        JournaledNode node = journaledNodes.get(ieeeAddress);
+        if (node == null) {
+            node = new JournaledNode(endpoint.getNode().getNetworkAddress());
+            journaledNodes.put(ieeeAddress, node);
+        }
+        node.endpoints.put(endpoint.getEndPointAddress(), NetworkStateImage.descriptorOf(endpoint));
+    }
+
+    private void beginRecord() {
+        recordBuffer.reset();
+    }
+
+    private void appendRecord(final int type) throws IOException {
+        record.flush();
+        final byte[] payload = recordBuffer.toByteArray();
+        crc.reset();
+        crc.update(type);
+        crc.update(payload, 0, payload.length);
+        journal.writeByte(type);
+        journal.writeShort(payload.length);
+        journal.write(payload);
+        journal.writeInt((int) crc.getValue());
+        journal.flush();
+        recordCount++;
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        if (recordCount >= compactionThreshold) {
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * Schedules background compaction unless one is already pending.
+     */
+    private void scheduleCompaction() {
+        if (compactionPending || compactor == null || compactor.isShutdown()) {
+            return;
+        }
+        compactionPending = true;
+        compactor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compact();
+                } catch (final IllegalStateException e) {
+                    LOGGER.debug("Network state journal closed before compaction.");
+                } catch (final IOException e) {
+                    LOGGER.error("Error compacting network state journal.", e);
+                }
+                synchronized (NetworkStateJournal.this) {
+                    compactionPending = false;
+                    NetworkStateJournal.this.notifyAll();
+                    scheduleCompactionIfNeeded();
+                }
+            }
+        });
+    }
+
+    /**
+     * Replays journal records to image.
+     *
+     * @param image the image
+     * @return the number of records replayed
+     * @throws IOException if journal can not be read
+     */
+    private int replay(final NetworkStateImage image) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+        int replayed = 0;
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a network state journal: " + journalFile);
+            }
+            final int version = in.readUnsignedShort();
+            if (version > VERSION) {
+                throw new IOException("Unsupported network state journal version: " + version);
+            }
+            while (true) {
+                final int type = in.read();
+                if (type == -1) {
+                    break;
+                }
+                final byte[] payload = new byte[in.readUnsignedShort()];
+                in.readFully(payload);
+                final int checksum = in.readInt();
+                crc.reset();
+                crc.update(type);
+                crc.update(payload, 0, payload.length);
+                if ((int) crc.getValue() != checksum) {
+                    LOGGER.warn("Network state journal record {} is corrupted, ignoring rest of journal.", replayed);
+                    break;
+                }
+                apply(image, type, new DataInputStream(new ByteArrayInputStream(payload)));
+                replayed++;
+            }
+        } catch (final EOFException e) {
+            LOGGER.warn("Network state journal ends with truncated record, ignoring it.");
+        } finally {
+            in.close();
+        }
+        return replayed;
+    }
+
+    private static void apply(final NetworkStateImage image, final int type, final DataInputStream in)
+            throws IOException {
+        final long ieeeAddress = in.readLong();
+        switch (type) {
+            case NODE_ADDED:
+                image.addNode(ieeeAddress, in.readUnsignedShort(), in.readShort());
+                break;
+            case NODE_REMOVED:
+                image.removeNode(ieeeAddress);
+                break;
+            case ADDRESS_CHANGED:
+                image.changeNetworkAddress(ieeeAddress, in.readUnsignedShort());
+                break;
+            case ENDPOINT_UPDATED:
+                final short endpoint = (short) in.readUnsignedByte();
+                image.putEndpoint(ieeeAddress, endpoint, NetworkStateSnapshot.readDescriptor(in));
+                break;
+            case ENDPOINT_REMOVED:
+                image.removeEndpoint(ieeeAddress, (short) in.readUnsignedByte());
+                break;
+            default:
+                LOGGER.warn("Unknown network state journal record type {}, skipping.", type);
+        }
+    }
+
+    /**
+     * Journaled state of a node.
+     */
+    private static class JournaledNode {
+        private int networkAddress;
+        private final Map<Short, EndpointDescriptor> endpoints = new HashMap<Short, EndpointDescriptor>();
+
+        private JournaledNode(final int networkAddress) {
+            this.networkAddress = networkAddress;
+        }
+    }
+}
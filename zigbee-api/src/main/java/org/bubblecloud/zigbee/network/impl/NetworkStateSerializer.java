@@ -17,18 +17,18 @@ package org.bubblecloud.zigbee.network.impl;
 
 import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
 import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
-import org.bubblecloud.zigbee.network.ZigBeeNode;
 import org.codehaus.jackson.map.ObjectMapper;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 /**
  * NetworkStateSerializer serializes and deserializes the ZigBeeNetworkState.
  * @author <a href="mailto:tommi.s.e.laukkanen@gmail.com">Tommi S.E. Laukkanen</a>
+ * @deprecated use {@link NetworkStateSnapshot} and {@link NetworkStateJournal}
  */
+@Deprecated
 public class NetworkStateSerializer {
 
     /**
@@ -40,14 +40,8 @@ public class NetworkStateSerializer {
         objectMapper.enableDefaultTyping();
         objectMapper.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL);
         try {
-            final HashMap<ZigBeeNode, HashMap<Integer, ZigBeeEndpoint>> devices = new HashMap(zigBeeNetwork.getDevices());
-
-            final List<ZigBeeEndpoint> endpoints = new ArrayList<ZigBeeEndpoint>();
-            for (final ZigBeeNode node : devices.keySet()) {
-                for (final ZigBeeEndpoint endpoint : devices.get(node).values()) {
-                    endpoints.add(endpoint);
-                }
-            }
+            final List<ZigBeeEndpoint> endpoints = new ArrayList<ZigBeeEndpoint>(
+                    zigBeeNetwork.getEndpointRegistry().getAll());
 
             return objectMapper.writeValueAsString(endpoints);
         } catch (final IOException e) {
@@ -72,12 +66,12 @@ public class NetworkStateSerializer {
             throw new RuntimeException("Error serializing network state.", e);
         }
         for (final ZigBeeEndpoint endpoint : endpoints) {
-            if (zigBeeNetwork.getNode(endpoint.getNode().getIeeeAddress()) == null) {
+            if (zigBeeNetwork.getNodeByIeeeAddress(endpoint.getNode().getIeeeAddressLong()) == null) {
                 zigBeeNetwork.addNode((ZigBeeNodeImpl) endpoint.getNode());
             }
             ((ZigBeeEndpointImpl) endpoint).setNetworkManager(zigBeeNetworkManager);
-            zigBeeNetwork.addEndpoint(endpoint);
         }
+        zigBeeNetwork.addEndpoints(endpoints);
     }
 
 }
@@ -0,0 +1,271 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.impl;
+
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
+import org.bubblecloud.zigbee.network.model.EndpointDescriptor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot format of the network state. The snapshot begins with magic number and schema version
+ * and ends with CRC32 of the preceding bytes. Multi-byte values are big endian. Snapshots are written
+ * node by node so that the whole state never needs to be held in memory. Restore stages the nodes it reads
+ * and applies them to network only after the checksum has been verified.
+ * <pre>
+ * snapshot := MAGIC:int32 VERSION:uint16 timestamp:int64 (NODE:uint8 node)* END:uint8 crc:int32
+ * node     := ieee:int64 networkAddress:uint16 pan:int16 endpointCount:uint8 endpoint*
+ * endpoint := endpoint:uint8 profile:uint16 deviceType:uint16 deviceVersion:int8
+ *             inputCount:uint8 input:uint16* outputCount:uint8 output:uint16*
+ * </pre>
+ * Version 1 snapshots had node count after the timestamp instead of node markers and are still readable.
+ */
+public final class NetworkStateSnapshot {
+    /**
+     * The snapshot magic number 'ZBSN'.
+     */
+    public static final int MAGIC = 0x5A42534E;
+    /**
+     * The current schema version.
+     */
+    public static final int VERSION = 2;
+
+    private static final int NODE = 1;
+    private static final int END = 0;
+
+    private NetworkStateSnapshot() {
+    }
+
+    /**
+     * Writes snapshot of the network. The stream is flushed but not closed.
+     *
+     * @param network the network
+     * @param out the output stream
+     * @throws IOException if I/O error occurs
+     */
+    public static void write(final ZigBeeNetwork network, final OutputStream out) throws IOException {
+        write(network, out, NetworkStateFilter.ALL);
+    }
+
+    /**
+     * Writes snapshot of the nodes accepted by filter. The stream is flushed but not closed.
+     *
+     * @param network the network
+     * @param out the output stream
+     * @param filter the node filter
+     * @return the number of endpoints written
+     * @throws IOException if I/O error occurs
+     */
+    public static int write(final ZigBeeNetwork network, final OutputStream out, final NetworkStateFilter filter)
+            throws IOException {
+        final BufferedOutputStream buffered = new BufferedOutputStream(out);
+        final CheckedOutputStream checked = new CheckedOutputStream(buffered, new CRC32());
+        final DataOutputStream data = new DataOutputStream(checked);
+
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeLong(System.currentTimeMillis());
+        int written = 0;
+        for (final ZigBeeNodeImpl node : network.getNodes()) {
+            final List<ZigBeeEndpoint> endpoints = network.getEndPoints(node);
+            if (endpoints.isEmpty() || !filter.accept(node)) {
+                continue;
+            }
+            data.writeByte(NODE);
+            writeNode(data, node.getIeeeAddressLong(), node.getNetworkAddress(), node.getPan());
+            data.writeByte(endpoints.size());
+            for (final ZigBeeEndpoint endpoint : endpoints) {
+                writeEndpoint(data, endpoint.getEndPointAddress(), NetworkStateImage.descriptorOf(endpoint));
+            }
+            written += endpoints.size();
+        }
+        data.writeByte(END);
+        data.flush();
+
+        new DataOutputStream(buffered).writeInt((int) checked.getChecksum().getValue());
+        buffered.flush();
+        return written;
+    }
+
+    /**
+     * Reads snapshot to the image. The stream is not closed.
+     *
+     * @param in the input stream
+     * @param image the network state image
+     * @return the time the snapshot was written in milliseconds since epoch
+     * @throws IOException if I/O error occurs, snapshot is corrupted or of unsupported version
+     */
+    public static long read(final InputStream in, final NetworkStateImage image) throws IOException {
+        return read(in, new NodeHandler() {
+            @Override
+            public void read(final ZigBeeNodeImpl node, final List<ZigBeeEndpointImpl> endpoints) {
+                image.addNode(node.getIeeeAddressLong(), node.getNetworkAddress(), node.getPan());
+                for (final ZigBeeEndpointImpl endpoint : endpoints) {
+                    image.putEndpoint(node.getIeeeAddressLong(), endpoint.getEndPointAddress(),
+                            endpoint.getDescriptor());
+                }
+            }
+        });
+    }
+
+    /**
+     * Restores the nodes accepted by filter from snapshot to network. The snapshot is read and its checksum
+     * verified before anything is added to network, so network is left unchanged if snapshot is truncated or
+     * corrupted. Endpoints are added in single bulk operation. Nodes and endpoints already present in network
+     * are left as is. The stream is not closed.
+     *
+     * @param in the input stream
+     * @param networkManager the network manager to assign to restored endpoints
+     * @param network the network
+     * @param filter the node filter
+     * @return the number of endpoints restored
+     * @throws IOException if I/O error occurs, snapshot is corrupted or of unsupported version
+     */
+    public static int restore(final InputStream in, final ZigBeeNetworkManager networkManager,
+                              final ZigBeeNetwork network, final NetworkStateFilter filter) throws IOException {
+        final List<ZigBeeNodeImpl> nodes = new ArrayList<ZigBeeNodeImpl>();
+        final List<ZigBeeEndpointImpl> endpoints = new ArrayList<ZigBeeEndpointImpl>();
+        read(in, new NodeHandler() {
+            @Override
+            public void read(final ZigBeeNodeImpl node, final List<ZigBeeEndpointImpl> nodeEndpoints) {
+                if (filter.accept(node)) {
+                    nodes.add(node);
+                    endpoints.addAll(nodeEndpoints);
+                }
+            }
+        });
+
+        for (final ZigBeeNodeImpl node : nodes) {
+            if (network.getNodeByIeeeAddress(node.getIeeeAddressLong()) == null) {
+                network.addNode(node);
+            }
+        }
+        for (final ZigBeeEndpointImpl endpoint : endpoints) {
+            endpoint.setNetworkManager(networkManager);
+        }
+        return network.addEndpoints(endpoints).size();
+    }
+
+    private static long read(final InputStream in, final NodeHandler handler) throws IOException {
+        final BufferedInputStream buffered = new BufferedInputStream(in);
+        final CheckedInputStream checked = new CheckedInputStream(buffered, new CRC32());
+        final DataInputStream data = new DataInputStream(checked);
+
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a network state snapshot.");
+        }
+        final int version = data.readUnsignedShort();
+        if (version > VERSION) {
+            throw new IOException("Unsupported network state snapshot version: " + version);
+        }
+        final long timestamp = data.readLong();
+        if (version == 1) {
+            final int nodeCount = data.readInt();
+            for (int i = 0; i < nodeCount; i++) {
+                readNode(data, handler);
+            }
+        } else {
+            int marker;
+            while ((marker = data.readUnsignedByte()) == NODE) {
+                readNode(data, handler);
+            }
+            if (marker != END) {
+                throw new IOException("Invalid network state snapshot node marker: " + marker);
+            }
+        }
+
+        final int expected = (int) checked.getChecksum().getValue();
+        if (new DataInputStream(buffered).readInt() != expected) {
+            throw new IOException("Network state snapshot checksum mismatch.");
+        }
+        return timestamp;
+    }
+
+    private static void readNode(final DataInputStream data, final NodeHandler handler) throws IOException {
+        final long ieeeAddress = data.readLong();
+        final int networkAddress = data.readUnsignedShort();
+        final ZigBeeNodeImpl node = new ZigBeeNodeImpl(networkAddress, ieeeAddress, data.readShort());
+        final int endpointCount = data.readUnsignedByte();
+        final List<ZigBeeEndpointImpl> endpoints = new ArrayList<ZigBeeEndpointImpl>(endpointCount);
+        for (int i = 0; i < endpointCount; i++) {
+            final short endpoint = (short) data.readUnsignedByte();
+            final EndpointDescriptor descriptor = readDescriptor(data);
+            endpoints.add(new ZigBeeEndpointImpl(node, endpoint, descriptor));
+        }
+        handler.read(node, endpoints);
+    }
+
+    static void writeNode(final DataOutput out, final long ieeeAddress, final int networkAddress, final short pan)
+            throws IOException {
+        out.writeLong(ieeeAddress);
+        out.writeShort(networkAddress);
+        out.writeShort(pan);
+    }
+
+    static void writeEndpoint(final DataOutput out, final short endpoint, final EndpointDescriptor descriptor)
+            throws IOException {
+        out.writeByte(endpoint);
+        out.writeShort(descriptor.getProfileId());
+        out.writeShort(descriptor.getDeviceTypeId());
+        out.writeByte(descriptor.getDeviceVersion());
+        out.writeByte(descriptor.getInputClusterCount());
+        for (int i = 0; i < descriptor.getInputClusterCount(); i++) {
+            out.writeShort(descriptor.getInputCluster(i));
+        }
+        out.writeByte(descriptor.getOutputClusterCount());
+        for (int i = 0; i < descriptor.getOutputClusterCount(); i++) {
+            out.writeShort(descriptor.getOutputCluster(i));
+        }
+    }
+
+    static EndpointDescriptor readDescriptor(final DataInput in) throws IOException {
+        final int profileId = in.readUnsignedShort();
+        final int deviceTypeId = in.readUnsignedShort();
+        final byte deviceVersion = in.readByte();
+        final int[] inputClusters = readClusters(in);
+        final int[] outputClusters = readClusters(in);
+        return EndpointDescriptor.intern(profileId, deviceTypeId, deviceVersion, inputClusters, outputClusters);
+    }
+
+    private static int[] readClusters(final DataInput in) throws IOException {
+        final int[] clusters = new int[in.readUnsignedByte()];
+        for (int i = 0; i < clusters.length; i++) {
+            clusters[i] = in.readUnsignedShort();
+        }
+        return clusters;
+    }
+
+    /**
+     * Handler of nodes as they are read from snapshot.
+     */
+    private interface NodeHandler {
+        void read(ZigBeeNodeImpl node, List<ZigBeeEndpointImpl> endpoints);
+    }
+}
@@ -30,6 +30,7 @@ import org.bubblecloud.zigbee.network.packet.af.AF_INCOMING_MSG;
 import org.bubblecloud.zigbee.network.packet.zdo.*;
 import org.bubblecloud.zigbee.util.Integers;
 import org.bubblecloud.zigbee.util.ThreadUtils;
+import org.bubblecloud.zigbee.network.model.EndpointDescriptor;
 import org.bubblecloud.zigbee.network.model.IEEEAddress;
 import org.codehaus.jackson.annotate.JsonIgnore;
 import org.slf4j.Logger;
@@ -66,34 +67,19 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
     private ZigBeeNode node;
 
     /**
-     * The device ID.
+     * The simple descriptor shared by endpoints with identical descriptor. Setters replace it with
+     * descriptor which is not interned and it is interned on first read once all fields are set.
      */
-    private int deviceTypeId;
-    /**
-     * The profile ID.
-     */
-    private int profileId;
-    /**
-     * The device version.
-     */
-    private byte deviceVersion;
+    private volatile EndpointDescriptor descriptor = EndpointDescriptor.EMPTY;
     /**
      * The end point.
      */
     private short endPointAddress;
-    /**
-     * Input clusters.
-     */
-    private int[] inputClusters;
-    /**
-     * Output clusters.
-     */
-    private int[] outputClusters;
 
     /**
-     * Aggregate EndPoint ID.
+     * Aggregate EndPoint ID built on first access.
      */
-    private String endpointId = null;
+    private volatile String endpointId = null;
 
     /**
      * The bound clusters.
@@ -113,6 +99,13 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
     @JsonIgnore
     private final HashSet<ApplicationFrameworkMessageConsumer> consumers = new HashSet<ApplicationFrameworkMessageConsumer>();
 
+    /**
+     * Guards the request-response exchange. Responses are matched by cluster only, so a single request may
+     * be outstanding per endpoint while requests to other endpoints proceed in parallel.
+     */
+    @JsonIgnore
+    private final Object invokeLock = new Object();
+
     /**
      * Constructor which sets Endpoint base information.
      * @param node the node
@@ -125,14 +118,20 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
      */
     public ZigBeeEndpointImpl(final ZigBeeNode node, int profileId, int deviceId, byte deviceVersion, short endPoint, int[] inputs, int[] outputs) {
         this.node = node;
-        this.deviceTypeId = deviceId;
-        this.deviceVersion = deviceVersion;
         this.endPointAddress = endPoint;
-        this.inputClusters = inputs;
-        this.outputClusters = outputs;
-        this.profileId = profileId;
+        this.descriptor = EndpointDescriptor.intern(profileId, deviceId, deviceVersion, inputs, outputs);
+    }
 
-        buildEndpointId();
+    /**
+     * Constructor which sets Endpoint base information from simple descriptor.
+     * @param node the node
+     * @param endPoint the endpoint
+     * @param descriptor the simple descriptor
+     */
+    public ZigBeeEndpointImpl(final ZigBeeNode node, final short endPoint, final EndpointDescriptor descriptor) {
+        this.node = node;
+        this.endPointAddress = endPoint;
+        this.descriptor = descriptor.intern();
     }
 
     /**
@@ -151,33 +150,20 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
 
         final ZDO_SIMPLE_DESC_RSP result = doRetrieveSimpleDescription(n);
         short[] ins = result.getInputClustersList();
-        inputClusters = new int[ins.length];
+        final int[] inputClusters = new int[ins.length];
         for (int i = 0; i < ins.length; i++) {
             inputClusters[i] = ins[i];
         }
-        Arrays.sort(inputClusters);
         short[] outs = result.getOutputClustersList();
-        outputClusters = new int[outs.length];
+        final int[] outputClusters = new int[outs.length];
         for (int i = 0; i < outs.length; i++) {
             outputClusters[i] = outs[i];
         }
-        Arrays.sort(outputClusters);
 
-        deviceTypeId = (int) result.getDeviceId() & 0xFFFF;
-        profileId = (int) result.getProfileId() & 0xFFFF;
-        deviceVersion = result.getDeviceVersion();
+        descriptor = EndpointDescriptor.intern((int) result.getProfileId() & 0xFFFF,
+                (int) result.getDeviceId() & 0xFFFF, result.getDeviceVersion(), inputClusters, outputClusters);
 
         node = n;
-
-        buildEndpointId();
-    }
-
-    private void buildEndpointId() {
-        final StringBuffer sb_uuid = new StringBuffer()
-                .append(node.getIeeeAddress())
-                .append("/")
-                .append(endPointAddress);
-        endpointId = sb_uuid.toString();
     }
 
     /**
@@ -227,15 +213,31 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
         return result;
     }
 
+    /**
+     * @return the interned simple descriptor of the endpoint
+     */
+    @JsonIgnore
+    public EndpointDescriptor getDescriptor() {
+        EndpointDescriptor current = descriptor;
+        if (!current.isInterned()) {
+            current = current.intern();
+            descriptor = current;
+        }
+        return current;
+    }
+
     public int getDeviceTypeId() {
-        return deviceTypeId;
+        return getDescriptor().getDeviceTypeId();
     }
 
     public short getDeviceVersion() {
-        return deviceVersion;
+        return getDescriptor().getDeviceVersion();
     }
 
     public String getEndpointId() {
+        if (endpointId == null) {
+            endpointId = node.getIeeeAddress() + "/" + endPointAddress;
+        }
         return endpointId;
     }
 
@@ -256,15 +258,15 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
     }
 
     public int[] getInputClusters() {
-        return inputClusters;
+        return getDescriptor().getInputClusters();
     }
 
     public int[] getOutputClusters() {
-        return outputClusters;
+        return getDescriptor().getOutputClusters();
     }
 
     public int getProfileId() {
-        return profileId;
+        return getDescriptor().getProfileId();
     }
 
     public ZigBeeNode getNode() {
@@ -272,11 +274,11 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
     }
 
     public void setDeviceTypeId(int deviceTypeId) {
-        this.deviceTypeId = deviceTypeId;
+        descriptor = descriptor.withDeviceTypeId(deviceTypeId);
     }
 
     public void setDeviceVersion(byte deviceVersion) {
-        this.deviceVersion = deviceVersion;
+        descriptor = descriptor.withDeviceVersion(deviceVersion);
     }
 
     public void setEndPointAddress(short endPointAddress) {
@@ -288,7 +290,7 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
     }
 
     public void setInputClusters(int[] inputClusters) {
-        this.inputClusters = inputClusters;
+        descriptor = descriptor.withInputClusters(inputClusters);
     }
 
     public void setNetworkManager(ZigBeeNetworkManager networkManager) {
@@ -296,15 +298,15 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
     }
 
     public void setOutputClusters(int[] outputClusters) {
-        this.outputClusters = outputClusters;
+        descriptor = descriptor.withOutputClusters(outputClusters);
     }
 
     public void setProfileId(int profileId) {
-        this.profileId = profileId;
+        descriptor = descriptor.withProfileId(profileId);
     }
 
     public void send(ClusterMessage input) throws ZigBeeNetworkManagerException {
-        synchronized (networkManager) {
+        synchronized (invokeLock) {
             final ApplicationFrameworkLayer af = ApplicationFrameworkLayer.getAFLayer(networkManager);
             final short sender = af.getSendingEndpoint(this, input);
             final byte transaction = af.getNextTransactionId(sender);
@@ -317,15 +319,17 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
             ));
 
             if (response == null) {
+                af.getZigBeeNetwork().notifyNodeSendFailed(node);
                 throw new ZigBeeNetworkManagerException("Unable to send cluster on the ZigBee network due to general error");
             } else if (response.getStatus() != 0) {
+                af.getZigBeeNetwork().notifyNodeSendFailed(node);
                 throw new ZigBeeNetworkManagerException("Unable to send cluster on the ZigBee network:" + response.getErrorMsg());
             }
         }
     }
 
     public ClusterMessage invoke(ClusterMessage input) throws ZigBeeNetworkManagerException {
-        synchronized (networkManager) {
+        synchronized (invokeLock) {
             final ApplicationFrameworkLayer af = ApplicationFrameworkLayer.getAFLayer(networkManager);
             final short sender = af.getSendingEndpoint(this, input);
             /*
@@ -359,9 +363,11 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
 
             if (response == null) {
                 m_removeAFMessageListener();
+                af.getZigBeeNetwork().notifyNodeSendFailed(node);
                 throw new ZigBeeNetworkManagerException("Unable to send cluster on the ZigBee network due to general error - is the device sleeping?");
             } else if (response.getStatus() != 0) {
                 m_removeAFMessageListener();
+                af.getZigBeeNetwork().notifyNodeSendFailed(node);
                 final ResponseStatus responseStatus = ResponseStatus.getStatus(Integers.getByteAsInteger(response.getStatus(), 0));
 
                 /*if (responseStatus == ResponseStatus.Z_MAC_NO_ACK)  {
@@ -385,17 +391,11 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
     }
 
     public boolean providesInputCluster(int id) {
-        for (int i = 0; i < inputClusters.length; i++) {
-            if (inputClusters[i] == id) return true;
-        }
-        return false;
+        return getDescriptor().providesInputCluster(id);
     }
 
     public boolean providesOutputCluster(int id) {
-        for (int i = 0; i < outputClusters.length; i++) {
-            if (outputClusters[i] == id) return true;
-        }
-        return false;
+        return getDescriptor().providesOutputCluster(id);
     }
 
     public boolean bindTo(ZigBeeEndpoint endpoint, int clusterId) throws ZigBeeNetworkManagerException {
@@ -405,8 +405,8 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
 
         final ZDO_BIND_RSP response = networkManager.sendZDOBind(new ZDO_BIND_REQ(
                 (short) getNode().getNetworkAddress(), (short) clusterId,
-                IEEEAddress.fromColonNotation(getNode().getIeeeAddress()), (byte) endPointAddress,
-                IEEEAddress.fromColonNotation(endpoint.getNode().getIeeeAddress()), (byte) endpoint.getEndPointAddress()
+                getNode().getIeeeAddressLong(), (byte) endPointAddress,
+                endpoint.getNode().getIeeeAddressLong(), (byte) endpoint.getEndPointAddress()
         ));
         if (response == null || response.Status != 0) {
             logger.warn("ZDO_BIND_REQ failed due to {}, unable to bind from endpoint {} to {} for cluster {}", new Object[]{
@@ -425,8 +425,8 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
 
         final ZDO_UNBIND_RSP response = networkManager.sendZDOUnbind(new ZDO_UNBIND_REQ(
                 (short) getNode().getNetworkAddress(), (short) clusterId,
-                IEEEAddress.fromColonNotation(getNode().getIeeeAddress()), (byte) endPointAddress,
-                IEEEAddress.fromColonNotation(endpoint.getNode().getIeeeAddress()), (byte) endpoint.getDeviceTypeId()
+                getNode().getIeeeAddressLong(), (byte) endPointAddress,
+                endpoint.getNode().getIeeeAddressLong(), (byte) endpoint.getEndPointAddress()
         ));
         if (response == null || response.Status != 0) {
             logger.warn("ZDO_BIND_REQ failed, unable to un-bind from endpoint {} to {} for cluster {}", new Object[]{
@@ -446,13 +446,15 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
 
         short dstEP = ApplicationFrameworkLayer.getAFLayer(networkManager).getSendingEndpoint(this, clusterId);
 
-        logger.info("Binding from endpoint {} to {} for cluster {}", new Object[]{
-                getEndpointId(), IEEEAddress.toString(networkManager.getIEEEAddress()) + "/" + dstEP, new Integer(clusterId)
-        });
+        if (logger.isInfoEnabled()) {
+            logger.info("Binding from endpoint {} to {} for cluster {}", new Object[]{
+                    getEndpointId(), IEEEAddress.toString(networkManager.getIEEEAddress()) + "/" + dstEP, new Integer(clusterId)
+            });
+        }
 
         final ZDO_BIND_RSP response = networkManager.sendZDOBind(new ZDO_BIND_REQ(
                 (short) getNode().getNetworkAddress(), (short) clusterId,
-                IEEEAddress.fromColonNotation(getNode().getIeeeAddress()), (byte) endPointAddress,
+                getNode().getIeeeAddressLong(), (byte) endPointAddress,
                 networkManager.getIEEEAddress(), (byte) dstEP
         ));
         if (response == null || response.Status != 0) {
@@ -478,7 +480,7 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
 
         final ZDO_UNBIND_RSP response = networkManager.sendZDOUnbind(new ZDO_UNBIND_REQ(
                 (short) getNode().getNetworkAddress(), (short) clusterId,
-                IEEEAddress.fromColonNotation(getNode().getIeeeAddress()), (byte) endPointAddress,
+                getNode().getIeeeAddressLong(), (byte) endPointAddress,
                 networkManager.getIEEEAddress(), (byte) dstEP
         ));
         if (response == null || response.Status != 0) {
@@ -553,8 +555,11 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
 
     public void notify(AF_INCOMING_MSG msg) {
         //THINK Do the notification in a separated Thread?
-        //THINK Should consume messages only if they were sent from this device?!?!
         if (msg.isError()) return;
+        // Requests to different endpoints may be outstanding at once so only messages sent by this
+        // endpoint may be consumed.
+        if (msg.getSrcAddr() != node.getNetworkAddress()) return;
+        if ((msg.getSrcEndpoint() & 0xFF) != endPointAddress) return;
         logger.debug("AF_INCOMING_MSG arrived for {} message is {}", endpointId, msg);
         ArrayList<ApplicationFrameworkMessageConsumer> localConsumers = null;
         synchronized (consumers) {
@@ -570,8 +575,6 @@ public class ZigBeeEndpointImpl implements ZigBeeEndpoint, ApplicationFrameworkM
             }
         }
 
-        if (msg.getSrcAddr() != node.getNetworkAddress()) return;
-        if (msg.getSrcEndpoint() != endPointAddress) return;
         logger.debug("Notifying cluster listener for received by {}", endpointId);
         notifyClusterListener(new ClusterMessageImpl(msg.getData(), msg.getClusterId()));
     }
@@ -23,13 +23,18 @@
 package org.bubblecloud.zigbee.network.impl;
 
 import org.bubblecloud.zigbee.network.EndpointListener;
+import org.bubblecloud.zigbee.network.EndpointRestoreListener;
 import org.bubblecloud.zigbee.network.ZigBeeDiscoveryMonitor;
 import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
 import org.bubblecloud.zigbee.network.ZigBeeNode;
+import org.bubblecloud.zigbee.network.ZigBeeNodeFailureListener;
+import org.bubblecloud.zigbee.network.model.IEEEAddress;
+import org.bubblecloud.zigbee.network.topology.NetworkTopology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author <a href="mailto:stefano.lenzi@isti.cnr.it">Stefano "Kismet" Lenzi</a>
@@ -40,22 +45,48 @@ public class ZigBeeNetwork {
 
     private static final Logger logger = LoggerFactory.getLogger(ZigBeeNetwork.class);
 
-    private final Hashtable<String, ZigBeeNodeImpl> nodes = new Hashtable<String, ZigBeeNodeImpl>();
-    private final Hashtable<ZigBeeNode, HashMap<Integer, ZigBeeEndpoint>> devices =
-            new Hashtable<ZigBeeNode, HashMap<Integer, ZigBeeEndpoint>>();
-
-    private final HashMap<Integer, ArrayList<ZigBeeEndpoint>> profiles =
-            new HashMap<Integer, ArrayList<ZigBeeEndpoint>>();
+    private final Map<Long, ZigBeeNodeImpl> nodes = new ConcurrentHashMap<Long, ZigBeeNodeImpl>();
+    private final Map<Integer, Long> networkAddresses = new ConcurrentHashMap<Integer, Long>();
+    private final EndpointRegistry<ZigBeeEndpoint> endpoints = new EndpointRegistry<ZigBeeEndpoint>();
 
     private final List<ZigBeeDiscoveryMonitor> discoveryMonitors = new ArrayList<ZigBeeDiscoveryMonitor>();
 
     private final List<EndpointListener> endpointListeners = new ArrayList<EndpointListener>();
 
+    private final List<ZigBeeNodeFailureListener> nodeFailureListeners = new ArrayList<ZigBeeNodeFailureListener>();
+
+    private final NetworkTopology topology = new NetworkTopology();
+
     /**
-     * Gets Node, EndPoint map.
-     * @return
+     * Gets the live mesh topology model of the network.
+     * @return the network topology
      */
-    public Hashtable<ZigBeeNode, HashMap<Integer, ZigBeeEndpoint>> getDevices() {
+    public NetworkTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Gets the endpoint registry. Lookups are lock free and return snapshots which can be
+     * iterated without copying.
+     * @return the endpoint registry
+     */
+    public EndpointRegistry<ZigBeeEndpoint> getEndpointRegistry() {
+        return endpoints;
+    }
+
+    /**
+     * Gets Node, EndPoint map. The map is built from the registry on each call.
+     * @return the node endpoint map
+     */
+    public Map<ZigBeeNode, Map<Integer, ZigBeeEndpoint>> getDevices() {
+        final Map<ZigBeeNode, Map<Integer, ZigBeeEndpoint>> devices = new HashMap<ZigBeeNode, Map<Integer, ZigBeeEndpoint>>();
+        for (final ZigBeeNodeImpl node : nodes.values()) {
+            final Map<Integer, ZigBeeEndpoint> nodeEndpoints = new HashMap<Integer, ZigBeeEndpoint>();
+            for (final ZigBeeEndpoint endpoint : endpoints.getByIeeeAddress(node.getIeeeAddressLong())) {
+                nodeEndpoints.put((int) endpoint.getEndPointAddress(), endpoint);
+            }
+            devices.put(node, nodeEndpoints);
+        }
         return devices;
     }
 
@@ -71,29 +102,26 @@ public class ZigBeeNetwork {
      * @return
      */
     public synchronized boolean removeNode(ZigBeeNode node) {
-        final String ieee = node.getIeeeAddress();
+        final long ieee = node.getIeeeAddressLong();
 
         if (!nodes.containsKey(ieee)) {
             return false;
         }
-        HashMap<Integer, ZigBeeEndpoint> toRemove = devices.get(node);
-        if (toRemove != null) {
-            Iterator<ZigBeeEndpoint> it = toRemove.values().iterator();
-            while (it.hasNext()) {
-                final ZigBeeEndpoint device = it.next();
-                if (device != null) {
-                    notifyEndpointRemoved(device);
-                    it.remove();
-                    removeEndpointFromProfiles(device);
-                }
-            }
+        for (final ZigBeeEndpoint device : endpoints.getByIeeeAddress(ieee)) {
+            notifyEndpointRemoved(device);
+            endpoints.remove(device);
+        }
+        final ZigBeeNodeImpl removed = nodes.remove(ieee);
+        final Long owner = networkAddresses.get(removed.getNetworkAddress());
+        if (owner != null && owner == ieee) {
+            networkAddresses.remove(removed.getNetworkAddress());
         }
-        nodes.remove(ieee);
+        topology.removeNode(removed.getNetworkAddress());
         return true;
     }
 
     public synchronized boolean addNode(ZigBeeNodeImpl node) {
-        final String ieee = node.getIeeeAddress();
+        final long ieee = node.getIeeeAddressLong();
 
         if (nodes.containsKey(ieee)) {
             logger.debug("Node {} already present on the network", node);
@@ -102,7 +130,7 @@ public class ZigBeeNetwork {
 
         logger.debug("Adding node {} to the network", node);
         nodes.put(ieee, node);
-        devices.put(node, new HashMap<Integer, ZigBeeEndpoint>());
+        networkAddresses.put(node.getNetworkAddress(), ieee);
         return true;
     }
 
@@ -110,7 +138,7 @@ public class ZigBeeNetwork {
 
         notifyEndpointRemoved(endpoint);
 
-        final String ieee = endpoint.getNode().getIeeeAddress();
+        final long ieee = endpoint.getNode().getIeeeAddressLong();
 
         ZigBeeNode node = null;
         node = nodes.get(ieee);
@@ -119,16 +147,14 @@ public class ZigBeeNetwork {
             return false;
         }
 
-        final HashMap<Integer, ZigBeeEndpoint> endPoints = devices.get(node);
-        endPoints.remove(endpoint.getEndPointAddress());
-        removeEndpointFromProfiles(endpoint);
+        endpoints.remove(endpoint);
 
         return true;
     }
 
     public synchronized boolean addEndpoint(ZigBeeEndpoint endpoint) {
         final ZigBeeNode deviceNode = endpoint.getNode();
-        final String ieee = deviceNode.getIeeeAddress();
+        final long ieee = deviceNode.getIeeeAddressLong();
         final short endPoint = endpoint.getEndPointAddress();
         logger.trace("Adding device {} on node {} / end point {}.", endpoint.getDeviceTypeId(),
                 endpoint.getNode(), endPoint);
@@ -141,79 +167,173 @@ public class ZigBeeNetwork {
             return false;
         }
 
-        HashMap<Integer, ZigBeeEndpoint> endPoints = devices.get(node);
-        if (endPoints.containsKey(endPoint)) {
+        if (endpoints.get(ieee, endPoint) != null) {
             logger.debug("Endpoint {} on node {} already registered", endPoint, node);
             return false;
         }
-        endPoints.put((int) endPoint, endpoint);
-
-        final int profileId = endpoint.getProfileId();
-        ArrayList<ZigBeeEndpoint> list;
-        list = profiles.get(profileId);
-        if (list == null) {
-            list = new ArrayList<ZigBeeEndpoint>();
-            profiles.put(profileId, list);
+        if (deviceNode != node && endpoint instanceof ZigBeeEndpointImpl) {
+            // All endpoints share the node instance so that address changes apply to all of them at once.
+            ((ZigBeeEndpointImpl) endpoint).setNode(node);
         }
-        list.add(endpoint);
+        endpoints.add(endpoint);
 
         notifyEndpointAdded(endpoint);
         return true;
     }
 
-    private synchronized boolean removeEndpointFromProfiles(final ZigBeeEndpoint device) {
-
-        final int profileId = device.getProfileId();
-        ArrayList<ZigBeeEndpoint> list = profiles.get(profileId);
-        if (list == null) {
-            logger.error("Trying to remove a device from a given profile but the profile doesn't exist");
-            //XXX It should never happen, we should throw an IllegalStateException
-            return true;
+    /**
+     * Adds endpoints in bulk. Nodes of the endpoints need to be added first. The endpoints are indexed
+     * in one pass and listeners are notified once outside of the network lock:
+     * {@link EndpointRestoreListener}s receive single event and other listeners an event per endpoint.
+     *
+     * @param newEndpoints the endpoints
+     * @return immutable list of the endpoints added
+     */
+    public List<ZigBeeEndpoint> addEndpoints(final Collection<? extends ZigBeeEndpoint> newEndpoints) {
+        final List<ZigBeeEndpoint> added;
+        synchronized (this) {
+            final List<ZigBeeEndpoint> candidates = new ArrayList<ZigBeeEndpoint>(newEndpoints.size());
+            for (final ZigBeeEndpoint endpoint : newEndpoints) {
+                final ZigBeeNode deviceNode = endpoint.getNode();
+                final ZigBeeNode node = nodes.get(deviceNode.getIeeeAddressLong());
+                if (node == null) {
+                    logger.debug("No node {} found", deviceNode);
+                    continue;
+                } else if (node.getNetworkAddress() != deviceNode.getNetworkAddress()) {
+                    logger.debug("Node ieee collision, stored is {} and new one is {}", node, deviceNode);
+                    continue;
+                }
+                if (deviceNode != node && endpoint instanceof ZigBeeEndpointImpl) {
+                    ((ZigBeeEndpointImpl) endpoint).setNode(node);
+                }
+                candidates.add(endpoint);
+            }
+            added = endpoints.addAll(candidates);
         }
-        //XXX It following method must always return true, otherwise we should throw an IllegalStateException
-        if (list.remove(device) == false) {
-            logger.error("Device to remove not found in the given profile");
+        logger.debug("Added {} endpoints in bulk.", added.size());
+        if (!added.isEmpty()) {
+            notifyEndpointsRestored(added);
         }
+        return added;
+    }
 
-        return true;
-
+    /**
+     * Gets endpoints implementing profile.
+     *
+     * @param profileId the profile ID
+     * @return immutable snapshot of the endpoints
+     */
+    public List<ZigBeeEndpoint> getEndpoints(int profileId) {
+        return endpoints.getByProfile(profileId);
     }
 
+    public boolean containsEndpoint(String ieee, short endPoint) {
+        return containsEndpoint(IEEEAddress.fromColonNotation(ieee), endPoint);
+    }
 
-    public synchronized Collection<ZigBeeEndpoint> getEndpoints(int profileId) {
-        final ArrayList<ZigBeeEndpoint> result = new ArrayList<ZigBeeEndpoint>();
-        final ArrayList<ZigBeeEndpoint> values = profiles.get(profileId);
-        if (values == null) {
-            logger.warn("No endpoints found implementing the profile={}", profileId);
-        } else {
-            logger.trace("We found {} implementing the profile={}", values.size(), profileId);
-            result.addAll(values);
-        }
-        return result;
+    public boolean containsEndpoint(long ieee, short endPoint) {
+        return endpoints.get(ieee, endPoint) != null;
     }
 
-    public boolean containsEndpoint(String ieee, short endPoint) {
-        final ZigBeeNode node = nodes.get(ieee);
-        if (node == null) {
-            return false;
-        }
-        /*
-		 * If node is not null it means that we found the same network node because
-		 * IEEE address must be unique for each network node
-		 */
-        final HashMap<Integer, ZigBeeEndpoint> endPoints = devices.get(node);
-        if (endPoints == null) {
-            return false;
-        }
-        return endPoints.containsKey(endPoint);
+    /**
+     * Gets the nodes. The returned collection is an unmodifiable live view which can be
+     * iterated while the network changes.
+     *
+     * @return the nodes
+     */
+    public Collection<ZigBeeNodeImpl> getNodes() {
+        return Collections.unmodifiableCollection(nodes.values());
     }
 
     public ZigBeeNodeImpl getNode(String ieeeAddress) {
+        return nodes.get(IEEEAddress.fromColonNotation(ieeeAddress));
+    }
+
+    /**
+     * Gets node by its IEEE address.
+     *
+     * @param ieeeAddress the 64-bit IEEE address
+     * @return the node or null if node is not known
+     */
+    public ZigBeeNodeImpl getNodeByIeeeAddress(long ieeeAddress) {
         return nodes.get(ieeeAddress);
     }
 
+    /**
+     * Gets node by its current network address.
+     *
+     * @param networkAddress the network address
+     * @return the node or null if no node currently has the network address
+     */
+    public ZigBeeNodeImpl getNode(int networkAddress) {
+        final Long ieee = networkAddresses.get(networkAddress);
+        return ieee == null ? null : nodes.get(ieee);
+    }
+
+    /**
+     * Rebinds node to new network address. Endpoints and device proxies refer to the same node
+     * instance and thereby follow the change without being re-inspected.
+     *
+     * @param ieeeAddress       the IEEE address of the node
+     * @param networkAddress    the new network address
+     * @return true if node is known and has at least one endpoint
+     */
+    public boolean changeNetworkAddress(final String ieeeAddress, final int networkAddress) {
+        return changeNetworkAddress(IEEEAddress.fromColonNotation(ieeeAddress), networkAddress);
+    }
+
+    /**
+     * Rebinds node to new network address.
+     *
+     * @param ieeeAddress       the 64-bit IEEE address of the node
+     * @param networkAddress    the new network address
+     * @return true if node is known and has at least one endpoint
+     * @see #changeNetworkAddress(String, int)
+     */
+    public boolean changeNetworkAddress(final long ieeeAddress, final int networkAddress) {
+        final List<ZigBeeEndpoint> nodeEndpoints;
+        synchronized (this) {
+            final ZigBeeNodeImpl node = nodes.get(ieeeAddress);
+            if (node == null) {
+                return false;
+            }
+            final int oldNetworkAddress = node.getNetworkAddress();
+            if (oldNetworkAddress == networkAddress) {
+                return !endpoints.getByIeeeAddress(ieeeAddress).isEmpty();
+            }
+            logger.info("Node {} changed network address to #{}", node, networkAddress);
+
+            final Long oldOwner = networkAddresses.get(oldNetworkAddress);
+            if (oldOwner != null && oldOwner == ieeeAddress) {
+                networkAddresses.remove(oldNetworkAddress);
+            }
+            final Long previousOwner = networkAddresses.put(networkAddress, ieeeAddress);
+            if (previousOwner != null && previousOwner != ieeeAddress) {
+                logger.debug("Network address #{} was reassigned from {}", networkAddress,
+                        IEEEAddress.toColonNotation(previousOwner));
+            }
+            node.setNetworkAddress(networkAddress);
+            endpoints.updateNetworkAddress(ieeeAddress);
+
+            topology.removeNode(oldNetworkAddress);
+            topology.updateNode(networkAddress, ieeeAddress);
+
+            nodeEndpoints = endpoints.getByIeeeAddress(ieeeAddress);
+        }
+        for (final ZigBeeEndpoint endpoint : nodeEndpoints) {
+            notifyEndpointUpdated(endpoint);
+        }
+        return !nodeEndpoints.isEmpty();
+    }
+
+    /**
+     * Gets endpoints of node.
+     *
+     * @param node the node
+     * @return immutable snapshot of the endpoints
+     */
     public List<ZigBeeEndpoint> getEndPoints(final ZigBeeNode node) {
-        return new ArrayList(devices.get(node).values());
+        return endpoints.getByIeeeAddress(node.getIeeeAddressLong());
     }
 
     /**
@@ -264,6 +384,41 @@ public class ZigBeeNetwork {
         }
     }
 
+    /**
+     * Adds node failure listener.
+     *
+     * @param nodeFailureListener the node failure listener
+     */
+    public void addNodeFailureListener(final ZigBeeNodeFailureListener nodeFailureListener) {
+        synchronized (nodeFailureListeners) {
+            nodeFailureListeners.add(nodeFailureListener);
+        }
+    }
+
+    /**
+     * Removes node failure listener.
+     *
+     * @param nodeFailureListener the node failure listener
+     */
+    public void removeNodeFailureListener(final ZigBeeNodeFailureListener nodeFailureListener) {
+        synchronized (nodeFailureListeners) {
+            nodeFailureListeners.remove(nodeFailureListener);
+        }
+    }
+
+    /**
+     * Notifies node failure listeners that sending to node has failed.
+     *
+     * @param node the node
+     */
+    public void notifyNodeSendFailed(final ZigBeeNode node) {
+        synchronized (nodeFailureListeners) {
+            for (final ZigBeeNodeFailureListener nodeFailureListener : nodeFailureListeners) {
+                nodeFailureListener.sendFailed(node);
+            }
+        }
+    }
+
     public void addEndpointListenerListener(final EndpointListener deviceListener) {
         synchronized (endpointListeners) {
             endpointListeners.add(deviceListener);
@@ -284,6 +439,20 @@ public class ZigBeeNetwork {
         }
     }
 
+    public void notifyEndpointsRestored(final List<ZigBeeEndpoint> restored) {
+        synchronized (endpointListeners) {
+            for (final EndpointListener endpointListener : endpointListeners) {
+                if (endpointListener instanceof EndpointRestoreListener) {
+                    ((EndpointRestoreListener) endpointListener).endpointsRestored(restored);
+                } else {
+                    for (final ZigBeeEndpoint endpoint : restored) {
+                        endpointListener.endpointAdded(endpoint);
+                    }
+                }
+            }
+        }
+    }
+
     public void notifyEndpointUpdated(final ZigBeeEndpoint endpoint) {
         synchronized (endpointListeners) {
             for (final EndpointListener endpointListener : endpointListeners) {
@@ -25,6 +25,7 @@ package org.bubblecloud.zigbee.network.impl;
 import org.bubblecloud.zigbee.network.ZigBeeNode;
 import org.bubblecloud.zigbee.network.packet.ZToolAddress64;
 import org.bubblecloud.zigbee.network.model.IEEEAddress;
+import org.codehaus.jackson.annotate.JsonIgnore;
 
 /**
  * @author <a href="mailto:stefano.lenzi@isti.cnr.it">Stefano "Kismet" Lenzi</a>
@@ -36,11 +37,11 @@ public class ZigBeeNodeImpl implements ZigBeeNode {
     /**
      * The network address.
      */
-    private int networkAddress;
+    private volatile int networkAddress;
     /**
      * The IEEE address.
      */
-    private String ieeeAddress;
+    private long ieeeAddress;
     /**
      * The pan.
      */
@@ -59,24 +60,35 @@ public class ZigBeeNodeImpl implements ZigBeeNode {
      * @since 0.6.0 - Revision 67
      */
     public ZigBeeNodeImpl(int nwk, String ieee, short pan) {
-        this.networkAddress = nwk;
-        this.ieeeAddress = ieee;
-        this.pan = pan;
-        IEEEAddress.fromColonNotation(ieee); //Only for checking the IEEE format
+        this(nwk, IEEEAddress.fromColonNotation(ieee), pan);
     }
 
     public ZigBeeNodeImpl(int nwk, ZToolAddress64 ieee, short pan) {
-        this.ieeeAddress = IEEEAddress.toString(ieee.getLong());
-        setNetworkAddress(nwk);
+        this(nwk, ieee.getLong(), pan);
+    }
+
+    /**
+     * @param nwk  the network address
+     * @param ieee the 64-bit IEEE address
+     * @param pan  the pan
+     */
+    public ZigBeeNodeImpl(int nwk, long ieee, short pan) {
+        this.networkAddress = nwk;
+        this.ieeeAddress = ieee;
         this.pan = pan;
     }
 
     public String getIeeeAddress() {
-        return ieeeAddress;
+        return IEEEAddress.toColonNotation(ieeeAddress);
     }
 
     public void setIeeeAddress(String ieeeAddress) {
-        this.ieeeAddress = ieeeAddress;
+        this.ieeeAddress = IEEEAddress.fromColonNotation(ieeeAddress);
+    }
+
+    @JsonIgnore
+    public long getIeeeAddressLong() {
+        return ieeeAddress;
     }
 
     public void setPan(short pan) {
@@ -101,7 +113,7 @@ public class ZigBeeNodeImpl implements ZigBeeNode {
     }
 
     public String toString() {
-        return "#" + networkAddress + " (" + ieeeAddress + ")";
+        return "#" + networkAddress + " (" + getIeeeAddress() + ")";
     }
 
     public boolean equals(Object obj) {
@@ -109,14 +121,14 @@ public class ZigBeeNodeImpl implements ZigBeeNode {
             return true;
         } else if (obj instanceof ZigBeeNode) {
             ZigBeeNode node = (ZigBeeNode) obj;
-            return networkAddress == node.getNetworkAddress() && ieeeAddress.equals(node.getIeeeAddress());
+            return ieeeAddress == node.getIeeeAddressLong();
         } else {
             return false;
         }
     }
 
     public int hashCode() {
-        return ieeeAddress.hashCode();
+        return (int) (ieeeAddress ^ (ieeeAddress >>> 32));
     }
 
 }
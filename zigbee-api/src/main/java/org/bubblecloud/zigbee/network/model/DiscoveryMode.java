@@ -5,7 +5,8 @@ import java.util.EnumSet;
 public enum DiscoveryMode {
     Announce(1),
     Addressing(2),
-    LinkQuality(4);
+    LinkQuality(4),
+    MatchDescriptor(8);
 
     public static final EnumSet<DiscoveryMode> ALL = EnumSet.allOf(DiscoveryMode.class);
 
@@ -0,0 +1,267 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.model;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Immutable simple descriptor of an endpoint. Descriptors are interned so that all endpoints
+ * with identical simple descriptor share single instance. Interned descriptors are weakly referenced
+ * and dropped once no endpoint uses them. Descriptors derived with the with methods are not interned
+ * which allows building descriptor field by field without interning the intermediate descriptors.
+ * Cluster lists are kept sorted which allows membership checks with binary search without allocation.
+ *
+ * This class is thread safe.
+ */
+public final class EndpointDescriptor {
+    /**
+     * The interned descriptors.
+     */
+    private static final Map<EndpointDescriptor, WeakReference<EndpointDescriptor>> DESCRIPTORS =
+            new WeakHashMap<EndpointDescriptor, WeakReference<EndpointDescriptor>>();
+    /**
+     * The empty descriptor.
+     */
+    public static final EndpointDescriptor EMPTY = intern(0, 0, (byte) 0, new int[0], new int[0]);
+
+    /**
+     * The profile ID.
+     */
+    private final int profileId;
+    /**
+     * The device type ID.
+     */
+    private final int deviceTypeId;
+    /**
+     * The device version.
+     */
+    private final byte deviceVersion;
+    /**
+     * The sorted input clusters.
+     */
+    private final int[] inputClusters;
+    /**
+     * The sorted output clusters.
+     */
+    private final int[] outputClusters;
+    /**
+     * The precomputed hash code.
+     */
+    private final int hashCode;
+    /**
+     * True if this is the interned instance.
+     */
+    private final boolean interned;
+
+    private EndpointDescriptor(final int profileId, final int deviceTypeId, final byte deviceVersion,
+                               final int[] sortedInputClusters, final int[] sortedOutputClusters,
+                               final boolean interned) {
+        this.profileId = profileId;
+        this.deviceTypeId = deviceTypeId;
+        this.deviceVersion = deviceVersion;
+        this.inputClusters = sortedInputClusters;
+        this.outputClusters = sortedOutputClusters;
+        this.interned = interned;
+
+        int hash = profileId;
+        hash = 31 * hash + deviceTypeId;
+        hash = 31 * hash + deviceVersion;
+        hash = 31 * hash + Arrays.hashCode(this.inputClusters);
+        hash = 31 * hash + Arrays.hashCode(this.outputClusters);
+        this.hashCode = hash;
+    }
+
+    /**
+     * Gets the shared descriptor instance for given simple descriptor values.
+     *
+     * @param profileId      the profile ID
+     * @param deviceTypeId   the device type ID
+     * @param deviceVersion  the device version
+     * @param inputClusters  the input clusters
+     * @param outputClusters the output clusters
+     * @return the interned descriptor
+     */
+    public static EndpointDescriptor intern(final int profileId, final int deviceTypeId, final byte deviceVersion,
+                                            final int[] inputClusters, final int[] outputClusters) {
+        return new EndpointDescriptor(profileId, deviceTypeId, deviceVersion, sorted(inputClusters),
+                sorted(outputClusters), false).intern();
+    }
+
+    /**
+     * Gets the shared instance equal to this descriptor.
+     *
+     * @return the interned descriptor
+     */
+    public EndpointDescriptor intern() {
+        if (interned) {
+            return this;
+        }
+        synchronized (DESCRIPTORS) {
+            final WeakReference<EndpointDescriptor> reference = DESCRIPTORS.get(this);
+            final EndpointDescriptor existing = reference != null ? reference.get() : null;
+            if (existing != null) {
+                return existing;
+            }
+            final EndpointDescriptor descriptor = new EndpointDescriptor(profileId, deviceTypeId, deviceVersion,
+                    inputClusters, outputClusters, true);
+            DESCRIPTORS.put(descriptor, new WeakReference<EndpointDescriptor>(descriptor));
+            return descriptor;
+        }
+    }
+
+    /**
+     * @return true if this is the shared instance
+     */
+    public boolean isInterned() {
+        return interned;
+    }
+
+    /**
+     * @return the number of distinct interned descriptors still in use
+     */
+    public static int getInternedCount() {
+        synchronized (DESCRIPTORS) {
+            return DESCRIPTORS.size();
+        }
+    }
+
+    public EndpointDescriptor withProfileId(final int profileId) {
+        return new EndpointDescriptor(profileId, deviceTypeId, deviceVersion, inputClusters, outputClusters, false);
+    }
+
+    public EndpointDescriptor withDeviceTypeId(final int deviceTypeId) {
+        return new EndpointDescriptor(profileId, deviceTypeId, deviceVersion, inputClusters, outputClusters, false);
+    }
+
+    public EndpointDescriptor withDeviceVersion(final byte deviceVersion) {
+        return new EndpointDescriptor(profileId, deviceTypeId, deviceVersion, inputClusters, outputClusters, false);
+    }
+
+    public EndpointDescriptor withInputClusters(final int[] inputClusters) {
+        return new EndpointDescriptor(profileId, deviceTypeId, deviceVersion, sorted(inputClusters), outputClusters,
+                false);
+    }
+
+    public EndpointDescriptor withOutputClusters(final int[] outputClusters) {
+        return new EndpointDescriptor(profileId, deviceTypeId, deviceVersion, inputClusters, sorted(outputClusters),
+                false);
+    }
+
+    public int getProfileId() {
+        return profileId;
+    }
+
+    public int getDeviceTypeId() {
+        return deviceTypeId;
+    }
+
+    public byte getDeviceVersion() {
+        return deviceVersion;
+    }
+
+    /**
+     * @return copy of the sorted input clusters
+     */
+    public int[] getInputClusters() {
+        return inputClusters.clone();
+    }
+
+    /**
+     * @return copy of the sorted output clusters
+     */
+    public int[] getOutputClusters() {
+        return outputClusters.clone();
+    }
+
+    /**
+     * @return the number of input clusters
+     */
+    public int getInputClusterCount() {
+        return inputClusters.length;
+    }
+
+    /**
+     * @param index the index
+     * @return the input cluster at index in ascending cluster order
+     */
+    public int getInputCluster(final int index) {
+        return inputClusters[index];
+    }
+
+    /**
+     * @return the number of output clusters
+     */
+    public int getOutputClusterCount() {
+        return outputClusters.length;
+    }
+
+    /**
+     * @param index the index
+     * @return the output cluster at index in ascending cluster order
+     */
+    public int getOutputCluster(final int index) {
+        return outputClusters[index];
+    }
+
+    public boolean providesInputCluster(final int clusterId) {
+        return Arrays.binarySearch(inputClusters, clusterId) >= 0;
+    }
+
+    public boolean providesOutputCluster(final int clusterId) {
+        return Arrays.binarySearch(outputClusters, clusterId) >= 0;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EndpointDescriptor)) {
+            return false;
+        }
+        final EndpointDescriptor that = (EndpointDescriptor) o;
+        return hashCode == that.hashCode
+                && profileId == that.profileId
+                && deviceTypeId == that.deviceTypeId
+                && deviceVersion == that.deviceVersion
+                && Arrays.equals(inputClusters, that.inputClusters)
+                && Arrays.equals(outputClusters, that.outputClusters);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointDescriptor [profileId=" + profileId + ", deviceTypeId=" + deviceTypeId
+                + ", deviceVersion=" + deviceVersion + ", inputClusters=" + Arrays.toString(inputClusters)
+                + ", outputClusters=" + Arrays.toString(outputClusters) + "]";
+    }
+
+    private static int[] sorted(final int[] values) {
+        if (values == null) {
+            return new int[0];
+        }
+        final int[] result = values.clone();
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -22,8 +22,6 @@
 
 package org.bubblecloud.zigbee.network.model;
 
-import java.util.StringTokenizer;
-
 /**
  * @author <a href="mailto:stefano.lenzi@isti.cnr.it">Stefano "Kismet" Lenzi</a>
  * @author <a href="mailto:francesco.furfari@isti.cnr.it">Francesco Furfari</a>
@@ -32,14 +30,34 @@ import java.util.StringTokenizer;
  */
 public class IEEEAddress {
 
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
     public static final long fromColonNotation(String ieee) {
-        StringTokenizer scanner = new StringTokenizer(ieee, ":");
         long result = 0;
-        while (scanner.hasMoreTokens()) {
-            int octect = Integer.parseInt(scanner.nextToken(), 16);
-            result = (result << 8) + (octect & 0xFF);
+        int octet = 0;
+        int digits = 0;
+        for (int i = 0; i < ieee.length(); i++) {
+            final char c = ieee.charAt(i);
+            if (c == ':') {
+                if (digits == 0) {
+                    throw new NumberFormatException("Empty octet in IEEE address: " + ieee);
+                }
+                result = (result << 8) + (octet & 0xFF);
+                octet = 0;
+                digits = 0;
+                continue;
+            }
+            final int digit = Character.digit(c, 16);
+            if (digit < 0) {
+                throw new NumberFormatException("Invalid character in IEEE address: " + ieee);
+            }
+            octet = (octet << 4) + digit;
+            digits++;
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Empty octet in IEEE address: " + ieee);
         }
-        return result;
+        return (result << 8) + (octet & 0xFF);
     }
 
     public static final String toHex(long ieee) {
@@ -86,18 +104,17 @@ public class IEEEAddress {
     }
 
     public static final String toColonNotation(long ieee) {
-        String padding = "0000000000000000";
-        String hex = Long.toHexString(ieee);
-        if (hex.length() < 16) {
-            hex = padding.substring(0, 16 - hex.length()) + hex;
-        }
-        hex = hex.toUpperCase();
-        String result = hex.substring(0, 2);
-        for (int i = 1; i <= 7; i++) {
-            hex = hex.substring(2);
-            result = result + ":" + hex.substring(0, 2);
+        final char[] result = new char[23];
+        for (int i = 7; i >= 0; i--) {
+            final int octet = (int) (ieee & 0xFF);
+            result[i * 3] = HEX_DIGITS[octet >> 4];
+            result[i * 3 + 1] = HEX_DIGITS[octet & 0x0F];
+            if (i > 0) {
+                result[i * 3 - 1] = ':';
+            }
+            ieee = ieee >>> 8;
         }
-        return result;
+        return new String(result);
     }
 
 }
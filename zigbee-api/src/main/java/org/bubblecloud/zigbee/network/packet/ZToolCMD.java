@@ -37,6 +37,12 @@ public class ZToolCMD {
     /// <name>TI.ZPI2.MESSAGE_ID.AF_DATA_SRSP</name>
     /// <summary>Response for AF_DATA_REQUEST</summary>
     public static final int AF_DATA_SRSP = 0x6401;
+    /// <name>TI.ZPI2.MESSAGE_ID.AF_DATA_REQUEST_EXT</name>
+    /// <summary>This command is used to send a data request with extended, e.g. group, addressing</summary>
+    public static final int AF_DATA_REQUEST_EXT = 0x2402;
+    /// <name>TI.ZPI2.MESSAGE_ID.AF_DATA_SRSP_EXT</name>
+    /// <summary>Response for AF_DATA_REQUEST_EXT</summary>
+    public static final int AF_DATA_SRSP_EXT = 0x6402;
     /// <name>TI.ZPI2.MESSAGE_ID.AF_INCOMING_MSG</name>
     /// <summary>Incoming AF data.</summary>
     public static final int AF_INCOMING_MSG = 0x4481;
@@ -515,6 +521,9 @@ public class ZToolCMD {
     /// <name>TI.ZPI2.MESSAGE_ID.ZDO_IEEE_ADDR_RSP</name>
     /// <summary>This callback message is in response to the ZDO IEEE Address Request.</summary>
     public static final int ZDO_IEEE_ADDR_RSP = 0x4581;
+    /// <name>TI.ZPI2.MESSAGE_ID.ZDO_LEAVE_IND</name>
+    /// <summary>ZDO indication of a device leaving the network.</summary>
+    public static final int ZDO_LEAVE_IND = 0x45c9;
     /// <name>TI.ZPI2.MESSAGE_ID.ZDO_MATCH_DESC_REQ</name>
     /// <summary>This command is generated to request a list of active endpoint from the destination device</summary>
     public static final int ZDO_MATCH_DESC_REQ = 0x2506;
@@ -111,6 +111,46 @@ public class ZToolPacket {
 
     }
 
+    /**
+     * Builds the packet from a fixed frame header followed by the raw bytes of a message,
+     * copying the message straight into the packet instead of first merging both into a
+     * single frame data array.
+     *
+     * @param ApiId       the command
+     * @param frameHeader the leading frame data, one byte per element
+     * @param data        the message appended after the header
+     */
+    public void buildPacket(DoubleByte ApiId, int[] frameHeader, byte[] data) {
+        final int length = frameHeader.length + data.length;
+        packet = new int[length + 5];
+        packet[0] = START_BYTE;
+
+        Checksum checksum = new Checksum();
+        this.LEN = length;
+        packet[1] = this.LEN;
+        checksum.addByte(packet[1]);
+        packet[2] = ApiId.getMsb();
+        checksum.addByte(packet[2]);
+        packet[3] = ApiId.getLsb();
+        checksum.addByte(packet[3]);
+        this.CMD = ApiId;
+        for (int i = 0; i < frameHeader.length; i++) {
+            if (!ByteUtils.isByteValue(frameHeader[i])) {
+                throw new RuntimeException("Value is greater than one byte: " + frameHeader[i] + " (" + Integer.toHexString(frameHeader[i]) + ")");
+            }
+            packet[PAYLOAD_START_INDEX + i] = frameHeader[i];
+            checksum.addByte(packet[PAYLOAD_START_INDEX + i]);
+        }
+        final int dataStart = PAYLOAD_START_INDEX + frameHeader.length;
+        for (int i = 0; i < data.length; i++) {
+            packet[dataStart + i] = data[i] & 0xFF;
+            checksum.addByte(packet[dataStart + i]);
+        }
+        checksum.compute();
+        this.FCS = checksum.getChecksum();
+        packet[packet.length - 1] = this.FCS;
+    }
+
     public CommandType getCommandType() {
         if (type != null) return type;
         type = CommandType.values()[(packet[2] & 0x60) >> 5];
@@ -27,11 +27,13 @@ package org.bubblecloud.zigbee.network.packet;
 
 import org.bubblecloud.zigbee.network.packet.af.AF_DATA_CONFIRM;
 import org.bubblecloud.zigbee.network.packet.af.AF_DATA_SRSP;
+import org.bubblecloud.zigbee.network.packet.af.AF_DATA_SRSP_EXT;
 import org.bubblecloud.zigbee.network.packet.af.AF_INCOMING_MSG;
 import org.bubblecloud.zigbee.network.packet.af.AF_REGISTER_SRSP;
 import org.bubblecloud.zigbee.network.packet.simple.*;
 import org.bubblecloud.zigbee.network.packet.system.*;
 import org.bubblecloud.zigbee.network.packet.util.UTIL_GET_DEVICE_INFO_RESPONSE;
+import org.bubblecloud.zigbee.network.packet.util.UTIL_GET_NV_INFO_RESPONSE;
 import org.bubblecloud.zigbee.network.packet.util.UTIL_SET_CHANNELS_RESPONSE;
 import org.bubblecloud.zigbee.network.packet.util.UTIL_SET_PANID_RESPONSE;
 import org.bubblecloud.zigbee.network.packet.zdo.*;
@@ -228,6 +230,8 @@ public class ZToolPacketStream
                 return new AF_DATA_CONFIRM(payload);
             case ZToolCMD.AF_DATA_SRSP:
                 return new AF_DATA_SRSP(payload);
+            case ZToolCMD.AF_DATA_SRSP_EXT:
+                return new AF_DATA_SRSP_EXT(payload);
             case ZToolCMD.AF_INCOMING_MSG:
                 return new AF_INCOMING_MSG(payload);
             case ZToolCMD.AF_REGISTER_SRSP:
@@ -276,6 +280,8 @@ public class ZToolPacketStream
                 return new ZDO_END_DEVICE_ANNCE_IND(payload);
             case ZToolCMD.ZDO_END_DEVICE_ANNCE_SRSP:
                 return new ZDO_END_DEVICE_ANNCE_SRSP(payload);
+            case ZToolCMD.ZDO_LEAVE_IND:
+                return new ZDO_LEAVE_IND(payload);
             case ZToolCMD.ZDO_END_DEVICE_BIND_REQ_SRSP:
                 return new ZDO_END_DEVICE_BIND_REQ_SRSP(payload);
             case ZToolCMD.ZDO_END_DEVICE_BIND_RSP:
@@ -296,6 +302,10 @@ public class ZToolPacketStream
                 return new ZDO_MGMT_LQI_REQ_SRSP(payload);
             case ZToolCMD.ZDO_MGMT_LQI_RSP:
                 return new ZDO_MGMT_LQI_RSP(payload);
+            case ZToolCMD.ZDO_MGMT_RTG_REQ_SRSP:
+                return new ZDO_MGMT_RTG_REQ_SRSP(payload);
+            case ZToolCMD.ZDO_MGMT_RTG_RSP:
+                return new ZDO_MGMT_RTG_RSP(payload);
             case ZToolCMD.ZDO_MGMT_NWK_UPDATE_REQ_SRSP:
                 return new ZDO_MGMT_NWK_UPDATE_REQ_SRSP(payload);
             case ZToolCMD.ZDO_MGMT_PERMIT_JOIN_REQ_SRSP:
@@ -334,6 +344,8 @@ public class ZToolPacketStream
                 return new UTIL_SET_PANID_RESPONSE(payload);
             case ZToolCMD.UTIL_SET_CHANNELS_RESPONSE:
                 return new UTIL_SET_CHANNELS_RESPONSE(payload);
+            case ZToolCMD.UTIL_GET_NV_INFO_RESPONSE:
+                return new UTIL_GET_NV_INFO_RESPONSE(payload);
             case ZToolCMD.UTIL_GET_DEVICE_INFO_RESPONSE:
                 return new UTIL_GET_DEVICE_INFO_RESPONSE(payload);
             default:
@@ -117,7 +117,7 @@ public class AF_DATA_REQUEST extends ZToolPacket/* implements IREQUEST,IAF*/ {
             throw new IllegalArgumentException("Payload is too big, maxium is 128");
         }
 
-        int[] framedata = new int[msg.length + 10];
+        int[] framedata = new int[10];
         framedata[0] = Integers.getByteAsInteger(nwkDstAddress, 0);
         framedata[1] = Integers.getByteAsInteger(nwkDstAddress, 1);
         framedata[2] = dstEndPoint & 0xFF;
@@ -128,10 +128,7 @@ public class AF_DATA_REQUEST extends ZToolPacket/* implements IREQUEST,IAF*/ {
         framedata[7] = bitmapOpt & 0xFF;
         framedata[8] = radius & 0xFF;
         framedata[9] = msg.length;
-        for (int i = 0; i < msg.length; i++) {
-            framedata[10 + i] = msg[i];
-        }
-        super.buildPacket(new DoubleByte(ZToolCMD.AF_DATA_REQUEST), framedata);
+        super.buildPacket(new DoubleByte(ZToolCMD.AF_DATA_REQUEST), framedata, msg);
 
     }
 
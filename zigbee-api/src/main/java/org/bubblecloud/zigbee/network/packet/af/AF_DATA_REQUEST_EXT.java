@@ -0,0 +1,72 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.packet.af;
+
+import org.bubblecloud.zigbee.network.packet.ZToolCMD;
+import org.bubblecloud.zigbee.network.packet.ZToolPacket;
+import org.bubblecloud.zigbee.util.DoubleByte;
+import org.bubblecloud.zigbee.util.Integers;
+
+/**
+ * Data request with extended addressing. Only group addressing is supported, the message
+ * is delivered to every endpoint which is member of the group.
+ */
+public class AF_DATA_REQUEST_EXT extends ZToolPacket {
+    /**
+     * The address mode of group addressing.
+     */
+    public static final int ADDRESS_MODE_GROUP = 0x01;
+
+    public AF_DATA_REQUEST_EXT() {
+    }
+
+    /**
+     * Constructs group addressed data request.
+     *
+     * @param groupId     the destination group
+     * @param srcEndPoint the source endpoint
+     * @param clusterId   the cluster ID
+     * @param transId     the transaction ID
+     * @param bitmapOpt   the AF Tx options
+     * @param radius      the number of hops allowed
+     * @param msg         the payload
+     */
+    public AF_DATA_REQUEST_EXT(int groupId, short srcEndPoint, short clusterId, byte transId, byte bitmapOpt,
+                               byte radius, byte[] msg) {
+        if (msg.length > 128) {
+            throw new IllegalArgumentException("Payload is too big, maxium is 128");
+        }
+
+        int[] framedata = new int[20];
+        framedata[0] = ADDRESS_MODE_GROUP;
+        framedata[1] = Integers.getByteAsInteger(groupId, 0);
+        framedata[2] = Integers.getByteAsInteger(groupId, 1);
+        // Bytes 3 - 8 of destination address are not used with group addressing
+        framedata[9] = 0xFF; // Destination endpoint is ignored with group addressing
+        framedata[10] = 0x00; // Destination PAN is own PAN
+        framedata[11] = 0x00;
+        framedata[12] = srcEndPoint & 0xFF;
+        framedata[13] = Integers.getByteAsInteger(clusterId, 0);
+        framedata[14] = Integers.getByteAsInteger(clusterId, 1);
+        framedata[15] = transId & 0xFF;
+        framedata[16] = bitmapOpt & 0xFF;
+        framedata[17] = radius & 0xFF;
+        framedata[18] = msg.length & 0xFF;
+        framedata[19] = (msg.length >> 8) & 0xFF;
+        super.buildPacket(new DoubleByte(ZToolCMD.AF_DATA_REQUEST_EXT), framedata, msg);
+    }
+
+}
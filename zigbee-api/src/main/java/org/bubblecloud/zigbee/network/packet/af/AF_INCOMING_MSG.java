@@ -159,6 +159,10 @@ public class AF_INCOMING_MSG extends ZToolPacket /*implements IINDICATION,IAF*/
                 + (super.packet[ZToolPacket.PAYLOAD_START_INDEX + 0]));
     }
 
+    public int getLinkQuality() {
+        return LinkQuality;
+    }
+
     public byte[] getData() {
         if (payload == null) {
             payload = new byte[Data.length];
@@ -44,7 +44,7 @@ public class SYS_OSAL_NV_WRITE_SRSP extends ZToolPacket /*implements IRESPONSE;I
 
     public SYS_OSAL_NV_WRITE_SRSP(int[] framedata) {
         this.Status = framedata[0];
-        super.buildPacket(new DoubleByte(ZToolCMD.SYS_OSAL_NV_READ_SRSP), framedata);
+        super.buildPacket(new DoubleByte(ZToolCMD.SYS_OSAL_NV_WRITE_SRSP), framedata);
     }
 
     @Override
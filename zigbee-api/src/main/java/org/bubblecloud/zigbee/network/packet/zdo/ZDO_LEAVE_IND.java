@@ -0,0 +1,64 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.packet.zdo;
+
+import org.bubblecloud.zigbee.network.packet.ZToolAddress16;
+import org.bubblecloud.zigbee.network.packet.ZToolAddress64;
+import org.bubblecloud.zigbee.network.packet.ZToolCMD;
+import org.bubblecloud.zigbee.network.packet.ZToolPacket;
+import org.bubblecloud.zigbee.util.DoubleByte;
+
+/**
+ * Indication that a device has left the network.
+ */
+public class ZDO_LEAVE_IND extends ZToolPacket /*implements IRESPONSE_CALLBACK,IZDO*/ {
+    /// <name>TI.ZPI2.ZDO_LEAVE_IND.SrcAddr</name>
+    /// <summary>Network address of the leaving device</summary>
+    public ZToolAddress16 SrcAddr;
+    /// <name>TI.ZPI2.ZDO_LEAVE_IND.ExtAddr</name>
+    /// <summary>64 bit IEEE address of the leaving device</summary>
+    public ZToolAddress64 ExtAddr;
+    /// <name>TI.ZPI2.ZDO_LEAVE_IND.Request</name>
+    /// <summary>True if this is a leave request instead of a leave indication</summary>
+    public int Request;
+    /// <name>TI.ZPI2.ZDO_LEAVE_IND.Remove</name>
+    /// <summary>True if the children of the device are also removed</summary>
+    public int Remove;
+    /// <name>TI.ZPI2.ZDO_LEAVE_IND.Rejoin</name>
+    /// <summary>True if the device is going to rejoin</summary>
+    public int Rejoin;
+
+    /// <name>TI.ZPI2.ZDO_LEAVE_IND</name>
+    /// <summary>Constructor</summary>
+    public ZDO_LEAVE_IND() {
+    }
+
+    /// <name>TI.ZPI2.ZDO_LEAVE_IND</name>
+    /// <summary>Constructor</summary>
+    public ZDO_LEAVE_IND(int[] framedata) {
+        this.SrcAddr = new ZToolAddress16(framedata[1], framedata[0]);
+        byte[] bytes = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) framedata[9 - i];
+        }
+        this.ExtAddr = new ZToolAddress64(bytes);
+        this.Request = framedata[10];
+        this.Remove = framedata[11];
+        this.Rejoin = framedata[12];
+        super.buildPacket(new DoubleByte(ZToolCMD.ZDO_LEAVE_IND), framedata);
+    }
+
+}
@@ -76,8 +76,8 @@ public class ZDO_MATCH_DESC_REQ extends ZToolPacket /*implements IREQUEST,IZDO*/
         this.InClusterList = new ushort[0x10];
         Array.Copy(numArray1, this.InClusterList, numArray1.Length);*/
         this.NumOutClusters = num5;
-        this.OutClusterList = new DoubleByte[numArray1.length];
-        this.OutClusterList = numArray1;
+        this.OutClusterList = new DoubleByte[numArray2.length];
+        this.OutClusterList = numArray2;
         /*if (numArray2.Length > 0x10)
         {
         throw new Exception("Error creating object.");
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.packet.zdo;
+
+import org.bubblecloud.zigbee.network.packet.ZToolAddress16;
+import org.bubblecloud.zigbee.network.packet.ZToolCMD;
+import org.bubblecloud.zigbee.network.packet.ZToolPacket;
+import org.bubblecloud.zigbee.util.DoubleByte;
+
+/**
+ * Requests the routing table of the destination device.
+ */
+public class ZDO_MGMT_RTG_REQ extends ZToolPacket /*implements IREQUEST,IZDO*/ {
+    /// <name>TI.ZPI1.ZDO_MGMT_RTG_REQ.DstAddr</name>
+    /// <summary>Destination network address.</summary>
+    public ZToolAddress16 DstAddr;
+    /// <name>TI.ZPI1.ZDO_MGMT_RTG_REQ.StartIndex</name>
+    /// <summary>Where in the routing table to start the response.</summary>
+    public int StartIndex;
+
+    /// <name>TI.ZPI1.ZDO_MGMT_RTG_REQ</name>
+    /// <summary>Constructor</summary>
+    public ZDO_MGMT_RTG_REQ() {
+    }
+
+    /// <name>TI.ZPI1.ZDO_MGMT_RTG_REQ</name>
+    /// <summary>Constructor</summary>
+    public ZDO_MGMT_RTG_REQ(ZToolAddress16 num1, int num2) {
+        this.DstAddr = num1;
+        this.StartIndex = num2;
+
+        int[] framedata = new int[3];
+        framedata[0] = this.DstAddr.getLsb();
+        framedata[1] = this.DstAddr.getMsb();
+        framedata[2] = this.StartIndex;
+        super.buildPacket(new DoubleByte(ZToolCMD.ZDO_MGMT_RTG_REQ), framedata);
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.packet.zdo;
+
+import org.bubblecloud.zigbee.network.packet.ResponseStatus;
+import org.bubblecloud.zigbee.network.packet.ZToolCMD;
+import org.bubblecloud.zigbee.network.packet.ZToolPacket;
+import org.bubblecloud.zigbee.util.DoubleByte;
+
+/**
+ * Synchronous response to {@link ZDO_MGMT_RTG_REQ}.
+ */
+public class ZDO_MGMT_RTG_REQ_SRSP extends ZToolPacket /*implements IRESPONSE,IZDO*/ {
+    /// <name>TI.ZPI1.ZDO_MGMT_RTG_REQ_SRSP.Status</name>
+    /// <summary>Status</summary>
+    public int Status;
+
+    /// <name>TI.ZPI1.ZDO_MGMT_RTG_REQ_SRSP</name>
+    /// <summary>Constructor</summary>
+    public ZDO_MGMT_RTG_REQ_SRSP() {
+    }
+
+    public ZDO_MGMT_RTG_REQ_SRSP(int[] framedata) {
+        this.Status = framedata[0];
+        super.buildPacket(new DoubleByte(ZToolCMD.ZDO_MGMT_RTG_REQ_SRSP), framedata);
+    }
+
+    @Override
+    public String toString() {
+        return "ZDO_MGMT_RTG_REQ_SRSP{" +
+                "Status=" + ResponseStatus.getStatus(Status) +
+                '}';
+    }
+}
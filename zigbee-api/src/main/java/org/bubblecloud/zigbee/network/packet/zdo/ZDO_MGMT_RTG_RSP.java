@@ -0,0 +1,134 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.packet.zdo;
+
+import org.bubblecloud.zigbee.network.packet.ResponseStatus;
+import org.bubblecloud.zigbee.network.packet.ZToolAddress16;
+import org.bubblecloud.zigbee.network.packet.ZToolCMD;
+import org.bubblecloud.zigbee.network.packet.ZToolPacket;
+import org.bubblecloud.zigbee.util.DoubleByte;
+
+import java.util.Arrays;
+
+/**
+ * Asynchronous response carrying a page of the routing table of a router.
+ */
+public class ZDO_MGMT_RTG_RSP extends ZToolPacket /*implements IRESPONSE_CALLBACK,IZDO*/ {
+    /// <name>TI.ZPI1.ZDO_MGMT_RTG_RSP.SrcAddress</name>
+    /// <summary>Source address of the message</summary>
+    public ZToolAddress16 SrcAddress;
+    /// <name>TI.ZPI1.ZDO_MGMT_RTG_RSP.Status</name>
+    /// <summary>this field indicates either SUCCESS or FAILURE.</summary>
+    public int Status;
+    /// <name>TI.ZPI1.ZDO_MGMT_RTG_RSP.RoutingTableEntries</name>
+    /// <summary>Total number of entries available in the device.</summary>
+    public int RoutingTableEntries;
+    /// <name>TI.ZPI1.ZDO_MGMT_RTG_RSP.StartIndex</name>
+    /// <summary>Where in the total number of entries this response starts.</summary>
+    public int StartIndex;
+    /// <name>TI.ZPI1.ZDO_MGMT_RTG_RSP.RoutingTableListCount</name>
+    /// <summary>Number of entries in this response.</summary>
+    public int RoutingTableListCount;
+    /// <name>TI.ZPI1.ZDO_MGMT_RTG_RSP.RoutingTableList</name>
+    /// <summary>Dynamic array, Number of entries in this response.</summary>
+    public RoutingTableListItemClass[] RoutingTableList;
+
+    /// <name>TI.ZPI1.ZDO_MGMT_RTG_RSP</name>
+    /// <summary>Constructor</summary>
+    public ZDO_MGMT_RTG_RSP() {
+        this.RoutingTableList = new RoutingTableListItemClass[]{};
+    }
+
+    public ZDO_MGMT_RTG_RSP(int[] framedata) {
+        this.SrcAddress = new ZToolAddress16(framedata[1], framedata[0]);
+        this.Status = framedata[2];
+        this.RoutingTableEntries = framedata[3];
+        this.StartIndex = framedata[4];
+        this.RoutingTableListCount = framedata[5];
+        this.RoutingTableList = new RoutingTableListItemClass[framedata[5]];
+
+        int k = 0;
+        for (int z = 0; z < this.RoutingTableList.length; z++) {
+            final ZToolAddress16 destination = new ZToolAddress16(framedata[7 + k], framedata[6 + k]);
+            final int status = framedata[8 + k];
+            final ZToolAddress16 nextHop = new ZToolAddress16(framedata[10 + k], framedata[9 + k]);
+            this.RoutingTableList[z] = new RoutingTableListItemClass(destination, status, nextHop);
+            k += 5;
+        }
+        super.buildPacket(new DoubleByte(ZToolCMD.ZDO_MGMT_RTG_RSP), framedata);
+    }
+
+    /// <name>TI.ZPI1.ZDO_MGMT_RTG_RSP.RoutingTableListItemClass</name>
+    /// <summary>Contains information in a single item of a routing table</summary>
+    public class RoutingTableListItemClass {
+
+        public ZToolAddress16 DestinationAddress;
+        public int Status;
+        public ZToolAddress16 NextHop;
+
+        public RoutingTableListItemClass() {
+        }
+
+        public RoutingTableListItemClass(ZToolAddress16 num1, int num2, ZToolAddress16 num3) {
+            this.DestinationAddress = num1;
+            this.Status = num2;
+            this.NextHop = num3;
+        }
+
+        @Override
+        public String toString() {
+            return "{" + DestinationAddress + " via " + NextHop + ", status=" + Status + "}";
+        }
+    }
+
+    /**
+     * @return the number of routing table entries present on the message
+     */
+    public int getRoutingTableListCount() {
+        return this.RoutingTableList.length;
+    }
+
+    /**
+     * @return the index of the first entry available on the message with respect
+     *         to the routing table on the device
+     */
+    public int getStartIndex() {
+        return StartIndex;
+    }
+
+    /**
+     * @return the number of routing table entries available on the device
+     */
+    public int getRoutingTableEntries() {
+        return RoutingTableEntries;
+    }
+
+    public RoutingTableListItemClass[] getRoutingTableList() {
+        return RoutingTableList;
+    }
+
+    @Override
+    public String toString() {
+        return "ZDO_MGMT_RTG_RSP{" +
+                "RoutingTableListCount=" + RoutingTableListCount +
+                ", RoutingTableEntries=" + RoutingTableEntries +
+                ", RoutingTableList=" + Arrays.toString(RoutingTableList) +
+                ", SrcAddress=" + SrcAddress +
+                ", StartIndex=" + StartIndex +
+                ", Status=" + ResponseStatus.getStatus(Status) +
+                '}';
+    }
+}
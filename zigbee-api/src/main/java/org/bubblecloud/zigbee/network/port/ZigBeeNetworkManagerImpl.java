@@ -25,22 +25,31 @@ import org.bubblecloud.zigbee.network.*;
 import org.bubblecloud.zigbee.network.packet.*;
 import org.bubblecloud.zigbee.network.packet.af.*;
 import org.bubblecloud.zigbee.network.packet.simple.*;
+import org.bubblecloud.zigbee.network.packet.system.SYS_OSAL_NV_READ;
+import org.bubblecloud.zigbee.network.packet.system.SYS_OSAL_NV_READ_SRSP;
+import org.bubblecloud.zigbee.network.packet.system.SYS_OSAL_NV_WRITE;
+import org.bubblecloud.zigbee.network.packet.system.SYS_OSAL_NV_WRITE_SRSP;
 import org.bubblecloud.zigbee.network.packet.system.SYS_RESET;
 import org.bubblecloud.zigbee.network.packet.system.SYS_RESET_RESPONSE;
 import org.bubblecloud.zigbee.network.packet.util.UTIL_GET_DEVICE_INFO;
 import org.bubblecloud.zigbee.network.packet.util.UTIL_GET_DEVICE_INFO_RESPONSE;
+import org.bubblecloud.zigbee.network.packet.util.UTIL_GET_NV_INFO;
+import org.bubblecloud.zigbee.network.packet.util.UTIL_GET_NV_INFO_RESPONSE;
 import org.bubblecloud.zigbee.network.packet.zdo.*;
+import org.bubblecloud.zigbee.util.DoubleByte;
 import org.bubblecloud.zigbee.util.Integers;
 import org.bubblecloud.zigbee.network.model.*;
 import org.bubblecloud.zigbee.util.NetworkAddressUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 
 /**
  * The zigbee network manager port port implementation.
@@ -68,10 +77,23 @@ public class ZigBeeNetworkManagerImpl implements ZigBeeNetworkManager {
     public static final boolean RESEND_ONLY_EXCEPTION_DEFAULT = true;
     public static final String RESEND_ONLY_EXCEPTION_KEY = "zigbee.driver.cc2530.resend.exceptionally";
 
+    /**
+     * The number of bytes read or written with single SYS_OSAL_NV_READ or SYS_OSAL_NV_WRITE.
+     */
+    private static final int NV_CHUNK_SIZE = 240;
+    /**
+     * The largest NV item offset which fits the one byte offset field.
+     */
+    private static final int NV_MAX_OFFSET = 0xFF;
+
+    public static final boolean WARM_START_DEFAULT = true;
+    public static final String WARM_START_KEY = "zigbee.driver.cc2530.warmstart";
+
     private final int TIMEOUT;
     private final int RESEND_TIMEOUT;
     private final int RESEND_MAX_RETRY;
     private final boolean RESEND_ONLY_EXCEPTION;
+    private final boolean WARM_START;
 
     private ZigBeeInterface zigbeeInterface;
     private ZigBeePort port;
@@ -80,9 +102,12 @@ public class ZigBeeNetworkManagerImpl implements ZigBeeNetworkManager {
     private short pan;
     private byte channel;
     private boolean cleanStatus;
+    private boolean warmStarted;
 
     private final HashSet<AnnounceListener> announceListeners = new HashSet<AnnounceListener>();
-    private final AnnounceListenerFilter announceListenerFilter = new AnnounceListenerFilter(announceListeners);
+    private final HashSet<LeaveListener> leaveListeners = new HashSet<LeaveListener>();
+    private final AnnounceListenerFilter announceListenerFilter = new AnnounceListenerFilter(announceListeners,
+            leaveListeners);
 
     private final ArrayList<ApplicationFrameworkMessageListener> messageListeners = new ArrayList<ApplicationFrameworkMessageListener>();
     private final AFMessageListenerFilter afMessageListenerFilter = new AFMessageListenerFilter(messageListeners);
@@ -128,6 +153,16 @@ public class ZigBeeNetworkManagerImpl implements ZigBeeNetworkManager {
             logger.trace("Using RESEND_MAX_RETRY set as DEFAULT {}", aux);
         }
         RESEND_ONLY_EXCEPTION = b;
+
+        b = WARM_START_DEFAULT;
+        final String warmStart = System.getProperty(WARM_START_KEY);
+        if (warmStart != null) {
+            b = Boolean.parseBoolean(warmStart);
+            logger.trace("Using WARM_START set from enviroment {}", b);
+        } else {
+            logger.trace("Using WARM_START set as DEFAULT {}", b);
+        }
+        WARM_START = b;
         state = DriverStatus.CLOSED;
         this.cleanStatus = cleanNetworkStatus;
         setPort(port);
@@ -149,6 +184,9 @@ public class ZigBeeNetworkManagerImpl implements ZigBeeNetworkManager {
 
             logger.trace("Initializing network.");
             setState(DriverStatus.NETWORK_INITIALIZING);
+            if (attachZigBeeNetwork()) {
+                return;
+            }
             if (!initializeZigBeeNetwork()) {
                 shutdown();
                 return;
@@ -169,7 +207,12 @@ public class ZigBeeNetworkManagerImpl implements ZigBeeNetworkManager {
         }
         if (state == DriverStatus.NETWORK_INITIALIZING || state == DriverStatus.HARDWARE_READY) {
             logger.trace("Closing HARDWARE");
-            dongleReset();
+            if (WARM_START) {
+                // Leave the dongle running so that the next startup can attach to the network.
+                logger.debug("Leaving dongle running for warm start.");
+            } else {
+                dongleReset();
+            }
             zigbeeInterface.close();
             setState(DriverStatus.CREATED);
         }
@@ -186,6 +229,110 @@ public class ZigBeeNetworkManagerImpl implements ZigBeeNetworkManager {
         return true;
     }
 
+    /**
+     * Attaches to the network the dongle is already running without resetting or
+     * reconfiguring it. This is possible only when the dongle reports it has started
+     * in the requested mode and its NV configuration matches the requested PAN,
+     * channel and logical type.
+     *
+     * @return true if the driver attached to the running network
+     */
+    private boolean attachZigBeeNetwork() {
+        warmStarted = false;
+        if (!WARM_START || cleanStatus) {
+            return false;
+        }
+
+        final UTIL_GET_DEVICE_INFO_RESPONSE info = (UTIL_GET_DEVICE_INFO_RESPONSE) sendSynchrouns(
+                zigbeeInterface, new UTIL_GET_DEVICE_INFO()
+        );
+        if (info == null || info.Status != 0) {
+            logger.debug("Device info not available, performing cold start.");
+            return false;
+        }
+        if (info.DeviceState != getRunningDeviceState(mode)) {
+            logger.info("Dongle is not running a network as {} (state {}), performing cold start.",
+                    mode, info.DeviceState);
+            return false;
+        }
+
+        final int[] panId = readConfiguration(ZB_READ_CONFIGURATION.CONFIG_ID.ZCD_NV_PANID);
+        final int[] channels = readConfiguration(ZB_READ_CONFIGURATION.CONFIG_ID.ZCD_NV_CHANLIST);
+        final int[] logicalType = readConfiguration(ZB_READ_CONFIGURATION.CONFIG_ID.ZCD_NV_LOGICAL_TYPE);
+        if (!isConfigurationMatching(mode, pan, channel, panId, channels, logicalType)) {
+            logger.info("Dongle configuration differs from the requested configuration, performing cold start.");
+            return false;
+        }
+
+        createCustomDevicesOnDongle();
+        warmStarted = true;
+        logger.info("Attached to running ZigBee network on channel {} with PAN {} without reset.", channel, pan);
+        setState(DriverStatus.NETWORK_READY);
+        return true;
+    }
+
+    @Override
+    public boolean isWarmStarted() {
+        return warmStarted;
+    }
+
+    /**
+     * Gets the device state a started dongle reports for the given network mode.
+     *
+     * @param mode the network mode
+     * @return the device state reported in UTIL_GET_DEVICE_INFO_RESPONSE
+     */
+    static int getRunningDeviceState(NetworkMode mode) {
+        switch (mode) {
+            case Coordinator:
+                return UTIL_GET_DEVICE_INFO_RESPONSE.DEVICE_STATE.DEV_ZB_COORD;
+            case Router:
+                return UTIL_GET_DEVICE_INFO_RESPONSE.DEVICE_STATE.DEV_ROUTER;
+            default:
+                return UTIL_GET_DEVICE_INFO_RESPONSE.DEVICE_STATE.DEV_END_DEVICE;
+        }
+    }
+
+    /**
+     * Compares the NV configuration values read from the dongle with the requested configuration.
+     *
+     * @param mode the requested network mode
+     * @param pan the requested PAN ID
+     * @param channel the requested channel
+     * @param panId the ZCD_NV_PANID value or null if it could not be read
+     * @param channels the ZCD_NV_CHANLIST value or null if it could not be read
+     * @param logicalType the ZCD_NV_LOGICAL_TYPE value or null if it could not be read
+     * @return true if all values match
+     */
+    static boolean isConfigurationMatching(NetworkMode mode, short pan, byte channel,
+                                           int[] panId, int[] channels, int[] logicalType) {
+        if (panId == null || panId.length < 2 || channels == null || channels.length < 4
+                || logicalType == null || logicalType.length < 1) {
+            return false;
+        }
+        if (((panId[0] & 0xFF) | (panId[1] & 0xFF) << 8) != (pan & 0xFFFF)) {
+            return false;
+        }
+        final int[] mask = buildChannelMask(channel);
+        for (int i = 0; i < mask.length; i++) {
+            if ((channels[i] & 0xFF) != mask[i]) {
+                return false;
+            }
+        }
+        return logicalType[0] == mode.ordinal();
+    }
+
+    private int[] readConfiguration(int configId) {
+        final ZB_READ_CONFIGURATION_RSP response = (ZB_READ_CONFIGURATION_RSP) sendSynchrouns(
+                zigbeeInterface, new ZB_READ_CONFIGURATION(configId)
+        );
+        if (response == null || response.Status != 0) {
+            logger.debug("Failed to read configuration {}, received {}", configId, response);
+            return null;
+        }
+        return response.Value;
+    }
+
     private boolean initializeZigBeeNetwork() {
         if (cleanStatus) {
             if (!configureZigBeeNetwork()) {
@@ -571,6 +718,46 @@ public class ZigBeeNetworkManagerImpl implements ZigBeeNetworkManager {
         return result;
     }
 
+    public ZDO_MGMT_RTG_RSP sendRTGRequest(ZDO_MGMT_RTG_REQ request) {
+
+        if (waitForNetwork() == false) return null;
+        ZDO_MGMT_RTG_RSP result = null;
+
+        waitAndLock3WayConversation(request);
+        final WaitForCommand waiter = new WaitForCommand(ZToolCMD.ZDO_MGMT_RTG_RSP, zigbeeInterface);
+
+        logger.trace("Sending ZDO_MGMT_RTG_REQ {}", request);
+        ZDO_MGMT_RTG_REQ_SRSP response = (ZDO_MGMT_RTG_REQ_SRSP) sendSynchrouns(zigbeeInterface, request);
+        if (response == null || response.Status != 0) {
+            logger.trace("ZDO_MGMT_RTG_REQ failed, received {}", response);
+            waiter.cleanup();
+        } else {
+            result = (ZDO_MGMT_RTG_RSP) waiter.getCommand(TIMEOUT);
+        }
+        unLock3WayConversation(request);
+        return result;
+    }
+
+    public List<ZDO_MATCH_DESC_RSP> sendZDOMatchDescriptorRequest(ZDO_MATCH_DESC_REQ request, long window) {
+
+        if (waitForNetwork() == false) return null;
+
+        final CollectCommands collector = new CollectCommands(ZToolCMD.ZDO_MATCH_DESC_RSP, zigbeeInterface);
+
+        logger.trace("Sending ZDO_MATCH_DESC_REQ {}", request);
+        ZDO_MATCH_DESC_REQ_SRSP response = (ZDO_MATCH_DESC_REQ_SRSP) sendSynchrouns(zigbeeInterface, request);
+        if (response == null || response.Status != 0) {
+            logger.trace("ZDO_MATCH_DESC_REQ failed, received {}", response);
+            collector.cleanup();
+            return null;
+        }
+        final List<ZDO_MATCH_DESC_RSP> result = new ArrayList<ZDO_MATCH_DESC_RSP>();
+        for (final ZToolPacket packet : collector.getCommands(window)) {
+            result.add((ZDO_MATCH_DESC_RSP) packet);
+        }
+        return result;
+    }
+
     public ZDO_IEEE_ADDR_RSP sendZDOIEEEAddressRequest(ZDO_IEEE_ADDR_REQ request) {
         if (waitForNetwork() == false) return null;
         ZDO_IEEE_ADDR_RSP result = null;
@@ -711,8 +898,17 @@ public class ZigBeeNetworkManagerImpl implements ZigBeeNetworkManager {
      * @param request
      */
     private void waitAndLock3WayConversation(ZToolPacket request) {
+        waitAndLock3WayConversation(request.getClass());
+    }
+
+    /**
+     * Wait for and lock the 3-way conversation of the given request type. Request types sharing
+     * the same asynchronous response have to use the same lock.
+     *
+     * @param clz the request type
+     */
+    private void waitAndLock3WayConversation(Class<?> clz) {
         synchronized (conversation3Way) {
-            Class<?> clz = request.getClass();
             Thread requestor = null;
             while ((requestor = conversation3Way.get(clz)) != null) {
                 if (requestor.isAlive() == false) {
@@ -743,12 +939,15 @@ public class ZigBeeNetworkManagerImpl implements ZigBeeNetworkManager {
      * @param request
      */
     private void unLock3WayConversation(ZToolPacket request) {
-        Class<?> clz = request.getClass();
+        unLock3WayConversation(request.getClass());
+    }
+
+    private void unLock3WayConversation(Class<?> clz) {
         Thread requestor = null;
         synchronized (conversation3Way) {
             requestor = conversation3Way.get(clz);
             conversation3Way.put(clz, null);
-            conversation3Way.notify();
+            conversation3Way.notifyAll();
         }
         if (requestor == null) {
             logger.error("LOCKING BROKEN - SOMEONE RELEASE THE LOCK WITHOUT LOCKING IN ADVANCE for {}", clz);
@@ -832,6 +1031,58 @@ public class ZigBeeNetworkManagerImpl implements ZigBeeNetworkManager {
         }
     }
 
+    /**
+     * Collects all asynchronous responses of given type until the collection window expires.
+     */
+    private class CollectCommands implements AsynchronousCommandListener {
+
+        final List<ZToolPacket> result = new ArrayList<ZToolPacket>();
+        final int waitFor;
+        final ZigBeeInterface driver;
+
+        public CollectCommands(int waitFor, ZigBeeInterface driver) {
+            this.waitFor = waitFor;
+            this.driver = driver;
+            logger4Waiter.trace("Collecting asynchronous response messages {}.", waitFor);
+            driver.addAsynchronousCommandListener(this);
+        }
+
+        public void receivedAsynchronousCommand(ZToolPacket packet) {
+            if (packet.isError()) return;
+            if (packet.getCMD().get16BitValue() != waitFor) {
+                return;
+            }
+            synchronized (result) {
+                result.add(packet);
+                logger4Waiter.trace("Collected response: {}", packet);
+            }
+        }
+
+        public List<ZToolPacket> getCommands(final long window) {
+            final long wakeUpTime = System.currentTimeMillis() + window;
+            synchronized (result) {
+                long remaining = window;
+                while (remaining > 0) {
+                    try {
+                        result.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    remaining = wakeUpTime - System.currentTimeMillis();
+                }
+            }
+            cleanup();
+            synchronized (result) {
+                return new ArrayList<ZToolPacket>(result);
+            }
+        }
+
+        public void cleanup() {
+            driver.removeAsynchronousCommandListener(this);
+        }
+    }
+
     private boolean dongleReset() {
         if (waitForHardware() == false) return false;
 
@@ -1041,6 +1292,18 @@ public class ZigBeeNetworkManagerImpl implements ZigBeeNetworkManager {
         return result;
     }
 
+    public boolean addLeaveListener(LeaveListener listener) {
+        synchronized (leaveListeners) {
+            return leaveListeners.add(listener);
+        }
+    }
+
+    public boolean removeLeaveListener(LeaveListener listener) {
+        synchronized (leaveListeners) {
+            return leaveListeners.remove(listener);
+        }
+    }
+
     public AF_REGISTER_SRSP sendAFRegister(AF_REGISTER request) {
         if (waitForNetwork() == false) return null;
 
@@ -1066,6 +1329,25 @@ public class ZigBeeNetworkManagerImpl implements ZigBeeNetworkManager {
         return result;
     }
 
+    public AF_DATA_CONFIRM sendAFDataRequestExt(AF_DATA_REQUEST_EXT request) {
+        if (waitForNetwork() == false) return null;
+        AF_DATA_CONFIRM result = null;
+
+        // Shares the AF_DATA_CONFIRM with AF_DATA_REQUEST so the conversations must not overlap
+        waitAndLock3WayConversation(AF_DATA_REQUEST.class);
+        final WaitForCommand waiter = new WaitForCommand(ZToolCMD.AF_DATA_CONFIRM, zigbeeInterface);
+
+        AF_DATA_SRSP_EXT response = (AF_DATA_SRSP_EXT) sendSynchrouns(zigbeeInterface, request);
+        if (response == null || response.Status != 0) {
+            waiter.cleanup();
+        } else {
+            result = (AF_DATA_CONFIRM) waiter.getCommand(TIMEOUT);
+        }
+        unLock3WayConversation(AF_DATA_REQUEST.class);
+
+        return result;
+    }
+
     public ZDO_BIND_RSP sendZDOBind(ZDO_BIND_REQ request) {
         if (waitForNetwork() == false) return null;
         ZDO_BIND_RSP result = null;
@@ -1295,6 +1577,87 @@ public class ZigBeeNetworkManagerImpl implements ZigBeeNetworkManager {
         return state;
     }
 
+    @Override
+    public byte[] readNvItem(final int id) {
+        if (waitForHardware() == false) return null;
+        final ByteArrayOutputStream value = new ByteArrayOutputStream();
+        int offset = 0;
+        while (true) {
+            // Chunks past the largest offset are read from the largest offset overlapping the bytes already read.
+            final int readOffset = Math.min(offset, NV_MAX_OFFSET);
+            final SYS_OSAL_NV_READ_SRSP response = (SYS_OSAL_NV_READ_SRSP) sendSynchrouns(
+                    zigbeeInterface, new SYS_OSAL_NV_READ(new DoubleByte(id), readOffset)
+            );
+            if (response == null) {
+                logger.warn("Timed out reading NV item {} at offset {}", id, readOffset);
+                return null;
+            }
+            if (response.Status != 0) {
+                if (offset == 0) {
+                    logger.debug("NV item {} not available, received {}", id, response);
+                    return null;
+                }
+                // Item length was multiple of chunk size.
+                break;
+            }
+            final int length = Math.min(response.Len, response.Value.length);
+            for (int i = offset - readOffset; i < length; i++) {
+                value.write(response.Value[i]);
+            }
+            if (length < NV_CHUNK_SIZE) {
+                break;
+            }
+            if (readOffset == NV_MAX_OFFSET) {
+                throw new IllegalStateException("NV item " + id + " is longer than the "
+                        + (readOffset + length) + " bytes addressable with SYS_OSAL_NV_READ.");
+            }
+            offset = readOffset + length;
+        }
+        return value.toByteArray();
+    }
+
+    @Override
+    public boolean writeNvItem(final int id, final byte[] value) {
+        if (waitForHardware() == false) return false;
+        if (value.length > NV_MAX_OFFSET + NV_CHUNK_SIZE) {
+            logger.warn("NV item {} of {} bytes is too long to be written", id, value.length);
+            return false;
+        }
+        int offset = 0;
+        do {
+            // Chunks past the largest offset are written from the largest offset overlapping the bytes written.
+            final int writeOffset = Math.min(offset, NV_MAX_OFFSET);
+            final int length = Math.min(NV_CHUNK_SIZE, value.length - writeOffset);
+            final int[] chunk = new int[length];
+            for (int i = 0; i < length; i++) {
+                chunk[i] = value[writeOffset + i] & 0xFF;
+            }
+            final SYS_OSAL_NV_WRITE_SRSP response = (SYS_OSAL_NV_WRITE_SRSP) sendSynchrouns(
+                    zigbeeInterface, new SYS_OSAL_NV_WRITE(new DoubleByte(id), writeOffset, length, chunk)
+            );
+            if (response == null || response.Status != 0) {
+                logger.warn("Failed to write NV item {} at offset {}, received {}",
+                        new Object[]{id, writeOffset, response});
+                return false;
+            }
+            offset = writeOffset + length;
+        } while (offset < value.length);
+        return true;
+    }
+
+    @Override
+    public UTIL_GET_NV_INFO_RESPONSE getNvInfo() {
+        if (waitForHardware() == false) return null;
+        final UTIL_GET_NV_INFO_RESPONSE response = (UTIL_GET_NV_INFO_RESPONSE) sendSynchrouns(
+                zigbeeInterface, new UTIL_GET_NV_INFO()
+        );
+        if (response == null || response.Status != 0) {
+            logger.warn("Failed to get NV info, received {}", response);
+            return null;
+        }
+        return response;
+    }
+
     private int[] ep, prof, dev, ver;
     private short[][] inp, out;
 
@@ -1446,9 +1809,11 @@ public class ZigBeeNetworkManagerImpl implements ZigBeeNetworkManager {
     private class AnnounceListenerFilter implements AsynchronousCommandListener {
 
         private final Collection<AnnounceListener> listners;
+        private final Collection<LeaveListener> leaveListeners;
 
-        private AnnounceListenerFilter(Collection<AnnounceListener> list) {
+        private AnnounceListenerFilter(Collection<AnnounceListener> list, Collection<LeaveListener> leaveList) {
             listners = list;
+            leaveListeners = leaveList;
         }
 
         public void receivedAsynchronousCommand(ZToolPacket packet) {
@@ -1460,6 +1825,16 @@ public class ZigBeeNetworkManagerImpl implements ZigBeeNetworkManager {
                     l.announce(annunce.SrcAddr, annunce.IEEEAddr, annunce.NwkAddr, annunce.Capabilities);
 
                 }
+            } else if (packet.getCMD().get16BitValue() == ZToolCMD.ZDO_LEAVE_IND) {
+                logger.debug("Recieved leave message {} value is {}", packet.getClass(), packet);
+                final ZDO_LEAVE_IND leave = (ZDO_LEAVE_IND) packet;
+                final ArrayList<LeaveListener> listeners;
+                synchronized (leaveListeners) {
+                    listeners = new ArrayList<LeaveListener>(leaveListeners);
+                }
+                for (final LeaveListener l : listeners) {
+                    l.leave(leave.SrcAddr, leave.ExtAddr, leave.Rejoin != 0);
+                }
             } else if (packet.getCMD().get16BitValue() == ZToolCMD.ZDO_STATE_CHANGE_IND) {
                 try {
                     ZDO_STATE_CHANGE_IND p = ((ZDO_STATE_CHANGE_IND) packet);
@@ -0,0 +1,413 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.topology;
+
+import org.bubblecloud.zigbee.network.packet.af.AF_INCOMING_MSG;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_MGMT_LQI_RSP;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_MGMT_RTG_RSP;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Persistent in-memory model of the mesh formed by nodes, the radio links between them and
+ * the routes held by routers. The model is updated incrementally from neighbor table (LQI) responses,
+ * routing table responses and the link quality of every incoming application framework message,
+ * so that it does not need to be rebuilt by walking the whole network.
+ *
+ * This class is thread safe. All returned values are immutable.
+ */
+public class NetworkTopology {
+    /**
+     * The logger.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(NetworkTopology.class);
+    /**
+     * The coordinator network address.
+     */
+    public static final int COORDINATOR_NETWORK_ADDRESS = 0;
+
+    /**
+     * The nodes by network address.
+     */
+    private final Map<Integer, TopologyNode> nodes = new HashMap<Integer, TopologyNode>();
+    /**
+     * The links by source and destination network address.
+     */
+    private final Map<Long, TopologyLink> links = new HashMap<Long, TopologyLink>();
+    /**
+     * The routes by router and destination network address.
+     */
+    private final Map<Long, TopologyRoute> routes = new HashMap<Long, TopologyRoute>();
+    /**
+     * The start times of neighbor table reads in progress by reporting node.
+     */
+    private final Map<Integer, Long> neighborTableReads = new HashMap<Integer, Long>();
+    /**
+     * The start times of routing table reads in progress by router.
+     */
+    private final Map<Integer, Long> routingTableReads = new HashMap<Integer, Long>();
+
+    /**
+     * Updates node addressing information.
+     * @param networkAddress the network address
+     * @param ieeeAddress the IEEE address
+     */
+    public synchronized void updateNode(final int networkAddress, final long ieeeAddress) {
+        final TopologyNode node = nodes.get(networkAddress);
+        if (node == null) {
+            LOGGER.debug("Node #{} added to topology.", networkAddress);
+            nodes.put(networkAddress, new TopologyNode(networkAddress, ieeeAddress,
+                    networkAddress == COORDINATOR_NETWORK_ADDRESS ? TopologyNode.DEVICE_TYPE_COORDINATOR
+                            : TopologyNode.DEVICE_TYPE_UNKNOWN, -1, System.currentTimeMillis()));
+        } else {
+            nodes.put(networkAddress, new TopologyNode(networkAddress, ieeeAddress, node.getDeviceType(),
+                    node.getLastLinkQuality(), System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Updates neighbors of the responding node from neighbor table response page.
+     * Links previously reported by the node which are not present in the table anymore
+     * are removed once the last page of the table has been received.
+     * @param response the neighbor table response
+     */
+    public synchronized void updateNeighbors(final ZDO_MGMT_LQI_RSP response) {
+        if (response == null || response.Status != 0) {
+            return;
+        }
+        final int reporter = response.SrcAddress.get16BitValue();
+        final long now = System.currentTimeMillis();
+        if (response.getStartIndex() == 0) {
+            neighborTableReads.put(reporter, now);
+        }
+        touchNode(reporter, now);
+
+        final ZDO_MGMT_LQI_RSP.NeighborLqiListItemClass[] neighbors = response.getNeighborLqiList();
+        for (final ZDO_MGMT_LQI_RSP.NeighborLqiListItemClass neighbor : neighbors) {
+            final int neighborAddress = neighbor.NetworkAddress.get16BitValue();
+            final int deviceType = neighbor.Reserved_Relationship_RxOnWhenIdle_DeviceType & 0x03;
+            final int relationship = (neighbor.Reserved_Relationship_RxOnWhenIdle_DeviceType >> 4) & 0x07;
+
+            final TopologyNode previous = nodes.get(neighborAddress);
+            nodes.put(neighborAddress, new TopologyNode(neighborAddress, neighbor.ExtendedAddress.getLong(),
+                    deviceType, previous == null ? -1 : previous.getLastLinkQuality(),
+                    previous == null ? now : previous.getLastSeen()));
+
+            links.put(TopologyLink.key(neighborAddress, reporter), new TopologyLink(neighborAddress, reporter,
+                    neighbor.RxLQI, neighbor.Depth, relationship, now));
+        }
+
+        if (response.getStartIndex() + response.getNeighborLQICount() >= response.getNeighborLQIEntries()) {
+            final Long readStarted = neighborTableReads.remove(reporter);
+            if (readStarted != null) {
+                final Iterator<TopologyLink> iterator = links.values().iterator();
+                while (iterator.hasNext()) {
+                    final TopologyLink link = iterator.next();
+                    if (link.getDestination() == reporter && link.getLastSeen() < readStarted) {
+                        LOGGER.debug("Link {} no longer reported and removed from topology.", link);
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates routes of the responding router from routing table response page.
+     * Routes previously reported by the router which are not present in the table anymore
+     * are removed once the last page of the table has been received.
+     * @param response the routing table response
+     */
+    public synchronized void updateRoutes(final ZDO_MGMT_RTG_RSP response) {
+        if (response == null || response.Status != 0) {
+            return;
+        }
+        final int router = response.SrcAddress.get16BitValue();
+        final long now = System.currentTimeMillis();
+        if (response.getStartIndex() == 0) {
+            routingTableReads.put(router, now);
+        }
+        touchNode(router, now);
+
+        for (final ZDO_MGMT_RTG_RSP.RoutingTableListItemClass entry : response.getRoutingTableList()) {
+            final int destination = entry.DestinationAddress.get16BitValue();
+            routes.put(TopologyLink.key(router, destination), new TopologyRoute(router, destination,
+                    entry.NextHop.get16BitValue(), entry.Status & 0x07, now));
+        }
+
+        if (response.getStartIndex() + response.getRoutingTableListCount() >= response.getRoutingTableEntries()) {
+            final Long readStarted = routingTableReads.remove(router);
+            if (readStarted != null) {
+                final Iterator<TopologyRoute> iterator = routes.values().iterator();
+                while (iterator.hasNext()) {
+                    final TopologyRoute route = iterator.next();
+                    if (route.getRouter() == router && route.getLastSeen() < readStarted) {
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the link quality of the last hop towards the coordinator from incoming message.
+     * @param message the incoming message
+     */
+    public synchronized void updateLinkQuality(final AF_INCOMING_MSG message) {
+        if (message == null) {
+            return;
+        }
+        final int source = message.getSrcAddr() & 0xFFFF;
+        final TopologyNode node = nodes.get(source);
+        final long now = System.currentTimeMillis();
+        if (node == null) {
+            nodes.put(source, new TopologyNode(source, -1, TopologyNode.DEVICE_TYPE_UNKNOWN,
+                    message.getLinkQuality(), now));
+        } else {
+            nodes.put(source, new TopologyNode(source, node.getIeeeAddress(), node.getDeviceType(),
+                    message.getLinkQuality(), now));
+        }
+    }
+
+    /**
+     * Removes node and all links and routes where it is an end point.
+     * @param networkAddress the network address
+     * @return true if node was part of the topology
+     */
+    public synchronized boolean removeNode(final int networkAddress) {
+        final boolean removed = nodes.remove(networkAddress) != null;
+        final Iterator<TopologyLink> linkIterator = links.values().iterator();
+        while (linkIterator.hasNext()) {
+            final TopologyLink link = linkIterator.next();
+            if (link.getSource() == networkAddress || link.getDestination() == networkAddress) {
+                linkIterator.remove();
+            }
+        }
+        final Iterator<TopologyRoute> routeIterator = routes.values().iterator();
+        while (routeIterator.hasNext()) {
+            final TopologyRoute route = routeIterator.next();
+            if (route.getRouter() == networkAddress || route.getDestination() == networkAddress) {
+                routeIterator.remove();
+            }
+        }
+        neighborTableReads.remove(networkAddress);
+        routingTableReads.remove(networkAddress);
+        return removed;
+    }
+
+    /**
+     * Gets node.
+     * @param networkAddress the network address
+     * @return the node or null
+     */
+    public synchronized TopologyNode getNode(final int networkAddress) {
+        return nodes.get(networkAddress);
+    }
+
+    /**
+     * @return the nodes
+     */
+    public synchronized List<TopologyNode> getNodes() {
+        return new ArrayList<TopologyNode>(nodes.values());
+    }
+
+    /**
+     * Gets the links where given node is either end point.
+     * @param networkAddress the network address
+     * @return the links
+     */
+    public synchronized List<TopologyLink> getLinks(final int networkAddress) {
+        final List<TopologyLink> result = new ArrayList<TopologyLink>();
+        for (final TopologyLink link : links.values()) {
+            if (link.getSource() == networkAddress || link.getDestination() == networkAddress) {
+                result.add(link);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the neighbors of the given node, i.e. nodes with a link to or from the node.
+     * @param networkAddress the network address
+     * @return the neighbors
+     */
+    public synchronized List<TopologyNode> getNeighbors(final int networkAddress) {
+        final List<TopologyNode> result = new ArrayList<TopologyNode>();
+        for (final Integer neighborAddress : getAdjacency().get(networkAddress) == null
+                ? Collections.<Integer>emptySet() : getAdjacency().get(networkAddress)) {
+            final TopologyNode neighbor = nodes.get(neighborAddress);
+            if (neighbor != null) {
+                result.add(neighbor);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the routes held by the given router.
+     * @param router the router network address
+     * @return the routes
+     */
+    public synchronized List<TopologyRoute> getRoutes(final int router) {
+        final List<TopologyRoute> result = new ArrayList<TopologyRoute>();
+        for (final TopologyRoute route : routes.values()) {
+            if (route.getRouter() == router) {
+                result.add(route);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the smallest number of hops between coordinator and the given node
+     * relaying only through coordinator and routers.
+     * @param networkAddress the network address
+     * @return the hop count or -1 if node is not reachable in the known topology
+     */
+    public synchronized int getHopCount(final int networkAddress) {
+        final Map<Integer, Integer> hopCounts = getHopCounts(getAdjacency(), -1);
+        final Integer hopCount = hopCounts.get(networkAddress);
+        return hopCount == null ? -1 : hopCount;
+    }
+
+    /**
+     * Gets the weakest links ordered from the lowest link quality upwards.
+     * @param count the maximum number of links to return
+     * @return the weakest links
+     */
+    public synchronized List<TopologyLink> getWeakestLinks(final int count) {
+        final List<TopologyLink> result = new ArrayList<TopologyLink>(links.values());
+        Collections.sort(result, new Comparator<TopologyLink>() {
+            @Override
+            public int compare(final TopologyLink link1, final TopologyLink link2) {
+                return link1.getLinkQuality() - link2.getLinkQuality();
+            }
+        });
+        return result.size() > count ? new ArrayList<TopologyLink>(result.subList(0, count)) : result;
+    }
+
+    /**
+     * Gets the routing nodes whose failure would disconnect at least one other node
+     * from the coordinator in the known topology.
+     * @return the single points of failure
+     */
+    public synchronized List<TopologyNode> getSinglePointsOfFailure() {
+        final Map<Integer, Set<Integer>> adjacency = getAdjacency();
+        final Set<Integer> reachable = getHopCounts(adjacency, -1).keySet();
+        final List<TopologyNode> result = new ArrayList<TopologyNode>();
+        for (final Integer candidate : reachable) {
+            if (candidate == COORDINATOR_NETWORK_ADDRESS || !isRelaying(candidate)) {
+                continue;
+            }
+            final Set<Integer> reachableWithout = getHopCounts(adjacency, candidate).keySet();
+            if (reachableWithout.size() < reachable.size() - 1) {
+                result.add(nodes.get(candidate));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Takes a snapshot of the topology.
+     * @return the snapshot
+     */
+    public synchronized TopologySnapshot getSnapshot() {
+        return new TopologySnapshot(System.currentTimeMillis(), new ArrayList<TopologyNode>(nodes.values()),
+                new ArrayList<TopologyLink>(links.values()), new ArrayList<TopologyRoute>(routes.values()));
+    }
+
+    /**
+     * Marks node seen, adding it to topology if it is not known.
+     * @param networkAddress the network address
+     * @param now the current time
+     */
+    private void touchNode(final int networkAddress, final long now) {
+        final TopologyNode node = nodes.get(networkAddress);
+        if (node == null) {
+            nodes.put(networkAddress, new TopologyNode(networkAddress, -1,
+                    networkAddress == COORDINATOR_NETWORK_ADDRESS ? TopologyNode.DEVICE_TYPE_COORDINATOR
+                            : TopologyNode.DEVICE_TYPE_ROUTER, -1, now));
+        } else {
+            nodes.put(networkAddress, new TopologyNode(networkAddress, node.getIeeeAddress(), node.getDeviceType(),
+                    node.getLastLinkQuality(), now));
+        }
+    }
+
+    /**
+     * Checks whether node may relay messages. Nodes with unknown type are assumed to relay.
+     * @param networkAddress the network address
+     * @return true if node may relay
+     */
+    private boolean isRelaying(final int networkAddress) {
+        final TopologyNode node = nodes.get(networkAddress);
+        return node == null || node.getDeviceType() != TopologyNode.DEVICE_TYPE_END_DEVICE;
+    }
+
+    /**
+     * Builds undirected adjacency sets from links.
+     * @return the adjacency sets by network address
+     */
+    private Map<Integer, Set<Integer>> getAdjacency() {
+        final Map<Integer, Set<Integer>> adjacency = new HashMap<Integer, Set<Integer>>();
+        for (final TopologyLink link : links.values()) {
+            addAdjacent(adjacency, link.getSource(), link.getDestination());
+            addAdjacent(adjacency, link.getDestination(), link.getSource());
+        }
+        return adjacency;
+    }
+
+    private static void addAdjacent(final Map<Integer, Set<Integer>> adjacency, final int from, final int to) {
+        Set<Integer> adjacent = adjacency.get(from);
+        if (adjacent == null) {
+            adjacent = new HashSet<Integer>();
+            adjacency.put(from, adjacent);
+        }
+        adjacent.add(to);
+    }
+
+    /**
+     * Breadth first search from coordinator relaying only through routing nodes.
+     * @param adjacency the adjacency sets
+     * @param excluded the network address of node to treat as failed or -1
+     * @return the hop counts of reachable nodes by network address
+     */
+    private Map<Integer, Integer> getHopCounts(final Map<Integer, Set<Integer>> adjacency, final int excluded) {
+        final Map<Integer, Integer> hopCounts = new HashMap<Integer, Integer>();
+        final LinkedList<Integer> queue = new LinkedList<Integer>();
+        hopCounts.put(COORDINATOR_NETWORK_ADDRESS, 0);
+        queue.add(COORDINATOR_NETWORK_ADDRESS);
+        while (!queue.isEmpty()) {
+            final int current = queue.removeFirst();
+            if (current != COORDINATOR_NETWORK_ADDRESS && !isRelaying(current)) {
+                continue;
+            }
+            final Set<Integer> adjacent = adjacency.get(current);
+            if (adjacent == null) {
+                continue;
+            }
+            for (final Integer next : adjacent) {
+                if (next == excluded || hopCounts.containsKey(next)) {
+                    continue;
+                }
+                hopCounts.put(next, hopCounts.get(current) + 1);
+                queue.add(next);
+            }
+        }
+        return hopCounts;
+    }
+}
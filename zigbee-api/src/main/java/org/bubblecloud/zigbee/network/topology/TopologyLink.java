@@ -0,0 +1,103 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.topology;
+
+/**
+ * Immutable view of a radio link between two nodes in the {@link NetworkTopology}.
+ * The link is reported by the receiving node, the link quality is the quality at which
+ * the receiving node hears the transmitting node.
+ */
+public class TopologyLink {
+    public static final int RELATIONSHIP_PARENT = 0;
+    public static final int RELATIONSHIP_CHILD = 1;
+    public static final int RELATIONSHIP_SIBLING = 2;
+    public static final int RELATIONSHIP_NONE = 3;
+    public static final int RELATIONSHIP_PREVIOUS_CHILD = 4;
+
+    /**
+     * The network address of the transmitting node.
+     */
+    private final int source;
+    /**
+     * The network address of the receiving (reporting) node.
+     */
+    private final int destination;
+    /**
+     * The link quality indicator.
+     */
+    private final int linkQuality;
+    /**
+     * The depth of the transmitting node in the network tree.
+     */
+    private final int depth;
+    /**
+     * The relationship of the transmitting node to the receiving node.
+     */
+    private final int relationship;
+    /**
+     * The time this link was last reported in milliseconds.
+     */
+    private final long lastSeen;
+
+    public TopologyLink(final int source, final int destination, final int linkQuality, final int depth,
+                        final int relationship, final long lastSeen) {
+        this.source = source;
+        this.destination = destination;
+        this.linkQuality = linkQuality;
+        this.depth = depth;
+        this.relationship = relationship;
+        this.lastSeen = lastSeen;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public int getDestination() {
+        return destination;
+    }
+
+    public int getLinkQuality() {
+        return linkQuality;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getRelationship() {
+        return relationship;
+    }
+
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    /**
+     * Gets the key identifying link by its end points.
+     * @param source the source network address
+     * @param destination the destination network address
+     * @return the key
+     */
+    static long key(final int source, final int destination) {
+        return ((long) (source & 0xFFFF) << 16) | (destination & 0xFFFF);
+    }
+
+    @Override
+    public String toString() {
+        return "#" + source + " -> #" + destination + " (LQI " + linkQuality + ")";
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.topology;
+
+import org.bubblecloud.zigbee.network.model.IEEEAddress;
+
+/**
+ * Immutable view of a node in the {@link NetworkTopology}.
+ */
+public class TopologyNode {
+    /**
+     * Device type reported for coordinator in neighbor tables.
+     */
+    public static final int DEVICE_TYPE_COORDINATOR = 0;
+    /**
+     * Device type reported for routers in neighbor tables.
+     */
+    public static final int DEVICE_TYPE_ROUTER = 1;
+    /**
+     * Device type reported for end devices in neighbor tables.
+     */
+    public static final int DEVICE_TYPE_END_DEVICE = 2;
+    /**
+     * Device type not yet known.
+     */
+    public static final int DEVICE_TYPE_UNKNOWN = 3;
+
+    /**
+     * The network address.
+     */
+    private final int networkAddress;
+    /**
+     * The IEEE address or -1 if not known.
+     */
+    private final long ieeeAddress;
+    /**
+     * The device type.
+     */
+    private final int deviceType;
+    /**
+     * The link quality of the last frame received from this node by the coordinator or -1 if not known.
+     */
+    private final int lastLinkQuality;
+    /**
+     * The time of last evidence of this node in milliseconds.
+     */
+    private final long lastSeen;
+
+    public TopologyNode(final int networkAddress, final long ieeeAddress, final int deviceType,
+                        final int lastLinkQuality, final long lastSeen) {
+        this.networkAddress = networkAddress;
+        this.ieeeAddress = ieeeAddress;
+        this.deviceType = deviceType;
+        this.lastLinkQuality = lastLinkQuality;
+        this.lastSeen = lastSeen;
+    }
+
+    public int getNetworkAddress() {
+        return networkAddress;
+    }
+
+    public long getIeeeAddress() {
+        return ieeeAddress;
+    }
+
+    public int getDeviceType() {
+        return deviceType;
+    }
+
+    public int getLastLinkQuality() {
+        return lastLinkQuality;
+    }
+
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    /**
+     * @return true if node can relay messages for other nodes.
+     */
+    public boolean isRouting() {
+        return deviceType == DEVICE_TYPE_COORDINATOR || deviceType == DEVICE_TYPE_ROUTER;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + networkAddress + " (" + (ieeeAddress == -1 ? "?" : IEEEAddress.toColonNotation(ieeeAddress)) + ")";
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.topology;
+
+/**
+ * Immutable view of a routing table entry in the {@link NetworkTopology}.
+ */
+public class TopologyRoute {
+    public static final int STATUS_ACTIVE = 0;
+    public static final int STATUS_DISCOVERY_UNDERWAY = 1;
+    public static final int STATUS_DISCOVERY_FAILED = 2;
+    public static final int STATUS_INACTIVE = 3;
+
+    /**
+     * The network address of the router holding the entry.
+     */
+    private final int router;
+    /**
+     * The network address of the route destination.
+     */
+    private final int destination;
+    /**
+     * The network address of the next hop.
+     */
+    private final int nextHop;
+    /**
+     * The route status.
+     */
+    private final int status;
+    /**
+     * The time this route was last reported in milliseconds.
+     */
+    private final long lastSeen;
+
+    public TopologyRoute(final int router, final int destination, final int nextHop, final int status,
+                         final long lastSeen) {
+        this.router = router;
+        this.destination = destination;
+        this.nextHop = nextHop;
+        this.status = status;
+        this.lastSeen = lastSeen;
+    }
+
+    public int getRouter() {
+        return router;
+    }
+
+    public int getDestination() {
+        return destination;
+    }
+
+    public int getNextHop() {
+        return nextHop;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + router + ": #" + destination + " via #" + nextHop + " (status " + status + ")";
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.topology;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Point in time copy of the {@link NetworkTopology} suitable for export.
+ */
+public class TopologySnapshot {
+    /**
+     * The time snapshot was taken in milliseconds.
+     */
+    private final long timestamp;
+    /**
+     * The nodes.
+     */
+    private final List<TopologyNode> nodes;
+    /**
+     * The links.
+     */
+    private final List<TopologyLink> links;
+    /**
+     * The routes.
+     */
+    private final List<TopologyRoute> routes;
+
+    public TopologySnapshot(final long timestamp, final List<TopologyNode> nodes, final List<TopologyLink> links,
+                            final List<TopologyRoute> routes) {
+        this.timestamp = timestamp;
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.links = Collections.unmodifiableList(links);
+        this.routes = Collections.unmodifiableList(routes);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public List<TopologyNode> getNodes() {
+        return nodes;
+    }
+
+    public List<TopologyLink> getLinks() {
+        return links;
+    }
+
+    public List<TopologyRoute> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Exports snapshot in graphviz dot format.
+     * @return the snapshot as dot graph
+     */
+    public String toDot() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("digraph zigbee {\n");
+        for (final TopologyNode node : nodes) {
+            builder.append("  n").append(node.getNetworkAddress())
+                    .append(" [label=\"").append(node).append("\"];\n");
+        }
+        for (final TopologyLink link : links) {
+            builder.append("  n").append(link.getSource()).append(" -> n").append(link.getDestination())
+                    .append(" [label=\"").append(link.getLinkQuality()).append("\"];\n");
+        }
+        builder.append("}\n");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee;
+
+import org.bubblecloud.zigbee.api.Device;
+import org.bubblecloud.zigbee.network.impl.ZigBeeEndpointImpl;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNetwork;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNodeImpl;
+import org.bubblecloud.zigbee.network.model.DiscoveryMode;
+import org.bubblecloud.zigbee.network.port.ZigBeePort;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import static org.easymock.EasyMock.createNiceMock;
+
+/**
+ * Tests that devices follow their node to new network address when it rejoins.
+ */
+public class ZigBeeApiRejoinTest {
+
+    @Test
+    public void testDeviceReindexedOnRejoin() {
+        final ZigBeeApi api = new ZigBeeApi(createNiceMock(ZigBeePort.class), 4951, 11, false,
+                EnumSet.noneOf(DiscoveryMode.class));
+        final ZigBeeNetwork network = api.getZigBeeNetwork();
+
+        final ZigBeeNodeImpl node = new ZigBeeNodeImpl(1, "00:00:00:00:00:00:00:01", (short) 2);
+        network.addNode(node);
+        network.addEndpoint(new ZigBeeEndpointImpl(node, 0x0104, 0x0100, (byte) 0, (short) 1,
+                new int[]{0, 3, 4, 5, 6}, new int[]{}));
+
+        final ZigBeeApiContext context = api.getZigBeeApiContext();
+        final Device device = context.getDevice("00:00:00:00:00:00:00:01/1");
+        Assert.assertNotNull(device);
+        Assert.assertSame(device, context.getDeviceRegistry().getByNetworkAddress(1).get(0));
+
+        Assert.assertTrue(network.changeNetworkAddress("00:00:00:00:00:00:00:01", 0x1234));
+
+        Assert.assertTrue(context.getDeviceRegistry().getByNetworkAddress(1).isEmpty());
+        Assert.assertSame(device, context.getDeviceRegistry().getByNetworkAddress(0x1234).get(0));
+    }
+}
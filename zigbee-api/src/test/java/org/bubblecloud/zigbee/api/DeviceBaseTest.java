@@ -0,0 +1,118 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api;
+
+import org.bubblecloud.zigbee.ZigBeeApiContext;
+import org.bubblecloud.zigbee.api.cluster.Cluster;
+import org.bubblecloud.zigbee.api.cluster.general.Basic;
+import org.bubblecloud.zigbee.api.cluster.general.OnOff;
+import org.bubblecloud.zigbee.api.cluster.impl.BasicImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.OnOffImpl;
+import org.bubblecloud.zigbee.api.device.impl.OnOffLightDevice;
+import org.bubblecloud.zigbee.api.device.lighting.OnOffLight;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.network.impl.ZigBeeEndpointImpl;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNodeImpl;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests lazy cluster proxy construction in device base and device factory matching.
+ */
+public class DeviceBaseTest {
+
+    @Test
+    public void testLazyClusters() throws Exception {
+        final AtomicInteger created = new AtomicInteger();
+        final ZigBeeApiContext context = new ZigBeeApiContext();
+        context.setClusterFactory(new ClusterFactoryBase(context) {
+            {
+                addCluster(ZigBeeApiConstants.CLUSTER_ID_BASIC, new ClusterInstantiator() {
+                    public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                        created.incrementAndGet();
+                        return new BasicImpl(endpoint);
+                    }
+                });
+                addCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF, new ClusterInstantiator() {
+                    public Cluster newInstance(ZigBeeEndpoint endpoint) {
+                        created.incrementAndGet();
+                        return new OnOffImpl(endpoint);
+                    }
+                });
+            }
+        });
+
+        final ZigBeeEndpoint endpoint = createNiceMock(ZigBeeEndpoint.class);
+        expect(endpoint.getInputClusters()).andReturn(new int[]{
+                ZigBeeApiConstants.CLUSTER_ID_BASIC,
+                ZigBeeApiConstants.CLUSTER_ID_IDENTIFY,
+                ZigBeeApiConstants.CLUSTER_ID_ON_OFF}).once();
+        expect(endpoint.getOutputClusters()).andReturn(new int[0]).anyTimes();
+        expect(endpoint.providesInputCluster(anyInt())).andReturn(true).anyTimes();
+        replay(endpoint);
+
+        final OnOffLightDevice device = new OnOffLightDevice(context, endpoint);
+        assertEquals(0, created.get());
+
+        final OnOff onOff = device.getOnOff();
+        assertNotNull(onOff);
+        assertEquals(1, created.get());
+        assertSame(onOff, device.getCluster(ZigBeeApiConstants.CLUSTER_ID_ON_OFF));
+        assertSame(onOff, device.getCluster(OnOff.class));
+        assertEquals(1, created.get());
+
+        assertNull(device.getIdentify());
+        assertTrue(device.getCluster(Basic.class) instanceof BasicImpl);
+        assertEquals(2, created.get());
+
+        final Cluster[] available = device.getAvailableCluster();
+        assertEquals(3, available.length);
+        assertNull(available[2]);
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    public void testFactoryMatchReadsDescriptorClusters() {
+        final ZigBeeApiContext context = new ZigBeeApiContext();
+        DeviceFactoryRegistry.register(context);
+        DeviceFactory factory = null;
+        for (final DeviceFactory candidate : context.getDeviceFactories()) {
+            if (candidate.getDeviceId() == OnOffLight.DEVICE_ID) {
+                factory = candidate;
+            }
+        }
+        final int[] inputClusters = new int[]{
+                ZigBeeApiConstants.CLUSTER_ID_BASIC,
+                ZigBeeApiConstants.CLUSTER_ID_IDENTIFY,
+                ZigBeeApiConstants.CLUSTER_ID_ON_OFF,
+                0xFC00};
+
+        final ZigBeeEndpoint endpoint = createNiceMock(ZigBeeEndpoint.class);
+        expect(endpoint.getDeviceTypeId()).andReturn(0x7E57).anyTimes();
+        expect(endpoint.getProfileId()).andReturn(ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION).anyTimes();
+        expect(endpoint.getInputClusters()).andReturn(inputClusters).anyTimes();
+        replay(endpoint);
+
+        final int score = factory.hasMatch(new ZigBeeEndpointImpl(new ZigBeeNodeImpl(1, 0x1000L, (short) 2),
+                ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION, 0x7E57, (byte) 0, (short) 1, inputClusters, new int[0]));
+        assertEquals(ZigBeeEndpoint.MATCH_PROFILE_ID + 3, score);
+        assertEquals(score, factory.hasMatch(endpoint));
+    }
+}
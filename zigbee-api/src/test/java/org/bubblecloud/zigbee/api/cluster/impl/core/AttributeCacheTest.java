@@ -0,0 +1,93 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.core;
+
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.AttributeValue;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.CachePolicy;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZCLCluster;
+import org.bubblecloud.zigbee.api.cluster.impl.attribute.Attributes;
+import org.bubblecloud.zigbee.network.ClusterListener;
+import org.bubblecloud.zigbee.network.ClusterMessage;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+public class AttributeCacheTest {
+
+    private static final short CLUSTER_ID = 0x0402;
+
+    @Test
+    public void testPolicyFreshness() {
+        final AttributeValue value = new AttributeValue(1, 1000, AttributeValue.Source.READ);
+
+        assertFalse(CachePolicy.ALWAYS_LIVE.isFresh(value, 1000));
+        assertTrue(CachePolicy.CACHE_ONLY.isFresh(value, Long.MAX_VALUE));
+        assertFalse(CachePolicy.CACHE_ONLY.isFresh(null, 1000));
+        assertTrue(CachePolicy.maxAge(500).isFresh(value, 1500));
+        assertFalse(CachePolicy.maxAge(500).isFresh(value, 1501));
+    }
+
+    @Test
+    public void testReportUpdatesCache() {
+        final AttributeCache cache = new AttributeCache();
+        cache.handleCluster(null, message(new byte[]{
+                0x18, 0x01, 0x0A, 0x00, 0x00, 0x29, (byte) 0xE8, 0x03
+        }));
+
+        final AttributeValue value = cache.get(CLUSTER_ID, 0x0000);
+        assertNotNull(value);
+        assertEquals(1000, ((Number) value.getValue()).intValue());
+        assertEquals(AttributeValue.Source.REPORT, value.getSource());
+
+        cache.invalidate(CLUSTER_ID, 0x0000);
+        assertNull(cache.get(CLUSTER_ID, 0x0000));
+    }
+
+    @Test
+    public void testCacheOnlyDoesNotInvoke() throws Exception {
+        final ZigBeeEndpoint endpoint = createMock(ZigBeeEndpoint.class);
+        expect(endpoint.addClusterListener(anyObject(ClusterListener.class))).andReturn(true);
+        final ZCLCluster cluster = createMock(ZCLCluster.class);
+        expect(cluster.getId()).andReturn(CLUSTER_ID).anyTimes();
+        replay(endpoint, cluster);
+
+        final AttributeImpl attribute = new AttributeImpl(endpoint, cluster,
+                Attributes.MEASURED_VALUE_SIGNED_16_BIT);
+        assertNull(attribute.getValue(CachePolicy.CACHE_ONLY));
+
+        AttributeCache.getCache(endpoint).put(CLUSTER_ID, 0x0000,
+                new AttributeValue(21, System.currentTimeMillis(), AttributeValue.Source.REPORT));
+        attribute.setCachePolicy(CachePolicy.maxAge(60000));
+        assertEquals(21, attribute.getValue());
+        assertEquals(AttributeValue.Source.REPORT, attribute.getCachedValue().getSource());
+
+        verify(endpoint, cluster);
+    }
+
+    private static ClusterMessage message(final byte[] data) {
+        return new ClusterMessage() {
+            public short getId() {
+                return CLUSTER_ID;
+            }
+
+            public byte[] getClusterMsg() {
+                return data;
+            }
+        };
+    }
+}
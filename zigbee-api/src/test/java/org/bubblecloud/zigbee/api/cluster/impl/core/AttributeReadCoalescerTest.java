@@ -0,0 +1,158 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.core;
+
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.AttributeValue;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeType;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesStatus;
+import org.bubblecloud.zigbee.network.ClusterListener;
+import org.bubblecloud.zigbee.network.ClusterMessage;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+public class AttributeReadCoalescerTest {
+
+    private static final short CLUSTER_ID = 0x0000;
+
+    @Test
+    public void testTruncatedResponseIsCompleted() throws Exception {
+        final ZigBeeEndpoint endpoint = createEndpoint();
+        expect(endpoint.invoke(anyObject(ClusterMessage.class))).andAnswer(new ReadAnswer(2)).times(2);
+        replay(endpoint);
+
+        final AttributeReadCoalescer coalescer = new AttributeReadCoalescer(CLUSTER_ID, 0);
+        final ReadAttributesStatus[] statuses = coalescer.read(endpoint, new int[]{0, 1, 2}, new ZigBeeType[]{
+                ZigBeeType.UnsignedInteger8bit, ZigBeeType.UnsignedInteger8bit, ZigBeeType.UnsignedInteger8bit
+        });
+
+        assertEquals(3, statuses.length);
+        for (int i = 0; i < statuses.length; i++) {
+            assertEquals(i, statuses[i].getAttributeId());
+            assertEquals(i + 10, ((Number) statuses[i].getAttributeData()).intValue());
+        }
+        final AttributeValue cached = AttributeCache.getCache(endpoint).get(CLUSTER_ID, 2);
+        assertEquals(AttributeValue.Source.READ, cached.getSource());
+        verify(endpoint);
+    }
+
+    @Test
+    public void testRequestIsSplitAtPayloadSize() throws Exception {
+        final ZigBeeEndpoint endpoint = createEndpoint();
+        expect(endpoint.invoke(anyObject(ClusterMessage.class))).andAnswer(new ReadAnswer(Integer.MAX_VALUE)).times(4);
+        replay(endpoint);
+
+        final int[] ids = new int[10];
+        final ZigBeeType[] types = new ZigBeeType[10];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+            types[i] = ZigBeeType.CharacterString;
+        }
+        final ReadAttributesStatus[] statuses = new AttributeReadCoalescer(CLUSTER_ID, 0).read(endpoint, ids, types);
+
+        assertEquals(10, statuses.length);
+        assertEquals(9, statuses[9].getAttributeId());
+        verify(endpoint);
+    }
+
+    @Test
+    public void testInvokeFailureCompletesAllReaders() throws Exception {
+        final ZigBeeEndpoint endpoint = createEndpoint();
+        expect(endpoint.invoke(anyObject(ClusterMessage.class)))
+                .andThrow(new IllegalStateException("No sending endpoint.")).once();
+        replay(endpoint);
+
+        final AttributeReadCoalescer coalescer = new AttributeReadCoalescer(CLUSTER_ID, 200);
+        final Exception[] errors = new Exception[2];
+        final Thread[] readers = new Thread[2];
+        for (int i = 0; i < readers.length; i++) {
+            final int attributeId = i;
+            readers[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        coalescer.read(endpoint, new int[]{attributeId}, null);
+                    } catch (final Exception e) {
+                        errors[attributeId] = e;
+                    }
+                }
+            };
+            readers[i].start();
+            // The second reader queues its read while the first one waits for the coalescing window.
+            Thread.sleep(50);
+        }
+        for (final Thread reader : readers) {
+            reader.join(5000);
+            assertFalse(reader.isAlive());
+        }
+
+        for (final Exception error : errors) {
+            assertTrue(error instanceof ZigBeeClusterException);
+            assertTrue(error.getCause() instanceof IllegalStateException);
+        }
+        verify(endpoint);
+    }
+
+    private static ZigBeeEndpoint createEndpoint() {
+        final ZigBeeEndpoint endpoint = createMock(ZigBeeEndpoint.class);
+        expect(endpoint.addClusterListener(anyObject(ClusterListener.class))).andReturn(true).anyTimes();
+        expect(endpoint.getIeeeAddress()).andReturn("00:00:00:00:00:00:00:01").anyTimes();
+        return endpoint;
+    }
+
+    /**
+     * Answers a read request with an unsigned 8 bit value of attribute ID + 10 for at most the given
+     * number of requested attributes.
+     */
+    private static class ReadAnswer implements IAnswer<ClusterMessage> {
+        private final int maxRecords;
+
+        ReadAnswer(final int maxRecords) {
+            this.maxRecords = maxRecords;
+        }
+
+        public ClusterMessage answer() throws Throwable {
+            final byte[] request = ((ClusterMessage) getCurrentArguments()[0]).getClusterMsg();
+            final ByteArrayOutputStream response = new ByteArrayOutputStream();
+            response.write(0x18);
+            response.write(request[1]);
+            response.write(0x01);
+            for (int i = 3; i + 1 < request.length && (i - 3) / 2 < maxRecords; i += 2) {
+                response.write(request[i]);
+                response.write(request[i + 1]);
+                response.write(0x00);
+                response.write(0x20);
+                response.write(request[i] + 10);
+            }
+            final byte[] data = response.toByteArray();
+            return new ClusterMessage() {
+                public short getId() {
+                    return CLUSTER_ID;
+                }
+
+                public byte[] getClusterMsg() {
+                    return data;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.core;
+
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Status;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeType;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributeRecord;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributesStatus;
+import org.bubblecloud.zigbee.network.ClusterListener;
+import org.bubblecloud.zigbee.network.ClusterMessage;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.easymock.Capture;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+public class AttributeWriterTest {
+
+    private static final short CLUSTER_ID = 0x0201;
+
+    @Test
+    public void testRecordsPackedInOneFrame() throws Exception {
+        final ZigBeeEndpoint endpoint = createEndpoint();
+        final Capture<ClusterMessage> request = new Capture<ClusterMessage>();
+        expect(endpoint.invoke(capture(request))).andAnswer(new IAnswer<ClusterMessage>() {
+            public ClusterMessage answer() throws Throwable {
+                final byte transactionId = ((ClusterMessage) getCurrentArguments()[0]).getClusterMsg()[1];
+                // Only the failed record of attribute 0x0011 is listed
+                return message(new byte[]{0x18, transactionId, 0x04, (byte) 0x88, 0x11, 0x00});
+            }
+        });
+        replay(endpoint);
+
+        final WriteAttributesStatus[] statuses = AttributeWriter.write(endpoint, CLUSTER_ID, new WriteAttributeRecord[]{
+                record(0x0010, 1500), record(0x0011, 2200), record(0x0012, 1900)
+        }, false, false);
+
+        assertEquals(3, statuses.length);
+        assertEquals(Status.SUCCESS.id, statuses[0].getStatus());
+        assertEquals(Status.READ_ONLY.id, statuses[1].getStatus() & 0xFF);
+        assertEquals(0x0011, statuses[1].getAttributeId());
+        assertEquals(Status.SUCCESS.id, statuses[2].getStatus());
+        assertEquals(0x02, request.getValue().getClusterMsg()[2]);
+        assertEquals(3 + 3 * 5, request.getValue().getClusterMsg().length);
+        verify(endpoint);
+    }
+
+    @Test
+    public void testNoResponse() throws Exception {
+        final ZigBeeEndpoint endpoint = createEndpoint();
+        final Capture<ClusterMessage> request = new Capture<ClusterMessage>();
+        endpoint.send(capture(request));
+        replay(endpoint);
+
+        assertNull(AttributeWriter.write(endpoint, CLUSTER_ID, new WriteAttributeRecord[]{
+                record(0x0010, 1500)
+        }, true, false));
+        assertEquals(0x05, request.getValue().getClusterMsg()[2]);
+        verify(endpoint);
+    }
+
+    private static ZigBeeEndpoint createEndpoint() {
+        final ZigBeeEndpoint endpoint = createMock(ZigBeeEndpoint.class);
+        expect(endpoint.addClusterListener(anyObject(ClusterListener.class))).andReturn(true).anyTimes();
+        expect(endpoint.getIeeeAddress()).andReturn("00:00:00:00:00:00:00:01").anyTimes();
+        return endpoint;
+    }
+
+    private static WriteAttributeRecord record(final int attributeId, final int value) {
+        return new WriteAttributeRecord() {
+            public int getAttributeId() {
+                return attributeId;
+            }
+
+            public ZigBeeType getAttributeDataType() {
+                return ZigBeeType.SignedInteger16bit;
+            }
+
+            public Object getAttributeData() {
+                return value;
+            }
+        };
+    }
+
+    private static ClusterMessage message(final byte[] data) {
+        return new ClusterMessage() {
+            public short getId() {
+                return CLUSTER_ID;
+            }
+
+            public byte[] getClusterMsg() {
+                return data;
+            }
+        };
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.core;
+
+import org.bubblecloud.zigbee.api.cluster.impl.RawClusterMessageImpl;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Attribute;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ReportListener;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZCLCluster;
+import org.bubblecloud.zigbee.api.cluster.impl.attribute.Attributes;
+import org.bubblecloud.zigbee.network.ClusterListener;
+import org.bubblecloud.zigbee.network.ClusterMessage;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.network.impl.ClusterMessageImpl;
+import org.easymock.Capture;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.List;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+public class ClusterReportingSubscriptionTest {
+
+    private static final short CLUSTER_ID = 0x0402;
+
+    @Test
+    public void testSharedSubscription() throws Exception {
+        final List<ClusterMessage> configureFrames = new ArrayList<ClusterMessage>();
+        final Capture<ClusterListener> bridge = new Capture<ClusterListener>();
+        final ZigBeeEndpoint endpoint = createMock(ZigBeeEndpoint.class);
+        final ZCLCluster cluster = createMock(ZCLCluster.class);
+        expect(endpoint.getEndpointId()).andReturn("00:00:00:00:00:00:00:01/1").anyTimes();
+        expect(endpoint.bindToLocal(CLUSTER_ID)).andReturn(true).once();
+        expect(endpoint.invoke(anyObject(ClusterMessage.class))).andAnswer(new IAnswer<ClusterMessage>() {
+            public ClusterMessage answer() throws Throwable {
+                configureFrames.add((ClusterMessage) getCurrentArguments()[0]);
+                return new RawClusterMessageImpl(CLUSTER_ID, new byte[]{0x18, 0x01, 0x07, 0x00});
+            }
+        }).times(3);
+        expect(endpoint.addClusterListener(capture(bridge))).andReturn(true).once();
+        expect(endpoint.unbindFromLocal(CLUSTER_ID)).andReturn(true).once();
+        expect(endpoint.removeClusterListener(anyObject(ClusterListener.class))).andReturn(true).once();
+        expect(cluster.getId()).andReturn(CLUSTER_ID).anyTimes();
+
+        final Attribute measuredValue = new AttributeImpl(endpoint, cluster, Attributes.MEASURED_VALUE_SIGNED_16_BIT);
+        final Attribute tolerance = new AttributeImpl(endpoint, cluster, Attributes.TOLERANCE);
+        expect(cluster.getAttribute(0x0000)).andReturn(measuredValue).anyTimes();
+        expect(cluster.getAttribute(0x0003)).andReturn(tolerance).anyTimes();
+        replay(endpoint, cluster);
+
+        final ReporterBase measuredValueReporter = new AnalogReporterImpl(endpoint, cluster, measuredValue);
+        final ReporterBase toleranceReporter = new AnalogReporterImpl(endpoint, cluster, tolerance);
+        final CountingListener listener = new CountingListener();
+        final CountingListener secondListener = new CountingListener();
+
+        assertTrue(ClusterReportingSubscription.subscribe(listener, measuredValueReporter, toleranceReporter));
+        assertEquals(1, configureFrames.size());
+        final ZCLFrameView configure = ZCLFrameView.of(configureFrames.get(0));
+        assertEquals(0x06, configure.getCommandId());
+        assertEquals(2 * 10, configure.getPayloadLength());
+
+        assertTrue(measuredValueReporter.addReportListener(secondListener, true));
+        assertEquals(1, configureFrames.size());
+
+        bridge.getValue().handleCluster(endpoint, new ClusterMessageImpl(new byte[]{
+                0x18, 0x02, 0x0A, 0x00, 0x00, 0x29, (byte) 0xE8, 0x03
+        }, CLUSTER_ID));
+        assertEquals(1, listener.reports);
+        assertEquals(1, secondListener.reports);
+        assertEquals(1000, ((Number) secondListener.event.get(measuredValue)).intValue());
+
+        assertTrue(measuredValueReporter.removeReportListener(secondListener, true));
+        assertEquals(1, configureFrames.size());
+        assertTrue(measuredValueReporter.removeReportListener(listener, true));
+        assertEquals(2, configureFrames.size());
+        assertTrue(toleranceReporter.removeReportListener(listener, true));
+        assertEquals(3, configureFrames.size());
+
+        verify(endpoint, cluster);
+    }
+
+    private static class CountingListener implements ReportListener {
+        private int reports;
+        private Dictionary<Attribute, Object> event;
+
+        public void receivedReport(String endPointId, short clusterId, Dictionary<Attribute, Object> reports) {
+            this.reports++;
+            this.event = reports;
+        }
+    }
+}
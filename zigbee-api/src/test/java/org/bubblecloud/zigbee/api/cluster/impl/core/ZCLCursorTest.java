@@ -0,0 +1,87 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.core;
+
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeType;
+import org.bubblecloud.zigbee.api.cluster.impl.global.reporting.AttributeReportImpl;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ZCLCursorTest {
+
+    @Test
+    public void testPrimitiveReads() {
+        final ZCLCursor cursor = new ZCLCursor(new byte[]{
+                (byte) 0xFE,
+                0x34, 0x12,
+                (byte) 0xFE, (byte) 0xFF, (byte) 0xFF,
+                0x01, 0x02, 0x03, (byte) 0x80,
+                0x00, 0x00, (byte) 0x80, 0x3F,
+                0x00, 0x3C,
+                0x00, (byte) 0xC0
+        }, 0);
+
+        assertEquals(0xFE, cursor.readU8());
+        assertEquals(0x1234, cursor.readU16());
+        assertEquals(-2, cursor.readS24());
+        assertEquals(0x80030201L, cursor.readU32());
+        assertEquals(1.0f, cursor.readFloat(), 0);
+        assertEquals(1.0f, cursor.readSemiFloat(), 0);
+        assertEquals(-2.0f, cursor.readSemiFloat(), 0);
+        assertTrue(cursor.endOfStream());
+    }
+
+    @Test
+    public void testReadZigBeeType() {
+        final byte[] payload = new byte[]{
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                0x02, 'o', 'k'
+        };
+        final DefaultDeserializer deserializer = new DefaultDeserializer(payload, 0);
+
+        assertEquals(Integer.valueOf(0xFFFFFF), deserializer.readZigBeeType(ZigBeeType.UnsignedInteger24bit));
+        assertEquals(Integer.valueOf(-1), deserializer.readZigBeeType(ZigBeeType.SignedInteger24bit));
+        assertEquals(Long.valueOf(0xFFFFFFFFL), deserializer.readZigBeeType(ZigBeeType.UnsignedInteger32bit));
+        assertEquals(Integer.valueOf(-1), deserializer.readZigBeeType(ZigBeeType.Bitmap32bit));
+        assertEquals("ok", deserializer.readZigBeeType(ZigBeeType.CharacterString));
+        assertTrue(deserializer.endOfStream());
+    }
+
+    @Test
+    public void testAttributeReportPrimitivePath() {
+        final ZCLCursor cursor = new ZCLCursor(new byte[]{
+                0x00, 0x00, 0x29, 0x18, (byte) 0xFC,
+                0x05, 0x00, 0x42, 0x01, 'x',
+                0x06, 0x00, 0x23, 0x00, 0x00, 0x00, (byte) 0x80
+        }, 0);
+
+        final AttributeReportImpl temperature = new AttributeReportImpl(cursor);
+        final AttributeReportImpl name = new AttributeReportImpl(cursor);
+        final AttributeReportImpl counter = new AttributeReportImpl(cursor);
+
+        assertTrue(cursor.endOfStream());
+        assertEquals(-1000, temperature.getAttributeDataAsLong());
+        assertEquals(Integer.valueOf(-1000), temperature.getAttributeData());
+        assertEquals(5, name.getAttributeId());
+        assertEquals("x", name.getAttributeData());
+        assertEquals(0x80000000L, counter.getAttributeDataAsLong());
+        assertEquals(Long.valueOf(0x80000000L), counter.getAttributeData());
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.core;
+
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.AttributeReport;
+import org.bubblecloud.zigbee.network.impl.ClusterMessageImpl;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ZCLFrameViewTest {
+
+    private static final short CLUSTER_ID = 0x0402;
+
+    @Test
+    public void testReportDecodedOnce() throws Exception {
+        final ClusterMessageImpl message = new ClusterMessageImpl(new byte[]{
+                0x18, 0x01, 0x0A, 0x00, 0x00, 0x29, (byte) 0xE8, 0x03
+        }, CLUSTER_ID);
+        final ZCLFrameView view = ZCLFrameView.of(message);
+        assertSame(view, ZCLFrameView.of(message));
+        assertTrue(SubscriptionClusterFilter.FILTER.match(message));
+        assertTrue(view.isReportAttributes());
+        assertFalse(view.isDefaultResponseEnabled());
+        assertEquals(0x01, view.getTransactionId());
+        assertEquals(3, view.getPayloadOffset());
+        assertEquals(-1, view.getManufacturerCode());
+
+        final AttributeReport[] reports = view.getAttributeReports();
+        assertEquals(1, reports.length);
+        assertEquals(1000, reports[0].getAttributeDataAsLong());
+        assertSame(reports[0], ZCLFrameView.of(message).getAttributeReports()[0]);
+        assertArrayEquals(new byte[]{0x00, 0x00, 0x29, (byte) 0xE8, 0x03},
+                new ResponseImpl(message, CLUSTER_ID).getPayload());
+    }
+
+    @Test
+    public void testManufacturerSpecificHeader() throws Exception {
+        final ZCLFrameView view = new ZCLFrameView(CLUSTER_ID, new byte[]{
+                0x05, 0x34, 0x12, 0x07, 0x02, 0x55
+        });
+        assertTrue(view.isClusterSpecific());
+        assertTrue(view.isManufacturerSpecific());
+        assertEquals(0x1234, view.getManufacturerCode());
+        assertEquals(0x02, view.getCommandId());
+        assertArrayEquals(new byte[]{0x55}, view.copyPayload());
+        assertFalse(view.isReportAttributes());
+        assertEquals(0x07, view.getHeader().getTransactionId());
+    }
+
+    @Test(expected = ZigBeeClusterException.class)
+    public void testTruncatedReport() throws Exception {
+        new ZCLFrameView(CLUSTER_ID, new byte[]{0x18, 0x01, 0x0A, 0x00, 0x00, 0x21, 0x01}).getAttributeReports();
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.cluster.impl.core;
+
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeType;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.WriteAttributeRecord;
+import org.bubblecloud.zigbee.api.cluster.impl.global.write.WriteAttributeCommand;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ZCLFrameWriterTest {
+
+    @Test
+    public void testRoundTrip() {
+        final Object[] values = new Object[]{
+                Integer.valueOf(0xABCDEF), Integer.valueOf(-2), Long.valueOf(0xFFFFFFFEL),
+                Integer.valueOf(-3), Float.valueOf(1.5f), "hello"
+        };
+        final ZigBeeType[] types = new ZigBeeType[]{
+                ZigBeeType.UnsignedInteger24bit, ZigBeeType.SignedInteger24bit, ZigBeeType.UnsignedInteger32bit,
+                ZigBeeType.SignedInteger32bit, ZigBeeType.SinglePrecision, ZigBeeType.CharacterString
+        };
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            size += ZCLFrameWriter.sizeOf(values[i], types[i]);
+        }
+        final byte[] buffer = new byte[size];
+        final ZCLFrameWriter writer = new ZCLFrameWriter(buffer, 0);
+        for (int i = 0; i < values.length; i++) {
+            writer.appendZigBeeType(values[i], types[i]);
+        }
+        assertEquals(buffer.length, writer.getPosition());
+        assertEquals((byte) 0xEF, buffer[0]);
+
+        final DefaultDeserializer deserializer = new DefaultDeserializer(buffer, 0);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], deserializer.readZigBeeType(types[i]));
+        }
+        assertTrue(deserializer.endOfStream());
+    }
+
+    @Test
+    public void testSinglePassFrame() {
+        final WriteAttributeCommand cmd = new WriteAttributeCommand(new WriteAttributeRecord[]{
+                record(0x0010, ZigBeeType.UnsignedInteger16bit, Integer.valueOf(0x1234)),
+                record(0x0011, ZigBeeType.CharacterString, "abc")
+        });
+        assertEquals(5 + 7, cmd.getPayloadSize());
+
+        final ZCLFrame frame = new ZCLFrame(cmd, false);
+        final byte[] bytes = frame.toByte();
+        assertEquals(frame.getHeader().size() + cmd.getPayloadSize(), bytes.length);
+        assertArrayEquals(new byte[]{
+                0x10, 0x00, 0x21, 0x34, 0x12,
+                0x11, 0x00, 0x42, 0x03, 'a', 'b', 'c'
+        }, frame.getPayload());
+        assertArrayEquals(frame.getPayload(), Arrays.copyOfRange(bytes, frame.getHeader().size(), bytes.length));
+        assertArrayEquals(cmd.getPayload(), frame.getPayload());
+    }
+
+    private static WriteAttributeRecord record(final int id, final ZigBeeType type, final Object value) {
+        return new WriteAttributeRecord() {
+            public int getAttributeId() {
+                return id;
+            }
+
+            public ZigBeeType getAttributeDataType() {
+                return type;
+            }
+
+            public Object getAttributeData() {
+                return value;
+            }
+        };
+    }
+}
@@ -23,6 +23,8 @@ package org.bubblecloud.zigbee.api.cluster.impl.global.reporting;
 
 import static org.junit.Assert.assertNotNull;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.Attribute;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.AttributeValue;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.CachePolicy;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.Reporter;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
 import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeType;
@@ -64,6 +66,22 @@ public class ConfigureReportingCommandTest {
 								return null;
 							}
 
+							public Object getValue(CachePolicy policy)
+									throws ZigBeeClusterException {
+								return null;
+							}
+
+							public AttributeValue getCachedValue() {
+								return null;
+							}
+
+							public CachePolicy getCachePolicy() {
+								return CachePolicy.ALWAYS_LIVE;
+							}
+
+							public void setCachePolicy(CachePolicy policy) {
+							}
+
 							public ZigBeeType getZigBeeType() {
 								return ZigBeeType.UnsignedInteger32bit;
 							}
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.gather;
+
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.AttributeValue;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Status;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesStatus;
+import org.bubblecloud.zigbee.api.cluster.impl.core.AttributeCache;
+import org.bubblecloud.zigbee.network.ApplicationFrameworkMessageListener;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
+import org.bubblecloud.zigbee.network.impl.ApplicationFrameworkLayer;
+import org.bubblecloud.zigbee.network.impl.ZigBeeEndpointImpl;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNetwork;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNodeImpl;
+import org.bubblecloud.zigbee.network.packet.af.AF_DATA_CONFIRM;
+import org.bubblecloud.zigbee.network.packet.af.AF_DATA_REQUEST_EXT;
+import org.bubblecloud.zigbee.network.packet.af.AF_INCOMING_MSG;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests collecting and decoding of group addressed attribute read responses.
+ */
+public class GroupAttributeReaderTest {
+
+    private static final int CLUSTER_ID = 0x0402;
+    private static final int GROUP_ID = 0x0010;
+
+    @Test
+    public void testResponsesAreCollectedPerEndpoint() throws Exception {
+        final List<ApplicationFrameworkMessageListener> listeners = new ArrayList<ApplicationFrameworkMessageListener>();
+        final ZigBeeNetworkManager manager = createNiceMock(ZigBeeNetworkManager.class);
+        expect(manager.addAFMessageListner(anyObject(ApplicationFrameworkMessageListener.class)))
+                .andStubAnswer(new IAnswer<Boolean>() {
+                    @Override
+                    public Boolean answer() throws Throwable {
+                        return listeners.add((ApplicationFrameworkMessageListener) getCurrentArguments()[0]);
+                    }
+                });
+        expect(manager.removeAFMessageListener(anyObject(ApplicationFrameworkMessageListener.class)))
+                .andStubAnswer(new IAnswer<Boolean>() {
+                    @Override
+                    public Boolean answer() throws Throwable {
+                        return listeners.remove(getCurrentArguments()[0]);
+                    }
+                });
+        expect(manager.sendAFDataRequestExt(anyObject(AF_DATA_REQUEST_EXT.class)))
+                .andAnswer(new IAnswer<AF_DATA_CONFIRM>() {
+                    @Override
+                    public AF_DATA_CONFIRM answer() throws Throwable {
+                        final int[] request = ((AF_DATA_REQUEST_EXT) getCurrentArguments()[0]).getPacket();
+                        final int transaction = request[25];
+                        final List<AF_INCOMING_MSG> responses = Arrays.asList(
+                                response(0x1111, 0xE8, CLUSTER_ID, transaction, 0x00, 0x29, 0xC4, 0x09),
+                                response(0x2222, 0x01, CLUSTER_ID, transaction, 0x86),
+                                // Stale transaction, other cluster and unknown source are ignored.
+                                response(0x1111, 0x01, CLUSTER_ID, transaction + 1, 0x00, 0x29, 0x00, 0x00),
+                                response(0x1111, 0x01, 0x0405, transaction, 0x00, 0x21, 0x00, 0x00),
+                                response(0x3333, 0x01, CLUSTER_ID, transaction, 0x00, 0x29, 0x00, 0x00));
+                        for (final AF_INCOMING_MSG msg : responses) {
+                            for (final ApplicationFrameworkMessageListener listener
+                                    : new ArrayList<ApplicationFrameworkMessageListener>(listeners)) {
+                                listener.notify(msg);
+                            }
+                        }
+                        return new AF_DATA_CONFIRM(0, 1, 0);
+                    }
+                });
+        replay(manager);
+
+        final ApplicationFrameworkLayer af = ApplicationFrameworkLayer.getAFLayer(manager);
+        af.registerSenderEndPoint((short) 1, 0x0104, new int[]{CLUSTER_ID});
+        final ZigBeeNetwork network = af.getZigBeeNetwork();
+        final ZigBeeEndpointImpl high = addEndpoint(network, manager, 0x1111, 0x1000L, (short) 0xE8);
+        final ZigBeeEndpointImpl low = addEndpoint(network, manager, 0x1111, 0x1000L, (short) 0x01);
+        final ZigBeeEndpointImpl other = addEndpoint(network, manager, 0x2222, 0x2000L, (short) 0x01);
+
+        final Map<ZigBeeEndpoint, ReadAttributesStatus[]> results = new GroupAttributeReader(manager).read(
+                GROUP_ID, CLUSTER_ID, new int[]{0x0000}, 0);
+
+        assertEquals(Arrays.<ZigBeeEndpoint>asList(high, other), new ArrayList<ZigBeeEndpoint>(results.keySet()));
+        assertEquals((byte) Status.SUCCESS.id, results.get(high)[0].getStatus());
+        assertEquals(2500, ((Number) results.get(high)[0].getAttributeData()).intValue());
+        assertEquals((byte) Status.UNSUPPORTED_ATTRIBUTE.id, results.get(other)[0].getStatus());
+
+        final AttributeValue cached = AttributeCache.getCache(high).get(CLUSTER_ID, 0x0000);
+        assertEquals(2500, ((Number) cached.getValue()).intValue());
+        assertEquals(AttributeValue.Source.READ, cached.getSource());
+        assertEquals(0, AttributeCache.getCache(other).size());
+        assertEquals(0, AttributeCache.getCache(low).size());
+    }
+
+    private static ZigBeeEndpointImpl addEndpoint(final ZigBeeNetwork network, final ZigBeeNetworkManager manager,
+                                                  final int networkAddress, final long ieeeAddress,
+                                                  final short endpointAddress) {
+        ZigBeeNodeImpl node = (ZigBeeNodeImpl) network.getNodeByIeeeAddress(ieeeAddress);
+        if (node == null) {
+            node = new ZigBeeNodeImpl(networkAddress, ieeeAddress, (short) 2);
+            network.addNode(node);
+        }
+        final ZigBeeEndpointImpl endpoint = new ZigBeeEndpointImpl(node, 0x0104, 0x0302, (byte) 0, endpointAddress,
+                new int[]{CLUSTER_ID}, new int[]{});
+        endpoint.setNetworkManager(manager);
+        network.addEndpoint(endpoint);
+        return endpoint;
+    }
+
+    private static AF_INCOMING_MSG response(final int sourceAddress, final int sourceEndpoint, final int clusterId,
+                                            final int transaction, final int... record) {
+        final int[] header = new int[]{
+                0x00, 0x00, clusterId & 0xFF, clusterId >> 8, sourceAddress & 0xFF, sourceAddress >> 8,
+                sourceEndpoint, 0x01, 0x00, 0xFF, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 5 + record.length,
+                0x18, transaction & 0xFF, 0x01, 0x00, 0x00
+        };
+        final int[] framedata = Arrays.copyOf(header, header.length + record.length);
+        System.arraycopy(record, 0, framedata, header.length, record.length);
+        return new AF_INCOMING_MSG(framedata);
+    }
+}
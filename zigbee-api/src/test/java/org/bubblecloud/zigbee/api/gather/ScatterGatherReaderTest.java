@@ -0,0 +1,135 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.gather;
+
+import org.bubblecloud.zigbee.api.Device;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Status;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.ZigBeeClusterException;
+import org.bubblecloud.zigbee.api.cluster.impl.api.global.ReadAttributesStatus;
+import org.bubblecloud.zigbee.network.impl.ZigBeeBasedriverTimeOutException;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests scatter gather read result streaming, classification and deadline.
+ */
+public class ScatterGatherReaderTest {
+
+    private static final int CLUSTER_ID = 0x0402;
+    private static final int[] ATTRIBUTE_IDS = new int[]{0x0000};
+
+    @Test
+    public void testResultsAreClassified() throws Exception {
+        final Device success = createDevice(true);
+        expect(success.readAttributes(eq(CLUSTER_ID), aryEq(ATTRIBUTE_IDS)))
+                .andReturn(new ReadAttributesStatus[]{status(Status.SUCCESS)});
+        final Device unsupported = createDevice(true);
+        expect(unsupported.readAttributes(eq(CLUSTER_ID), aryEq(ATTRIBUTE_IDS)))
+                .andReturn(new ReadAttributesStatus[]{status(Status.UNSUPPORTED_ATTRIBUTE)});
+        final Device timeout = createDevice(true);
+        expect(timeout.readAttributes(eq(CLUSTER_ID), aryEq(ATTRIBUTE_IDS)))
+                .andThrow(new ZigBeeClusterException("timeout", new ZigBeeBasedriverTimeOutException()));
+        final Device missingCluster = createDevice(false);
+        replay(success, unsupported, timeout, missingCluster);
+
+        final List<Device> read = new ArrayList<Device>();
+        final List<Device> failed = new ArrayList<Device>();
+        final ScatterGatherSummary summary = new ScatterGatherReader(2).read(
+                Arrays.asList(success, unsupported, timeout, missingCluster), CLUSTER_ID, ATTRIBUTE_IDS, 5000,
+                new ScatterGatherListener() {
+                    @Override
+                    public void attributesRead(Device device, ReadAttributesStatus[] statuses) {
+                        synchronized (read) {
+                            read.add(device);
+                        }
+                    }
+
+                    @Override
+                    public void readFailed(Device device, Exception cause) {
+                        synchronized (failed) {
+                            failed.add(device);
+                        }
+                    }
+                });
+
+        assertEquals(4, summary.getRequested());
+        assertEquals(1, summary.getSuccesses());
+        assertEquals(2, summary.getUnsupported());
+        assertEquals(1, summary.getTimeouts());
+        assertEquals(0, summary.getFailures());
+        assertEquals(0, summary.getSkipped());
+        assertFalse(summary.isDeadlineExceeded());
+        assertEquals(2, read.size());
+        assertEquals(2, failed.size());
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        final List<Device> devices = new ArrayList<Device>();
+        for (int i = 0; i < 3; i++) {
+            final Device device = createDevice(true);
+            expect(device.readAttributes(eq(CLUSTER_ID), aryEq(ATTRIBUTE_IDS)))
+                    .andAnswer(new IAnswer<ReadAttributesStatus[]>() {
+                        @Override
+                        public ReadAttributesStatus[] answer() throws Throwable {
+                            try {
+                                Thread.sleep(500);
+                            } catch (final InterruptedException e) {
+                                // Endpoints report interrupted reads as cluster exceptions.
+                                cancelled.countDown();
+                                throw new ZigBeeClusterException("Interrupted while reading attributes.");
+                            }
+                            return new ReadAttributesStatus[]{status(Status.SUCCESS)};
+                        }
+                    }).anyTimes();
+            replay(device);
+            devices.add(device);
+        }
+
+        final ScatterGatherSummary summary = new ScatterGatherReader(1).read(devices, CLUSTER_ID, ATTRIBUTE_IDS,
+                100, null);
+
+        assertTrue(summary.isDeadlineExceeded());
+        assertEquals(0, summary.getSuccesses());
+        assertEquals(1, summary.getTimeouts());
+        assertEquals(2, summary.getSkipped());
+        assertTrue("In-flight read was not cancelled.", cancelled.await(5, TimeUnit.SECONDS));
+    }
+
+    private static Device createDevice(final boolean providesCluster) {
+        final Device device = createMock(Device.class);
+        expect(device.providesInputCluster(CLUSTER_ID)).andReturn(providesCluster).anyTimes();
+        expect(device.getEndpointId()).andReturn("device").anyTimes();
+        return device;
+    }
+
+    private static ReadAttributesStatus status(final Status status) {
+        final ReadAttributesStatus record = createMock(ReadAttributesStatus.class);
+        expect(record.getStatus()).andReturn((byte) status.id).anyTimes();
+        replay(record);
+        return record;
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.api.provisioning;
+
+import org.bubblecloud.zigbee.ZigBeeApiContext;
+import org.bubblecloud.zigbee.api.Device;
+import org.bubblecloud.zigbee.api.cluster.Cluster;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Attribute;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNodeImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests provisioning pipeline stage progression and retries.
+ */
+public class ProvisioningPipelineTest {
+
+    private ZigBeeApiContext context;
+    private ProvisioningPipeline pipeline;
+    private final List<ProvisioningStage> completedStages = new ArrayList<ProvisioningStage>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile boolean failed = false;
+
+    @Before
+    public void setUp() {
+        context = new ZigBeeApiContext();
+        pipeline = new ProvisioningPipeline(context);
+        pipeline.setClusters(6);
+        pipeline.setRetryPolicy(3, 10);
+        pipeline.addProvisioningListener(new ProvisioningListener() {
+            @Override
+            public void stageCompleted(Device device, ProvisioningStage stage) {
+                synchronized (completedStages) {
+                    completedStages.add(stage);
+                }
+            }
+
+            @Override
+            public void stageFailed(Device device, ProvisioningStage stage, Exception cause) {
+                failed = true;
+                done.countDown();
+            }
+
+            @Override
+            public void provisioningCompleted(Device device) {
+                done.countDown();
+            }
+        });
+        pipeline.start();
+    }
+
+    @After
+    public void tearDown() {
+        pipeline.shutdown();
+    }
+
+    private Device createDevice(final boolean... bindResults) throws Exception {
+        final Attribute attribute = createNiceMock(Attribute.class);
+        expect(attribute.isReportable()).andReturn(false).anyTimes();
+        final Cluster cluster = createNiceMock(Cluster.class);
+        expect(cluster.getId()).andReturn(6).anyTimes();
+        expect(cluster.getAttributes()).andReturn(new Attribute[]{attribute}).anyTimes();
+        final Device device = createNiceMock(Device.class);
+        expect(device.getEndpointId()).andReturn("00:00:00:00:00:00:00:01/1").anyTimes();
+        expect(device.getEndpoint()).andReturn(device).anyTimes();
+        expect(device.getNode()).andReturn(new ZigBeeNodeImpl(1, "00:00:00:00:00:00:00:01", (short) 2)).anyTimes();
+        expect(device.getAvailableCluster()).andReturn(new Cluster[]{cluster, null}).anyTimes();
+        for (final boolean bindResult : bindResults) {
+            expect(device.bindToLocal(6)).andReturn(bindResult).once();
+        }
+        replay(attribute, cluster, device);
+        return device;
+    }
+
+    @Test
+    public void testProvisioningWithRetry() throws Exception {
+        final Device device = createDevice(false, true);
+        final ProvisioningProgress progress = pipeline.provision(device);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertFalse(failed);
+        assertTrue(progress.isCompleted());
+        assertEquals(ProvisioningStage.SNAPSHOT, progress.getStage());
+        assertEquals(0, pipeline.getPendingCount());
+        synchronized (completedStages) {
+            assertEquals(4, completedStages.size());
+            assertEquals(ProvisioningStage.INTERVIEW, completedStages.get(0));
+            assertEquals(ProvisioningStage.BIND, completedStages.get(1));
+        }
+        verify(device);
+    }
+
+    @Test
+    public void testProvisioningFailure() throws Exception {
+        final Device device = createDevice(false, false, false);
+        context.addDevice(device);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(failed);
+        final ProvisioningProgress progress = pipeline.getProgress(device.getEndpointId());
+        assertTrue(progress.isFailed());
+        assertEquals(ProvisioningStage.BIND, progress.getStage());
+        assertEquals(3, progress.getFailedAttempts());
+    }
+
+    @Test
+    public void testRestoredDevicesAreNotProvisioned() throws Exception {
+        final Device device = createDevice();
+        assertEquals(1, context.addDevices(Collections.singletonList(device)).size());
+
+        assertNull(pipeline.getProgress(device.getEndpointId()));
+        assertEquals(0, pipeline.getPendingCount());
+        assertTrue(pipeline.getProgresses().isEmpty());
+    }
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.codegen;
+
+import org.bubblecloud.zigbee.api.cluster.impl.attribute.AttributeDescriptor;
+import org.bubblecloud.zigbee.api.cluster.impl.attribute.ClusterAttributeTable;
+
+/**
+ * Micro benchmark comparing the generated attribute table to the descriptor scan it replaces.
+ * Not run by the build; start {@link #main(String[])} manually.
+ */
+public class AttributeTableBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS = 5000000;
+
+    public static void main(final String[] args) {
+        final int[] clusterIds = ClusterAttributeTable.getClusterIds();
+        final AttributeDescriptor[][] descriptors = new AttributeDescriptor[clusterIds.length][];
+        for (int i = 0; i < clusterIds.length; i++) {
+            final int[] attributeIds = ClusterAttributeTable.getAttributeIds(clusterIds[i]);
+            descriptors[i] = new AttributeDescriptor[attributeIds.length];
+            for (int j = 0; j < attributeIds.length; j++) {
+                descriptors[i][j] = ClusterAttributeTable.getAttribute(clusterIds[i], attributeIds[j]);
+            }
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            long sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                final int cluster = i % clusterIds.length;
+                final AttributeDescriptor[] list = descriptors[cluster];
+                final int attributeId = list.length == 0 ? 0 : list[i % list.length].getId();
+                for (int j = 0; j < list.length; j++) {
+                    if (list[j].getId() == attributeId) {
+                        sink += j;
+                        break;
+                    }
+                }
+            }
+            final long scan = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                final int cluster = i % clusterIds.length;
+                final AttributeDescriptor[] list = descriptors[cluster];
+                final int attributeId = list.length == 0 ? 0 : list[i % list.length].getId();
+                sink += ClusterAttributeTable.indexOf(clusterIds[cluster], attributeId);
+            }
+            final long table = System.nanoTime() - start;
+
+            System.out.println("Round " + round + ": lookup scan " + nanos(scan) + " ns, table " + nanos(table)
+                    + " ns (" + sink + ")");
+        }
+    }
+
+    private static String nanos(final long total) {
+        return String.format("%.2f", (double) total / ITERATIONS);
+    }
+}
@@ -0,0 +1,461 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.codegen;
+
+import org.bubblecloud.zigbee.ZigBeeApiContext;
+import org.bubblecloud.zigbee.api.ClusterFactoryImpl;
+import org.bubblecloud.zigbee.api.DeviceBase;
+import org.bubblecloud.zigbee.api.cluster.Cluster;
+import org.bubblecloud.zigbee.api.cluster.impl.api.core.Attribute;
+import org.bubblecloud.zigbee.api.cluster.impl.attribute.AttributeDescriptor;
+import org.bubblecloud.zigbee.api.cluster.impl.attribute.Attributes;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates the reflection-free cluster attribute table and device factory registrations from
+ * the attribute metadata in {@link Attributes}, the clusters registered in {@link ClusterFactoryImpl}
+ * and the device implementations in the <code>org.bubblecloud.zigbee.api.device.impl</code> package.
+ * <p>
+ * The generated sources are kept under version control. Run {@link #main(String[])} from the
+ * <code>zigbee-api</code> directory after changing the metadata; {@link ClusterMetadataGeneratorTest}
+ * fails the build while the checked-in sources are out of date. The metadata only exists once the
+ * classes are loaded, which is why the generator reflects on them instead of running as an annotation
+ * processor.
+ * <p>
+ * No payload codecs are generated as command payloads carry the data type of every value and
+ * {@link org.bubblecloud.zigbee.api.cluster.impl.core.ZCLCursor} decodes them by that type.
+ */
+public class ClusterMetadataGenerator {
+
+    public static final String TABLE_PATH =
+            "src/main/java/org/bubblecloud/zigbee/api/cluster/impl/attribute/ClusterAttributeTable.java";
+    public static final String REGISTRY_PATH =
+            "src/main/java/org/bubblecloud/zigbee/api/DeviceFactoryRegistry.java";
+
+    private static final String DEVICE_PACKAGE = "org.bubblecloud.zigbee.api.device.impl";
+
+    private static final String HEADER = "/**\n"
+            + " * Copyright 2013 Tommi S.E. Laukkanen\n"
+            + " *\n"
+            + " * Licensed under the Apache License, Version 2.0 (the \"License\");\n"
+            + " * you may not use this file except in compliance with the License.\n"
+            + " * You may obtain a copy of the License at\n"
+            + " *\n"
+            + " * http://www.apache.org/licenses/LICENSE-2.0\n"
+            + " *\n"
+            + " * Unless required by applicable law or agreed to in writing, software\n"
+            + " * distributed under the License is distributed on an \"AS IS\" BASIS,\n"
+            + " * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.\n"
+            + " * See the License for the specific language governing permissions and\n"
+            + " * limitations under the License.\n"
+            + " */\n";
+
+    private final StringBuilder out = new StringBuilder();
+
+    public static void main(final String[] args) throws Exception {
+        final File base = new File(args.length > 0 ? args[0] : ".");
+        write(new File(base, TABLE_PATH), generateAttributeTable());
+        write(new File(base, REGISTRY_PATH), generateDeviceRegistry());
+    }
+
+    /**
+     * @return the source of <code>ClusterAttributeTable</code>
+     */
+    public static String generateAttributeTable() {
+        final List<ClusterModel> clusters = collectClusters();
+        final List<Integer> keys = new ArrayList<Integer>();
+        for (final ClusterModel cluster : clusters) {
+            for (final AttributeModel attribute : cluster.attributes) {
+                keys.add((cluster.id << 16) | attribute.descriptor.getId());
+            }
+        }
+        final int[] hash = findPerfectHash(keys);
+
+        final ClusterMetadataGenerator g = new ClusterMetadataGenerator();
+        g.line(HEADER + "package org.bubblecloud.zigbee.api.cluster.impl.attribute;");
+        g.line("");
+        g.line("import java.util.Arrays;");
+        g.line("");
+        g.line("/**");
+        g.line(" * Constant time attribute lookup table of the standard clusters.");
+        g.line(" * Attributes are keyed by cluster and attribute ID into an open addressed table whose hash multiplier");
+        g.line(" * was chosen at generation time so that no two standard attributes collide.");
+        g.line(" * <p>");
+        g.line(" * Generated by ClusterMetadataGenerator from {@link Attributes} and the clusters registered in");
+        g.line(" * ClusterFactoryImpl, do not edit.");
+        g.line(" */");
+        g.line("public final class ClusterAttributeTable {");
+        g.line("");
+        g.line("    private static final int HASH_MULTIPLIER = " + String.format("0x%08x", hash[0]) + ";");
+        g.line("    private static final int HASH_SHIFT = " + hash[1] + ";");
+        g.line("");
+        g.line("    private static final int[] KEYS = new int[1 << (32 - HASH_SHIFT)];");
+        g.line("    private static final int[] INDEXES = new int[KEYS.length];");
+        g.line("    private static final AttributeDescriptor[] ATTRIBUTES = new AttributeDescriptor[KEYS.length];");
+        g.line("");
+        g.line("    private static final int[] CLUSTER_IDS = new int[]{");
+        for (int i = 0; i < clusters.size(); i += 8) {
+            final StringBuilder ids = new StringBuilder("           ");
+            for (int j = i; j < Math.min(i + 8, clusters.size()); j++) {
+                ids.append(' ').append(hex(clusters.get(j).id)).append(j + 1 < clusters.size() ? "," : "");
+            }
+            g.line(ids.toString());
+        }
+        g.line("    };");
+        g.line("");
+        g.line("    private static final int[][] ATTRIBUTE_IDS = new int[][]{");
+        for (int i = 0; i < clusters.size(); i++) {
+            final ClusterModel cluster = clusters.get(i);
+            final StringBuilder ids = new StringBuilder();
+            for (int j = 0; j < cluster.attributes.size(); j++) {
+                ids.append(j == 0 ? "" : ", ").append(hex(cluster.attributes.get(j).descriptor.getId()));
+            }
+            g.line("            /* " + cluster.name + " */ {" + ids + "}" + (i + 1 < clusters.size() ? "," : ""));
+        }
+        g.line("    };");
+        g.line("");
+        g.line("    static {");
+        g.line("        Arrays.fill(KEYS, -1);");
+        for (final ClusterModel cluster : clusters) {
+            for (int i = 0; i < cluster.attributes.size(); i++) {
+                final AttributeModel attribute = cluster.attributes.get(i);
+                g.line("        put(" + hex(cluster.id) + ", " + i + ", Attributes." + attribute.field + ");");
+            }
+        }
+        g.line("    }");
+        g.line("");
+        g.line("    private ClusterAttributeTable() {");
+        g.line("    }");
+        g.line("");
+        g.line("    private static void put(int clusterId, int index, AttributeDescriptor attribute) {");
+        g.line("        final int key = (clusterId << 16) | attribute.getId();");
+        g.line("        final int slot = (key * HASH_MULTIPLIER) >>> HASH_SHIFT;");
+        g.line("        if (KEYS[slot] != -1) {");
+        g.line("            throw new IllegalStateException(\"Attribute table collision at \" + attribute.getName());");
+        g.line("        }");
+        g.line("        KEYS[slot] = key;");
+        g.line("        INDEXES[slot] = index;");
+        g.line("        ATTRIBUTES[slot] = attribute;");
+        g.line("    }");
+        g.line("");
+        g.line("    private static int slot(int clusterId, int attributeId) {");
+        g.line("        if (((clusterId | attributeId) & 0xFFFF0000) != 0) {");
+        g.line("            return -1;");
+        g.line("        }");
+        g.line("        final int key = (clusterId << 16) | attributeId;");
+        g.line("        final int slot = (key * HASH_MULTIPLIER) >>> HASH_SHIFT;");
+        g.line("        return KEYS[slot] == key ? slot : -1;");
+        g.line("    }");
+        g.line("");
+        g.line("    /**");
+        g.line("     * @return the sorted IDs of the clusters in the table");
+        g.line("     */");
+        g.line("    public static int[] getClusterIds() {");
+        g.line("        return CLUSTER_IDS.clone();");
+        g.line("    }");
+        g.line("");
+        g.line("    /**");
+        g.line("     * @return IDs of the standard attributes of the cluster in declaration order, or null if the cluster is unknown");
+        g.line("     */");
+        g.line("    public static int[] getAttributeIds(int clusterId) {");
+        g.line("        final int index = Arrays.binarySearch(CLUSTER_IDS, clusterId);");
+        g.line("        return index >= 0 ? ATTRIBUTE_IDS[index].clone() : null;");
+        g.line("    }");
+        g.line("");
+        g.line("    /**");
+        g.line("     * @return the descriptor of the attribute, or null if the attribute is unknown");
+        g.line("     */");
+        g.line("    public static AttributeDescriptor getAttribute(int clusterId, int attributeId) {");
+        g.line("        final int slot = slot(clusterId, attributeId);");
+        g.line("        return slot >= 0 ? ATTRIBUTES[slot] : null;");
+        g.line("    }");
+        g.line("");
+        g.line("    /**");
+        g.line("     * @return the position of the attribute in the standard attributes of the cluster, or -1 if the attribute is unknown");
+        g.line("     */");
+        g.line("    public static int indexOf(int clusterId, int attributeId) {");
+        g.line("        final int slot = slot(clusterId, attributeId);");
+        g.line("        return slot >= 0 ? INDEXES[slot] : -1;");
+        g.line("    }");
+        g.line("}");
+        return g.out.toString();
+    }
+
+    /**
+     * @return the source of <code>DeviceFactoryRegistry</code>
+     */
+    public static String generateDeviceRegistry() {
+        final List<Class<?>[]> devices = collectDevices();
+        final Set<String> imports = new TreeSet<String>(Arrays.asList(
+                "org.bubblecloud.zigbee.ZigBeeApiContext",
+                "org.bubblecloud.zigbee.network.ZigBeeEndpoint",
+                "org.bubblecloud.zigbee.util.ArraysUtil"
+        ));
+        for (final Class<?>[] device : devices) {
+            imports.add(device[0].getName());
+            imports.add(device[1].getName());
+        }
+        final ClusterMetadataGenerator g = new ClusterMetadataGenerator();
+        g.line(HEADER + "package org.bubblecloud.zigbee.api;");
+        g.line("");
+        for (final String name : imports) {
+            g.line("import " + name + ";");
+        }
+        g.line("");
+        g.line("/**");
+        g.line(" * Registers a {@link DeviceFactoryImpl} for every device implementation without reflection.");
+        g.line(" * <p>");
+        g.line(" * Generated by ClusterMetadataGenerator from the device implementations in " + DEVICE_PACKAGE + ", do not edit.");
+        g.line(" */");
+        g.line("public final class DeviceFactoryRegistry {");
+        g.line("");
+        g.line("    private DeviceFactoryRegistry() {");
+        g.line("    }");
+        g.line("");
+        g.line("    /**");
+        g.line("     * Adds the device factories to the context.");
+        g.line("     *");
+        g.line("     * @param context the API context");
+        g.line("     */");
+        g.line("    public static void register(final ZigBeeApiContext context) {");
+        for (final Class<?>[] device : devices) {
+            final String type = device[0].getSimpleName();
+            g.line("        context.getDeviceFactories().add(new DeviceFactoryImpl(context, " + type + ".class, "
+                    + type + ".DEVICE_ID,");
+            g.line("                ArraysUtil.append(" + type + ".STANDARD, " + type + ".CUSTOM),");
+            g.line("                new DeviceInstantiator() {");
+            g.line("                    public DeviceBase newInstance(ZigBeeApiContext context, ZigBeeEndpoint endpoint)");
+            g.line("                            throws ZigBeeDeviceException {");
+            g.line("                        return new " + device[1].getSimpleName() + "(context, endpoint);");
+            g.line("                    }");
+            g.line("                }));");
+        }
+        g.line("    }");
+        g.line("}");
+        return g.out.toString();
+    }
+
+    /**
+     * Finds an odd multiplier and shift for which the multiplicative hash of every key lands in its own slot.
+     *
+     * @return the multiplier and the shift
+     */
+    private static int[] findPerfectHash(final List<Integer> keys) {
+        for (int bits = 32 - Integer.numberOfLeadingZeros(keys.size() * 2 - 1); bits < 16; bits++) {
+            final boolean[] used = new boolean[1 << bits];
+            for (int multiplier = 0x9e3779b1, attempt = 0; attempt < 100000; multiplier += 2, attempt++) {
+                Arrays.fill(used, false);
+                boolean collision = false;
+                for (final int key : keys) {
+                    final int slot = (key * multiplier) >>> (32 - bits);
+                    if (used[slot]) {
+                        collision = true;
+                        break;
+                    }
+                    used[slot] = true;
+                }
+                if (!collision) {
+                    return new int[]{multiplier, 32 - bits};
+                }
+            }
+        }
+        throw new IllegalStateException("No collision free hash found for " + keys.size() + " attributes");
+    }
+
+    private static List<ClusterModel> collectClusters() {
+        final List<Field> fields = new ArrayList<Field>();
+        for (final Field field : Attributes.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && AttributeDescriptor.class.isAssignableFrom(field.getType())) {
+                fields.add(field);
+            }
+        }
+        sortByName(fields);
+
+        final ClusterFactoryImpl factory = new ClusterFactoryImpl(null);
+        final ZigBeeEndpoint endpoint = stubEndpoint();
+        final List<ClusterModel> clusters = new ArrayList<ClusterModel>();
+        for (int clusterId = 0; clusterId <= 0xFFFF; clusterId++) {
+            if (factory.getInstantiator(clusterId) == null) {
+                continue;
+            }
+            final Cluster cluster = factory.getInstance(clusterId, endpoint);
+            final ClusterModel model = new ClusterModel(clusterId, cluster.getName());
+            final Set<Integer> seen = new HashSet<Integer>();
+            final Attribute[] attributes = cluster.getAttributes();
+            for (int i = 0; attributes != null && i < attributes.length; i++) {
+                if (seen.add(attributes[i].getId())) {
+                    model.attributes.add(findDescriptor(fields, attributes[i], cluster));
+                }
+            }
+            clusters.add(model);
+        }
+        return clusters;
+    }
+
+    private static AttributeModel findDescriptor(final List<Field> fields, final Attribute attribute,
+                                                 final Cluster cluster) {
+        for (final Field field : fields) {
+            final AttributeDescriptor descriptor;
+            try {
+                descriptor = (AttributeDescriptor) field.get(null);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            if (descriptor.getId() == attribute.getId() && descriptor.getName().equals(attribute.getName())
+                    && descriptor.getZigBeeType() == attribute.getZigBeeType()
+                    && descriptor.isReportable() == attribute.isReportable()
+                    && descriptor.isWritable() == attribute.isWritable()) {
+                return new AttributeModel(field.getName(), descriptor);
+            }
+        }
+        throw new IllegalStateException("Attribute " + attribute.getName() + " of " + cluster.getName()
+                + " is not declared in " + Attributes.class.getName());
+    }
+
+    private static List<Class<?>[]> collectDevices() {
+        final URL url = ClusterMetadataGenerator.class.getClassLoader().getResource(DEVICE_PACKAGE.replace('.', '/'));
+        final File directory;
+        try {
+            directory = new File(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+        final String[] files = directory.list();
+        Arrays.sort(files);
+        final List<Class<?>[]> devices = new ArrayList<Class<?>[]>();
+        for (final String file : files) {
+            if (!file.endsWith(".class") || file.indexOf('$') >= 0) {
+                continue;
+            }
+            final Class<?> impl;
+            try {
+                impl = Class.forName(DEVICE_PACKAGE + "." + file.substring(0, file.length() - 6));
+                impl.getConstructor(ZigBeeApiContext.class, ZigBeeEndpoint.class);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            } catch (NoSuchMethodException e) {
+                continue;
+            }
+            if (Modifier.isAbstract(impl.getModifiers()) || !DeviceBase.class.isAssignableFrom(impl)) {
+                continue;
+            }
+            for (final Class<?> type : impl.getInterfaces()) {
+                if (hasField(type, "DEVICE_ID") && hasField(type, "STANDARD") && hasField(type, "CUSTOM")) {
+                    devices.add(new Class<?>[]{type, impl});
+                    break;
+                }
+            }
+        }
+        return devices;
+    }
+
+    private static boolean hasField(final Class<?> type, final String name) {
+        try {
+            type.getField(name);
+            return true;
+        } catch (NoSuchFieldException e) {
+            return false;
+        }
+    }
+
+    private static ZigBeeEndpoint stubEndpoint() {
+        return (ZigBeeEndpoint) Proxy.newProxyInstance(ClusterMetadataGenerator.class.getClassLoader(),
+                new Class<?>[]{ZigBeeEndpoint.class}, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        final Class<?> type = method.getReturnType();
+                        if (type == boolean.class) {
+                            return Boolean.FALSE;
+                        } else if (type == byte.class) {
+                            return Byte.valueOf((byte) 0);
+                        } else if (type == short.class) {
+                            return Short.valueOf((short) 0);
+                        } else if (type == int.class) {
+                            return Integer.valueOf(0);
+                        } else if (type == long.class) {
+                            return Long.valueOf(0);
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private static void sortByName(final List<Field> fields) {
+        Collections.sort(fields, new Comparator<Field>() {
+            public int compare(Field a, Field b) {
+                return a.getName().compareTo(b.getName());
+            }
+        });
+    }
+
+    private static String hex(final int value) {
+        return String.format("0x%04x", value);
+    }
+
+    private static void write(final File file, final String source) throws IOException {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(source);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void line(final String text) {
+        out.append(text).append('\n');
+    }
+
+    private static class ClusterModel {
+        private final int id;
+        private final String name;
+        private final List<AttributeModel> attributes = new ArrayList<AttributeModel>();
+
+        private ClusterModel(final int id, final String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    private static class AttributeModel {
+        private final String field;
+        private final AttributeDescriptor descriptor;
+
+        private AttributeModel(final String field, final AttributeDescriptor descriptor) {
+            this.field = field;
+            this.descriptor = descriptor;
+        }
+    }
+}
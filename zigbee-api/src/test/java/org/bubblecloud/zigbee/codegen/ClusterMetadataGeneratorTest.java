@@ -0,0 +1,88 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.codegen;
+
+import org.bubblecloud.zigbee.ZigBeeApiContext;
+import org.bubblecloud.zigbee.api.DeviceFactory;
+import org.bubblecloud.zigbee.api.DeviceFactoryRegistry;
+import org.bubblecloud.zigbee.api.cluster.impl.attribute.Attributes;
+import org.bubblecloud.zigbee.api.cluster.impl.attribute.ClusterAttributeTable;
+import org.bubblecloud.zigbee.api.device.lighting.OnOffLight;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the checked-in generated sources are up to date and that the generated attribute
+ * table and device registrations work.
+ */
+public class ClusterMetadataGeneratorTest {
+
+    @Test
+    public void testGeneratedSourcesUpToDate() throws Exception {
+        assertEquals("Run ClusterMetadataGenerator to regenerate " + ClusterMetadataGenerator.TABLE_PATH,
+                ClusterMetadataGenerator.generateAttributeTable(), read(ClusterMetadataGenerator.TABLE_PATH));
+        assertEquals("Run ClusterMetadataGenerator to regenerate " + ClusterMetadataGenerator.REGISTRY_PATH,
+                ClusterMetadataGenerator.generateDeviceRegistry(), read(ClusterMetadataGenerator.REGISTRY_PATH));
+    }
+
+    @Test
+    public void testAttributeLookup() {
+        assertSame(Attributes.MEASURED_VALUE_SIGNED_16_BIT, ClusterAttributeTable.getAttribute(0x0402, 0x0000));
+        assertSame(Attributes.TOLERANCE, ClusterAttributeTable.getAttribute(0x0402, 0x0003));
+        assertEquals(3, ClusterAttributeTable.indexOf(0x0402, 0x0003));
+        assertEquals(-1, ClusterAttributeTable.indexOf(0x0402, 0x0004));
+        assertEquals(-1, ClusterAttributeTable.indexOf(0xfc00, 0x0000));
+        assertNull(ClusterAttributeTable.getAttribute(0xfc00, 0x0000));
+        assertTrue(Arrays.binarySearch(ClusterAttributeTable.getClusterIds(), 0x0006) >= 0);
+        assertArrayEquals(new int[]{0x0000}, ClusterAttributeTable.getAttributeIds(0x0006));
+    }
+
+    @Test
+    public void testDeviceRegistry() {
+        final ZigBeeApiContext context = new ZigBeeApiContext();
+        DeviceFactoryRegistry.register(context);
+        assertEquals(17, context.getDeviceFactories().size());
+        boolean found = false;
+        for (final DeviceFactory factory : context.getDeviceFactories()) {
+            if (factory.getDeviceId() == OnOffLight.DEVICE_ID
+                    && Arrays.asList(factory.getRefinedInterfaces()).contains(OnOffLight.class.getName())) {
+                found = true;
+            }
+        }
+        assertTrue(found);
+    }
+
+    private static String read(final String path) throws IOException {
+        final File file = new File(path);
+        final byte[] bytes = new byte[(int) file.length()];
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < bytes.length) {
+                offset += in.read(bytes, offset, bytes.length - offset);
+            }
+        } finally {
+            in.close();
+        }
+        return new String(bytes, "UTF-8");
+    }
+}
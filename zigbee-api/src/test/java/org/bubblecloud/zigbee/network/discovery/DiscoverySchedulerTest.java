@@ -0,0 +1,131 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.discovery;
+
+import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
+import org.bubblecloud.zigbee.network.impl.ApplicationFrameworkLayer;
+import org.bubblecloud.zigbee.network.impl.ZigBeeEndpointImpl;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNetwork;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNodeImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.*;
+
+/**
+ * Tests discovery scheduler hold-off, sweep budget and new source handling.
+ */
+public class DiscoverySchedulerTest {
+
+    private ZigBeeNetworkManager driver;
+    private DiscoveryScheduler scheduler;
+    private Thread thread;
+
+    @Before
+    public void setUp() {
+        driver = createNiceMock(ZigBeeNetworkManager.class);
+        replay(driver);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (thread != null) {
+            scheduler.end();
+            scheduler.interrupt();
+            thread.join(5000);
+        }
+    }
+
+    @Test
+    public void testHoldOff() throws Exception {
+        start(false, false);
+        scheduler.setHoldOffMillis(60000);
+
+        assertTrue(scheduler.schedule(5, DiscoveryScheduler.Trigger.SEND_FAILURE));
+        awaitRequests(1);
+        assertFalse(scheduler.schedule(5, DiscoveryScheduler.Trigger.SEND_FAILURE));
+        assertFalse(scheduler.schedule(5, DiscoveryScheduler.Trigger.NEW_SOURCE));
+        assertFalse(scheduler.schedule(5, DiscoveryScheduler.Trigger.NEIGHBOR));
+
+        assertTrue(scheduler.schedule(6, DiscoveryScheduler.Trigger.SEND_FAILURE));
+        awaitRequests(2);
+
+        assertTrue(scheduler.schedule(5, DiscoveryScheduler.Trigger.ANNOUNCE));
+        awaitRequests(3);
+
+        scheduler.setHoldOffMillis(0);
+        assertTrue(scheduler.schedule(5, DiscoveryScheduler.Trigger.SEND_FAILURE));
+        awaitRequests(4);
+    }
+
+    @Test
+    public void testSweepBudget() throws Exception {
+        start(true, false);
+
+        // Initial walk of the coordinator and the first sweep request which consumes the only token.
+        awaitRequests(2);
+        Thread.sleep(300);
+        assertEquals(2, scheduler.getRequestCount());
+
+        scheduler.setSweepBudget(360000);
+        awaitRequests(10);
+
+        scheduler.setSweepBudget(0);
+        Thread.sleep(100);
+        final long count = scheduler.getRequestCount();
+        Thread.sleep(300);
+        assertEquals(count, scheduler.getRequestCount());
+    }
+
+    @Test
+    public void testNewSource() {
+        scheduler = new DiscoveryScheduler(new ImportingQueue(), driver, false, false);
+        final ZigBeeNetwork network = ApplicationFrameworkLayer.getAFLayer(driver).getZigBeeNetwork();
+
+        // Known to topology but endpoints never imported.
+        network.getTopology().updateNode(0x1234, 1L);
+        scheduler.newSource(0x1234);
+        assertEquals(1, scheduler.getPendingInspections());
+
+        final ZigBeeNodeImpl imported = new ZigBeeNodeImpl(0x2345, "00:00:00:00:00:00:00:02", (short) 1);
+        network.addNode(imported);
+        network.addEndpoint(new ZigBeeEndpointImpl(imported, 0x0104, 2, (byte) 0, (short) 1,
+                new int[]{6}, new int[0]));
+        scheduler.newSource(0x2345);
+        assertEquals(1, scheduler.getPendingInspections());
+
+        network.addNode(new ZigBeeNodeImpl(0x3456, "00:00:00:00:00:00:00:03", (short) 1));
+        scheduler.newSource(0x3456);
+        assertEquals(2, scheduler.getPendingInspections());
+    }
+
+    private void start(final boolean addressing, final boolean linkQuality) {
+        scheduler = new DiscoveryScheduler(new ImportingQueue(), driver, addressing, linkQuality);
+        thread = new Thread(scheduler);
+        thread.start();
+    }
+
+    private void awaitRequests(final long count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getRequestCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(scheduler.getRequestCount() >= count);
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.discovery;
+
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.bubblecloud.zigbee.network.model.DriverStatus;
+import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
+import org.bubblecloud.zigbee.network.impl.ApplicationFrameworkLayer;
+import org.bubblecloud.zigbee.network.impl.ZigBeeEndpointImpl;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNetwork;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNodeImpl;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_MATCH_DESC_REQ;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_MATCH_DESC_RSP;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests aggregation of match descriptor responses and scheduling of unknown responders.
+ */
+public class MatchDescriptorDiscoveryTest {
+
+    @Test
+    public void testDiscover() {
+        final ZigBeeNetworkManager driver = createMock(ZigBeeNetworkManager.class);
+        expect(driver.sendZDOMatchDescriptorRequest(anyObject(ZDO_MATCH_DESC_REQ.class), eq(100L))).andReturn(Arrays.asList(
+                response(0x1234, 0, 1, 2),
+                response(0x1234, 0, 3, 2),
+                response(0x2345, 0, 1),
+                response(0x4444, 0x80, 1),
+                response(0x5555, 0)
+        )).times(2);
+        expect(driver.getDriverStatus()).andStubReturn(DriverStatus.NETWORK_INITIALIZING);
+        replay(driver);
+
+        final ZigBeeNetwork network = ApplicationFrameworkLayer.getAFLayer(driver).getZigBeeNetwork();
+        final ZigBeeNodeImpl known = new ZigBeeNodeImpl(0x2345, "00:00:00:00:00:00:00:02", (short) 1);
+        final ZigBeeEndpointImpl endpoint = new ZigBeeEndpointImpl(known, 0x0104, 2, (byte) 0, (short) 1,
+                new int[]{6}, new int[0]);
+        network.addNode(known);
+        network.addEndpoint(endpoint);
+
+        final DiscoveryScheduler scheduler = new DiscoveryScheduler(new ImportingQueue(), driver, false, false);
+        final MatchDescriptorDiscovery discovery = new MatchDescriptorDiscovery(driver, scheduler);
+
+        final Map<Integer, int[]> matches = discovery.discover(0x0104, new int[]{6}, new int[0], 100L);
+        assertEquals(2, matches.size());
+        assertArrayEquals(new int[]{1, 2, 3}, matches.get(0x1234));
+        assertArrayEquals(new int[]{1}, matches.get(0x2345));
+        assertEquals("Only the unknown responder is inspected.", 1, scheduler.getPendingInspections());
+
+        final List<ZigBeeEndpoint> endpoints = discovery.findEndpoints(0x0104, new int[]{6}, new int[0], 100L);
+        assertEquals(1, endpoints.size());
+        assertSame(endpoint, endpoints.get(0));
+        assertEquals(1, scheduler.getPendingInspections());
+
+        verify(driver);
+    }
+
+    private static ZDO_MATCH_DESC_RSP response(final int networkAddress, final int status, final int... endpoints) {
+        final int[] frame = new int[6 + endpoints.length];
+        frame[0] = networkAddress & 0xFF;
+        frame[1] = networkAddress >> 8;
+        frame[2] = status;
+        frame[3] = networkAddress & 0xFF;
+        frame[4] = networkAddress >> 8;
+        frame[5] = endpoints.length;
+        System.arraycopy(endpoints, 0, frame, 6, endpoints.length);
+        return new ZDO_MATCH_DESC_RSP(frame);
+    }
+}
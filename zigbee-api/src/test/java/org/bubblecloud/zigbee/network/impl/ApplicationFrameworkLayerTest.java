@@ -0,0 +1,148 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.impl;
+
+import org.bubblecloud.zigbee.api.ZigBeeApiConstants;
+import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
+import org.bubblecloud.zigbee.network.model.DriverStatus;
+import org.bubblecloud.zigbee.network.packet.ResponseStatus;
+import org.bubblecloud.zigbee.network.packet.ZToolPacket;
+import org.bubblecloud.zigbee.network.packet.af.AF_REGISTER;
+import org.bubblecloud.zigbee.network.packet.af.AF_REGISTER_SRSP;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_SIMPLE_DESC_REQ;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_SIMPLE_DESC_RSP;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests sending endpoint registration on the dongle.
+ */
+public class ApplicationFrameworkLayerTest {
+
+    private static final int CUSTOM_CLUSTERS = 40;
+
+    @Test
+    public void testWarmStartReusesPlannedEndpoints() {
+        final int[] clusters = customClusters(0, CUSTOM_CLUSTERS);
+        final Dongle dongle = new Dongle();
+
+        startSession(dongle, clusters);
+        assertEquals(3, dongle.registered.size());
+        assertEquals(3, dongle.registrations);
+
+        // The dongle keeps its registrations over the restart, one planned endpoint only partly.
+        dongle.registered.put(3, customClusters(EndpointAllocationPlanner.MAX_CLUSTERS, CUSTOM_CLUSTERS - 2));
+        dongle.registrations = 0;
+        final ApplicationFrameworkLayer af = startSession(dongle, clusters);
+
+        assertEquals(4, dongle.registered.size());
+        assertEquals(1, dongle.registrations);
+        assertArrayEquals(customClusters(CUSTOM_CLUSTERS - 2, CUSTOM_CLUSTERS), dongle.registered.get(4));
+        assertEquals(2, af.getSendingEndpoint(null, clusters[0]));
+        assertEquals(3, af.getSendingEndpoint(null, clusters[EndpointAllocationPlanner.MAX_CLUSTERS]));
+        assertEquals(4, af.getSendingEndpoint(null, clusters[CUSTOM_CLUSTERS - 1]));
+        assertEquals(1, af.getSendingEndpoint(null, ZigBeeApiConstants.CLUSTER_ID_ON_OFF));
+    }
+
+    private static ApplicationFrameworkLayer startSession(final Dongle dongle, final int[] clusters) {
+        final ZigBeeNetworkManager driver = createMock(ZigBeeNetworkManager.class);
+        expect(driver.getDriverStatus()).andStubReturn(DriverStatus.NETWORK_INITIALIZING);
+        expect(driver.isWarmStarted()).andStubReturn(!dongle.registered.isEmpty());
+        expect(driver.sendAFRegister(anyObject(AF_REGISTER.class))).andStubAnswer(new IAnswer<AF_REGISTER_SRSP>() {
+            @Override
+            public AF_REGISTER_SRSP answer() throws Throwable {
+                return dongle.register((AF_REGISTER) getCurrentArguments()[0]);
+            }
+        });
+        expect(driver.sendZDOSimpleDescriptionRequest(anyObject(ZDO_SIMPLE_DESC_REQ.class)))
+                .andStubAnswer(new IAnswer<ZDO_SIMPLE_DESC_RSP>() {
+                    @Override
+                    public ZDO_SIMPLE_DESC_RSP answer() throws Throwable {
+                        return dongle.describe((ZDO_SIMPLE_DESC_REQ) getCurrentArguments()[0]);
+                    }
+                });
+        replay(driver);
+
+        final ApplicationFrameworkLayer af = ApplicationFrameworkLayer.getAFLayer(driver);
+        final ZigBeeNodeImpl node = new ZigBeeNodeImpl(1, 0x1000L, (short) 2);
+        af.getZigBeeNetwork().addNode(node);
+        af.getZigBeeNetwork().addEndpoint(new ZigBeeEndpointImpl(node, ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION,
+                0x0100, (byte) 0, (short) 1, clusters, new int[]{}));
+        af.createDefaultSendingEndPoint();
+        af.planSendingEndpoints();
+        return af;
+    }
+
+    private static int[] customClusters(final int from, final int to) {
+        final int[] clusters = new int[to - from];
+        for (int i = 0; i < clusters.length; i++) {
+            clusters[i] = 0xFC00 + from + i;
+        }
+        return clusters;
+    }
+
+    /**
+     * Dongle keeping the output clusters of registered endpoints.
+     */
+    private static class Dongle {
+        private final Map<Integer, int[]> registered = new TreeMap<Integer, int[]>();
+        private int registrations;
+
+        private AF_REGISTER_SRSP register(final AF_REGISTER request) {
+            final int[] packet = request.getPacket();
+            final int endPoint = packet[ZToolPacket.PAYLOAD_START_INDEX];
+            if (registered.containsKey(endPoint)) {
+                return new AF_REGISTER_SRSP(new int[]{ResponseStatus.Z_APS_DUPLICATE_ENTRY.getValue()});
+            }
+            final int[] clusters = new int[packet[ZToolPacket.PAYLOAD_START_INDEX + 8]];
+            for (int i = 0; i < clusters.length; i++) {
+                clusters[i] = packet[ZToolPacket.PAYLOAD_START_INDEX + 9 + i * 2]
+                        | packet[ZToolPacket.PAYLOAD_START_INDEX + 10 + i * 2] << 8;
+            }
+            registered.put(endPoint, clusters);
+            registrations++;
+            return new AF_REGISTER_SRSP(new int[]{0});
+        }
+
+        private ZDO_SIMPLE_DESC_RSP describe(final ZDO_SIMPLE_DESC_REQ request) {
+            final int endPoint = request.getPacket()[ZToolPacket.PAYLOAD_START_INDEX + 4];
+            final int[] clusters = registered.get(endPoint);
+            final List<Integer> frame = new ArrayList<Integer>();
+            final int profileId = ZigBeeApiConstants.PROFILE_ID_HOME_AUTOMATION;
+            for (final int value : new int[]{0, 0, 0, 0, 0, 8 + clusters.length * 2, endPoint,
+                    profileId & 0xFF, profileId >> 8, 0, 0, 0, 0, clusters.length}) {
+                frame.add(value);
+            }
+            for (final int cluster : clusters) {
+                frame.add(cluster & 0xFF);
+                frame.add(cluster >> 8);
+            }
+            final int[] framedata = new int[frame.size()];
+            for (int i = 0; i < framedata.length; i++) {
+                framedata[i] = frame.get(i);
+            }
+            return new ZDO_SIMPLE_DESC_RSP(framedata);
+        }
+    }
+}
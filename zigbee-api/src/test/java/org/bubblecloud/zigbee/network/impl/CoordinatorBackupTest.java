@@ -0,0 +1,130 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.impl;
+
+import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+public class CoordinatorBackupTest {
+
+    private static final byte[] NIB = new byte[]{1, 2, 3, 4, 5};
+    private static final byte[] PANID = new byte[]{(byte) 0xCD, (byte) 0xAB};
+
+    @Test
+    public void testBackupAndRestore() throws IOException {
+        final ZigBeeNetworkManager source = createMock(ZigBeeNetworkManager.class);
+        expect(source.readNvItem(CoordinatorBackup.ZCD_NV_PANID)).andReturn(PANID);
+        expect(source.readNvItem(CoordinatorBackup.ZCD_NV_DEVICE_LIST)).andReturn(null);
+        expect(source.readNvItem(CoordinatorBackup.ZCD_NV_NIB)).andReturn(NIB);
+        replay(source);
+
+        final CoordinatorBackup backup = CoordinatorBackup.read(source, new int[]{
+                CoordinatorBackup.ZCD_NV_PANID, CoordinatorBackup.ZCD_NV_DEVICE_LIST, CoordinatorBackup.ZCD_NV_NIB
+        });
+        verify(source);
+        assertEquals(2, backup.getItems().size());
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        backup.write(out);
+        final CoordinatorBackup loaded = CoordinatorBackup.load(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(backup.getTimestamp(), loaded.getTimestamp());
+        assertEquals(Arrays.asList(CoordinatorBackup.ZCD_NV_PANID, CoordinatorBackup.ZCD_NV_NIB),
+                Arrays.asList(loaded.getItems().keySet().toArray()));
+        for (final Map.Entry<Integer, byte[]> item : backup.getItems().entrySet()) {
+            assertArrayEquals(item.getValue(), loaded.getItems().get(item.getKey()));
+        }
+
+        final ZigBeeNetworkManager target = createStrictMock(ZigBeeNetworkManager.class);
+        expect(target.writeNvItem(eq(CoordinatorBackup.ZCD_NV_PANID), aryEq(PANID))).andReturn(true);
+        expect(target.writeNvItem(eq(CoordinatorBackup.ZCD_NV_NIB), aryEq(NIB))).andReturn(false);
+        expect(target.writeNvItem(eq(CoordinatorBackup.ZCD_NV_STARTUP_OPTION), aryEq(new byte[]{0}))).andReturn(true);
+        replay(target);
+
+        assertEquals(1, loaded.restore(target));
+        verify(target);
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptedBackup() throws IOException {
+        final ZigBeeNetworkManager source = createMock(ZigBeeNetworkManager.class);
+        expect(source.readNvItem(CoordinatorBackup.ZCD_NV_NIB)).andReturn(NIB);
+        replay(source);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CoordinatorBackup.read(source, new int[]{CoordinatorBackup.ZCD_NV_NIB}).write(out);
+        final byte[] bytes = out.toByteArray();
+        bytes[bytes.length - 6] ^= 0xFF;
+        CoordinatorBackup.load(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void testRestoreAdvancesFrameCounters() {
+        final byte[] activeKeyInfo = new byte[21];
+        activeKeyInfo[0] = 1;
+        activeKeyInfo[17] = (byte) 0xF0;
+        activeKeyInfo[18] = (byte) 0xD8;
+        final byte[] secMaterial = new byte[]{(byte) 0xFE, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                1, 2, 3, 4, 5, 6, 7, 8};
+
+        final ZigBeeNetworkManager source = createMock(ZigBeeNetworkManager.class);
+        expect(source.readNvItem(CoordinatorBackup.ZCD_NV_NWK_ACTIVE_KEY_INFO)).andReturn(activeKeyInfo);
+        expect(source.readNvItem(CoordinatorBackup.ZCD_NV_NWK_SEC_MATERIAL_TABLE_START)).andReturn(secMaterial);
+        replay(source);
+        final CoordinatorBackup backup = CoordinatorBackup.read(source, new int[]{
+                CoordinatorBackup.ZCD_NV_NWK_ACTIVE_KEY_INFO, CoordinatorBackup.ZCD_NV_NWK_SEC_MATERIAL_TABLE_START
+        });
+
+        // 0xD8F0 + 10000 = 0x10000, the security material counter saturates.
+        final byte[] advancedKeyInfo = activeKeyInfo.clone();
+        advancedKeyInfo[17] = 0;
+        advancedKeyInfo[18] = 0;
+        advancedKeyInfo[19] = 1;
+        final byte[] advancedSecMaterial = secMaterial.clone();
+        advancedSecMaterial[0] = (byte) 0xFF;
+
+        final ZigBeeNetworkManager target = createStrictMock(ZigBeeNetworkManager.class);
+        expect(target.writeNvItem(eq(CoordinatorBackup.ZCD_NV_NWK_ACTIVE_KEY_INFO), aryEq(advancedKeyInfo)))
+                .andReturn(true);
+        expect(target.writeNvItem(eq(CoordinatorBackup.ZCD_NV_NWK_SEC_MATERIAL_TABLE_START),
+                aryEq(advancedSecMaterial))).andReturn(true);
+        expect(target.writeNvItem(eq(CoordinatorBackup.ZCD_NV_STARTUP_OPTION), aryEq(new byte[]{0}))).andReturn(true);
+        replay(target);
+
+        assertEquals(2, backup.restore(target));
+        verify(target);
+        assertArrayEquals(activeKeyInfo, backup.getItems().get(CoordinatorBackup.ZCD_NV_NWK_ACTIVE_KEY_INFO));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBackupFailsOnItemTooLongToRead() {
+        final ZigBeeNetworkManager source = createMock(ZigBeeNetworkManager.class);
+        expect(source.readNvItem(CoordinatorBackup.ZCD_NV_PANID)).andReturn(PANID);
+        expect(source.readNvItem(CoordinatorBackup.ZCD_NV_DEVICE_LIST))
+                .andThrow(new IllegalStateException("NV item 34 is longer than the 495 bytes addressable."));
+        replay(source);
+
+        CoordinatorBackup.read(source, new int[]{CoordinatorBackup.ZCD_NV_PANID, CoordinatorBackup.ZCD_NV_DEVICE_LIST});
+    }
+}
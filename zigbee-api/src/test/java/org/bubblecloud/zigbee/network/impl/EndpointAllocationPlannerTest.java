@@ -0,0 +1,52 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.impl;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EndpointAllocationPlannerTest {
+
+    @Test
+    public void testPlanSkipsCoveredClusters() {
+        final List<int[]> plan = EndpointAllocationPlanner.plan(
+                Arrays.asList(6, 0, 8, 6, 768), new HashSet<Integer>(Arrays.asList(0, 3)));
+        assertEquals(1, plan.size());
+        assertArrayEquals(new int[]{6, 8, 768}, plan.get(0));
+    }
+
+    @Test
+    public void testPlanPacksClustersToFewestEndpoints() {
+        final List<int[]> plan = EndpointAllocationPlanner.plan(
+                Arrays.asList(1, 2, 3, 4, 5, 6, 7), Collections.<Integer>emptySet(), 3);
+        assertEquals(3, plan.size());
+        assertArrayEquals(new int[]{1, 2, 3}, plan.get(0));
+        assertArrayEquals(new int[]{4, 5, 6}, plan.get(1));
+        assertArrayEquals(new int[]{7}, plan.get(2));
+    }
+
+    @Test
+    public void testPlanNothingWhenCovered() {
+        assertTrue(EndpointAllocationPlanner.plan(
+                Arrays.asList(0, 6), new HashSet<Integer>(Arrays.asList(0, 6, 8))).isEmpty());
+    }
+}
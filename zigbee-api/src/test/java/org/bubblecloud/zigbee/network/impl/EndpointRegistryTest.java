@@ -0,0 +1,179 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.impl;
+
+import org.bubblecloud.zigbee.network.EndpointRestoreListener;
+import org.bubblecloud.zigbee.network.ZigBeeEndpoint;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests endpoint registry indexes.
+ */
+public class EndpointRegistryTest {
+
+    @Test
+    public void testIndexes() {
+        final ZigBeeNodeImpl node = new ZigBeeNodeImpl(1, "00:00:00:00:00:00:00:01", (short) 2);
+        final ZigBeeEndpointImpl light = new ZigBeeEndpointImpl(node, 0x0104, 0x0100, (byte) 0, (short) 1,
+                new int[]{0, 6}, new int[]{});
+        final ZigBeeEndpointImpl meter = new ZigBeeEndpointImpl(node, 0x0104, 0x0501, (byte) 0, (short) 2,
+                new int[]{0, 0x0702}, new int[]{6});
+
+        final EndpointRegistry<ZigBeeEndpoint> registry = new EndpointRegistry<ZigBeeEndpoint>();
+        Assert.assertTrue(registry.add(light));
+        Assert.assertTrue(registry.add(meter));
+        Assert.assertFalse(registry.add(light));
+
+        Assert.assertEquals(2, registry.size());
+        Assert.assertSame(light, registry.get("00:00:00:00:00:00:00:01/1"));
+        Assert.assertSame(meter, registry.get(1L, 2));
+        Assert.assertNull(registry.get("invalid"));
+        Assert.assertEquals(2, registry.getByIeeeAddress(1L).size());
+        Assert.assertEquals(2, registry.getByNetworkAddress(1).size());
+        Assert.assertEquals(2, registry.getByProfile(0x0104).size());
+        Assert.assertEquals(2, registry.getByInputCluster(0).size());
+        Assert.assertSame(meter, registry.getByInputCluster(0x0702).get(0));
+        Assert.assertSame(meter, registry.getByOutputCluster(6).get(0));
+        Assert.assertSame(light, registry.getByDeviceType(0x0100).get(0));
+        Assert.assertEquals(3, registry.getProfileClusters(0x0104).size());
+
+        final List<ZigBeeEndpoint> snapshot = registry.getAll();
+        Assert.assertTrue(registry.remove(meter));
+        Assert.assertFalse(registry.remove(meter));
+        Assert.assertEquals(2, snapshot.size());
+        Assert.assertEquals(1, registry.size());
+        Assert.assertTrue(registry.getByInputCluster(0x0702).isEmpty());
+        Assert.assertEquals(2, registry.getProfileClusters(0x0104).size());
+    }
+
+    @Test
+    public void testUpdateNetworkAddress() {
+        final ZigBeeNodeImpl node = new ZigBeeNodeImpl(1, "00:00:00:00:00:00:00:01", (short) 2);
+        final ZigBeeEndpointImpl endpoint = new ZigBeeEndpointImpl(node, 0x0104, 0x0100, (byte) 0, (short) 1,
+                new int[]{0, 6}, new int[]{});
+        final EndpointRegistry<ZigBeeEndpoint> registry = new EndpointRegistry<ZigBeeEndpoint>();
+        registry.add(endpoint);
+
+        node.setNetworkAddress(0x1234);
+        registry.updateNetworkAddress(1L);
+
+        Assert.assertTrue(registry.getByNetworkAddress(1).isEmpty());
+        Assert.assertSame(endpoint, registry.getByNetworkAddress(0x1234).get(0));
+    }
+
+    @Test
+    public void testSnapshotsAreNotChangedByLaterModifications() {
+        final EndpointRegistry<ZigBeeEndpoint> registry = new EndpointRegistry<ZigBeeEndpoint>();
+        final List<ZigBeeEndpoint> endpoints = new ArrayList<ZigBeeEndpoint>();
+        final List<List<ZigBeeEndpoint>> snapshots = new ArrayList<List<ZigBeeEndpoint>>();
+        for (int i = 0; i < 100; i++) {
+            final ZigBeeNodeImpl node = new ZigBeeNodeImpl(i, "00:00:00:00:00:00:01:" + String.format("%02X", i),
+                    (short) 2);
+            final ZigBeeEndpointImpl endpoint = new ZigBeeEndpointImpl(node, 0x0104, 0x0100, (byte) 0, (short) 1,
+                    new int[]{0, 6 + i % 3}, new int[]{});
+            endpoints.add(endpoint);
+            Assert.assertTrue(registry.add(endpoint));
+            snapshots.add(registry.getByProfile(0x0104));
+        }
+        Assert.assertTrue(registry.remove(endpoints.get(99)));
+        final ZigBeeNodeImpl node = new ZigBeeNodeImpl(200, "00:00:00:00:00:00:02:00", (short) 2);
+        Assert.assertTrue(registry.add(new ZigBeeEndpointImpl(node, 0x0104, 0x0100, (byte) 0, (short) 1,
+                new int[]{0}, new int[]{})));
+
+        for (int i = 0; i < snapshots.size(); i++) {
+            Assert.assertEquals(endpoints.subList(0, i + 1), snapshots.get(i));
+        }
+        Assert.assertEquals(100, registry.getAll().size());
+        Assert.assertEquals(endpoints.subList(0, 99), registry.getAll().subList(0, 99));
+        Assert.assertEquals(4, registry.getProfileClusters(0x0104).size());
+    }
+
+    @Test
+    public void testProfileClustersExtendedOnAdd() {
+        final EndpointRegistry<ZigBeeEndpoint> registry = new EndpointRegistry<ZigBeeEndpoint>();
+        final ZigBeeNodeImpl node = new ZigBeeNodeImpl(1, "00:00:00:00:00:00:00:01", (short) 2);
+        registry.add(new ZigBeeEndpointImpl(node, 0x0104, 0x0100, (byte) 0, (short) 1, new int[]{0, 6}, new int[]{}));
+        final Set<Integer> clusters = registry.getProfileClusters(0x0104);
+
+        // Known clusters keep the set as is.
+        registry.add(new ZigBeeEndpointImpl(node, 0x0104, 0x0100, (byte) 0, (short) 2, new int[]{6}, new int[]{0}));
+        Assert.assertSame(clusters, registry.getProfileClusters(0x0104));
+
+        final ZigBeeEndpointImpl meter = new ZigBeeEndpointImpl(node, 0x0104, 0x0501, (byte) 0, (short) 3,
+                new int[]{0x0702}, new int[]{8});
+        registry.add(meter);
+        Assert.assertEquals(new HashSet<Integer>(Arrays.asList(0, 6, 8, 0x0702)), registry.getProfileClusters(0x0104));
+        Assert.assertEquals(2, clusters.size());
+
+        registry.remove(meter);
+        Assert.assertEquals(clusters, registry.getProfileClusters(0x0104));
+    }
+
+    @Test
+    public void testAddAllNotifiesRestoreListenerOnce() {
+        final ZigBeeNetwork network = new ZigBeeNetwork();
+        final List<ZigBeeEndpoint> endpoints = new ArrayList<ZigBeeEndpoint>();
+        for (int i = 0; i < 100; i++) {
+            final ZigBeeNodeImpl node = new ZigBeeNodeImpl(i + 1, 0x100L + i, (short) 2);
+            network.addNode(node);
+            endpoints.add(new ZigBeeEndpointImpl(node, 0x0104, 0x0100, (byte) 0, (short) 1,
+                    new int[]{0, 6}, new int[]{}));
+        }
+        // Duplicate within the batch is skipped.
+        endpoints.add(new ZigBeeEndpointImpl(network.getNodeByIeeeAddress(0x100L), 0x0104, 0x0100, (byte) 0,
+                (short) 1, new int[]{0}, new int[]{}));
+
+        final List<Integer> restoreEvents = new ArrayList<Integer>();
+        final List<ZigBeeEndpoint> addEvents = new ArrayList<ZigBeeEndpoint>();
+        network.addEndpointListenerListener(new EndpointRestoreListener() {
+            @Override
+            public void endpointsRestored(final List<ZigBeeEndpoint> restored) {
+                restoreEvents.add(restored.size());
+            }
+
+            @Override
+            public void endpointAdded(final ZigBeeEndpoint endpoint) {
+                addEvents.add(endpoint);
+            }
+
+            @Override
+            public void endpointUpdated(final ZigBeeEndpoint endpoint) {
+            }
+
+            @Override
+            public void endpointRemoved(final ZigBeeEndpoint endpoint) {
+            }
+        });
+
+        Assert.assertEquals(100, network.addEndpoints(endpoints).size());
+        Assert.assertEquals(1, restoreEvents.size());
+        Assert.assertEquals(100, restoreEvents.get(0).intValue());
+        Assert.assertTrue(addEvents.isEmpty());
+
+        final EndpointRegistry<ZigBeeEndpoint> registry = network.getEndpointRegistry();
+        Assert.assertEquals(100, registry.getByInputCluster(6).size());
+        Assert.assertEquals(1, registry.getByNetworkAddress(50).size());
+        Assert.assertEquals(2, registry.getProfileClusters(0x0104).size());
+        Assert.assertTrue(network.addEndpoints(endpoints).isEmpty());
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.impl;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests network state snapshot and journal persistence.
+ */
+public class NetworkStateJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testJournalRestore() throws Exception {
+        final File directory = folder.newFolder("state");
+        final ZigBeeNetwork network = new ZigBeeNetwork();
+        final ZigBeeNodeImpl node1 = new ZigBeeNodeImpl(1, 0x1000L, (short) 2);
+        network.addNode(node1);
+        network.addEndpoint(new ZigBeeEndpointImpl(node1, 0x104, 0x100, (byte) 1, (short) 1, new int[]{0, 6}, new int[]{}));
+
+        final NetworkStateJournal journal = new NetworkStateJournal(directory);
+        journal.open(network);
+        assertEquals(0, journal.getRecordCount());
+
+        final ZigBeeNodeImpl node2 = new ZigBeeNodeImpl(5, 0x2000L, (short) 2);
+        network.addNode(node2);
+        network.addEndpoint(new ZigBeeEndpointImpl(node2, 0x104, 0x302, (byte) 0, (short) 1, new int[]{0x402}, new int[]{}));
+        final ZigBeeEndpointImpl removed = new ZigBeeEndpointImpl(node2, 0x104, 0x0, (byte) 0, (short) 2, new int[]{}, new int[]{6});
+        network.addEndpoint(removed);
+        network.removeEndpoint(removed);
+        network.changeNetworkAddress(0x2000L, 7);
+        assertEquals(5, journal.getRecordCount());
+
+        // Torn write at the end of journal is ignored.
+        final FileOutputStream out = new FileOutputStream(new File(directory, NetworkStateJournal.JOURNAL_FILE), true);
+        out.write(new byte[]{NetworkStateJournal.ENDPOINT_UPDATED, 0, 40, 1});
+        out.close();
+
+        final ZigBeeNetwork restored = new ZigBeeNetwork();
+        assertEquals(2, new NetworkStateJournal(directory).restore(null, restored));
+        assertEquals(1, restored.getEndPoints(restored.getNodeByIeeeAddress(0x1000L)).size());
+        assertEquals(7, restored.getNodeByIeeeAddress(0x2000L).getNetworkAddress());
+        assertTrue(restored.containsEndpoint(0x2000L, (short) 1));
+        assertFalse(restored.containsEndpoint(0x2000L, (short) 2));
+        assertTrue(restored.getEndPoints(restored.getNodeByIeeeAddress(0x1000L)).get(0).providesInputCluster(6));
+
+        journal.close();
+        assertEquals(6, new File(directory, NetworkStateJournal.JOURNAL_FILE).length());
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        final File directory = folder.newFolder("compaction");
+        final ZigBeeNetwork network = new ZigBeeNetwork();
+        final NetworkStateJournal journal = new NetworkStateJournal(directory);
+        journal.setCompactionThreshold(4);
+        journal.open(network);
+
+        for (int i = 0; i < 10; i++) {
+            final ZigBeeNodeImpl node = new ZigBeeNodeImpl(i + 1, 0x100L + i, (short) 2);
+            network.addNode(node);
+            network.addEndpoint(new ZigBeeEndpointImpl(node, 0x104, 0x100, (byte) 1, (short) 1, new int[]{6}, new int[]{}));
+        }
+        journal.awaitCompaction();
+        assertTrue(journal.getRecordCount() < 4);
+
+        final ZigBeeNetwork restored = new ZigBeeNetwork();
+        assertEquals(10, new NetworkStateJournal(directory).restore(null, restored));
+        journal.close();
+    }
+
+    @Test
+    public void testChangesDuringBackgroundCompactionAreKept() throws Exception {
+        final File directory = folder.newFolder("background");
+        final ZigBeeNetwork network = new ZigBeeNetwork();
+        final NetworkStateJournal journal = new NetworkStateJournal(directory);
+        journal.setCompactionThreshold(2);
+        journal.open(network);
+
+        for (int i = 0; i < 200; i++) {
+            final ZigBeeNodeImpl node = new ZigBeeNodeImpl(i + 1, 0x100L + i, (short) 2);
+            network.addNode(node);
+            network.addEndpoint(new ZigBeeEndpointImpl(node, 0x104, 0x100, (byte) 1, (short) 1, new int[]{6}, new int[]{}));
+            if (i % 4 == 0) {
+                network.changeNetworkAddress(0x100L + i, 0x1000 + i);
+            }
+        }
+        journal.awaitCompaction();
+
+        // Restore without closing the journal as after a crash.
+        final ZigBeeNetwork restored = new ZigBeeNetwork();
+        assertEquals(200, new NetworkStateJournal(directory).restore(null, restored));
+        assertEquals(0x1000 + 196, restored.getNodeByIeeeAddress(0x100L + 196).getNetworkAddress());
+        assertEquals(198, restored.getNodeByIeeeAddress(0x100L + 197).getNetworkAddress());
+        journal.close();
+    }
+}
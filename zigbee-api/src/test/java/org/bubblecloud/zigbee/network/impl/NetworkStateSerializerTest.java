@@ -25,6 +25,7 @@ import org.junit.Test;
 public class NetworkStateSerializerTest {
 
     @Test
+    @SuppressWarnings("deprecation")
     public void testSerializeNetworkState() {
         final ZigBeeNodeImpl node = new ZigBeeNodeImpl(1, "00:00:00:00:00:00:00:00", (short) 2);
         final ZigBeeEndpointImpl endpoint = new ZigBeeEndpointImpl(node, 1, 2, (byte) 3, (short) 4, new int[] {5}, new int[] {6});
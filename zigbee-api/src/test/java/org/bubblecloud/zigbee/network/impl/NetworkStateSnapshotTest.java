@@ -0,0 +1,133 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.impl;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests streaming network state snapshot export and filtered import.
+ */
+public class NetworkStateSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFilteredChannelExportImport() throws Exception {
+        final ZigBeeNetwork network = new ZigBeeNetwork();
+        for (int i = 0; i < 6; i++) {
+            final ZigBeeNodeImpl node = new ZigBeeNodeImpl(i + 1, 0x100L + i, (short) (i % 2));
+            network.addNode(node);
+            network.addEndpoint(new ZigBeeEndpointImpl(node, 0x104, 0x100, (byte) 1, (short) 1, new int[]{6}, new int[]{}));
+            network.addEndpoint(new ZigBeeEndpointImpl(node, 0x104, 0x302, (byte) 1, (short) 2, new int[]{0x402}, new int[]{}));
+        }
+
+        final File file = folder.newFile("network.snapshot");
+        final FileChannel out = new FileOutputStream(file).getChannel();
+        assertEquals(12, NetworkStateSnapshot.write(network, Channels.newOutputStream(out), NetworkStateFilter.ALL));
+        out.close();
+
+        final ZigBeeNetwork panNetwork = new ZigBeeNetwork();
+        final FileChannel in = new FileInputStream(file).getChannel();
+        assertEquals(6, NetworkStateSnapshot.restore(Channels.newInputStream(in), null, panNetwork,
+                new NetworkStateFilter.Pan((short) 1)));
+        in.close();
+        assertEquals(3, panNetwork.getNodes().size());
+        assertNull(panNetwork.getNodeByIeeeAddress(0x100L));
+
+        final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+        NetworkStateSnapshot.write(network, partial, new NetworkStateFilter.Nodes(0x102L, 0x105L));
+        final ZigBeeNetwork nodeNetwork = new ZigBeeNetwork();
+        assertEquals(4, NetworkStateSnapshot.restore(new ByteArrayInputStream(partial.toByteArray()), null,
+                nodeNetwork, NetworkStateFilter.ALL));
+        assertTrue(nodeNetwork.containsEndpoint(0x105L, (short) 2));
+    }
+
+    @Test
+    public void testReadVersion1() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(NetworkStateSnapshot.MAGIC);
+        out.writeShort(1);
+        out.writeLong(0L);
+        out.writeInt(1);
+        NetworkStateSnapshot.writeNode(out, 0x200L, 3, (short) 4);
+        out.writeByte(1);
+        out.writeByte(1);
+        out.writeShort(0x104);
+        out.writeShort(0x100);
+        out.writeByte(0);
+        out.writeByte(1);
+        out.writeShort(6);
+        out.writeByte(0);
+        out.flush();
+        final CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+
+        final NetworkStateImage image = new NetworkStateImage();
+        NetworkStateSnapshot.read(new ByteArrayInputStream(bytes.toByteArray()), image);
+        assertEquals(1, image.getEndpoints().size());
+        assertTrue(image.getEndpoints().get(0).providesInputCluster(6));
+        assertEquals(3, image.getEndpoints().get(0).getNode().getNetworkAddress());
+    }
+
+    @Test
+    public void testCorruptedSnapshotLeavesNetworkUnchanged() throws Exception {
+        final ZigBeeNetwork network = new ZigBeeNetwork();
+        for (int i = 0; i < 3; i++) {
+            final ZigBeeNodeImpl node = new ZigBeeNodeImpl(i + 1, 0x100L + i, (short) 1);
+            network.addNode(node);
+            network.addEndpoint(new ZigBeeEndpointImpl(node, 0x104, 0x100, (byte) 1, (short) 1, new int[]{6}, new int[]{}));
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NetworkStateSnapshot.write(network, out);
+        final byte[] snapshot = out.toByteArray();
+
+        final byte[] truncated = Arrays.copyOf(snapshot, snapshot.length - 3);
+        final byte[] flipped = snapshot.clone();
+        flipped[snapshot.length - 8] ^= 0x10;
+
+        for (final byte[] corrupted : new byte[][]{truncated, flipped}) {
+            final ZigBeeNetwork restored = new ZigBeeNetwork();
+            try {
+                NetworkStateSnapshot.restore(new ByteArrayInputStream(corrupted), null, restored,
+                        NetworkStateFilter.ALL);
+                fail("Corrupted snapshot was restored.");
+            } catch (final IOException e) {
+                // Expected.
+            }
+            assertTrue(restored.getNodes().isEmpty());
+            assertEquals(0, restored.getEndpointRegistry().size());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.impl;
+
+import org.bubblecloud.zigbee.network.ClusterMessage;
+import org.bubblecloud.zigbee.network.ZigBeeNetworkManager;
+import org.bubblecloud.zigbee.network.packet.af.AF_DATA_CONFIRM;
+import org.bubblecloud.zigbee.network.packet.af.AF_DATA_REQUEST;
+import org.bubblecloud.zigbee.network.packet.af.AF_INCOMING_MSG;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests matching of incoming messages to endpoint invocations.
+ */
+public class ZigBeeEndpointImplTest {
+
+    private static final int NETWORK_ADDRESS = 0x1234;
+    private static final short CLUSTER_ID = 0x0006;
+
+    @Test
+    public void testInvokeReceivesResponseFromEndpointAbove127() throws Exception {
+        final ZigBeeNetworkManager manager = createNiceMock(ZigBeeNetworkManager.class);
+        final ZigBeeEndpointImpl endpoint = new ZigBeeEndpointImpl(new ZigBeeNodeImpl(NETWORK_ADDRESS, 0x1000L,
+                (short) 2), 0x0104, 0x0100, (byte) 0, (short) 0xE8, new int[]{CLUSTER_ID}, new int[]{});
+        endpoint.setNetworkManager(manager);
+        ApplicationFrameworkLayer.getAFLayer(manager).registerSenderEndPoint((short) 1, 0x0104, new int[]{CLUSTER_ID});
+
+        expect(manager.sendAFDataRequest(anyObject(AF_DATA_REQUEST.class))).andAnswer(new IAnswer<AF_DATA_CONFIRM>() {
+            @Override
+            public AF_DATA_CONFIRM answer() throws Throwable {
+                // A response from another endpoint of the node must be left to that endpoint.
+                endpoint.notify(response(0x68, 0x02));
+                endpoint.notify(response(0xE8, 0x01));
+                return new AF_DATA_CONFIRM(0, 1, 0);
+            }
+        });
+        replay(manager);
+
+        final ClusterMessage result = endpoint.invoke(new ClusterMessageImpl(new byte[]{0x00, 0x01, 0x00}, CLUSTER_ID));
+        assertEquals(CLUSTER_ID, result.getId());
+        assertArrayEquals(new byte[]{0x08, 0x01, 0x0B, 0x01}, result.getClusterMsg());
+    }
+
+    private static AF_INCOMING_MSG response(final int sourceEndpoint, final int value) {
+        return new AF_INCOMING_MSG(new int[]{
+                0x00, 0x00, CLUSTER_ID & 0xFF, CLUSTER_ID >> 8, NETWORK_ADDRESS & 0xFF, NETWORK_ADDRESS >> 8,
+                sourceEndpoint, 0x01, 0x00, 0xFF, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x04,
+                0x08, 0x01, 0x0B, value
+        });
+    }
+}
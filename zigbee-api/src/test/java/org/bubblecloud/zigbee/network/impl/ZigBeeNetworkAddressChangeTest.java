@@ -0,0 +1,51 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for rebinding node to new network address.
+ */
+public class ZigBeeNetworkAddressChangeTest {
+
+    @Test
+    public void testChangeNetworkAddress() {
+        final ZigBeeNodeImpl node = new ZigBeeNodeImpl(1, "00:00:00:00:00:00:00:01", (short) 2);
+        final ZigBeeEndpointImpl endpoint = new ZigBeeEndpointImpl(node, 1, 2, (byte) 3, (short) 4, new int[] {5}, new int[] {6});
+
+        final ZigBeeNetwork zigBeeNetwork = new ZigBeeNetwork();
+        zigBeeNetwork.addNode(node);
+        zigBeeNetwork.addEndpoint(endpoint);
+
+        Assert.assertSame(node, zigBeeNetwork.getNode(1));
+        Assert.assertTrue(zigBeeNetwork.changeNetworkAddress("00:00:00:00:00:00:00:01", 0x1234));
+
+        Assert.assertNull(zigBeeNetwork.getNode(1));
+        Assert.assertSame(node, zigBeeNetwork.getNode(0x1234));
+        Assert.assertEquals(0x1234, endpoint.getNetworkAddress());
+        Assert.assertSame(endpoint, zigBeeNetwork.getEndPoints(
+                new ZigBeeNodeImpl(0x1234, "00:00:00:00:00:00:00:01", (short) 2)).get(0));
+        Assert.assertTrue(zigBeeNetwork.containsEndpoint("00:00:00:00:00:00:00:01", (short) 4));
+    }
+
+    @Test
+    public void testChangeNetworkAddressOfUnknownNode() {
+        final ZigBeeNetwork zigBeeNetwork = new ZigBeeNetwork();
+        Assert.assertFalse(zigBeeNetwork.changeNetworkAddress("00:00:00:00:00:00:00:01", 0x1234));
+    }
+}
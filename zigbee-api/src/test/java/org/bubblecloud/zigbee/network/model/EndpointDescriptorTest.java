@@ -0,0 +1,90 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.model;
+
+import org.bubblecloud.zigbee.network.impl.ZigBeeEndpointImpl;
+import org.bubblecloud.zigbee.network.impl.ZigBeeNodeImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests interning and cluster membership of endpoint descriptors.
+ */
+public class EndpointDescriptorTest {
+
+    @Test
+    public void testInterning() {
+        final EndpointDescriptor first = EndpointDescriptor.intern(0x0104, 0x0100, (byte) 1,
+                new int[]{6, 0, 3}, new int[]{0x19});
+        final EndpointDescriptor second = EndpointDescriptor.intern(0x0104, 0x0100, (byte) 1,
+                new int[]{0, 3, 6}, new int[]{0x19});
+        Assert.assertSame(first, second);
+        Assert.assertNotSame(first, first.withDeviceVersion((byte) 2));
+        Assert.assertFalse(first.withDeviceVersion((byte) 2).isInterned());
+        Assert.assertSame(first, first.withDeviceVersion((byte) 2).withDeviceVersion((byte) 1).intern());
+        Assert.assertArrayEquals(new int[]{0, 3, 6}, first.getInputClusters());
+    }
+
+    @Test
+    public void testClustersAreCopied() {
+        final EndpointDescriptor descriptor = EndpointDescriptor.intern(0x0104, 0x0100, (byte) 1,
+                new int[]{6, 0, 3}, new int[]{0x19});
+        descriptor.getInputClusters()[0] = 0x19;
+        Assert.assertArrayEquals(new int[]{0, 3, 6}, descriptor.getInputClusters());
+        Assert.assertEquals(3, descriptor.getInputClusterCount());
+        Assert.assertEquals(6, descriptor.getInputCluster(2));
+        Assert.assertEquals(0x19, descriptor.getOutputCluster(0));
+    }
+
+    @Test
+    public void testSettersDoNotInternIntermediateDescriptors() {
+        final int internedCount = EndpointDescriptor.getInternedCount();
+        final ZigBeeEndpointImpl endpoint = new ZigBeeEndpointImpl();
+        endpoint.setProfileId(0x0104);
+        endpoint.setDeviceTypeId(0x7E57);
+        endpoint.setDeviceVersion((byte) 3);
+        endpoint.setInputClusters(new int[]{6, 0});
+        endpoint.setOutputClusters(new int[]{0x19});
+        // Unused descriptors may be collected meanwhile, so the count can only drop.
+        Assert.assertTrue(EndpointDescriptor.getInternedCount() <= internedCount);
+
+        Assert.assertSame(EndpointDescriptor.intern(0x0104, 0x7E57, (byte) 3, new int[]{0, 6}, new int[]{0x19}),
+                endpoint.getDescriptor());
+        Assert.assertArrayEquals(new int[]{0, 6}, endpoint.getInputClusters());
+    }
+
+    @Test
+    public void testClusterMembership() {
+        final EndpointDescriptor descriptor = EndpointDescriptor.intern(0x0104, 0x0100, (byte) 1,
+                new int[]{6, 0, 3}, new int[]{0x19});
+        Assert.assertTrue(descriptor.providesInputCluster(3));
+        Assert.assertFalse(descriptor.providesInputCluster(0x19));
+        Assert.assertTrue(descriptor.providesOutputCluster(0x19));
+        Assert.assertFalse(descriptor.providesOutputCluster(6));
+    }
+
+    @Test
+    public void testSharedByEndpoints() {
+        final ZigBeeEndpointImpl first = new ZigBeeEndpointImpl(
+                new ZigBeeNodeImpl(1, "00:00:00:00:00:00:00:01", (short) 2),
+                0x0104, 0x0100, (byte) 1, (short) 1, new int[]{0, 3, 6}, new int[]{});
+        final ZigBeeEndpointImpl second = new ZigBeeEndpointImpl(
+                new ZigBeeNodeImpl(2, "00:00:00:00:00:00:00:02", (short) 2),
+                0x0104, 0x0100, (byte) 1, (short) 1, new int[]{0, 3, 6}, new int[]{});
+        Assert.assertSame(first.getDescriptor(), second.getDescriptor());
+        Assert.assertTrue(second.providesInputCluster(6));
+    }
+}
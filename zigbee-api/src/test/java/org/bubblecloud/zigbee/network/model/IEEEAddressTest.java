@@ -0,0 +1,39 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests IEEE address conversions.
+ */
+public class IEEEAddressTest {
+
+    @Test
+    public void testColonNotation() {
+        Assert.assertEquals("00:12:4B:00:01:17:D1:FF", IEEEAddress.toColonNotation(0x00124B000117D1FFL));
+        Assert.assertEquals("FF:FF:FF:FF:FF:FF:FF:FE", IEEEAddress.toColonNotation(0xFFFFFFFFFFFFFFFEL));
+        Assert.assertEquals(0x00124B000117D1FFL, IEEEAddress.fromColonNotation("00:12:4b:00:01:17:d1:ff"));
+        Assert.assertEquals(0xFFFFFFFFFFFFFFFEL, IEEEAddress.fromColonNotation("FF:FF:FF:FF:FF:FF:FF:FE"));
+        Assert.assertEquals(1L, IEEEAddress.fromColonNotation("0:0:0:0:0:0:0:1"));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testInvalidColonNotation() {
+        IEEEAddress.fromColonNotation("00:12:4X:00:01:17:D1:FF");
+    }
+}
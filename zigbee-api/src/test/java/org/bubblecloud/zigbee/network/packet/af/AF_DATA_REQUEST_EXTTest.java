@@ -0,0 +1,47 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.packet.af;
+
+import org.bubblecloud.zigbee.network.packet.ZToolCMD;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests group addressed {@link AF_DATA_REQUEST_EXT} frame layout.
+ */
+public class AF_DATA_REQUEST_EXTTest {
+
+    @Test
+    public void testGroupAddressing() {
+        final int[] packet = new AF_DATA_REQUEST_EXT(0x1234, (short) 2, (short) 0x0006, (byte) 7,
+                (byte) 0, (byte) 0, new byte[]{0x00, (byte) 0xA5, 0x00, 0x00, 0x00}).getPacket();
+
+        assertEquals(25, packet[1]);
+        assertEquals(ZToolCMD.AF_DATA_REQUEST_EXT >> 8, packet[2]);
+        assertEquals(ZToolCMD.AF_DATA_REQUEST_EXT & 0xFF, packet[3]);
+        assertEquals(AF_DATA_REQUEST_EXT.ADDRESS_MODE_GROUP, packet[4]);
+        assertEquals(0x34, packet[5]);
+        assertEquals(0x12, packet[6]);
+        assertEquals(2, packet[16]);
+        assertEquals(0x06, packet[17]);
+        assertEquals(0x00, packet[18]);
+        assertEquals(7, packet[19]);
+        assertEquals(5, packet[22]);
+        assertEquals(0, packet[23]);
+        assertEquals(0xA5, packet[25]);
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.packet.zdo;
+
+import org.bubblecloud.zigbee.network.packet.ZToolAddress16;
+import org.bubblecloud.zigbee.network.packet.ZToolAddress64;
+import org.bubblecloud.zigbee.network.packet.ZToolCMD;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests parsing of leave indication.
+ */
+public class ZDO_LEAVE_INDTest {
+
+    @Test
+    public void testZDO_LEAVE_INDIntArray() {
+        final int[] bytes = new int[]{
+                0x34, 0x12,                                     //Source Address
+                0xD1, 0x17, 0x01, 0x00, 0x00, 0x4B, 0x12, 0x00, //IEEE Address
+                0x00,                                           //Request
+                0x00,                                           //Remove
+                0x01                                            //Rejoin
+        };
+        final ZDO_LEAVE_IND msg = new ZDO_LEAVE_IND(bytes);
+        assertEquals((short) ZToolCMD.ZDO_LEAVE_IND, msg.getCommandId());
+        assertEquals(new ZToolAddress16(0x12, 0x34), msg.SrcAddr);
+        assertEquals(new ZToolAddress64(new byte[]{
+                0x00, 0x12, 0x4B, 0x00, 0x00, 0x01, 0x17, (byte) 0xD1
+        }), msg.ExtAddr);
+        assertEquals(0, msg.Request);
+        assertEquals(0, msg.Remove);
+        assertEquals(1, msg.Rejoin);
+    }
+
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.packet.zdo;
+
+import org.bubblecloud.zigbee.network.packet.ZToolAddress16;
+import org.bubblecloud.zigbee.util.DoubleByte;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Tests serialization of match descriptor request.
+ */
+public class ZDO_MATCH_DESC_REQTest {
+
+    @Test
+    public void testZDO_MATCH_DESC_REQBroadcast() {
+        final ZToolAddress16 broadcast = new ZToolAddress16(0xFF, 0xFD);
+        final ZDO_MATCH_DESC_REQ request = new ZDO_MATCH_DESC_REQ(broadcast, broadcast, new DoubleByte(0x0104),
+                1, new DoubleByte[]{new DoubleByte(0x0500)}, 2, new DoubleByte[]{new DoubleByte(0x0006),
+                new DoubleByte(0x0702)}, 0);
+        final int[] packet = request.getPacket();
+        assertArrayEquals(new int[]{
+                0xFD, 0xFF,             //Destination Address
+                0xFD, 0xFF,             //Network Address of Interest
+                0x04, 0x01,             //Profile ID
+                0x01, 0x00, 0x05,       //Input Clusters
+                0x02, 0x06, 0x00, 0x02, 0x07 //Output Clusters
+        }, Arrays.copyOfRange(packet, 4, packet.length - 1));
+    }
+
+}
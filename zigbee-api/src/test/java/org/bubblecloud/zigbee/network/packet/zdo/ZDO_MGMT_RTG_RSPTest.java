@@ -0,0 +1,61 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.packet.zdo;
+
+import org.bubblecloud.zigbee.network.packet.ZToolAddress16;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests parsing of routing table response.
+ */
+public class ZDO_MGMT_RTG_RSPTest {
+
+    @Test
+    public void testZDO_MGMT_RTG_RSPIntArray() {
+        final int[] bytes = new int[]{
+            0x34, 0x12,      //Source Address
+            0x00,            //Status
+            0x05,            //NEntries on device
+            0x03,            //FirstIndex
+            0x02,            //NEntries on message
+
+            0xAA, 0x11,      //Destination Address
+            0x00,            //Status
+            0xBB, 0x22,      //Next Hop
+
+            0xCC, 0x33,      //Destination Address
+            0x02,            //Status
+            0xDD, 0x44,      //Next Hop
+        };
+        final ZDO_MGMT_RTG_RSP cmd = new ZDO_MGMT_RTG_RSP(bytes);
+        assertEquals(0x1234, cmd.SrcAddress.get16BitValue());
+        assertEquals(0, cmd.Status);
+        assertEquals(5, cmd.getRoutingTableEntries());
+        assertEquals(3, cmd.getStartIndex());
+        assertEquals(2, cmd.getRoutingTableListCount());
+
+        final ZDO_MGMT_RTG_RSP.RoutingTableListItemClass[] routes = cmd.getRoutingTableList();
+        assertEquals(new ZToolAddress16(0x11, 0xAA), routes[0].DestinationAddress);
+        assertEquals(new ZToolAddress16(0x22, 0xBB), routes[0].NextHop);
+        assertEquals(0, routes[0].Status);
+        assertEquals(new ZToolAddress16(0x33, 0xCC), routes[1].DestinationAddress);
+        assertEquals(new ZToolAddress16(0x44, 0xDD), routes[1].NextHop);
+        assertEquals(2, routes[1].Status);
+    }
+
+}
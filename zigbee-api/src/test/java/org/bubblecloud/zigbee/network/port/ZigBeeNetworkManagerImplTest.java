@@ -0,0 +1,58 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.port;
+
+import org.bubblecloud.zigbee.network.model.NetworkMode;
+import org.bubblecloud.zigbee.network.packet.util.UTIL_GET_DEVICE_INFO_RESPONSE;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ZigBeeNetworkManagerImplTest {
+
+    @Test
+    public void testRunningDeviceState() {
+        assertEquals(UTIL_GET_DEVICE_INFO_RESPONSE.DEVICE_STATE.DEV_ZB_COORD,
+                ZigBeeNetworkManagerImpl.getRunningDeviceState(NetworkMode.Coordinator));
+        assertEquals(UTIL_GET_DEVICE_INFO_RESPONSE.DEVICE_STATE.DEV_ROUTER,
+                ZigBeeNetworkManagerImpl.getRunningDeviceState(NetworkMode.Router));
+        assertEquals(UTIL_GET_DEVICE_INFO_RESPONSE.DEVICE_STATE.DEV_END_DEVICE,
+                ZigBeeNetworkManagerImpl.getRunningDeviceState(NetworkMode.EndDevice));
+    }
+
+    @Test
+    public void testConfigurationMatching() {
+        final short pan = (short) 0xABCD;
+        final byte channel = 11;
+        final int[] panId = new int[]{0xCD, 0xAB};
+        final int[] channels = ZigBeeNetworkManagerImpl.buildChannelMask(channel);
+        final int[] logicalType = new int[]{NetworkMode.Coordinator.ordinal()};
+
+        assertTrue(ZigBeeNetworkManagerImpl.isConfigurationMatching(
+                NetworkMode.Coordinator, pan, channel, panId, channels, logicalType));
+
+        assertFalse(ZigBeeNetworkManagerImpl.isConfigurationMatching(
+                NetworkMode.Coordinator, (short) 0x1234, channel, panId, channels, logicalType));
+        assertFalse(ZigBeeNetworkManagerImpl.isConfigurationMatching(
+                NetworkMode.Coordinator, pan, (byte) 15, panId, channels, logicalType));
+        assertFalse(ZigBeeNetworkManagerImpl.isConfigurationMatching(
+                NetworkMode.Router, pan, channel, panId, channels, logicalType));
+        assertFalse(ZigBeeNetworkManagerImpl.isConfigurationMatching(
+                NetworkMode.Coordinator, pan, channel, null, channels, logicalType));
+    }
+}
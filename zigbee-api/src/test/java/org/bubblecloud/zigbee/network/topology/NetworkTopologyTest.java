@@ -0,0 +1,174 @@
+/**
+ * Copyright 2013 Tommi S.E. Laukkanen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bubblecloud.zigbee.network.topology;
+
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_MGMT_LQI_RSP;
+import org.bubblecloud.zigbee.network.packet.zdo.ZDO_MGMT_RTG_RSP;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests network topology model updates and queries.
+ */
+public class NetworkTopologyTest {
+
+    private NetworkTopology topology;
+
+    @Before
+    public void setUp() {
+        topology = new NetworkTopology();
+        // Coordinator 0x0000 sees router 0x0001 (child) and end device 0x0003 (child).
+        topology.updateNeighbors(lqiResponse(0x0000, 0, 2, new int[][]{
+                {0x0001, 0x01, 1, 200},
+                {0x0003, 0x02, 1, 150}
+        }));
+        // Router 0x0001 sees coordinator (parent) and end device 0x0002 (child).
+        topology.updateNeighbors(lqiResponse(0x0001, 0, 2, new int[][]{
+                {0x0000, 0x00, 0, 180},
+                {0x0002, 0x02, 2, 40}
+        }));
+    }
+
+    @Test
+    public void testNodesAndNeighbors() {
+        assertEquals(4, topology.getNodes().size());
+        assertEquals(TopologyNode.DEVICE_TYPE_END_DEVICE, topology.getNode(2).getDeviceType());
+        assertEquals(TopologyNode.DEVICE_TYPE_ROUTER, topology.getNode(1).getDeviceType());
+        assertEquals(2, topology.getNeighbors(1).size());
+        assertEquals(1, topology.getNeighbors(2).size());
+        assertEquals(0x0100000000000002L, topology.getNode(2).getIeeeAddress());
+    }
+
+    @Test
+    public void testHopCount() {
+        assertEquals(0, topology.getHopCount(0));
+        assertEquals(1, topology.getHopCount(1));
+        assertEquals(1, topology.getHopCount(3));
+        assertEquals(2, topology.getHopCount(2));
+        assertEquals(-1, topology.getHopCount(0x7777));
+    }
+
+    @Test
+    public void testWeakestLinks() {
+        final List<TopologyLink> weakest = topology.getWeakestLinks(1);
+        assertEquals(1, weakest.size());
+        assertEquals(2, weakest.get(0).getSource());
+        assertEquals(1, weakest.get(0).getDestination());
+        assertEquals(40, weakest.get(0).getLinkQuality());
+    }
+
+    @Test
+    public void testSinglePointsOfFailure() {
+        final List<TopologyNode> failurePoints = topology.getSinglePointsOfFailure();
+        assertEquals(1, failurePoints.size());
+        assertEquals(1, failurePoints.get(0).getNetworkAddress());
+
+        // Second path to end device via router 0x0004 removes the single point of failure.
+        topology.updateNeighbors(lqiResponse(0x0004, 0, 2, new int[][]{
+                {0x0000, 0x00, 0, 100},
+                {0x0002, 0x02, 2, 100}
+        }));
+        assertTrue(topology.getSinglePointsOfFailure().isEmpty());
+    }
+
+    @Test
+    public void testStaleLinksPrunedOnCompleteTable() throws Exception {
+        Thread.sleep(2);
+        topology.updateNeighbors(lqiResponse(0x0001, 0, 1, new int[][]{
+                {0x0000, 0x00, 0, 180}
+        }));
+        assertEquals(0, countLinks(2, 1));
+        assertEquals(1, countLinks(0, 1));
+        assertEquals(-1, topology.getHopCount(2));
+    }
+
+    @Test
+    public void testRoutes() {
+        final int[] bytes = new int[]{
+                0x01, 0x00, 0x00, 0x01, 0x00, 0x01,
+                0x02, 0x00, 0x00, 0x02, 0x00
+        };
+        topology.updateRoutes(new ZDO_MGMT_RTG_RSP(bytes));
+        final List<TopologyRoute> routes = topology.getRoutes(1);
+        assertEquals(1, routes.size());
+        assertEquals(2, routes.get(0).getDestination());
+        assertEquals(2, routes.get(0).getNextHop());
+    }
+
+    @Test
+    public void testRemoveNodeAndSnapshot() {
+        assertTrue(topology.removeNode(2));
+        assertFalse(topology.removeNode(2));
+        final TopologySnapshot snapshot = topology.getSnapshot();
+        assertEquals(3, snapshot.getNodes().size());
+        assertEquals(3, snapshot.getLinks().size());
+        assertNotNull(snapshot.toDot());
+    }
+
+    private int countLinks(final int source, final int destination) {
+        int count = 0;
+        for (final TopologyLink link : topology.getLinks(destination)) {
+            if (link.getSource() == source && link.getDestination() == destination) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Builds neighbor table response from neighbor rows of network address, device type,
+     * relationship and link quality.
+     */
+    private static ZDO_MGMT_LQI_RSP lqiResponse(final int source, final int startIndex, final int totalEntries,
+                                                final int[][] neighbors) {
+        final List<Integer> bytes = new ArrayList<Integer>();
+        bytes.add(source & 0xFF);
+        bytes.add((source >> 8) & 0xFF);
+        bytes.add(0x00);
+        bytes.add(totalEntries);
+        bytes.add(startIndex);
+        bytes.add(neighbors.length);
+        for (final int[] neighbor : neighbors) {
+            for (int i = 0; i < 8; i++) {
+                bytes.add(0x00);
+            }
+            bytes.add(neighbor[0] & 0xFF);
+            for (int i = 1; i < 7; i++) {
+                bytes.add(0x00);
+            }
+            bytes.add(0x01);
+            bytes.add(neighbor[0] & 0xFF);
+            bytes.add((neighbor[0] >> 8) & 0xFF);
+            bytes.add(neighbor[1] | (neighbor[2] << 4));
+            bytes.add(0x00);
+            bytes.add(1);
+            bytes.add(neighbor[3]);
+        }
+        final int[] frame = new int[bytes.size()];
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = bytes.get(i);
+        }
+        return new ZDO_MGMT_LQI_RSP(frame);
+    }
+}
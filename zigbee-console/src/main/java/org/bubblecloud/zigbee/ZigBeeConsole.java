@@ -3,6 +3,7 @@ package org.bubblecloud.zigbee;
 import org.apache.commons.io.FileUtils;
 import org.bubblecloud.zigbee.api.Device;
 import org.bubblecloud.zigbee.api.DeviceListener;
+import org.bubblecloud.zigbee.api.DeviceRestoreListener;
 import org.bubblecloud.zigbee.api.ZigBeeApiConstants;
 import org.bubblecloud.zigbee.api.ZigBeeDeviceException;
 import org.bubblecloud.zigbee.api.cluster.Cluster;
@@ -75,6 +76,8 @@ public final class ZigBeeConsole {
 		commands.put("unsubscribe", new UnsubscribeCommand());
 		commands.put("read", 		new ReadCommand());
 		commands.put("write", 		new WriteCommand());
+		commands.put("backup", 		new BackupCommand());
+		commands.put("restore", 	new RestoreCommand());
 	}
 
 	/**
@@ -87,15 +90,19 @@ public final class ZigBeeConsole {
         //discoveryModes.remove(DiscoveryMode.LinkQuality);
         final ZigBeeApi zigbeeApi = new ZigBeeApi(port, pan, channel, resetNetwork, discoveryModes);
 
-        final File networkStateFile = new File("network.json");
-        if (networkStateFile.exists()) {
-            try {
-                final String networkState = FileUtils.readFileToString(networkStateFile);
-                zigbeeApi.deserializeNetworkState(networkState);
-            } catch (final Exception e) {
-                e.printStackTrace();
-                return;
+        final File networkStateDirectory = new File("network");
+        final File legacyNetworkStateFile = new File("network.json");
+        final boolean networkStateRestored;
+        try {
+            if (legacyNetworkStateFile.exists() && !networkStateDirectory.exists()) {
+                // Imports the legacy JSON state once, it is persisted to the network state directory from then on.
+                zigbeeApi.deserializeNetworkState(FileUtils.readFileToString(legacyNetworkStateFile));
             }
+            networkStateRestored = zigbeeApi.persistNetworkState(networkStateDirectory)
+                    || legacyNetworkStateFile.exists();
+        } catch (final Exception e) {
+            e.printStackTrace();
+            return;
         }
 
         if (!zigbeeApi.startup()) {
@@ -105,7 +112,12 @@ public final class ZigBeeConsole {
             print("ZigBee API starting up ... [OK]");
         }
 
-        zigbeeApi.addDeviceListener(new DeviceListener() {
+        zigbeeApi.addDeviceListener(new DeviceRestoreListener() {
+            @Override
+            public void devicesRestored(List<Device> devices) {
+                print("Devices restored: " + devices.size());
+            }
+
             @Override
             public void deviceAdded(Device device) {
                 print("Device added: " + device.getEndpointId() + " (#" + device.getNetworkAddress() + ")");
@@ -140,7 +152,7 @@ public final class ZigBeeConsole {
         }));
 
         print("Browsing network for the first time...");
-        while (!shutdown && !networkStateFile.exists() && !zigbeeApi.isInitialBrowsingComplete()) {
+        while (!shutdown && !networkStateRestored && !zigbeeApi.isInitialBrowsingComplete()) {
             System.out.print('.');
             try {
                 Thread.sleep(250);
@@ -159,12 +171,6 @@ public final class ZigBeeConsole {
         }
 
         zigbeeApi.shutdown();
-
-        try {
-            FileUtils.writeStringToFile(networkStateFile, zigbeeApi.serializeNetworkState(), false);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
     }
 
     /**
@@ -1178,6 +1184,87 @@ public final class ZigBeeConsole {
         }
     }
 
+    /**
+     * Backs up coordinator network NV items to file.
+     */
+    private class BackupCommand implements ConsoleCommand {
+        /**
+         * {@inheritDoc}
+         */
+        public String getDescription() {
+            return "Back up coordinator network state to file.";
+        }
+        /**
+         * {@inheritDoc}
+         */
+        public String getSyntax() {
+            return "backup [FILE]";
+        }
+        /**
+         * {@inheritDoc}
+         */
+        public boolean process(final ZigBeeApi zigbeeApi, final String[] args) {
+            if (args.length != 2) {
+                return false;
+            }
+
+            try {
+                final OutputStream out = new FileOutputStream(args[1]);
+                try {
+                    final int items = zigbeeApi.backupCoordinator(out);
+                    print("Backed up " + items + " NV items to " + args[1]);
+                } finally {
+                    out.close();
+                }
+            } catch (final IOException e) {
+                print("Failed to back up coordinator: " + e.getMessage());
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Restores coordinator network NV items from file.
+     */
+    private class RestoreCommand implements ConsoleCommand {
+        /**
+         * {@inheritDoc}
+         */
+        public String getDescription() {
+            return "Restore coordinator network state from file.";
+        }
+        /**
+         * {@inheritDoc}
+         */
+        public String getSyntax() {
+            return "restore [FILE]";
+        }
+        /**
+         * {@inheritDoc}
+         */
+        public boolean process(final ZigBeeApi zigbeeApi, final String[] args) {
+            if (args.length != 2) {
+                return false;
+            }
+
+            try {
+                final InputStream in = new FileInputStream(args[1]);
+                try {
+                    final int items = zigbeeApi.restoreCoordinator(in);
+                    print("Restored " + items + " NV items from " + args[1]);
+                    print("Reset the dongle and restart without network reset to resume the network.");
+                } finally {
+                    in.close();
+                }
+            } catch (final IOException e) {
+                print("Failed to restore coordinator: " + e.getMessage());
+            }
+
+            return true;
+        }
+    }
+
     /**
      * Anonymous class report listener implementation which prints the reports to console.
      */